@@ -0,0 +1,45 @@
+package entities.relationship;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class OneToOneChild extends ManagedEntity implements IManagedEntity
+{
+    public OneToOneChild()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.NONE)
+    public java.lang.String identifier;
+
+    @Attribute
+    public int correlation;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = entities.relationship.OneToOneParent.class
+                  ,inverse = "cascadeChild"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.NONE)
+    public entities.relationship.OneToOneParent cascadeParent;
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = entities.relationship.OneToOneParent.class
+                  ,inverse = "child"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.NONE)
+    public entities.relationship.OneToOneParent parent;
+
+
+}
@@ -0,0 +1,61 @@
+package entities.relationship;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class OneToOneParent extends ManagedEntity implements IManagedEntity
+{
+    public OneToOneParent()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.NONE)
+    public java.lang.String identifier;
+
+    @Attribute
+    public int correlation;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = entities.relationship.OneToOneChild.class
+                  ,inverse = "cascadeParent"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.ALL)
+    public entities.relationship.OneToOneChild cascadeChild;
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = entities.relationship.OneToOneChild.class
+                  ,inverse = "parent"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.SAVE)
+    public entities.relationship.OneToOneChild child;
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = entities.relationship.OneToOneChild.class
+                  ,inverse = ""
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.SAVE)
+    public entities.relationship.OneToOneChild childNoInverse;
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = entities.relationship.OneToOneChild.class
+                  ,inverse = ""
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.ALL)
+    public entities.relationship.OneToOneChild childNoInverseCascade;
+
+
+}
@@ -0,0 +1,48 @@
+package com.onyx.entity;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class SystemPartitionEntry extends ManagedEntity implements IManagedEntity
+{
+    public SystemPartitionEntry()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public int primaryKey;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Attribute
+    public java.lang.String fileName;
+
+    @Partition
+    @Attribute
+    public java.lang.String id;
+
+    @Partition
+    @Attribute
+    public long index;
+
+    @Attribute
+    public java.lang.String value;
+
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.MANY_TO_ONE
+                  ,inverseClass = com.onyx.entity.SystemPartition.class
+                  ,inverse = "entries"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.NONE)
+    public com.onyx.entity.SystemPartition partition;
+
+
+}
@@ -0,0 +1,55 @@
+package com.onyx.entity;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class SystemAttribute extends ManagedEntity implements IManagedEntity
+{
+    public SystemAttribute()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public int primaryKey;
+
+    @Attribute
+    public java.lang.String dataType;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Attribute
+    public java.lang.String id;
+
+    @Attribute
+    public boolean indexed;
+
+    @Attribute
+    public boolean key;
+
+    @Attribute
+    public java.lang.String name;
+
+    @Attribute
+    public boolean nullable;
+
+    @Attribute
+    public int size;
+
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.MANY_TO_ONE
+                  ,inverseClass = com.onyx.entity.SystemEntity.class
+                  ,inverse = "attributes"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.NONE)
+    public com.onyx.entity.SystemEntity entity;
+
+
+}
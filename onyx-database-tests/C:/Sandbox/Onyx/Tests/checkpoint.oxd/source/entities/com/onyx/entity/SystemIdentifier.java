@@ -0,0 +1,44 @@
+package com.onyx.entity;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class SystemIdentifier extends ManagedEntity implements IManagedEntity
+{
+    public SystemIdentifier()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public int primaryKey;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Attribute
+    public int generator;
+
+    @Partition
+    @Attribute
+    public java.lang.String id;
+
+    @Attribute
+    public java.lang.String name;
+
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = com.onyx.entity.SystemEntity.class
+                  ,inverse = "identifier"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.NONE)
+    public com.onyx.entity.SystemEntity entity;
+
+
+}
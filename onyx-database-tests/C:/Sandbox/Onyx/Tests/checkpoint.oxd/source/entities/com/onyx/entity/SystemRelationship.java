@@ -0,0 +1,59 @@
+package com.onyx.entity;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class SystemRelationship extends ManagedEntity implements IManagedEntity
+{
+    public SystemRelationship()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public int primaryKey;
+
+    @Attribute
+    public int cascadePolicy;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Attribute
+    public int fetchPolicy;
+
+    @Partition
+    @Attribute
+    public java.lang.String id;
+
+    @Attribute
+    public java.lang.String inverse;
+
+    @Attribute
+    public java.lang.String inverseClass;
+
+    @Attribute
+    public java.lang.String name;
+
+    @Attribute
+    public java.lang.String parentClass;
+
+    @Attribute
+    public int relationshipType;
+
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.MANY_TO_ONE
+                  ,inverseClass = com.onyx.entity.SystemEntity.class
+                  ,inverse = "relationships"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.NONE)
+    public com.onyx.entity.SystemEntity entity;
+
+
+}
@@ -0,0 +1,44 @@
+package com.onyx.entity;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class SystemIndex extends ManagedEntity implements IManagedEntity
+{
+    public SystemIndex()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public int primaryKey;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Partition
+    @Attribute
+    public java.lang.String id;
+
+    @Attribute
+    public java.lang.String name;
+
+    @Attribute
+    public java.lang.String type;
+
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.MANY_TO_ONE
+                  ,inverseClass = com.onyx.entity.SystemEntity.class
+                  ,inverse = "indexes"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.NONE)
+    public com.onyx.entity.SystemEntity entity;
+
+
+}
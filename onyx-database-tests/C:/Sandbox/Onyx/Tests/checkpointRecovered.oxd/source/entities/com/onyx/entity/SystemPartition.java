@@ -0,0 +1,49 @@
+package com.onyx.entity;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class SystemPartition extends ManagedEntity implements IManagedEntity
+{
+    public SystemPartition()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public int primaryKey;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Partition
+    @Attribute
+    public java.lang.String id;
+
+    @Attribute
+    public java.lang.String name;
+
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = com.onyx.entity.SystemEntity.class
+                  ,inverse = "partition"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.NONE)
+    public com.onyx.entity.SystemEntity entity;
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_MANY
+                  ,inverseClass = com.onyx.entity.SystemPartitionEntry.class
+                  ,inverse = "partition"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.EAGER
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.SAVE)
+    public java.util.List<com.onyx.entity.SystemPartitionEntry> entries;
+
+
+}
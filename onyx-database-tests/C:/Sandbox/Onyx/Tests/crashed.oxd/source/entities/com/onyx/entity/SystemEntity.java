@@ -0,0 +1,73 @@
+package com.onyx.entity;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class SystemEntity extends ManagedEntity implements IManagedEntity
+{
+    public SystemEntity()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public int primaryKey;
+
+    @Attribute
+    public java.lang.String className;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Partition
+    @Attribute
+    public java.lang.String name;
+
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_MANY
+                  ,inverseClass = com.onyx.entity.SystemAttribute.class
+                  ,inverse = "entity"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.EAGER
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.ALL)
+    public java.util.List<com.onyx.entity.SystemAttribute> attributes;
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = com.onyx.entity.SystemIdentifier.class
+                  ,inverse = "entity"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.ALL)
+    public com.onyx.entity.SystemIdentifier identifier;
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_MANY
+                  ,inverseClass = com.onyx.entity.SystemIndex.class
+                  ,inverse = "entity"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.EAGER
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.ALL)
+    public java.util.List<com.onyx.entity.SystemIndex> indexes;
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = com.onyx.entity.SystemPartition.class
+                  ,inverse = "entity"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.ALL)
+    public com.onyx.entity.SystemPartition partition;
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_MANY
+                  ,inverseClass = com.onyx.entity.SystemRelationship.class
+                  ,inverse = "entity"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.EAGER
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.ALL)
+    public java.util.List<com.onyx.entity.SystemRelationship> relationships;
+
+
+}
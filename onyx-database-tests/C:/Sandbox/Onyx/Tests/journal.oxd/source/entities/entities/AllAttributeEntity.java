@@ -0,0 +1,56 @@
+package entities;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class AllAttributeEntity extends ManagedEntity implements IManagedEntity
+{
+    public AllAttributeEntity()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.NONE)
+    public java.lang.String id;
+
+    @Attribute
+    public boolean booleanPrimitive;
+
+    @Attribute
+    public java.lang.Boolean booleanValue;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Attribute
+    public java.util.Date dateValue;
+
+    @Attribute
+    public double doublePrimitive;
+
+    @Attribute
+    public java.lang.Double doubleValue;
+
+    @Attribute
+    public int intPrimitive;
+
+    @Attribute
+    public java.lang.Integer intValue;
+
+    @Attribute
+    public long longPrimitive;
+
+    @Attribute
+    public java.lang.Long longValue;
+
+    @Attribute
+    public java.lang.String stringValue;
+
+
+
+}
@@ -0,0 +1,64 @@
+package entities;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class PerformanceEntity extends ManagedEntity implements IManagedEntity
+{
+    public PerformanceEntity()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public java.lang.Long id;
+
+    @Attribute
+    public boolean booleanPrimitive;
+
+    @Attribute
+    public java.lang.Boolean booleanValue;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Attribute
+    public java.util.Date dateValue;
+
+    @Attribute
+    public double doublePrimitive;
+
+    @Attribute
+    public java.lang.Double doubleValue;
+
+    @Attribute
+    public int intPrimitive;
+
+    @Attribute
+    public java.lang.Integer intValue;
+
+    @Attribute
+    public long longPrimitive;
+
+    @Attribute
+    public java.lang.Long longValue;
+
+    @Attribute
+    public java.lang.String stringValue;
+
+
+
+    @Relationship(type = com.onyx.persistence.annotations.RelationshipType.ONE_TO_ONE
+                  ,inverseClass = entities.PerformanceEntityChild.class
+                  ,inverse = "parent"
+                  ,fetchPolicy = com.onyx.persistence.annotations.FetchPolicy.LAZY
+                  ,cascadePolicy = com.onyx.persistence.annotations.CascadePolicy.ALL)
+    public entities.PerformanceEntityChild child;
+
+
+}
@@ -0,0 +1,29 @@
+package entities.identifiers;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class DateIdentifierEntity extends ManagedEntity implements IManagedEntity
+{
+    public DateIdentifierEntity()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.NONE)
+    public java.util.Date identifier;
+
+    @Attribute
+    public int correlation;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+
+
+}
@@ -0,0 +1,29 @@
+package entities.identifiers;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class ImmutableIntSequenceIdentifierEntity extends ManagedEntity implements IManagedEntity
+{
+    public ImmutableIntSequenceIdentifierEntity()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public int identifier;
+
+    @Attribute
+    public int correlation;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+
+
+}
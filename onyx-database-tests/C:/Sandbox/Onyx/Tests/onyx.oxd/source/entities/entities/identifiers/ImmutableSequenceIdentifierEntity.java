@@ -0,0 +1,29 @@
+package entities.identifiers;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class ImmutableSequenceIdentifierEntity extends ManagedEntity implements IManagedEntity
+{
+    public ImmutableSequenceIdentifierEntity()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public long identifier;
+
+    @Attribute
+    public int correlation;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+
+
+}
@@ -0,0 +1,42 @@
+package entities.index;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class OrderedIndexEntity extends ManagedEntity implements IManagedEntity
+{
+    public OrderedIndexEntity()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.SEQUENCE)
+    public java.lang.Long identifier;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Partition
+    @Attribute
+    public java.util.Date dateValue;
+
+    @Partition
+    @Attribute
+    public int intValue;
+
+    @Partition
+    @Attribute
+    public java.lang.Long longValue;
+
+    @Partition
+    @Attribute
+    public java.lang.String stringValue;
+
+
+
+}
@@ -0,0 +1,33 @@
+package entities.index;
+
+import com.onyx.persistence.annotations.*;
+import com.onyx.persistence.*;
+
+@Entity
+public class StringIdentifierEntityIndex extends ManagedEntity implements IManagedEntity
+{
+    public StringIdentifierEntityIndex()
+    {
+
+    }
+
+    @Attribute
+    @Identifier(generator = com.onyx.persistence.annotations.IdentifierGenerator.NONE)
+    public java.lang.String identifier;
+
+    @Attribute
+    public int correlation;
+
+    @Attribute
+    public java.util.Date dateCreated;
+
+    @Attribute
+    public java.util.Date dateUpdated;
+
+    @Partition
+    @Attribute
+    public java.lang.String indexValue;
+
+
+
+}
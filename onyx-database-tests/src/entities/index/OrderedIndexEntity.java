@@ -0,0 +1,32 @@
+package entities.index;
+
+import com.onyx.persistence.IManagedEntity;
+import com.onyx.persistence.annotations.*;
+import entities.AbstractEntity;
+
+import java.util.Date;
+
+@Entity
+public class OrderedIndexEntity extends AbstractEntity implements IManagedEntity
+{
+    @Attribute
+    @Identifier(generator = IdentifierGenerator.SEQUENCE)
+    public Long identifier;
+
+    @Attribute
+    @Index(type = IndexType.ORDERED)
+    public int intValue;
+
+    @Attribute
+    @Index(type = IndexType.ORDERED)
+    public Long longValue;
+
+    @Attribute
+    @Index(type = IndexType.ORDERED)
+    public String stringValue;
+
+    @Attribute
+    @Index(type = IndexType.ORDERED)
+    public Date dateValue;
+
+}
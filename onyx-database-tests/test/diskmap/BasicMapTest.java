@@ -357,4 +357,20 @@ public class BasicMapTest extends AbstractTest
 
     }
 
+    @Test
+    public void existsTest()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        Assert.assertFalse(store.exists("existsFirst"));
+
+        store.getHashMap("existsFirst").put("key", "value");
+        Assert.assertTrue(store.exists("existsFirst"));
+        store.close();
+
+        store = new DefaultMapBuilder(TEST_DATABASE);
+        Assert.assertTrue(store.exists("existsFirst"));
+        Assert.assertFalse(store.exists("existsSecond"));
+        store.close();
+    }
+
 }
@@ -0,0 +1,230 @@
+package diskmap;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.map.BloomFilter;
+import com.onyx.map.DefaultMapBuilder;
+import com.onyx.map.DiskMap;
+import com.onyx.map.base.AbstractBitMap;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class BloomFilterTest extends AbstractTest
+{
+    public static final String BLOOM_DATABASE = "C:/Sandbox/Onyx/Tests/bloom.db";
+
+    protected static void deleteDatabase()
+    {
+        new File(BLOOM_DATABASE).delete();
+        new File(BLOOM_DATABASE + ".free").delete();
+    }
+
+    protected static BloomFilter getBloomFilter(Map map)
+    {
+        return ((AbstractBitMap) map).getBloomFilter();
+    }
+
+    /**
+     * Keys that were added are always found and keys that were not are mostly rejected by the filter
+     */
+    @Test
+    public void testNegativeLookups()
+    {
+        deleteDatabase();
+
+        final DefaultMapBuilder store = new DefaultMapBuilder(BLOOM_DATABASE);
+        store.setBloomFilterKeys(100000);
+        final Map<Integer, String> map = store.getHashMap("bloom");
+        final BloomFilter filter = getBloomFilter(map);
+        Assert.assertNotNull(filter);
+
+        for (int i = 0; i < 100000; i++)
+        {
+            map.put(i, "Bloom " + i);
+        }
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100000; i++)
+        {
+            Assert.assertEquals("Bloom " + i, map.get(i));
+            Assert.assertTrue(map.containsKey(i));
+
+            final int missing = i + 100000;
+            Assert.assertNull(map.get(missing));
+            Assert.assertFalse(map.containsKey(missing));
+            Assert.assertEquals(-1, ((DiskMap) map).getRecID(missing));
+            if (filter.mightContain(missing))
+            {
+                falsePositives++;
+            }
+        }
+
+        // Sized for 1 percent
+        Assert.assertTrue("False positives " + falsePositives, falsePositives < 2000);
+
+        long time = System.currentTimeMillis();
+        for (int i = 100000; i < 1100000; i++)
+        {
+            map.containsKey(i);
+        }
+        System.out.println("1,000,000 negative lookups done in " + (System.currentTimeMillis() - time));
+
+        store.close();
+    }
+
+    /**
+     * The filter is written through to the file so it is opened again rather than rebuilt
+     */
+    @Test
+    public void testFilterPersisted()
+    {
+        deleteDatabase();
+
+        DefaultMapBuilder store = new DefaultMapBuilder(BLOOM_DATABASE);
+        store.setBloomFilterKeys(10000);
+        Map<Integer, String> map = store.getHashMap("bloom");
+        for (int i = 0; i < 5000; i++)
+        {
+            map.put(i, "Bloom " + i);
+        }
+        final long position = getBloomFilter(map).getPosition();
+        store.close();
+
+        store = new DefaultMapBuilder(BLOOM_DATABASE);
+        store.setBloomFilterKeys(10000);
+        map = store.getHashMap("bloom");
+        Assert.assertEquals(position, getBloomFilter(map).getPosition());
+        for (int i = 0; i < 5000; i++)
+        {
+            Assert.assertTrue(getBloomFilter(map).mightContain(i));
+            Assert.assertEquals("Bloom " + i, map.get(i));
+        }
+        store.close();
+    }
+
+    /**
+     * A map that already has records gets a filter with every existing key, and the filter is dropped once filters
+     * are no longer kept so a stale one is never used
+     */
+    @Test
+    public void testEnableAndDisable()
+    {
+        deleteDatabase();
+
+        DefaultMapBuilder store = new DefaultMapBuilder(BLOOM_DATABASE);
+        Map<Integer, String> map = store.getHashMap("bloom");
+        Assert.assertNull(getBloomFilter(map));
+        for (int i = 0; i < 5000; i++)
+        {
+            map.put(i, "Bloom " + i);
+        }
+        store.close();
+
+        store = new DefaultMapBuilder(BLOOM_DATABASE);
+        store.setBloomFilterKeys(1000);
+        map = store.getHashMap("bloom");
+
+        // Sized for the keys already within the map rather than the configured number
+        Assert.assertTrue(getBloomFilter(map).getBitCount() >= 5000 * 9);
+        for (int i = 0; i < 5000; i++)
+        {
+            Assert.assertEquals("Bloom " + i, map.get(i));
+        }
+        store.close();
+
+        store = new DefaultMapBuilder(BLOOM_DATABASE);
+        map = store.getHashMap("bloom");
+        Assert.assertNull(getBloomFilter(map));
+        map.put(5000, "Bloom 5000");
+        store.close();
+
+        store = new DefaultMapBuilder(BLOOM_DATABASE);
+        store.setBloomFilterKeys(1000);
+        map = store.getHashMap("bloom");
+        Assert.assertEquals("Bloom 5000", map.get(5000));
+        store.close();
+    }
+
+    /**
+     * Compaction builds the filter again so removed keys no longer pass it
+     */
+    @Test
+    public void testRebuiltByCompaction() throws IOException
+    {
+        deleteDatabase();
+
+        final DefaultMapBuilder store = new DefaultMapBuilder(BLOOM_DATABASE);
+        store.setBloomFilterKeys(1000);
+        final Map<Integer, String> map = store.getHashMap("bloom");
+        for (int i = 0; i < 20000; i++)
+        {
+            map.put(i, "Bloom " + i);
+        }
+        for (int i = 1000; i < 20000; i++)
+        {
+            map.remove(i);
+        }
+
+        int passed = 0;
+        for (int i = 1000; i < 20000; i++)
+        {
+            if (getBloomFilter(map).mightContain(i))
+            {
+                passed++;
+            }
+        }
+        Assert.assertEquals(19000, passed);
+
+        store.compact(0);
+
+        passed = 0;
+        for (int i = 1000; i < 20000; i++)
+        {
+            if (getBloomFilter(map).mightContain(i))
+            {
+                passed++;
+            }
+        }
+        Assert.assertTrue("Removed keys passing " + passed, passed < 19000 / 10);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            Assert.assertEquals("Bloom " + i, map.get(i));
+        }
+        map.put(20000, "Bloom 20000");
+        Assert.assertEquals("Bloom 20000", map.get(20000));
+        store.close();
+    }
+
+    /**
+     * Clearing a map clears its filter
+     */
+    @Test
+    public void testClear()
+    {
+        deleteDatabase();
+
+        final DefaultMapBuilder store = new DefaultMapBuilder(BLOOM_DATABASE);
+        store.setBloomFilterKeys(1000);
+        final Map<Integer, String> map = store.getHashMap("bloom");
+        for (int i = 0; i < 1000; i++)
+        {
+            map.put(i, "Bloom " + i);
+        }
+
+        map.clear();
+        for (int i = 0; i < 1000; i++)
+        {
+            Assert.assertFalse(getBloomFilter(map).mightContain(i));
+        }
+
+        map.put(1, "Bloom 1");
+        Assert.assertEquals("Bloom 1", map.get(1));
+        store.close();
+    }
+}
@@ -0,0 +1,304 @@
+package diskmap;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.map.DefaultMapBuilder;
+import com.onyx.map.DiskMap;
+import com.onyx.map.MapCompaction;
+import com.onyx.map.MapBuilder;
+import com.onyx.map.OrderedDiskSet;
+import com.onyx.map.PostingLists;
+import com.onyx.map.StructureType;
+import com.onyx.map.store.Store;
+import com.onyx.map.store.StoreType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class CompactionTest extends AbstractTest
+{
+    public static final String COMPACTION_DATABASE = "C:/Sandbox/Onyx/Tests/compaction.db";
+
+    protected static void deleteDatabase()
+    {
+        new File(COMPACTION_DATABASE).delete();
+        new File(COMPACTION_DATABASE + ".free").delete();
+    }
+
+    @Test
+    public void testCompactReclaimsSpace() throws IOException
+    {
+        deleteDatabase();
+
+        MapBuilder store = new DefaultMapBuilder(COMPACTION_DATABASE);
+        Map<Integer, String> map = store.getHashMap("compaction");
+        OrderedDiskSet<Integer> set = store.getOrderedSet("compactionOrdered");
+
+        for (int i = 0; i < 20000; i++)
+        {
+            map.put(i, "Compaction value " + i);
+            set.add(i);
+        }
+        for (int i = 1000; i < 20000; i++)
+        {
+            map.remove(i);
+            set.remove(i);
+        }
+
+        final long sizeBefore = new File(COMPACTION_DATABASE).length();
+        Assert.assertTrue(store.compact(0) > 0);
+
+        // Structures that were open remain usable
+        Assert.assertEquals(1000, map.size());
+        Assert.assertEquals("Compaction value 999", map.get(999));
+        Assert.assertNull(map.get(1000));
+        Assert.assertEquals(1000, set.longSize());
+        Assert.assertEquals(100, set.range(900, true, null, true).size());
+
+        map.put(1000, "Compaction value 1000");
+        store.close();
+
+        Assert.assertTrue(new File(COMPACTION_DATABASE).length() < sizeBefore);
+
+        store = new DefaultMapBuilder(COMPACTION_DATABASE);
+        map = store.getHashMap("compaction");
+        for (int i = 0; i <= 1000; i++)
+        {
+            Assert.assertEquals("Compaction value " + i, map.get(i));
+        }
+        Assert.assertEquals(1000, store.getOrderedSet("compactionOrdered").longSize());
+        store.close();
+    }
+
+    @Test
+    public void testReferencesTranslated() throws IOException
+    {
+        deleteDatabase();
+
+        final MapBuilder store = new DefaultMapBuilder(COMPACTION_DATABASE);
+        final DiskMap<Integer, String> records = (DiskMap) store.getHashMap("records");
+        final Map<String, Long> references = store.getHashMap("references", StructureType.POSTING_LISTS);
+        final Map<Long, Integer> keys = store.getHashMap("keys", StructureType.REFERENCE_KEYS);
+        final PostingLists postingLists = store.getPostingLists();
+
+        for (int i = 0; i < 5000; i++)
+        {
+            records.put(i, "Record " + i);
+        }
+        for (int i = 0; i < 5000; i += 2)
+        {
+            records.remove(i);
+        }
+
+        for (int i = 1; i < 5000; i += 2)
+        {
+            final long recordId = records.getRecID(i);
+            final long list = references.computeIfAbsent("MOD" + (i % 10), key -> postingLists.create());
+            postingLists.add(list, recordId);
+            keys.put(recordId, i);
+        }
+
+        store.compact(0);
+
+        final Set<Long> ones = postingLists.get(references.get("MOD1"));
+        Assert.assertEquals(500, ones.size());
+        for (Long recordId : ones)
+        {
+            final String value = records.getWithRecID(recordId);
+            Assert.assertTrue(value.endsWith("1"));
+            Assert.assertEquals("Record " + keys.get(recordId), value);
+        }
+        Assert.assertEquals(2500, keys.size());
+
+        store.close();
+    }
+
+    @Test
+    public void testCompactWhileWriting() throws Exception
+    {
+        deleteDatabase();
+
+        final MapBuilder store = new DefaultMapBuilder(COMPACTION_DATABASE);
+        final Map<Integer, String> map = store.getHashMap("compaction");
+        final Map<Integer, String> expected = new ConcurrentHashMap<>();
+
+        for (int i = 0; i < 20000; i++)
+        {
+            map.put(i, "Compaction value " + i);
+            expected.put(i, "Compaction value " + i);
+        }
+
+        final AtomicBoolean compacting = new AtomicBoolean(true);
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        final Future writer = pool.submit(() -> {
+            int i = 0;
+            while (compacting.get())
+            {
+                final int key = (i * 7) % 25000;
+                if (i % 3 == 0)
+                {
+                    map.remove(key);
+                    expected.remove(key);
+                }
+                else
+                {
+                    map.put(key, "Updated value " + i);
+                    expected.put(key, "Updated value " + i);
+                }
+                i++;
+            }
+        });
+
+        // Throttled so the writer has time to change keys that were already copied
+        store.compact(4 * 1024 * 1024);
+        compacting.set(false);
+        writer.get();
+        pool.shutdown();
+
+        Assert.assertEquals(expected.size(), map.size());
+        for (int i = 0; i < 25000; i++)
+        {
+            Assert.assertEquals(expected.get(i), map.get(i));
+        }
+
+        store.close();
+    }
+
+    /**
+     * The file that was replaced is closed once the reads in progress drain rather than when the builder is closed
+     */
+    @Test
+    public void testPreviousFileClosedWhileReading() throws Exception
+    {
+        deleteDatabase();
+
+        final MapBuilder store = new DefaultMapBuilder(COMPACTION_DATABASE, StoreType.FILE);
+        final DiskMap<Integer, String> map = (DiskMap) store.getHashMap("compaction");
+        for (int i = 0; i < 10000; i++)
+        {
+            map.put(i, "Compaction value " + i);
+        }
+        for (int i = 5000; i < 10000; i++)
+        {
+            map.remove(i);
+        }
+
+        final AtomicBoolean compacting = new AtomicBoolean(true);
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        final Future reader = pool.submit(() -> {
+            int i = 0;
+            while (compacting.get())
+            {
+                Assert.assertEquals("Compaction value " + (i % 5000), map.get(i % 5000));
+                i++;
+            }
+        });
+
+        final Store previous = map.getFileStore();
+        store.compact(4 * 1024 * 1024);
+        compacting.set(false);
+        reader.get();
+        pool.shutdown();
+
+        Assert.assertNotSame(previous, map.getFileStore());
+        try
+        {
+            previous.sync();
+            Assert.fail("The previous file should have been closed");
+        } catch (ClosedChannelException expected)
+        {
+        }
+
+        Assert.assertEquals("Compaction value 4999", map.get(4999));
+        store.close();
+    }
+
+    /**
+     * Compaction that fails to copy a key a number of times
+     */
+    protected static class FailingCompaction extends MapCompaction
+    {
+        protected final Object failingKey;
+        protected int failuresLeft;
+
+        public FailingCompaction(DefaultMapBuilder builder, Object failingKey, int failures)
+        {
+            super(builder, 0);
+            this.failingKey = failingKey;
+            this.failuresLeft = failures;
+        }
+
+        @Override
+        protected void copyKey(DiskMap source, DiskMap destination, Object key)
+        {
+            if (key.equals(failingKey) && failuresLeft > 0)
+            {
+                failuresLeft--;
+                throw new IllegalStateException("Failed to read " + key);
+            }
+            super.copyKey(source, destination, key);
+        }
+    }
+
+    @Test
+    public void testFailedKeyCopiedAgain() throws IOException
+    {
+        deleteDatabase();
+
+        DefaultMapBuilder store = new DefaultMapBuilder(COMPACTION_DATABASE);
+        Map<Integer, String> map = store.getHashMap("compaction");
+        for (int i = 0; i < 2000; i++)
+        {
+            map.put(i, "Compaction value " + i);
+        }
+
+        new FailingCompaction(store, 500, 1).run();
+        store.close();
+
+        store = new DefaultMapBuilder(COMPACTION_DATABASE);
+        map = store.getHashMap("compaction");
+        Assert.assertEquals(2000, map.size());
+        Assert.assertEquals("Compaction value 500", map.get(500));
+        store.close();
+    }
+
+    @Test
+    public void testCompactionAbandonedWhenKeyCanNotBeCopied()
+    {
+        deleteDatabase();
+
+        final DefaultMapBuilder store = new DefaultMapBuilder(COMPACTION_DATABASE);
+        final Map<Integer, String> map = store.getHashMap("compaction");
+        for (int i = 0; i < 2000; i++)
+        {
+            map.put(i, "Compaction value " + i);
+        }
+
+        try
+        {
+            new FailingCompaction(store, 500, 2).run();
+            Assert.fail("Compaction should have been abandoned");
+        } catch (IOException expected)
+        {
+            Assert.assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+
+        // The current file was kept and the compacted one removed
+        Assert.assertFalse(new File(COMPACTION_DATABASE + MapCompaction.COMPACTION_EXTENSION).exists());
+        Assert.assertEquals(2000, map.size());
+        Assert.assertEquals("Compaction value 500", map.get(500));
+        map.put(2000, "Compaction value 2000");
+        store.close();
+    }
+}
@@ -0,0 +1,144 @@
+package diskmap;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.map.DefaultMapBuilder;
+import com.onyx.map.MapBuilder;
+import com.onyx.map.store.FreeSpaceManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class FreeSpaceTest extends AbstractTest
+{
+    public static final String FREE_SPACE_DATABASE = "C:/Sandbox/Onyx/Tests/freeSpace.db";
+
+    @Test
+    public void testEqualSizeHoles()
+    {
+        final FreeSpaceManager freeSpace = new FreeSpaceManager();
+        freeSpace.deallocate(1000, 100);
+        freeSpace.deallocate(5000, 100);
+        freeSpace.deallocate(9000, 100);
+
+        Assert.assertEquals(3, freeSpace.getHoleCount());
+        Assert.assertEquals(300, freeSpace.getFreeBytes());
+
+        final Set<Long> positions = new HashSet<>();
+        positions.add(freeSpace.allocate(100));
+        positions.add(freeSpace.allocate(100));
+        positions.add(freeSpace.allocate(100));
+
+        Assert.assertEquals(3, positions.size());
+        Assert.assertTrue(positions.contains(1000L) && positions.contains(5000L) && positions.contains(9000L));
+        Assert.assertEquals(-1, freeSpace.allocate(100));
+        Assert.assertEquals(300, freeSpace.getReclaimedBytes());
+    }
+
+    @Test
+    public void testCoalesceAndSplit()
+    {
+        final FreeSpaceManager freeSpace = new FreeSpaceManager();
+        freeSpace.deallocate(1000, 100);
+        freeSpace.deallocate(1200, 100);
+        Assert.assertEquals(2, freeSpace.getHoleCount());
+        Assert.assertTrue(freeSpace.getFragmentation() > 0.4);
+
+        // Fill the gap so all three merge into one hole
+        freeSpace.deallocate(1100, 100);
+        Assert.assertEquals(1, freeSpace.getHoleCount());
+        Assert.assertEquals(300, freeSpace.getFreeBytes());
+        Assert.assertEquals(0.0, freeSpace.getFragmentation(), 0);
+
+        // Releasing space that is already free is ignored
+        freeSpace.deallocate(1150, 50);
+        Assert.assertEquals(300, freeSpace.getFreeBytes());
+
+        // Best fit splits the hole and keeps the remainder
+        Assert.assertEquals(1000, freeSpace.allocate(250));
+        Assert.assertEquals(1, freeSpace.getHoleCount());
+        Assert.assertEquals(50, freeSpace.getFreeBytes());
+        Assert.assertEquals(1250, freeSpace.allocate(40));
+        Assert.assertEquals(0, freeSpace.getFreeBytes());
+    }
+
+    @Test
+    public void testRemainderReleasedWithAllocation()
+    {
+        final FreeSpaceManager freeSpace = new FreeSpaceManager();
+        freeSpace.deallocate(1000, 100);
+
+        // The 10 bytes left over are too small to keep as a hole
+        Assert.assertEquals(1000, freeSpace.allocate(90));
+        Assert.assertEquals(0, freeSpace.getHoleCount());
+
+        // Releasing the requested size gives back the whole hole
+        freeSpace.deallocate(1000, 90);
+        Assert.assertEquals(1, freeSpace.getHoleCount());
+        Assert.assertEquals(100, freeSpace.getFreeBytes());
+        Assert.assertEquals(1000, freeSpace.allocate(100));
+    }
+
+    @Test
+    public void testBestFit()
+    {
+        final FreeSpaceManager freeSpace = new FreeSpaceManager();
+        freeSpace.deallocate(1000, 500);
+        freeSpace.deallocate(3000, 120);
+        freeSpace.deallocate(5000, 200);
+
+        Assert.assertEquals(5000, freeSpace.allocate(150));
+        Assert.assertEquals(1000, freeSpace.allocate(300));
+    }
+
+    @Test
+    public void testFreeSpacePersistedAcrossRestart() throws IOException
+    {
+        new File(FREE_SPACE_DATABASE).delete();
+        new File(FREE_SPACE_DATABASE + ".free").delete();
+
+        MapBuilder store = new DefaultMapBuilder(FREE_SPACE_DATABASE);
+        Map<Integer, String> map = store.getHashMap("freeSpace");
+
+        for (int i = 0; i < 10000; i++)
+        {
+            map.put(i, "Free space value " + i);
+        }
+        for (int i = 0; i < 10000; i++)
+        {
+            map.remove(i);
+        }
+        store.close();
+
+        final long sizeAfterDelete = new File(FREE_SPACE_DATABASE).length();
+        Assert.assertTrue(new File(FREE_SPACE_DATABASE + ".free").exists());
+
+        store = new DefaultMapBuilder(FREE_SPACE_DATABASE);
+        map = store.getHashMap("freeSpace");
+
+        // The map is removed once read so a crash can not hand out the same space twice
+        Assert.assertFalse(new File(FREE_SPACE_DATABASE + ".free").exists());
+
+        for (int i = 0; i < 10000; i++)
+        {
+            map.put(i, "Free space value " + i);
+        }
+        store.close();
+
+        Assert.assertTrue(new File(FREE_SPACE_DATABASE).length() <= sizeAfterDelete);
+
+        store = new DefaultMapBuilder(FREE_SPACE_DATABASE);
+        map = store.getHashMap("freeSpace");
+        for (int i = 0; i < 10000; i++)
+        {
+            Assert.assertEquals("Free space value " + i, map.get(i));
+        }
+        store.close();
+    }
+}
@@ -0,0 +1,135 @@
+package diskmap;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.map.DefaultMapBuilder;
+import com.onyx.map.DiskMap;
+import com.onyx.map.MapBuilder;
+import com.onyx.map.base.LongKeyCache;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class LongKeyCacheTest extends AbstractTest
+{
+    @Test
+    public void testPutGetRemove()
+    {
+        final LongKeyCache cache = new LongKeyCache();
+
+        cache.put(0, 10);
+        cache.put(-5, 20);
+        cache.put(Long.MAX_VALUE, 30);
+
+        Assert.assertEquals(10, cache.get(0));
+        Assert.assertEquals(20, cache.get(-5));
+        Assert.assertEquals(30, cache.get(Long.MAX_VALUE));
+        Assert.assertEquals(0, cache.get(1));
+
+        cache.put(0, 11);
+        Assert.assertEquals(11, cache.get(0));
+
+        cache.remove(0);
+        Assert.assertEquals(0, cache.get(0));
+        Assert.assertEquals(20, cache.get(-5));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.get(-5));
+    }
+
+    /**
+     * The table grows as entries are replaced but never beyond its maximum
+     */
+    @Test
+    public void testBounded()
+    {
+        final LongKeyCache cache = new LongKeyCache(64, 1024);
+
+        for (long i = 0; i < 100000; i++)
+        {
+            cache.put(i, i + 1);
+        }
+
+        Assert.assertEquals(1024, cache.getCapacity());
+        Assert.assertEquals(100000, cache.get(99999));
+    }
+
+    /**
+     * A read never returns the record id of another key while slots are rewritten
+     */
+    @Test
+    public void testConcurrentReadsAndWrites() throws Exception
+    {
+        final LongKeyCache cache = new LongKeyCache(256, 256);
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        final List<Future> workers = new ArrayList<>();
+
+        for (int t = 0; t < 8; t++)
+        {
+            final int thread = t;
+            workers.add(pool.submit(() -> {
+                for (long i = 0; i < 200000; i++)
+                {
+                    final long key = (i * 7 + thread) % 5000;
+                    if (thread % 2 == 0)
+                    {
+                        cache.put(key, key + 1);
+                    }
+                    else
+                    {
+                        final long recordId = cache.get(key);
+                        Assert.assertTrue(recordId == 0 || recordId == key + 1);
+                    }
+                }
+            }));
+        }
+
+        for (Future worker : workers)
+        {
+            worker.get();
+        }
+        pool.shutdown();
+    }
+
+    /**
+     * Record ids of long keys are cached.  Clearing the map must not leave record ids of cleared records behind.
+     */
+    @Test
+    public void testMapWithLongKeys()
+    {
+        final MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        final DiskMap<Long, String> map = (DiskMap) store.getHashMap("longKeys");
+
+        for (long i = 0; i < 10000; i++)
+        {
+            map.put(i, "Long " + i);
+        }
+
+        System.gc();
+
+        for (long i = 0; i < 10000; i++)
+        {
+            Assert.assertEquals("Long " + i, map.get(i));
+            Assert.assertTrue(map.getRecID(i) > 0);
+        }
+
+        map.remove(5L);
+        Assert.assertNull(map.get(5L));
+        Assert.assertFalse(map.containsKey(5L));
+
+        map.clear();
+        Assert.assertNull(map.get(6L));
+        Assert.assertFalse(map.containsKey(6L));
+        Assert.assertEquals(-1, map.getRecID(6L));
+
+        map.put(6L, "Six");
+        Assert.assertEquals("Six", map.get(6L));
+        store.close();
+    }
+}
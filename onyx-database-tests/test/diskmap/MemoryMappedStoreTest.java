@@ -0,0 +1,417 @@
+package diskmap;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.map.BackgroundFlusher;
+import com.onyx.map.DefaultMapBuilder;
+import com.onyx.map.DiskMap;
+import com.onyx.map.MapBuilder;
+import com.onyx.map.serializer.ObjectBuffer;
+import com.onyx.map.store.OffHeapAllocator;
+import com.onyx.map.store.Store;
+import com.onyx.map.store.StoreType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class MemoryMappedStoreTest extends AbstractTest
+{
+    public static final String MEMORY_MAPPED_DATABASE = "C:/Sandbox/Onyx/Tests/memoryMapped.db";
+
+    protected static final int THREADS = 8;
+
+    protected static void deleteDatabase()
+    {
+        new File(MEMORY_MAPPED_DATABASE).delete();
+        new File(MEMORY_MAPPED_DATABASE + ".free").delete();
+    }
+
+    /**
+     * Readers walk the same bitmap nodes and record references at the same time.  They no longer wait on each other
+     * so the elapsed time should shrink as threads are added.
+     */
+    @Test
+    public void testConcurrentReads() throws Exception
+    {
+        deleteDatabase();
+
+        final MapBuilder store = new DefaultMapBuilder(MEMORY_MAPPED_DATABASE);
+        final Map<Integer, String> map = store.getHashMap("concurrentReads");
+
+        for (int i = 0; i < 50000; i++)
+        {
+            map.put(i, "Read value " + i);
+        }
+
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        final List<Future<Integer>> readers = new ArrayList<>();
+
+        long time = System.currentTimeMillis();
+        for (int t = 0; t < THREADS; t++)
+        {
+            final int offset = t;
+            readers.add(pool.submit(() -> {
+                int matched = 0;
+                for (int i = 0; i < 50000; i++)
+                {
+                    final int key = (i + offset * 6250) % 50000;
+                    if (("Read value " + key).equals(map.get(key)))
+                    {
+                        matched++;
+                    }
+                }
+                return matched;
+            }));
+        }
+
+        for (Future<Integer> reader : readers)
+        {
+            Assert.assertEquals(50000, (int) reader.get());
+        }
+
+        System.out.println("Concurrent reads done in " + (System.currentTimeMillis() - time));
+
+        pool.shutdown();
+        store.close();
+    }
+
+    /**
+     * Records large enough to span the boundary between two slices are written from several threads and read back
+     */
+    @Test
+    public void testConcurrentWritesAcrossSlices() throws Exception
+    {
+        deleteDatabase();
+
+        MapBuilder store = new DefaultMapBuilder(MEMORY_MAPPED_DATABASE);
+        final Map<Integer, String> map = store.getHashMap("concurrentWrites");
+
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        final List<Future> writers = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++)
+        {
+            final int thread = t;
+            writers.add(pool.submit(() -> {
+                for (int i = thread; i < 400; i += THREADS)
+                {
+                    map.put(i, largeValue(i));
+                    Assert.assertEquals(largeValue(i), map.get(i));
+                }
+            }));
+        }
+
+        for (Future writer : writers)
+        {
+            writer.get();
+        }
+        pool.shutdown();
+        store.close();
+
+        store = new DefaultMapBuilder(MEMORY_MAPPED_DATABASE);
+        final Map<Integer, String> reopened = store.getHashMap("concurrentWrites");
+        Assert.assertEquals(400, reopened.size());
+        for (int i = 0; i < 400; i++)
+        {
+            Assert.assertEquals(largeValue(i), reopened.get(i));
+        }
+        store.close();
+    }
+
+    /**
+     * Records are decoded in place from the slice they are stored in.  Values that are serialized with java
+     * serialization and records that span slices are read from the in memory store as well.
+     */
+    @Test
+    public void testDecodeInPlace()
+    {
+        final MapBuilder store = new DefaultMapBuilder(MEMORY_MAPPED_DATABASE, StoreType.IN_MEMORY);
+        final Map<Integer, Object> map = store.getHashMap("decodeInPlace");
+
+        for (int i = 0; i < 400; i++)
+        {
+            map.put(i, (i % 2 == 0) ? largeValue(i) : BigInteger.valueOf(i));
+        }
+
+        for (int i = 0; i < 400; i++)
+        {
+            Assert.assertEquals((i % 2 == 0) ? largeValue(i) : BigInteger.valueOf(i), map.get(i));
+        }
+
+        store.close();
+    }
+
+    /**
+     * The slice size does not change the file format so a file written with one slice size can be opened with another
+     */
+    @Test
+    public void testConfiguredSliceSize()
+    {
+        deleteDatabase();
+
+        MapBuilder store = new DefaultMapBuilder("", MEMORY_MAPPED_DATABASE, StoreType.MEMORY_MAPPED_FILE, null, 1024 * 1024);
+        Map<Integer, String> map = store.getHashMap("sliceSize");
+
+        // Grows well past the first slices
+        for (int i = 0; i < 400; i++)
+        {
+            map.put(i, largeValue(i));
+        }
+        store.close();
+
+        store = new DefaultMapBuilder("", MEMORY_MAPPED_DATABASE, StoreType.MEMORY_MAPPED_FILE, null, 64 * 1024 * 1024);
+        map = store.getHashMap("sliceSize");
+        for (int i = 0; i < 400; i++)
+        {
+            Assert.assertEquals(largeValue(i), map.get(i));
+        }
+        map.put(400, largeValue(400));
+        store.close();
+
+        // Space mapped ahead is not kept once closed
+        Assert.assertTrue(new File(MEMORY_MAPPED_DATABASE).length() < 64 * 1024 * 1024);
+
+        store = new DefaultMapBuilder(MEMORY_MAPPED_DATABASE);
+        map = store.getHashMap("sliceSize");
+        Assert.assertEquals(401, map.size());
+        Assert.assertEquals(largeValue(400), map.get(400));
+        store.close();
+    }
+
+    /**
+     * Slices of an off heap store are allocated outside of the heap and freed when it is closed
+     */
+    @Test
+    public void testOffHeapStore()
+    {
+        final long allocatedBefore = OffHeapAllocator.getAllocatedBytes();
+
+        final MapBuilder store = new DefaultMapBuilder(null, StoreType.IN_MEMORY_OFF_HEAP);
+        final Map<Integer, String> map = store.getHashMap("offHeap");
+
+        for (int i = 0; i < 400; i++)
+        {
+            map.put(i, largeValue(i));
+        }
+        for (int i = 0; i < 400; i++)
+        {
+            Assert.assertEquals(largeValue(i), map.get(i));
+        }
+
+        Assert.assertTrue(OffHeapAllocator.getAllocatedBytes() - allocatedBefore >= 400 * 20000);
+
+        store.close();
+        Assert.assertEquals(allocatedBefore, OffHeapAllocator.getAllocatedBytes());
+    }
+
+    /**
+     * Closing an off heap store waits for the reads in progress.  Reads afterwards return nothing and writes do not
+     * allocate the slices again.
+     */
+    @Test
+    public void testOffHeapStoreClosedWhileRead() throws Exception
+    {
+        final long allocatedBefore = OffHeapAllocator.getAllocatedBytes();
+
+        final MapBuilder store = new DefaultMapBuilder(null, StoreType.IN_MEMORY_OFF_HEAP);
+        final Map<Integer, String> map = store.getHashMap("offHeapClosed");
+        for (int i = 0; i < 400; i++)
+        {
+            map.put(i, largeValue(i));
+        }
+
+        final Store offHeap = ((DiskMap) map).getFileStore();
+        final long size = offHeap.getFileSize();
+
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        final List<Future<Integer>> readers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++)
+        {
+            readers.add(pool.submit(() -> {
+                int reads = 0;
+                for (long position = 0; ; position = (position + 4096) % (size - 4096))
+                {
+                    final ObjectBuffer buffer = offHeap.read(position, 4096);
+                    if (buffer == null)
+                    {
+                        return reads;
+                    }
+                    buffer.readLong();
+                    reads++;
+                }
+            }));
+        }
+
+        Thread.sleep(100);
+        store.close();
+
+        for (Future<Integer> reader : readers)
+        {
+            Assert.assertTrue(reader.get() > 0);
+        }
+        pool.shutdown();
+
+        final ObjectBuffer write = new ObjectBuffer(offHeap.getSerializers());
+        write.writeLong(1);
+        Assert.assertEquals(0, offHeap.write(write, size * 2));
+        Assert.assertNull(offHeap.read(0, Long.BYTES));
+        Assert.assertEquals(allocatedBefore, OffHeapAllocator.getAllocatedBytes());
+    }
+
+    /**
+     * Only slices that were written to are flushed, oldest first
+     */
+    @Test
+    public void testFlushDirtySlices()
+    {
+        deleteDatabase();
+
+        final int sliceSize = 1024 * 1024;
+        final DefaultMapBuilder store = new DefaultMapBuilder("", MEMORY_MAPPED_DATABASE, StoreType.MEMORY_MAPPED_FILE, null, sliceSize);
+        final Map<Integer, String> map = store.getHashMap("flush");
+
+        for (int i = 0; i < 400; i++)
+        {
+            map.put(i, largeValue(i));
+        }
+        Assert.assertTrue(store.getDirtyBytes() > sliceSize);
+
+        // A single slice at a time.  Only the pages written to are counted.
+        final long flushed = store.flush(1);
+        Assert.assertTrue(flushed > 0 && flushed <= sliceSize);
+
+        store.commit();
+        Assert.assertEquals(0, store.getDirtyBytes());
+        Assert.assertEquals(0, store.getFlushLag());
+        Assert.assertEquals(0, store.flush(Long.MAX_VALUE));
+
+        // Updating a record within the last slice only dirties that slice and the header and bitmap nodes
+        map.put(399, largeValue(399).toUpperCase());
+        Assert.assertTrue(store.getDirtyBytes() > 0);
+        Assert.assertTrue(store.getDirtyBytes() < 400L * 20000);
+
+        store.close();
+    }
+
+    /**
+     * Writers flush slices themselves once more than the max dirty bytes are waiting
+     */
+    @Test
+    public void testWritersFlushWhenTooFarAhead()
+    {
+        deleteDatabase();
+
+        final int sliceSize = 1024 * 1024;
+        final DefaultMapBuilder store = new DefaultMapBuilder("", MEMORY_MAPPED_DATABASE, StoreType.MEMORY_MAPPED_FILE, null, sliceSize);
+        store.setMaxDirtyBytes(2 * sliceSize);
+        final Map<Integer, String> map = store.getHashMap("backPressure");
+
+        for (int i = 0; i < 400; i++)
+        {
+            map.put(i, largeValue(i));
+            Assert.assertTrue(store.getDirtyBytes() <= 3 * sliceSize);
+        }
+
+        store.close();
+    }
+
+    /**
+     * A slice as large as the max dirty bytes is not counted as dirty as soon as it is written to, so writers do not
+     * flush the whole slice on every write
+     */
+    @Test
+    public void testLargeSliceBackPressure()
+    {
+        deleteDatabase();
+
+        final int sliceSize = 256 * 1024 * 1024;
+        final DefaultMapBuilder store = new DefaultMapBuilder("", MEMORY_MAPPED_DATABASE, StoreType.MEMORY_MAPPED_FILE, null, sliceSize);
+        final Map<Integer, String> map = store.getHashMap("largeSlice");
+
+        for (int i = 0; i < 400; i++)
+        {
+            map.put(i, largeValue(i));
+        }
+
+        // Nothing has been flushed and only about the bytes written are waiting
+        final long dirty = store.getDirtyBytes();
+        Assert.assertTrue(dirty >= 400L * 20000);
+        Assert.assertTrue(dirty < 64L * 1024 * 1024);
+
+        // Writers flush once the pages written to go over the limit and not before
+        store.setMaxDirtyBytes(dirty + 2 * 1024 * 1024);
+        for (int i = 400; i < 600; i++)
+        {
+            map.put(i, largeValue(i));
+            Assert.assertTrue(store.getDirtyBytes() <= dirty + 2 * 1024 * 1024 + 64 * 1024);
+        }
+        Assert.assertTrue(store.getDirtyBytes() < dirty);
+
+        store.close();
+
+        final DefaultMapBuilder reopened = new DefaultMapBuilder(MEMORY_MAPPED_DATABASE);
+        Assert.assertEquals(largeValue(599), reopened.getHashMap("largeSlice").get(599));
+        reopened.close();
+    }
+
+    /**
+     * The background flusher spreads flushing out and has flushed everything once the target lag has passed
+     */
+    @Test
+    public void testBackgroundFlusher() throws Exception
+    {
+        deleteDatabase();
+
+        final DefaultMapBuilder store = new DefaultMapBuilder("", MEMORY_MAPPED_DATABASE, StoreType.MEMORY_MAPPED_FILE, null, 1024 * 1024);
+        final Map<Integer, String> map = store.getHashMap("background");
+        final BackgroundFlusher flusher = new BackgroundFlusher(() -> Collections.singletonList(store), 10, 1000);
+
+        for (int i = 0; i < 400; i++)
+        {
+            map.put(i, largeValue(i));
+        }
+        store.commit();
+
+        // Records at the start and end of the file along with the header and bitmap nodes
+        map.put(0, largeValue(1000));
+        map.put(399, largeValue(1399));
+        final long dirty = flusher.getDirtyBytes();
+        Assert.assertTrue(dirty >= 2 * 20000);
+        Assert.assertTrue(dirty < 2 * 1024 * 1024);
+
+        // Writes are left alone for half of the target lag
+        flusher.run();
+        Assert.assertEquals(0, flusher.getBytesFlushed());
+
+        Thread.sleep(550);
+        flusher.run();
+        Assert.assertTrue(flusher.getBytesFlushed() > 0);
+        Assert.assertTrue(flusher.getBytesFlushed() < dirty);
+
+        Thread.sleep(500);
+        flusher.run();
+        Assert.assertEquals(0, flusher.getDirtyBytes());
+        Assert.assertEquals(0, flusher.getFlushLag());
+        Assert.assertEquals(dirty, flusher.getBytesFlushed());
+
+        store.close();
+    }
+
+    protected static String largeValue(int key)
+    {
+        final char[] value = new char[20000 + key];
+        Arrays.fill(value, (char) ('a' + (key % 26)));
+        return new String(value);
+    }
+}
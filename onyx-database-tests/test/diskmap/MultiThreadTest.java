@@ -3,6 +3,7 @@ package diskmap;
 import category.EmbeddedDatabaseTests;
 import com.onyx.map.DefaultMapBuilder;
 import com.onyx.map.MapBuilder;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
@@ -75,6 +76,100 @@ public class MultiThreadTest extends AbstractTest {
         store.close();
     }
 
+    /**
+     * Read mostly contention benchmark.  Nine of every ten operations are reads and keys are spread over the whole map
+     * so threads only wait on each other when they hit the same lock stripe.  The throughput is printed for each
+     * number of threads.
+     */
+    @Test
+    public void testReadMostlyContention() throws Exception
+    {
+        final MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        final Map<Integer, String> map = store.getHashMap("contention");
+
+        for (int i = 0; i < 20000; i++)
+        {
+            map.put(i, "Contention " + i);
+        }
+
+        for (int threads = 1; threads <= 8; threads *= 2)
+        {
+            final ExecutorService workers = Executors.newFixedThreadPool(threads);
+            final List<Future<Integer>> results = new ArrayList<>();
+
+            long time = System.currentTimeMillis();
+            for (int t = 0; t < threads; t++)
+            {
+                final int seed = t;
+                results.add(workers.submit(() -> {
+                    final Random random = new Random(seed);
+                    int found = 0;
+                    for (int i = 0; i < 50000; i++)
+                    {
+                        final int key = random.nextInt(20000);
+                        if (i % 10 == 0)
+                        {
+                            map.put(key, "Contention " + key);
+                        }
+                        else if (map.get(key) != null)
+                        {
+                            found++;
+                        }
+                    }
+                    return found;
+                }));
+            }
+
+            for (Future<Integer> result : results)
+            {
+                Assert.assertEquals(45000, (int) result.get());
+            }
+
+            final long elapsed = Math.max(1, System.currentTimeMillis() - time);
+            System.out.println(threads + " threads done in " + elapsed + " (" + (threads * 50000L / elapsed) + " ops/ms)");
+            workers.shutdown();
+        }
+
+        Assert.assertEquals(20000, map.size());
+        store.close();
+    }
+
+    /**
+     * Writers in different lock stripes insert into an empty map at the same time and create the shared bitmap nodes
+     * while doing so.  No key may be lost to a branch that was created twice.
+     */
+    @Test
+    public void testConcurrentInsertsAcrossStripes() throws Exception
+    {
+        final MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        final Map<Integer, Integer> map = store.getHashMap("stripedInserts");
+        map.clear();
+
+        final List<Future> writers = new ArrayList<>();
+        for (int t = 0; t < 8; t++)
+        {
+            final int thread = t;
+            writers.add(pool.submit(() -> {
+                for (int i = thread; i < 40000; i += 8)
+                {
+                    map.put(i, i);
+                }
+            }));
+        }
+
+        for (Future writer : writers)
+        {
+            writer.get();
+        }
+
+        Assert.assertEquals(40000, map.size());
+        for (int i = 0; i < 40000; i++)
+        {
+            Assert.assertEquals(Integer.valueOf(i), map.get(i));
+        }
+        store.close();
+    }
+
     class MyRunnable implements Runnable
     {
         protected Map myMap = null;
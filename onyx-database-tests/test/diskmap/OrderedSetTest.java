@@ -0,0 +1,144 @@
+package diskmap;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.map.DefaultMapBuilder;
+import com.onyx.map.DefaultOrderedDiskSet;
+import com.onyx.map.MapBuilder;
+import com.onyx.map.OrderedDiskSet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class OrderedSetTest extends AbstractTest
+{
+
+    @Test
+    public void testAddAndRange()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        OrderedDiskSet<Integer> set = store.getOrderedSet("orderedAdd");
+
+        final List<Integer> values = new ArrayList<>();
+        for(int i = 0; i < 10000; i++)
+        {
+            values.add(i);
+        }
+        Collections.shuffle(values);
+
+        for(Integer value : values)
+        {
+            Assert.assertTrue(set.add(value));
+        }
+        Assert.assertFalse(set.add(5000));
+        Assert.assertEquals(10000, set.longSize());
+
+        List<Integer> range = set.range(100, true, 200, false);
+        Assert.assertEquals(100, range.size());
+        for(int i = 0; i < range.size(); i++)
+        {
+            Assert.assertEquals(100 + i, range.get(i).intValue());
+        }
+
+        Assert.assertEquals(9899, set.range(100, false, null, false).size());
+        Assert.assertEquals(101, set.range(null, false, 100, true).size());
+        Assert.assertTrue(set.contains(9999));
+        Assert.assertFalse(set.contains(10000));
+
+        store.close();
+    }
+
+    @Test
+    public void testRemove()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        OrderedDiskSet<String> set = store.getOrderedSet("orderedRemove");
+
+        for(int i = 0; i < 5000; i++)
+        {
+            set.add("KEY" + i);
+        }
+
+        for(int i = 0; i < 5000; i += 2)
+        {
+            Assert.assertTrue(set.remove("KEY" + i));
+        }
+        Assert.assertFalse(set.remove("KEY0"));
+        Assert.assertEquals(2500, set.longSize());
+
+        for(String key : set.range(null, false, null, false))
+        {
+            Assert.assertTrue(Integer.valueOf(key.substring(3)) % 2 == 1);
+        }
+
+        for(int i = 1; i < 5000; i += 2)
+        {
+            Assert.assertTrue(set.remove("KEY" + i));
+        }
+        Assert.assertEquals(0, set.range(null, false, null, false).size());
+        Assert.assertTrue(set.add("KEY1"));
+
+        store.close();
+    }
+
+    @Test
+    public void testReopen()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        OrderedDiskSet<Long> set = store.getOrderedSet("orderedReopen");
+        for(long i = 0; i < 1000; i++)
+        {
+            set.add(i * 2);
+        }
+        store.close();
+
+        store = new DefaultMapBuilder(TEST_DATABASE);
+        set = store.getOrderedSet("orderedReopen");
+        Assert.assertEquals(1000, set.longSize());
+        Assert.assertEquals(5, set.range(10L, true, 20L, false).size());
+        store.close();
+    }
+
+    /**
+     * Readers only hold the read lock while they fill the node cache
+     */
+    @Test
+    public void testConcurrentReads() throws Exception
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        final OrderedDiskSet<Integer> set = store.getOrderedSet("orderedConcurrentReads");
+        for(int i = 0; i < 20000; i++)
+        {
+            set.add(i);
+        }
+        ((DefaultOrderedDiskSet) set).clearCaches();
+
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        final List<Future> readers = new ArrayList<>();
+        for(int thread = 0; thread < 8; thread++)
+        {
+            final int offset = thread;
+            readers.add(pool.submit(() -> {
+                for(int i = offset; i < 20000; i += 7)
+                {
+                    Assert.assertTrue(set.contains(i));
+                    Assert.assertEquals(Math.min(10, 20000 - i), set.range(i, true, i + 10, false).size());
+                }
+            }));
+        }
+
+        for(Future reader : readers)
+        {
+            reader.get();
+        }
+        pool.shutdown();
+        store.close();
+    }
+}
@@ -0,0 +1,153 @@
+package diskmap;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.map.DefaultMapBuilder;
+import com.onyx.map.DiskMap;
+import com.onyx.map.MapBuilder;
+import com.onyx.map.PostingLists;
+import com.onyx.map.store.StoreType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.Set;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class PostingListTest extends AbstractTest
+{
+
+    @Test
+    public void testAddAndRemove()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        DiskMap map = (DiskMap)store.getHashMap("postings");
+        PostingLists postingLists = new PostingLists(map.getFileStore());
+
+        long list = postingLists.create();
+        for(long i = 1; i <= 100000; i++)
+        {
+            postingLists.add(list, i * 37);
+        }
+
+        Assert.assertEquals(100000, postingLists.size(list));
+        Set<Long> references = postingLists.get(list);
+        Assert.assertEquals(100000, references.size());
+        Assert.assertTrue(references.contains(37L));
+        Assert.assertTrue(references.contains(100000L * 37));
+
+        for(long i = 1; i <= 100000; i += 2)
+        {
+            postingLists.remove(list, i * 37);
+        }
+
+        references = postingLists.get(list);
+        Assert.assertEquals(50000, postingLists.size(list));
+        Assert.assertEquals(50000, references.size());
+        Assert.assertFalse(references.contains(37L));
+        Assert.assertTrue(references.contains(74L));
+
+        store.close();
+    }
+
+    @Test
+    public void testCompaction()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        DiskMap map = (DiskMap)store.getHashMap("postings");
+        PostingLists postingLists = new PostingLists(map.getFileStore());
+
+        long list = postingLists.create();
+        for(long i = 1000; i > 0; i--)
+        {
+            postingLists.add(list, i);
+        }
+
+        // Removing most of the references triggers compaction
+        for(long i = 1; i <= 990; i++)
+        {
+            postingLists.remove(list, i);
+        }
+
+        Set<Long> references = postingLists.get(list);
+        Assert.assertEquals(10, references.size());
+        Assert.assertEquals(10, postingLists.size(list));
+        for(long i = 991; i <= 1000; i++)
+        {
+            Assert.assertTrue(references.contains(i));
+        }
+
+        // Re-adding after a remove must be kept
+        postingLists.add(list, 5L);
+        Assert.assertTrue(postingLists.get(list).contains(5L));
+
+        store.close();
+    }
+
+    @Test
+    public void testAddAllSkipsExisting()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        DiskMap map = (DiskMap)store.getHashMap("postings");
+        PostingLists postingLists = new PostingLists(map.getFileStore());
+
+        long list = postingLists.create();
+        postingLists.addAll(list, Arrays.asList(1L, 2L, 3L));
+
+        // Adding the same references again, as a migration that is run twice would, does not count them twice
+        postingLists.addAll(list, Arrays.asList(1L, 2L, 3L, 4L));
+        Assert.assertEquals(4, postingLists.size(list));
+        Assert.assertEquals(4, postingLists.get(list).size());
+
+        for(long i = 1; i <= 4; i++)
+        {
+            postingLists.remove(list, i);
+        }
+        Assert.assertEquals(0, postingLists.size(list));
+
+        store.close();
+    }
+
+    @Test
+    public void testDelete()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        DiskMap map = (DiskMap)store.getHashMap("postings");
+        PostingLists postingLists = new PostingLists(map.getFileStore());
+
+        long list = postingLists.create();
+        postingLists.add(list, 1L);
+        postingLists.add(list, 2L);
+
+        Assert.assertEquals(1, postingLists.remove(list, 1L));
+        Assert.assertEquals(0, postingLists.remove(list, 2L));
+
+        // The block of the deleted list is handed out again
+        postingLists.delete(list);
+        Assert.assertEquals(list, postingLists.create());
+
+        store.close();
+    }
+
+    @Test
+    public void testInMemory()
+    {
+        MapBuilder store = new DefaultMapBuilder(null, StoreType.IN_MEMORY);
+        DiskMap map = (DiskMap)store.getHashMap("postings");
+        PostingLists postingLists = new PostingLists(map.getFileStore());
+
+        long first = postingLists.create();
+        long second = postingLists.create();
+        for(long i = 0; i < 1000; i++)
+        {
+            postingLists.add(first, i);
+            postingLists.add(second, i * 2);
+        }
+        postingLists.remove(second, 0);
+
+        Assert.assertEquals(1000, postingLists.get(first).size());
+        Assert.assertEquals(999, postingLists.get(second).size());
+
+        store.close();
+    }
+}
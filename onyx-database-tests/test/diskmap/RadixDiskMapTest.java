@@ -0,0 +1,218 @@
+package diskmap;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.map.DefaultMapBuilder;
+import com.onyx.map.MapBuilder;
+import com.onyx.map.RadixDiskMap;
+import com.onyx.map.StructureType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class RadixDiskMapTest extends AbstractTest
+{
+    public static final String RADIX_DATABASE = "C:/Sandbox/Onyx/Tests/radix.db";
+
+    protected static void deleteDatabase()
+    {
+        new File(RADIX_DATABASE).delete();
+        new File(RADIX_DATABASE + ".free").delete();
+    }
+
+    @Test
+    public void testPutGetRemove()
+    {
+        deleteDatabase();
+
+        MapBuilder store = new DefaultMapBuilder(RADIX_DATABASE);
+        Map<Integer, String> map = store.getHashMap("radix", StructureType.RADIX_HASH_MAP);
+        Assert.assertTrue(map instanceof RadixDiskMap);
+
+        // More keys than chains so keys share chains within the last nodes
+        for (int i = 0; i < 300000; i++)
+        {
+            map.put(i, "Radix " + i);
+        }
+        for (int i = 0; i < 300000; i += 2)
+        {
+            map.remove(i);
+        }
+
+        Assert.assertEquals(150000, map.size());
+        for (int i = 0; i < 300000; i++)
+        {
+            Assert.assertEquals((i % 2 == 0) ? null : "Radix " + i, map.get(i));
+        }
+
+        final Set<Integer> keys = new HashSet<>();
+        for (Integer key : map.keySet())
+        {
+            Assert.assertTrue(keys.add(key));
+        }
+        Assert.assertEquals(150000, keys.size());
+        store.close();
+
+        // The layout is recorded so the map is opened as a radix map without asking for it
+        store = new DefaultMapBuilder(RADIX_DATABASE);
+        map = store.getHashMap("radix");
+        Assert.assertTrue(map instanceof RadixDiskMap);
+        Assert.assertEquals(150000, map.size());
+        Assert.assertEquals("Radix 299999", map.get(299999));
+        store.close();
+    }
+
+    @Test
+    public void testCompact() throws Exception
+    {
+        deleteDatabase();
+
+        final MapBuilder store = new DefaultMapBuilder(RADIX_DATABASE);
+        final Map<String, Integer> map = store.getHashMap("radixCompact", StructureType.RADIX_HASH_MAP);
+
+        for (int i = 0; i < 20000; i++)
+        {
+            map.put("Key " + i, i);
+        }
+        for (int i = 1000; i < 20000; i++)
+        {
+            map.remove("Key " + i);
+        }
+
+        Assert.assertTrue(store.compact(0) > 0);
+        Assert.assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; i++)
+        {
+            Assert.assertEquals(Integer.valueOf(i), map.get("Key " + i));
+        }
+        store.close();
+    }
+
+    /**
+     * Keys sharing the whole hash are split down every level and then chained within the deepest one
+     */
+    @Test
+    public void testCollidingHashes()
+    {
+        deleteDatabase();
+
+        // Aa and BB share a hash code so every combination of them does too
+        final List<String> colliding = new ArrayList<>();
+        colliding.add("");
+        for (int pair = 0; pair < 7; pair++)
+        {
+            final List<String> longer = new ArrayList<>();
+            for (String key : colliding)
+            {
+                longer.add(key + "Aa");
+                longer.add(key + "BB");
+            }
+            colliding.clear();
+            colliding.addAll(longer);
+        }
+
+        MapBuilder store = new DefaultMapBuilder(RADIX_DATABASE);
+        Map<String, Integer> map = store.getHashMap("radixColliding", StructureType.RADIX_HASH_MAP);
+
+        for (int i = 0; i < colliding.size(); i++)
+        {
+            map.put(colliding.get(i), i);
+            map.put("Key " + i, i);
+        }
+        for (int i = 0; i < colliding.size(); i += 2)
+        {
+            map.remove(colliding.get(i));
+        }
+        store.close();
+
+        store = new DefaultMapBuilder(RADIX_DATABASE);
+        map = store.getHashMap("radixColliding");
+
+        Assert.assertEquals(colliding.size() + (colliding.size() / 2), map.size());
+        for (int i = 0; i < colliding.size(); i++)
+        {
+            Assert.assertEquals((i % 2 == 0) ? null : Integer.valueOf(i), map.get(colliding.get(i)));
+            Assert.assertEquals(Integer.valueOf(i), map.get("Key " + i));
+        }
+        Assert.assertEquals(map.size(), new HashSet<>(map.keySet()).size());
+        store.close();
+    }
+
+    /**
+     * An existing map keeps the layout it was created with
+     */
+    @Test
+    public void testExistingLayoutKept()
+    {
+        deleteDatabase();
+
+        final MapBuilder store = new DefaultMapBuilder(RADIX_DATABASE);
+        store.getHashMap("plain").put(1, "One");
+        store.close();
+
+        final MapBuilder reopened = new DefaultMapBuilder(RADIX_DATABASE);
+        final Map<Integer, String> map = reopened.getHashMap("plain", StructureType.RADIX_HASH_MAP);
+        Assert.assertFalse(map instanceof RadixDiskMap);
+        Assert.assertEquals("One", map.get(1));
+        reopened.close();
+    }
+
+    /**
+     * Lookup latency of the decimal bitmap compared with the radix bitmap.  Each lookup of the decimal bitmap reads 10
+     * nodes where the radix bitmap reads 3.
+     */
+    @Test
+    public void testLookupLatency()
+    {
+        deleteDatabase();
+
+        final MapBuilder store = new DefaultMapBuilder(RADIX_DATABASE);
+        final Map<String, Integer> decimal = store.getHashMap("decimalLatency");
+        final Map<String, Integer> radix = store.getHashMap("radixLatency", StructureType.RADIX_HASH_MAP);
+
+        for (int i = 0; i < 100000; i++)
+        {
+            decimal.put("Latency " + i, i);
+            radix.put("Latency " + i, i);
+        }
+
+        // Rounds alternate between the maps and the best of each is kept so warm up and noise do not favour one
+        long decimalTime = Long.MAX_VALUE;
+        long radixTime = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++)
+        {
+            decimalTime = Math.min(decimalTime, lookup(decimal));
+            radixTime = Math.min(radixTime, lookup(radix));
+        }
+
+        System.out.println("Decimal bitmap lookup " + (decimalTime / 100000) + " ns");
+        System.out.println("Radix bitmap lookup " + (radixTime / 100000) + " ns");
+        store.close();
+
+        // Nodes are not cached yet once reopened so every level is read from the store
+        MapBuilder reopened = new DefaultMapBuilder(RADIX_DATABASE);
+        System.out.println("Decimal bitmap uncached lookup " + (lookup(reopened.getHashMap("decimalLatency")) / 100000) + " ns");
+        reopened.close();
+
+        reopened = new DefaultMapBuilder(RADIX_DATABASE);
+        System.out.println("Radix bitmap uncached lookup " + (lookup(reopened.getHashMap("radixLatency")) / 100000) + " ns");
+        reopened.close();
+    }
+
+    protected static long lookup(Map<String, Integer> map)
+    {
+        final long time = System.nanoTime();
+        for (int i = 0; i < 100000; i++)
+        {
+            Assert.assertEquals(Integer.valueOf(i), map.get("Latency " + i));
+        }
+        return System.nanoTime() - time;
+    }
+}
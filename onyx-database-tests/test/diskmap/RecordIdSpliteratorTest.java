@@ -0,0 +1,94 @@
+package diskmap;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.map.DefaultMapBuilder;
+import com.onyx.map.DiskMap;
+import com.onyx.map.MapBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class RecordIdSpliteratorTest extends AbstractTest
+{
+
+    @Test
+    public void testParallelTraversal()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        DiskMap<Integer, String> map = (DiskMap)store.getHashMap("spliterator");
+
+        Set<Long> expected = new HashSet<>();
+        for(int i = 0; i < 50000; i++)
+        {
+            map.put(i, "Value " + i);
+        }
+
+        for(int i = 0; i < 50000; i++)
+        {
+            expected.add(map.getRecID(i));
+        }
+
+        Set<Long> sequential = StreamSupport.stream(map.recordIdSpliterator(), false).collect(Collectors.toSet());
+        Set<Long> parallel = StreamSupport.stream(map.recordIdSpliterator(), true).collect(Collectors.toSet());
+
+        Assert.assertEquals(expected, sequential);
+        Assert.assertEquals(expected, parallel);
+        Assert.assertEquals(50000, StreamSupport.stream(map.recordIdSpliterator(), true).count());
+
+        store.close();
+    }
+
+    @Test
+    public void testSplitDoesNotOverlap()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        DiskMap<Integer, String> map = (DiskMap)store.getHashMap("spliteratorSplit");
+
+        for(int i = 0; i < 1000; i++)
+        {
+            map.put(i, "Value " + i);
+        }
+
+        Spliterator<Long> first = map.recordIdSpliterator();
+        Spliterator<Long> second = first.trySplit();
+        Assert.assertNotNull(second);
+
+        Set<Long> firstIds = new HashSet<>();
+        Set<Long> secondIds = new HashSet<>();
+        first.forEachRemaining(firstIds::add);
+        second.forEachRemaining(secondIds::add);
+
+        Assert.assertTrue(firstIds.size() > 0);
+        Assert.assertTrue(secondIds.size() > 0);
+        Assert.assertEquals(1000, firstIds.size() + secondIds.size());
+
+        firstIds.retainAll(secondIds);
+        Assert.assertTrue(firstIds.isEmpty());
+
+        for(int i = 0; i < 1000; i++)
+        {
+            Assert.assertEquals("Value " + i, map.getWithRecID(map.getRecID(i)));
+        }
+
+        store.close();
+    }
+
+    @Test
+    public void testEmptyMap()
+    {
+        MapBuilder store = new DefaultMapBuilder(TEST_DATABASE);
+        DiskMap<Integer, String> map = (DiskMap)store.getHashMap("spliteratorEmpty");
+
+        Assert.assertEquals(0, StreamSupport.stream(map.recordIdSpliterator(), true).count());
+        Assert.assertNull(map.recordIdSpliterator().trySplit());
+
+        store.close();
+    }
+}
@@ -0,0 +1,186 @@
+package diskmap;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.map.DefaultMapBuilder;
+import com.onyx.map.MapBuilder;
+import com.onyx.map.base.CacheMap;
+import com.onyx.map.base.SharedCache;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class SharedCacheTest
+{
+    public static final String CACHE_DATABASE = "C:/Sandbox/Onyx/Tests/cache.db";
+
+    /**
+     * Every map counts against the same budget
+     */
+    @Test
+    public void testSharedBudget()
+    {
+        final SharedCache cache = new SharedCache(100 * CacheMap.DEFAULT_WEIGHT);
+        final CacheMap first = new CacheMap(cache);
+        final CacheMap second = new CacheMap(cache);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            first.put(i, "First " + i);
+            second.put(i, "Second " + i);
+        }
+
+        Assert.assertTrue(cache.getWeightedSize() <= cache.getMaximumWeight());
+        Assert.assertTrue(first.size() + second.size() <= 100);
+        Assert.assertEquals(2000 - first.size() - second.size(), cache.getEvictionCount());
+    }
+
+    /**
+     * Entries that are read often stay cached while a scan reads many entries once
+     */
+    @Test
+    public void testScanResistance()
+    {
+        final SharedCache cache = new SharedCache(1000 * CacheMap.DEFAULT_WEIGHT);
+        final CacheMap hot = new CacheMap(cache);
+        final CacheMap scan = new CacheMap(cache);
+
+        for (int i = 0; i < 500; i++)
+        {
+            hot.put(i, "Hot " + i);
+        }
+        for (int round = 0; round < 10; round++)
+        {
+            for (int i = 0; i < 500; i++)
+            {
+                Assert.assertNotNull(hot.get(i));
+            }
+        }
+
+        for (int i = 0; i < 100000; i++)
+        {
+            scan.put(i, "Scan " + i);
+            scan.get(i);
+        }
+
+        int resident = 0;
+        for (int i = 0; i < 500; i++)
+        {
+            if (hot.get(i) != null)
+            {
+                resident++;
+            }
+        }
+        Assert.assertTrue("Only " + resident + " hot entries remained", resident > 450);
+    }
+
+    @Test
+    public void testCounters()
+    {
+        final SharedCache cache = new SharedCache(1000 * CacheMap.DEFAULT_WEIGHT);
+        final CacheMap map = new CacheMap(cache);
+
+        map.put(1, "One");
+        map.get(1);
+        map.get(2);
+
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+
+        map.remove(1);
+        map.put(2, null);
+        Assert.assertEquals(0, map.size());
+        Assert.assertEquals(0, cache.getWeightedSize());
+    }
+
+    /**
+     * A weight factor scales the weight of the entries of a named map
+     */
+    @Test
+    public void testWeightFactor()
+    {
+        final SharedCache cache = new SharedCache(1000 * CacheMap.DEFAULT_WEIGHT);
+        cache.setWeightFactor("light", 0.5);
+
+        final CacheMap light = new CacheMap(cache);
+        light.setName("light");
+        for (int i = 0; i < 100; i++)
+        {
+            light.put(i, "Light " + i);
+        }
+
+        Assert.assertEquals(100 * CacheMap.DEFAULT_WEIGHT / 2, cache.getWeightedSize());
+
+        light.clear();
+        Assert.assertEquals(0, cache.getWeightedSize());
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception
+    {
+        final SharedCache cache = new SharedCache(5000 * CacheMap.DEFAULT_WEIGHT);
+        final CacheMap map = new CacheMap(cache);
+
+        final ExecutorService pool = Executors.newFixedThreadPool(8);
+        final List<Future> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++)
+        {
+            final int thread = t;
+            workers.add(pool.submit(() -> {
+                for (int i = 0; i < 50000; i++)
+                {
+                    final int key = (i * 31 + thread) % 10000;
+                    final Object value = map.get(key);
+                    if (value == null)
+                    {
+                        map.put(key, "Value " + key);
+                    }
+                    else
+                    {
+                        Assert.assertEquals("Value " + key, value);
+                    }
+                }
+            }));
+        }
+
+        for (Future worker : workers)
+        {
+            worker.get();
+        }
+        pool.shutdown();
+
+        Assert.assertTrue(cache.getWeightedSize() <= cache.getMaximumWeight());
+        Assert.assertEquals(map.size() * (long) CacheMap.DEFAULT_WEIGHT, cache.getWeightedSize());
+    }
+
+    /**
+     * Records cached by the maps of a builder stop counting against the shared cache once it is closed
+     */
+    @Test
+    public void testCloseReleasesRecords()
+    {
+        new File(CACHE_DATABASE).delete();
+
+        final SharedCache cache = SharedCache.getInstance();
+        final long before = cache.getWeightedSize();
+
+        final MapBuilder store = new DefaultMapBuilder(CACHE_DATABASE);
+        final Map<Integer, String> map = store.getHashMap("cached");
+        for (int i = 0; i < 10000; i++)
+        {
+            map.put(i, "Cached " + i);
+        }
+        Assert.assertTrue(cache.getWeightedSize() > before);
+
+        store.close();
+        Assert.assertTrue(cache.getWeightedSize() <= before);
+    }
+}
@@ -0,0 +1,160 @@
+package embedded;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.descriptor.AttributeDescriptor;
+import com.onyx.descriptor.EntityDescriptor;
+import com.onyx.exception.EntityException;
+import com.onyx.exception.InitializationException;
+import com.onyx.map.serializer.ObjectBuffer;
+import com.onyx.map.serializer.ObjectType;
+import com.onyx.map.serializer.Serializers;
+import com.onyx.persistence.context.impl.DefaultSchemaContext;
+import com.onyx.persistence.query.Query;
+import com.onyx.persistence.query.QueryCriteria;
+import com.onyx.persistence.query.QueryCriteriaOperator;
+import embedded.base.BaseTest;
+import entities.AllAttributeEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@Category({ EmbeddedDatabaseTests.class })
+public class RecordLayoutTest extends BaseTest
+{
+    @Before
+    public void before() throws InitializationException
+    {
+        initialize();
+    }
+
+    @After
+    public void after() throws EntityException, IOException
+    {
+        shutdown();
+    }
+
+    protected AllAttributeEntity createEntity(String id)
+    {
+        final AllAttributeEntity entity = new AllAttributeEntity();
+        entity.id = id;
+        entity.longValue = 4l;
+        entity.longPrimitive = 3l;
+        entity.intValue = 23;
+        entity.intPrimitive = 4;
+        entity.stringValue = "Layout " + id;
+        entity.dateValue = new Date(1483736263743l);
+        entity.doubleValue = 232.2;
+        entity.doublePrimitive = 342.23;
+        entity.booleanValue = false;
+        entity.booleanPrimitive = true;
+        return entity;
+    }
+
+    /**
+     * Reads single attributes from records using the attribute table
+     */
+    @Test
+    public void aTestAttributeTable() throws EntityException
+    {
+        final DefaultSchemaContext schemaContext = (DefaultSchemaContext) context;
+        final AllAttributeEntity entity = createEntity("LAYOUT1");
+
+        final Serializers serializers = schemaContext.getDataFile(schemaContext.getBaseDescriptorForEntity(AllAttributeEntity.class)).getSerializers();
+        final int serializerId = schemaContext.getSystemEntityByName(AllAttributeEntity.class.getCanonicalName()).getPrimaryKey();
+
+        final ByteBuffer record = wrap(entity, serializers);
+        final ObjectBuffer objectBuffer = new ObjectBuffer(record, serializers);
+
+        Assert.assertEquals(ObjectType.ATTRIBUTE_TABLE.getType(), record.get(3));
+        Assert.assertEquals("Layout LAYOUT1", objectBuffer.getAttribute("stringValue", serializerId));
+        Assert.assertEquals(342.23, objectBuffer.getAttribute("doublePrimitive", serializerId));
+        Assert.assertEquals("LAYOUT1", objectBuffer.getAttribute("id", serializerId));
+        Assert.assertEquals(true, objectBuffer.getAttribute("booleanPrimitive", serializerId));
+        Assert.assertNull(objectBuffer.getAttribute("notAnAttribute", serializerId));
+    }
+
+    /**
+     * Records written before the attribute table was introduced are read through their serializer id
+     */
+    @Test
+    public void bTestLegacyRecord() throws EntityException, IOException
+    {
+        final DefaultSchemaContext schemaContext = (DefaultSchemaContext) context;
+        final AllAttributeEntity entity = createEntity("LAYOUT2");
+
+        final EntityDescriptor descriptor = schemaContext.getBaseDescriptorForEntity(AllAttributeEntity.class);
+        final Serializers serializers = schemaContext.getDataFile(descriptor).getSerializers();
+        final int serializerId = schemaContext.getSystemEntityByName(AllAttributeEntity.class.getCanonicalName()).getPrimaryKey();
+
+        // Write the record without an attribute table
+        final ObjectBuffer legacyBuffer = new ObjectBuffer(serializers);
+        legacyBuffer.writeByte(ObjectType.BUFFER_OBJ.getType());
+        legacyBuffer.writeShort(serializers.getSerializerId(AllAttributeEntity.class.getCanonicalName()));
+        for (AttributeDescriptor attribute : descriptor.getAttributes().values())
+        {
+            legacyBuffer.writeObject(DefaultSchemaContext.reflection.getAttribute(attribute.field, entity));
+        }
+        final ByteBuffer legacy = legacyBuffer.getByteBuffer();
+
+        Assert.assertEquals("Layout LAYOUT2", new ObjectBuffer(legacy, serializers).getAttribute("stringValue", serializerId));
+
+        legacy.rewind();
+        final Map values = new ObjectBuffer(legacy, serializers).toMap(serializerId);
+        Assert.assertEquals(23, values.get("intValue"));
+
+        legacy.rewind();
+        final AllAttributeEntity read = (AllAttributeEntity) ObjectBuffer.unwrap(legacy, serializers, serializerId);
+        Assert.assertEquals("LAYOUT2", read.id);
+        Assert.assertEquals(232.2, read.doubleValue, 0);
+        Assert.assertEquals(true, read.booleanPrimitive);
+    }
+
+    /**
+     * Queries and selections read single attributes from stored records
+     */
+    @Test
+    public void cTestQueryAttributes() throws EntityException
+    {
+        manager.executeDelete(new Query(AllAttributeEntity.class, new QueryCriteria("id", QueryCriteriaOperator.NOT_NULL)));
+
+        for (int i = 0; i < 10; i++)
+        {
+            save(createEntity("LAYOUT_QUERY" + i));
+        }
+
+        final Query query = new Query(AllAttributeEntity.class, new QueryCriteria("stringValue", QueryCriteriaOperator.STARTS_WITH, "Layout LAYOUT_QUERY"));
+        query.setSelections(Arrays.asList("id", "doublePrimitive"));
+
+        final List<Map> results = manager.executeQuery(query);
+        Assert.assertEquals(10, results.size());
+
+        for (Map result : results)
+        {
+            Assert.assertTrue(((String) result.get("id")).startsWith("LAYOUT_QUERY"));
+            Assert.assertEquals(342.23, result.get("doublePrimitive"));
+        }
+    }
+
+    protected ByteBuffer wrap(AllAttributeEntity entity, Serializers serializers) throws EntityException
+    {
+        try
+        {
+            return ObjectBuffer.wrap(entity, serializers);
+        } catch (IOException e)
+        {
+            throw new EntityException(e);
+        }
+    }
+}
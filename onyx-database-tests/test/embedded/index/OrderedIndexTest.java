@@ -0,0 +1,161 @@
+package embedded.index;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.exception.EntityException;
+import com.onyx.persistence.query.Query;
+import com.onyx.persistence.query.QueryCriteria;
+import com.onyx.persistence.query.QueryCriteriaOperator;
+import embedded.queries.PrePopulatedOrderedIndexTest;
+import entities.index.OrderedIndexEntity;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class OrderedIndexTest extends PrePopulatedOrderedIndexTest
+{
+    @Override
+    protected OrderedIndexEntity createEntity(int i)
+    {
+        final OrderedIndexEntity entity = super.createEntity(i);
+        entity.longValue = (i % 10 == 0) ? null : entity.longValue;
+        entity.stringValue = (i % 10 == 0) ? null : entity.stringValue;
+        return entity;
+    }
+
+    protected int count(QueryCriteria criteria) throws EntityException
+    {
+        final List results = manager.executeQuery(new Query(OrderedIndexEntity.class, criteria));
+        return results.size();
+    }
+
+    @Test
+    public void testIntegerRange() throws EntityException
+    {
+        Assert.assertEquals(100, count(new QueryCriteria("intValue", QueryCriteriaOperator.LESS_THAN, 100)));
+        Assert.assertEquals(101, count(new QueryCriteria("intValue", QueryCriteriaOperator.LESS_THAN_EQUAL, 100)));
+        Assert.assertEquals(399, count(new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN, 100)));
+        Assert.assertEquals(400, count(new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, 100)));
+        Assert.assertEquals(0, count(new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN, RECORDS)));
+    }
+
+    @Test
+    public void testBetween() throws EntityException
+    {
+        final QueryCriteria criteria = new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, 200)
+                .and("intValue", QueryCriteriaOperator.LESS_THAN, 250);
+        Assert.assertEquals(50, count(criteria));
+
+        final QueryCriteria dateCriteria = new QueryCriteria("dateValue", QueryCriteriaOperator.GREATER_THAN, new Date(1000L * 10))
+                .and("dateValue", QueryCriteriaOperator.LESS_THAN_EQUAL, new Date(1000L * 20));
+        Assert.assertEquals(10, count(dateCriteria));
+    }
+
+    @Test
+    public void testNullValues() throws EntityException
+    {
+        // Null values are considered less than any value
+        Assert.assertEquals(50 + 90, count(new QueryCriteria("longValue", QueryCriteriaOperator.LESS_THAN, 10L)));
+        Assert.assertEquals(360, count(new QueryCriteria("longValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, 10L)));
+    }
+
+    @Test
+    public void testStartsWith() throws EntityException
+    {
+        // VALUE1, VALUE11..VALUE19, VALUE100..VALUE199 less the ones that are null
+        Assert.assertEquals(1 + 9 + 90, count(new QueryCriteria("stringValue", QueryCriteriaOperator.STARTS_WITH, "VALUE1")));
+        Assert.assertEquals(450, count(new QueryCriteria("stringValue", QueryCriteriaOperator.STARTS_WITH, "VALUE")));
+        Assert.assertEquals(0, count(new QueryCriteria("stringValue", QueryCriteriaOperator.STARTS_WITH, "NONE")));
+    }
+
+    @Test
+    public void testUpdateAndDelete() throws EntityException
+    {
+        final List<OrderedIndexEntity> results = manager.executeQuery(new Query(OrderedIndexEntity.class, new QueryCriteria("intValue", QueryCriteriaOperator.LESS_THAN, 10)));
+        Assert.assertEquals(10, results.size());
+
+        for(OrderedIndexEntity entity : results)
+        {
+            entity.intValue = entity.intValue + RECORDS;
+            save(entity);
+        }
+
+        Assert.assertEquals(0, count(new QueryCriteria("intValue", QueryCriteriaOperator.LESS_THAN, 10)));
+        Assert.assertEquals(10, count(new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, RECORDS)));
+
+        for(OrderedIndexEntity entity : results)
+        {
+            delete(entity);
+        }
+
+        Assert.assertEquals(0, count(new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, RECORDS)));
+        Assert.assertEquals(RECORDS - 10, count(new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, 0)));
+    }
+
+    @Test
+    public void testCompaction() throws EntityException
+    {
+        manager.executeDelete(new Query(OrderedIndexEntity.class, new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, RECORDS / 2)));
+
+        Assert.assertTrue(factory.compact(0) > 0);
+
+        // Index references are translated to where the records were moved
+        Assert.assertEquals(100, count(new QueryCriteria("intValue", QueryCriteriaOperator.LESS_THAN, 100)));
+        Assert.assertEquals(RECORDS / 2, count(new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, 0)));
+        Assert.assertEquals(225, count(new QueryCriteria("stringValue", QueryCriteriaOperator.STARTS_WITH, "VALUE")));
+
+        final OrderedIndexEntity entity = new OrderedIndexEntity();
+        entity.intValue = RECORDS;
+        save(entity);
+
+        Assert.assertEquals(1, count(new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, RECORDS)));
+        Assert.assertEquals(RECORDS / 2 + 1, count(new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, 0)));
+    }
+
+    /**
+     * Records found by a query are not moved by compaction before the query reads them
+     */
+    @Test
+    public void testQueryWhileCompacting() throws Exception
+    {
+        final AtomicBoolean compacting = new AtomicBoolean(true);
+        final ExecutorService pool = Executors.newSingleThreadExecutor();
+        final Future<Integer> queries = pool.submit(() -> {
+            int executed = 0;
+            while (compacting.get())
+            {
+                final List<OrderedIndexEntity> results = manager.executeQuery(new Query(OrderedIndexEntity.class, new QueryCriteria("intValue", QueryCriteriaOperator.LESS_THAN, 100)));
+                Assert.assertEquals(100, results.size());
+                for (OrderedIndexEntity entity : results)
+                {
+                    Assert.assertTrue(entity.intValue < 100);
+                }
+                executed++;
+            }
+            return executed;
+        });
+
+        try
+        {
+            // Records are deleted between each compaction so the rest are moved every time
+            for (int i = RECORDS - 1; i >= RECORDS - 20; i--)
+            {
+                manager.executeDelete(new Query(OrderedIndexEntity.class, new QueryCriteria("intValue", QueryCriteriaOperator.EQUAL, i)));
+                factory.compact(0);
+            }
+        } finally
+        {
+            compacting.set(false);
+        }
+
+        Assert.assertTrue(queries.get() > 0);
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,160 @@
+package embedded.performance;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.descriptor.EntityDescriptor;
+import com.onyx.entity.SystemEntity;
+import com.onyx.exception.EntityException;
+import com.onyx.exception.InitializationException;
+import com.onyx.persistence.IManagedEntity;
+import com.onyx.persistence.context.impl.DefaultSchemaContext;
+import embedded.base.BaseTest;
+import entities.SimpleEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads records and looks up entity metadata from many threads at once.  Since the descriptors and system entities are
+ * read for every record, throughput should scale with the number of threads rather than serialize on the context.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@Category({ EmbeddedDatabaseTests.class })
+public class SchemaContextReadScalingTest extends BaseTest
+{
+    protected static final int RECORDS = 2000;
+    protected static final int READS_PER_THREAD = 20000;
+
+    @Before
+    public void before() throws InitializationException
+    {
+        initialize();
+    }
+
+    @After
+    public void after() throws EntityException, IOException
+    {
+        shutdown();
+    }
+
+    @Test
+    public void aPopulateTest() throws EntityException
+    {
+        final List<IManagedEntity> entities = new ArrayList<>();
+
+        for (int i = 0; i < RECORDS; i++)
+        {
+            final SimpleEntity entity = new SimpleEntity();
+            entity.setSimpleId("SCALE" + i);
+            entity.setName("Scaling " + i);
+            entities.add(entity);
+        }
+
+        manager.saveEntities(entities);
+    }
+
+    @Test
+    public void bMetadataReadScalingTest() throws Exception
+    {
+        final DefaultSchemaContext schemaContext = (DefaultSchemaContext) context;
+        final SimpleEntity entity = new SimpleEntity();
+        final int systemEntityId = schemaContext.getSystemEntityByName(SimpleEntity.class.getCanonicalName()).getPrimaryKey();
+
+        final long single = measure(1, () -> {
+            final EntityDescriptor descriptor = schemaContext.getDescriptorForEntity(entity, "");
+            final SystemEntity systemEntity = schemaContext.getSystemEntityById(systemEntityId);
+            return descriptor != null && systemEntity != null;
+        });
+
+        final long concurrent = measure(32, () -> {
+            final EntityDescriptor descriptor = schemaContext.getDescriptorForEntity(entity, "");
+            final SystemEntity systemEntity = schemaContext.getSystemEntityById(systemEntityId);
+            return descriptor != null && systemEntity != null;
+        });
+
+        System.out.println("Metadata lookups with 1 thread averaged " + single + "ms and with 32 threads averaged " + concurrent + "ms per million reads");
+    }
+
+    @Test
+    public void cRecordReadScalingTest() throws Exception
+    {
+        final long single = measure(1, () -> {
+            final SimpleEntity entity = new SimpleEntity();
+            entity.setSimpleId("SCALE" + (int) (Math.random() * RECORDS));
+            return manager.find(entity) != null;
+        });
+
+        final long concurrent = measure(32, () -> {
+            final SimpleEntity entity = new SimpleEntity();
+            entity.setSimpleId("SCALE" + (int) (Math.random() * RECORDS));
+            return manager.find(entity) != null;
+        });
+
+        System.out.println("Record reads with 1 thread averaged " + single + "ms and with 32 threads averaged " + concurrent + "ms per million reads");
+    }
+
+    /**
+     * Run the read on each thread and verify all of them succeed
+     *
+     * @param threadCount Number of reader threads
+     * @param read Read to perform
+     * @return Milliseconds per million reads
+     * @throws Exception
+     */
+    protected long measure(int threadCount, Read read) throws Exception
+    {
+        final ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        final AtomicInteger failures = new AtomicInteger(0);
+        final List<Future> threads = new ArrayList<>();
+
+        final long time = System.currentTimeMillis();
+
+        for (int i = 0; i < threadCount; i++)
+        {
+            threads.add(pool.submit(() -> {
+                for (int j = 0; j < READS_PER_THREAD; j++)
+                {
+                    try
+                    {
+                        if (!read.read())
+                        {
+                            failures.incrementAndGet();
+                        }
+                    } catch (EntityException e)
+                    {
+                        failures.incrementAndGet();
+                    }
+                }
+            }));
+        }
+
+        for (Future future : threads)
+        {
+            future.get();
+        }
+
+        final long after = System.currentTimeMillis();
+        pool.shutdown();
+
+        Assert.assertEquals(0, failures.get());
+
+        return ((after - time) * 1000000L) / ((long) threadCount * READS_PER_THREAD);
+    }
+
+    @FunctionalInterface
+    protected interface Read
+    {
+        boolean read() throws EntityException;
+    }
+}
@@ -0,0 +1,113 @@
+package embedded.queries;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.exception.AttributeTypeMismatchException;
+import com.onyx.exception.EntityException;
+import com.onyx.persistence.query.*;
+import embedded.base.PrePopulatedDatabaseTest;
+import entities.AllAttributeForFetch;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class AggregateQueryTest extends PrePopulatedDatabaseTest
+{
+
+    @Test
+    public void testAggregateWithoutGrouping() throws EntityException
+    {
+        QueryCriteria criteria = new QueryCriteria("stringValue", QueryCriteriaOperator.STARTS_WITH, "Some");
+        Query query = new Query(AllAttributeForFetch.class, criteria);
+        query.setProjections(Arrays.asList(new Count(), new Sum("intPrimitive"), new Avg("intPrimitive"), new Min("longValue"), new Max("longValue", "highest"), new Sum("doubleValue")));
+
+        List<Map> results = manager.executeQuery(query);
+
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(1, query.getResultsCount());
+
+        final Map row = results.get(0);
+        Assert.assertEquals(4L, row.get("count(*)"));
+        Assert.assertEquals(14L, row.get("sum(intPrimitive)"));
+        Assert.assertEquals(3.5, (Double) row.get("avg(intPrimitive)"), 0.0001);
+        Assert.assertEquals(322L, row.get("min(longValue)"));
+        Assert.assertEquals(323L, row.get("highest"));
+        Assert.assertEquals(4.446, (Double) row.get("sum(doubleValue)"), 0.0001);
+    }
+
+    @Test
+    public void testGroupBy() throws EntityException
+    {
+        QueryCriteria criteria = new QueryCriteria("stringValue", QueryCriteriaOperator.STARTS_WITH, "Some");
+        Query query = new Query(AllAttributeForFetch.class, Arrays.asList("stringValue"), criteria);
+        query.setProjections(Arrays.asList(new Count(), new Max("intPrimitive")));
+        query.setQueryOrders(Arrays.asList(new QueryOrder("stringValue")));
+
+        List<Map> results = manager.executeQuery(query);
+
+        Assert.assertEquals(3, results.size());
+        Assert.assertEquals("Some test strin", results.get(0).get("stringValue"));
+        Assert.assertEquals(1L, results.get(0).get("count(*)"));
+        Assert.assertEquals("Some test strin1", results.get(1).get("stringValue"));
+        Assert.assertEquals(2L, results.get(1).get("count(*)"));
+        Assert.assertEquals(4, results.get(1).get("max(intPrimitive)"));
+        Assert.assertEquals("Some test strin3", results.get(2).get("stringValue"));
+        Assert.assertEquals(3, results.get(2).get("max(intPrimitive)"));
+    }
+
+    @Test
+    public void testOrderAndLimitRows() throws EntityException
+    {
+        QueryCriteria criteria = new QueryCriteria("id", QueryCriteriaOperator.STARTS_WITH, "FIRST ONE");
+        Query query = new Query(AllAttributeForFetch.class, Arrays.asList("intPrimitive"), criteria);
+        query.setProjections(Arrays.asList(new Count("stringValue", "strings"), new Count()));
+        query.setQueryOrders(Arrays.asList(new QueryOrder("intPrimitive", false)));
+        query.setMaxResults(2);
+
+        List<Map> results = manager.executeQuery(query);
+
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals(4, results.get(0).get("intPrimitive"));
+        Assert.assertEquals(2L, results.get(0).get("strings"));
+        Assert.assertEquals(3, results.get(1).get("intPrimitive"));
+        Assert.assertEquals(2L, results.get(1).get("count(*)"));
+
+        // Records without a string value are counted by rows but not by the attribute
+        query.setMaxResults(-1);
+        query.setFirstRow(2);
+        results = manager.executeQuery(query);
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(0, results.get(0).get("intPrimitive"));
+        Assert.assertEquals(0L, results.get(0).get("strings"));
+        Assert.assertEquals(2L, results.get(0).get("count(*)"));
+    }
+
+    @Test
+    public void testNoMatches() throws EntityException
+    {
+        QueryCriteria criteria = new QueryCriteria("stringValue", QueryCriteriaOperator.EQUAL, "Nothing");
+        Query query = new Query(AllAttributeForFetch.class, criteria);
+        query.setProjections(Arrays.asList(new Count(), new Sum("longValue")));
+
+        List<Map> results = manager.executeQuery(query);
+
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(0L, results.get(0).get("count(*)"));
+        Assert.assertNull(results.get(0).get("sum(longValue)"));
+
+        query.setSelections(Arrays.asList("stringValue"));
+        Assert.assertEquals(0, manager.executeQuery(query).size());
+    }
+
+    @Test(expected = AttributeTypeMismatchException.class)
+    public void testSumOfString() throws EntityException
+    {
+        Query query = new Query(AllAttributeForFetch.class, new QueryCriteria("stringValue", QueryCriteriaOperator.STARTS_WITH, "Some"));
+        query.setProjections(Arrays.asList(new Sum("stringValue")));
+        manager.executeQuery(query);
+    }
+}
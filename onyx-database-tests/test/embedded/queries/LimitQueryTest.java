@@ -0,0 +1,102 @@
+package embedded.queries;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.exception.EntityException;
+import com.onyx.persistence.query.Query;
+import com.onyx.persistence.query.QueryCriteria;
+import com.onyx.persistence.query.QueryCriteriaOperator;
+import com.onyx.persistence.query.QueryOrder;
+import entities.index.OrderedIndexEntity;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.*;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class LimitQueryTest extends PrePopulatedOrderedIndexTest
+{
+    @Test
+    public void testStopsAtLimit() throws EntityException
+    {
+        final Query query = new Query(OrderedIndexEntity.class, new QueryCriteria("stringValue", QueryCriteriaOperator.STARTS_WITH, "VALUE"));
+        query.setMaxResults(10);
+
+        final List<OrderedIndexEntity> results = manager.executeQuery(query);
+        Assert.assertEquals(10, results.size());
+
+        // Only the records needed were found
+        Assert.assertEquals(10, query.getResultsCount());
+
+        query.setCountResults(true);
+        Assert.assertEquals(10, manager.executeQuery(query).size());
+        Assert.assertEquals(RECORDS, query.getResultsCount());
+    }
+
+    @Test
+    public void testPages() throws EntityException
+    {
+        final QueryCriteria criteria = new QueryCriteria("intValue", QueryCriteriaOperator.GREATER_THAN_EQUAL, 100)
+                .and("longValue", QueryCriteriaOperator.LESS_THAN, 10L);
+
+        final Set<Integer> found = new HashSet<>();
+        for(int page = 0; page < 4; page++)
+        {
+            final Query query = new Query(OrderedIndexEntity.class, criteria);
+            query.setFirstRow(page * 20);
+            query.setMaxResults(20);
+
+            final List<OrderedIndexEntity> results = manager.executeQuery(query);
+            Assert.assertEquals(20, results.size());
+            for(OrderedIndexEntity entity : results)
+            {
+                Assert.assertTrue(entity.intValue >= 100 && entity.longValue < 10);
+                Assert.assertTrue(found.add(entity.intValue));
+            }
+        }
+
+        // There are 80 matches so the last page is short
+        final Query query = new Query(OrderedIndexEntity.class, criteria);
+        query.setFirstRow(70);
+        query.setMaxResults(20);
+        Assert.assertEquals(10, manager.executeQuery(query).size());
+        Assert.assertEquals(80, query.getResultsCount());
+    }
+
+    @Test
+    public void testIndexFirstWithFilter() throws EntityException
+    {
+        final QueryCriteria criteria = new QueryCriteria("longValue", QueryCriteriaOperator.EQUAL, 7L)
+                .and("stringValue", QueryCriteriaOperator.NOT_EQUAL, "VALUE7");
+        final Query query = new Query(OrderedIndexEntity.class, criteria);
+        query.setMaxResults(3);
+
+        final List<OrderedIndexEntity> results = manager.executeQuery(query);
+        Assert.assertEquals(3, results.size());
+        for(OrderedIndexEntity entity : results)
+        {
+            Assert.assertEquals(7L, (long) entity.longValue);
+            Assert.assertNotEquals(7, entity.intValue);
+        }
+    }
+
+    @Test
+    public void testSelectionsAndOrder() throws EntityException
+    {
+        final Query query = new Query(OrderedIndexEntity.class, Arrays.asList("intValue"), new QueryCriteria("intValue", QueryCriteriaOperator.LESS_THAN, 50));
+        query.setMaxResults(5);
+
+        final List<Map> results = manager.executeQuery(query);
+        Assert.assertEquals(5, results.size());
+        for(Map result : results)
+        {
+            Assert.assertTrue((Integer) result.get("intValue") < 50);
+        }
+
+        // Ordered queries still find every result
+        query.setQueryOrders(Arrays.asList(new QueryOrder("intValue", false)));
+        final List<Map> ordered = manager.executeQuery(query);
+        Assert.assertEquals(49, ordered.get(0).get("intValue"));
+        Assert.assertEquals(50, query.getResultsCount());
+    }
+}
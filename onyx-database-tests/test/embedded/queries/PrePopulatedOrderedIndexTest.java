@@ -0,0 +1,57 @@
+package embedded.queries;
+
+import com.onyx.exception.EntityException;
+import com.onyx.exception.InitializationException;
+import com.onyx.persistence.query.Query;
+import com.onyx.persistence.query.QueryCriteria;
+import com.onyx.persistence.query.QueryCriteriaOperator;
+import embedded.base.BaseTest;
+import entities.index.OrderedIndexEntity;
+import org.junit.After;
+import org.junit.Before;
+
+import java.io.IOException;
+import java.util.Date;
+
+/**
+ * Seeds the database with ordered index entities before each test
+ */
+public class PrePopulatedOrderedIndexTest extends BaseTest
+{
+    protected static final int RECORDS = 500;
+
+    @After
+    public void after() throws EntityException, IOException
+    {
+        shutdown();
+    }
+
+    @Before
+    public void seedData() throws InitializationException, EntityException
+    {
+        initialize();
+
+        manager.executeDelete(new Query(OrderedIndexEntity.class, new QueryCriteria("identifier", QueryCriteriaOperator.NOT_NULL)));
+
+        for(int i = 0; i < RECORDS; i++)
+        {
+            save(createEntity(i));
+        }
+    }
+
+    /**
+     * Entity saved for the i-th record
+     *
+     * @param i
+     * @return
+     */
+    protected OrderedIndexEntity createEntity(int i)
+    {
+        final OrderedIndexEntity entity = new OrderedIndexEntity();
+        entity.intValue = i;
+        entity.longValue = new Long(i % 50);
+        entity.stringValue = "VALUE" + i;
+        entity.dateValue = new Date(1000L * i);
+        return entity;
+    }
+}
@@ -0,0 +1,137 @@
+package embedded.queries;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.exception.EntityException;
+import com.onyx.fetch.QueryPlan;
+import com.onyx.fetch.impl.FullTableScanner;
+import com.onyx.fetch.impl.IdentifierScanner;
+import com.onyx.fetch.impl.IndexScanner;
+import com.onyx.persistence.manager.impl.EmbeddedPersistenceManager;
+import com.onyx.persistence.query.Query;
+import com.onyx.persistence.query.QueryCriteria;
+import com.onyx.persistence.query.QueryCriteriaOperator;
+import entities.index.OrderedIndexEntity;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class QueryPlanTest extends PrePopulatedOrderedIndexTest
+{
+    protected Long identifier;
+
+    @Before
+    public void before() throws EntityException
+    {
+        final List<OrderedIndexEntity> results = execute(new QueryCriteria("intValue", QueryCriteriaOperator.EQUAL, 5));
+        identifier = results.get(0).identifier;
+    }
+
+    protected QueryPlan explain(QueryCriteria criteria) throws EntityException
+    {
+        return ((EmbeddedPersistenceManager) manager).explain(new Query(OrderedIndexEntity.class, criteria));
+    }
+
+    protected List<OrderedIndexEntity> execute(QueryCriteria criteria) throws EntityException
+    {
+        return manager.executeQuery(new Query(OrderedIndexEntity.class, criteria));
+    }
+
+    @Test
+    public void testIdentifierScannedFirst() throws EntityException
+    {
+        final QueryCriteria criteria = new QueryCriteria("stringValue", QueryCriteriaOperator.NOT_EQUAL, "x")
+                .and("identifier", QueryCriteriaOperator.EQUAL, identifier);
+
+        final QueryPlan plan = explain(criteria);
+        Assert.assertEquals(2, plan.getSteps().size());
+        Assert.assertEquals("identifier", plan.getSteps().get(0).getCriteria().getAttribute());
+        Assert.assertTrue(plan.getSteps().get(0).getScanner() instanceof IdentifierScanner);
+        Assert.assertTrue(plan.getSteps().get(1).getScanner() instanceof FullTableScanner);
+        Assert.assertTrue(plan.getEstimatedCost() < RECORDS);
+
+        final List<OrderedIndexEntity> results = execute(criteria);
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(5, results.get(0).intValue);
+    }
+
+    @Test
+    public void testMostSelectiveIndexFirst() throws EntityException
+    {
+        // Each long value has 10 records so the equal criteria on the integer is scanned first
+        final QueryCriteria criteria = new QueryCriteria("longValue", QueryCriteriaOperator.EQUAL, 7L)
+                .and("dateValue", QueryCriteriaOperator.LESS_THAN, new Date(1000L * 400))
+                .and("intValue", QueryCriteriaOperator.EQUAL, 107);
+
+        final QueryPlan plan = explain(criteria);
+        Assert.assertEquals(3, plan.getSteps().size());
+        Assert.assertEquals("intValue", plan.getSteps().get(0).getCriteria().getAttribute());
+        Assert.assertEquals(1, plan.getSteps().get(0).getEstimatedRows());
+        Assert.assertEquals("longValue", plan.getSteps().get(1).getCriteria().getAttribute());
+        Assert.assertEquals(10, plan.getSteps().get(1).getEstimatedRows());
+
+        // Checking the single record costs less than reading the index of every record in the range
+        Assert.assertEquals("dateValue", plan.getSteps().get(2).getCriteria().getAttribute());
+        Assert.assertTrue(plan.getSteps().get(2).getScanner() instanceof FullTableScanner);
+
+        final List<OrderedIndexEntity> results = execute(criteria);
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(107, results.get(0).intValue);
+    }
+
+    @Test
+    public void testOrEqualsCombinedIntoIn() throws EntityException
+    {
+        final QueryCriteria criteria = new QueryCriteria("intValue", QueryCriteriaOperator.EQUAL, 1)
+                .or("intValue", QueryCriteriaOperator.EQUAL, 2)
+                .or("intValue", QueryCriteriaOperator.EQUAL, 3)
+                .and("longValue", QueryCriteriaOperator.EQUAL, 2L);
+
+        final QueryPlan plan = explain(criteria);
+        Assert.assertEquals(2, plan.getSteps().size());
+        Assert.assertEquals(QueryCriteriaOperator.IN, plan.getSteps().get(0).getCriteria().getOperator());
+        Assert.assertTrue(plan.getSteps().get(0).getScanner() instanceof IndexScanner);
+        Assert.assertEquals(3, plan.getSteps().get(0).getEstimatedRows());
+
+        final List<OrderedIndexEntity> results = execute(criteria);
+        Assert.assertEquals(1, results.size());
+        Assert.assertEquals(2, results.get(0).intValue);
+    }
+
+    @Test
+    public void testLongInListEstimatedFromDistinctValues() throws EntityException
+    {
+        final List<Object> values = new ArrayList<>();
+        for(int i = 0; i < 200; i++)
+        {
+            values.add(i);
+        }
+
+        // Every integer value has a single record
+        final QueryCriteria criteria = new QueryCriteria("intValue", QueryCriteriaOperator.IN, values);
+
+        final QueryPlan plan = explain(criteria);
+        Assert.assertTrue(plan.getSteps().get(0).getScanner() instanceof IndexScanner);
+        Assert.assertEquals(200, plan.getSteps().get(0).getEstimatedRows());
+
+        Assert.assertEquals(200, execute(criteria).size());
+    }
+
+    @Test
+    public void testOrOfDifferentAttributesAsDeclared() throws EntityException
+    {
+        final QueryCriteria criteria = new QueryCriteria("intValue", QueryCriteriaOperator.EQUAL, 1)
+                .or("stringValue", QueryCriteriaOperator.EQUAL, "VALUE2");
+
+        final QueryPlan plan = explain(criteria);
+        Assert.assertFalse(plan.isPlanned());
+        Assert.assertEquals(RECORDS, plan.getRecordCount());
+
+        Assert.assertEquals(2, execute(criteria).size());
+    }
+}
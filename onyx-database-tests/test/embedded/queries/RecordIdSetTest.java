@@ -0,0 +1,133 @@
+package embedded.queries;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.fetch.RecordIdSet;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+@Category({ EmbeddedDatabaseTests.class })
+public class RecordIdSetTest
+{
+    @Test
+    public void testAddOutOfOrder()
+    {
+        final RecordIdSet set = new RecordIdSet(new long[]{ 50, 10, 30, 10, 20, 50 });
+
+        Assert.assertEquals(4, set.size());
+        Assert.assertEquals(Arrays.asList(10L, 20L, 30L, 50L), Arrays.asList(set.keySet().toArray()));
+        Assert.assertTrue(set.containsKey(30L));
+        Assert.assertFalse(set.containsKey(40L));
+        Assert.assertFalse(set.containsKey(30));
+        Assert.assertEquals((Long) 20L, set.get(20L));
+        Assert.assertNull(set.get(40L));
+
+        set.add(40);
+        set.add(5);
+        Assert.assertEquals(6, set.size());
+        Assert.assertEquals(5L, set.get(0));
+        Assert.assertEquals(40L, set.get(4));
+    }
+
+    @Test
+    public void testPutAndRemove()
+    {
+        final RecordIdSet set = new RecordIdSet();
+        Assert.assertNull(set.put(3L, 3L));
+        Assert.assertNull(set.put(1L, 1L));
+        Assert.assertNull(set.put(3L, 3L));
+        Assert.assertEquals(2, set.size());
+
+        Assert.assertEquals((Long) 1L, set.remove(1L));
+        Assert.assertNull(set.remove(1L));
+        Assert.assertEquals(1, set.size());
+
+        for (long i = 10; i < 20; i++)
+        {
+            set.add(i);
+        }
+
+        // Remove the even ids while iterating
+        final Iterator<Long> iterator = set.keySet().iterator();
+        while (iterator.hasNext())
+        {
+            if (iterator.next() % 2 == 0)
+            {
+                iterator.remove();
+            }
+        }
+        Assert.assertEquals(Arrays.asList(3L, 11L, 13L, 15L, 17L, 19L), Arrays.asList(set.keySet().toArray()));
+
+        // Each record id maps to itself the same as the maps scanners return
+        final Map<Long, Long> copy = new HashMap<>(set);
+        Assert.assertEquals(6, copy.size());
+        Assert.assertEquals((Long) 13L, copy.get(13L));
+        Assert.assertEquals(copy, set);
+    }
+
+    @Test
+    public void testAndOr()
+    {
+        final RecordIdSet set1 = new RecordIdSet(new long[]{ 1, 3, 5, 7, 9, 11 });
+        final RecordIdSet set2 = new RecordIdSet(new long[]{ 11, 2, 3, 4, 5 });
+
+        Assert.assertEquals(Arrays.asList(3L, 5L, 11L), Arrays.asList(RecordIdSet.and(set1, set2).keySet().toArray()));
+        Assert.assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 5L, 7L, 9L, 11L), Arrays.asList(RecordIdSet.or(set1, set2).keySet().toArray()));
+
+        Assert.assertTrue(RecordIdSet.and(set1, new RecordIdSet()).isEmpty());
+        Assert.assertEquals(6, RecordIdSet.or(set1, new RecordIdSet()).size());
+    }
+
+    /**
+     * Ids put in the order of a hash map are only sorted once they are read
+     */
+    @Test
+    public void testPutOutOfOrder()
+    {
+        final Map<Long, Long> hashed = new HashMap<>();
+        for (long i = 0; i < 200000; i++)
+        {
+            hashed.put(i * 64, i * 64);
+        }
+
+        final RecordIdSet set = new RecordIdSet();
+        long time = System.currentTimeMillis();
+        for (int pass = 0; pass < 2; pass++)
+        {
+            for (Long id : hashed.keySet())
+            {
+                set.put(id, id);
+            }
+        }
+        Assert.assertEquals(200000, set.size());
+        Assert.assertEquals(0L, set.get(0));
+        Assert.assertEquals(199999L * 64, set.get(199999));
+        System.out.println("Put 400,000 record ids out of order in " + (System.currentTimeMillis() - time));
+    }
+
+    @Test
+    public void testLargeSet()
+    {
+        final RecordIdSet set = new RecordIdSet();
+        for (long i = 1000000; i > 0; i--)
+        {
+            set.add(i * 64);
+        }
+
+        long time = System.currentTimeMillis();
+        Assert.assertEquals(1000000, set.size());
+        final RecordIdSet evens = new RecordIdSet();
+        for (long i = 2; i <= 1000000; i += 2)
+        {
+            evens.add(i * 64);
+        }
+        Assert.assertEquals(500000, RecordIdSet.and(set, evens).size());
+        Assert.assertEquals(1000000, RecordIdSet.or(set, evens).size());
+        System.out.println("Sorted and merged 1,000,000 record ids in " + (System.currentTimeMillis() - time));
+    }
+}
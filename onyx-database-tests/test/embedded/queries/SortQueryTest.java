@@ -0,0 +1,177 @@
+package embedded.queries;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.exception.EntityException;
+import com.onyx.exception.InitializationException;
+import com.onyx.persistence.IManagedEntity;
+import com.onyx.persistence.context.impl.DefaultSchemaContext;
+import com.onyx.persistence.query.Query;
+import com.onyx.persistence.query.QueryCriteria;
+import com.onyx.persistence.query.QueryCriteriaOperator;
+import com.onyx.persistence.query.QueryOrder;
+import embedded.base.BaseTest;
+import entities.AllAttributeEntity;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@Category({ EmbeddedDatabaseTests.class })
+public class SortQueryTest extends BaseTest
+{
+    protected static final int RECORDS = 500;
+
+    @Before
+    public void before() throws InitializationException
+    {
+        initialize();
+    }
+
+    @After
+    public void after() throws EntityException, IOException
+    {
+        shutdown();
+    }
+
+    @Test
+    public void aPopulateTest() throws EntityException
+    {
+        manager.executeDelete(new Query(AllAttributeEntity.class, new QueryCriteria("id", QueryCriteriaOperator.NOT_NULL)));
+
+        final List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < RECORDS; i++)
+        {
+            values.add(i);
+        }
+        Collections.shuffle(values);
+
+        final List<IManagedEntity> entities = new ArrayList<>();
+        for (Integer value : values)
+        {
+            final AllAttributeEntity entity = new AllAttributeEntity();
+            entity.id = "SORT" + value;
+            entity.intPrimitive = value;
+            entity.intValue = value % 10;
+            entity.stringValue = "Sort";
+            entities.add(entity);
+        }
+
+        manager.saveEntities(entities);
+    }
+
+    @Test
+    public void bTestTopResults() throws EntityException
+    {
+        final Query query = new Query(AllAttributeEntity.class, new QueryCriteria("stringValue", QueryCriteriaOperator.EQUAL, "Sort"));
+        query.setQueryOrders(Arrays.asList(new QueryOrder("intPrimitive")));
+        query.setFirstRow(10);
+        query.setMaxResults(20);
+
+        final List<AllAttributeEntity> results = manager.executeQuery(query);
+        Assert.assertEquals(20, results.size());
+        Assert.assertEquals(RECORDS, query.getResultsCount());
+
+        for (int i = 0; i < results.size(); i++)
+        {
+            Assert.assertEquals(i + 10, results.get(i).intPrimitive);
+        }
+    }
+
+    @Test
+    public void cTestTopSelections() throws EntityException
+    {
+        final Query query = new Query(AllAttributeEntity.class, Arrays.asList("id", "intPrimitive"), new QueryCriteria("stringValue", QueryCriteriaOperator.EQUAL, "Sort"));
+        query.setQueryOrders(Arrays.asList(new QueryOrder("intValue", false), new QueryOrder("intPrimitive")));
+        query.setFirstRow(0);
+        query.setMaxResults(5);
+
+        final List<Map> results = manager.executeQuery(query);
+        Assert.assertEquals(5, results.size());
+        Assert.assertEquals(9, results.get(0).get("intPrimitive"));
+        Assert.assertEquals(19, results.get(1).get("intPrimitive"));
+        Assert.assertEquals(49, results.get(4).get("intPrimitive"));
+    }
+
+    @Test
+    public void dTestFullSort() throws EntityException
+    {
+        final Query query = new Query(AllAttributeEntity.class, new QueryCriteria("stringValue", QueryCriteriaOperator.EQUAL, "Sort"));
+        query.setQueryOrders(Arrays.asList(new QueryOrder("intPrimitive", false)));
+
+        final List<AllAttributeEntity> results = manager.executeQuery(query);
+        Assert.assertEquals(RECORDS, results.size());
+
+        for (int i = 0; i < results.size(); i++)
+        {
+            Assert.assertEquals(RECORDS - 1 - i, results.get(i).intPrimitive);
+        }
+    }
+
+    @Test
+    public void eTestExternalSort() throws EntityException
+    {
+        final int spillSize = context.getQuerySpillSize();
+        ((DefaultSchemaContext) context).setQuerySpillSize(64);
+
+        try
+        {
+            final Query query = new Query(AllAttributeEntity.class, new QueryCriteria("stringValue", QueryCriteriaOperator.EQUAL, "Sort"));
+            query.setQueryOrders(Arrays.asList(new QueryOrder("intValue"), new QueryOrder("intPrimitive", false)));
+
+            final List<AllAttributeEntity> results = manager.executeQuery(query);
+            Assert.assertEquals(RECORDS, results.size());
+
+            for (int i = 1; i < results.size(); i++)
+            {
+                final AllAttributeEntity previous = results.get(i - 1);
+                final AllAttributeEntity current = results.get(i);
+
+                Assert.assertTrue(previous.intValue <= current.intValue);
+                if (previous.intValue.equals(current.intValue))
+                {
+                    Assert.assertTrue(previous.intPrimitive > current.intPrimitive);
+                }
+            }
+        } finally
+        {
+            ((DefaultSchemaContext) context).setQuerySpillSize(spillSize);
+        }
+    }
+
+    @Test
+    public void fTestExternalSortSelection() throws EntityException
+    {
+        final int spillSize = context.getQuerySpillSize();
+        ((DefaultSchemaContext) context).setQuerySpillSize(64);
+
+        try
+        {
+            final Query query = new Query(AllAttributeEntity.class, new QueryCriteria("stringValue", QueryCriteriaOperator.EQUAL, "Sort"));
+            query.setSelections(Arrays.asList("intPrimitive"));
+            query.setQueryOrders(Arrays.asList(new QueryOrder("intPrimitive", false)));
+            query.setFirstRow(10);
+
+            final List<Map> results = manager.executeQuery(query);
+            Assert.assertEquals(RECORDS - 10, results.size());
+
+            for (int i = 0; i < results.size(); i++)
+            {
+                Assert.assertEquals(RECORDS - 11 - i, results.get(i).get("intPrimitive"));
+            }
+        } finally
+        {
+            ((DefaultSchemaContext) context).setQuerySpillSize(spillSize);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package memory;
+
+import category.InMemoryDatabaseTests;
+import com.onyx.exception.EntityException;
+import com.onyx.map.store.OffHeapAllocator;
+import com.onyx.persistence.factory.impl.CacheManagerFactory;
+import com.onyx.persistence.manager.PersistenceManager;
+import com.onyx.persistence.query.QueryCriteria;
+import com.onyx.persistence.query.QueryCriteriaOperator;
+import entities.AllAttributeEntity;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+
+/**
+ * Tests an in memory database held outside of the java heap
+ */
+@Category({ InMemoryDatabaseTests.class })
+public class OffHeapTest
+{
+    @Test
+    public void testOffHeapDatabase() throws EntityException
+    {
+        final long offHeapBefore = OffHeapAllocator.getAllocatedBytes();
+
+        final CacheManagerFactory factory = new CacheManagerFactory("OFF_HEAP");
+        factory.setOffHeap(true);
+        factory.initialize();
+
+        Assert.assertTrue(factory.isOffHeap());
+
+        final PersistenceManager manager = factory.getPersistenceManager();
+        for (int i = 0; i < 5000; i++)
+        {
+            final AllAttributeEntity entity = new AllAttributeEntity();
+            entity.id = "OFF_HEAP" + i;
+            entity.intValue = i % 10;
+            entity.stringValue = "Off heap value " + i;
+            manager.saveEntity(entity);
+        }
+
+        final List<AllAttributeEntity> results = manager.list(AllAttributeEntity.class, new QueryCriteria("intValue", QueryCriteriaOperator.EQUAL, 3));
+        Assert.assertEquals(500, results.size());
+
+        final AllAttributeEntity entity = new AllAttributeEntity();
+        entity.id = "OFF_HEAP4999";
+        Assert.assertEquals("Off heap value 4999", ((AllAttributeEntity) manager.find(entity)).stringValue);
+
+        Assert.assertTrue(factory.getOffHeapBytes() > offHeapBefore);
+
+        factory.close();
+
+        // Freed explicitly rather than when garbage collected
+        Assert.assertEquals(offHeapBefore, factory.getOffHeapBytes());
+    }
+}
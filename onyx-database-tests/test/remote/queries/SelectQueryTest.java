@@ -1,10 +1,12 @@
 package remote.queries;
 
 import com.onyx.exception.EntityException;
+import com.onyx.persistence.query.Count;
 import com.onyx.persistence.query.Query;
 import com.onyx.persistence.query.QueryCriteria;
 import com.onyx.persistence.query.QueryCriteriaOperator;
 import com.onyx.persistence.query.QueryOrder;
+import com.onyx.persistence.query.Sum;
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -122,4 +124,22 @@ public class SelectQueryTest extends RemotePrePopulatedBaseTest
         Assert.assertTrue(((Map)results.get(0)).get("id").equals("FIRST ONE"));
         Assert.assertTrue(((Map)results.get(1)).get("id").equals("FIRST ONE4"));
     }
+
+    @Test
+    public void testAggregateGroupBy() throws EntityException, InstantiationException, IllegalAccessException
+    {
+        QueryCriteria criteria = new QueryCriteria("stringValue", QueryCriteriaOperator.STARTS_WITH, "Some");
+        Query query = new Query(AllAttributeForFetch.class, Arrays.asList("stringValue"), criteria);
+        query.setProjections(Arrays.asList(new Count(), new Sum("intPrimitive")));
+        query.setQueryOrders(Arrays.asList(new QueryOrder("stringValue")));
+
+        List results = manager.executeQuery(query);
+
+        Assert.assertNotNull(results);
+        Assert.assertTrue(results.size() == 3);
+        Assert.assertTrue(results.get(1) instanceof Map);
+        Assert.assertTrue(((Map) results.get(1)).get("stringValue").equals("Some test strin1"));
+        Assert.assertTrue(((Number) ((Map) results.get(1)).get("count(*)")).longValue() == 2);
+        Assert.assertTrue(((Number) ((Map) results.get(1)).get("sum(intPrimitive)")).longValue() == 8);
+    }
 }
@@ -0,0 +1,249 @@
+package transaction;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.exception.EntityException;
+import com.onyx.persistence.context.impl.DefaultSchemaContext;
+import com.onyx.persistence.factory.impl.EmbeddedPersistenceManagerFactory;
+import com.onyx.persistence.manager.PersistenceManager;
+import com.onyx.persistence.query.Query;
+import com.onyx.persistence.query.QueryCriteria;
+import com.onyx.persistence.query.QueryCriteriaOperator;
+import entities.AllAttributeEntity;
+import entities.relationship.OneToOneChild;
+import entities.relationship.OneToOneParent;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runners.MethodSorters;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@Category({ EmbeddedDatabaseTests.class })
+public class CheckpointRecoveryTest
+{
+    protected static final String DATABASE_LOCATION = "C:/Sandbox/Onyx/Tests/checkpoint.oxd";
+    protected static final String DATABASE_LOCATION_RECOVERED = "C:/Sandbox/Onyx/Tests/checkpointRecovered.oxd";
+    protected static final String DATABASE_LOCATION_CASCADE = "C:/Sandbox/Onyx/Tests/cascade.oxd";
+    protected static final String DATABASE_LOCATION_CASCADE_RECOVERED = "C:/Sandbox/Onyx/Tests/cascadeRecovered.oxd";
+    protected static final String DATABASE_LOCATION_FAILED_FLUSH = "C:/Sandbox/Onyx/Tests/failedFlush.oxd";
+    protected static final String DATABASE_LOCATION_CRASHED = "C:/Sandbox/Onyx/Tests/crashed.oxd";
+    protected static final String DATABASE_LOCATION_RESTARTED = "C:/Sandbox/Onyx/Tests/restarted.oxd";
+
+    @BeforeClass
+    public static void beforeClass()
+    {
+        JournalWriterTest.delete(new File(DATABASE_LOCATION));
+        JournalWriterTest.delete(new File(DATABASE_LOCATION_RECOVERED));
+        JournalWriterTest.delete(new File(DATABASE_LOCATION_CASCADE));
+        JournalWriterTest.delete(new File(DATABASE_LOCATION_CASCADE_RECOVERED));
+        JournalWriterTest.delete(new File(DATABASE_LOCATION_FAILED_FLUSH));
+        JournalWriterTest.delete(new File(DATABASE_LOCATION_CRASHED));
+        JournalWriterTest.delete(new File(DATABASE_LOCATION_RESTARTED));
+    }
+
+    /**
+     * Only the transactions following the checkpoint before the last one are applied.  Transactions for the same record
+     * are applied in order and queries wait for the preceding saves.
+     */
+    @Test
+    public void aTestRecoverFromCheckpoint() throws EntityException, IOException
+    {
+        final EmbeddedPersistenceManagerFactory factory = createFactory(DATABASE_LOCATION);
+        final PersistenceManager manager = factory.getPersistenceManager();
+        final DefaultSchemaContext context = (DefaultSchemaContext) factory.getSchemaContext();
+
+        save(manager, "BEFORE", 100, 1);
+        context.checkpoint();
+
+        save(manager, "AFTER", 100, 1);
+        save(manager, "AFTER", 100, 2);
+        save(manager, "DELETED", 50, 1);
+        manager.executeDelete(new Query(AllAttributeEntity.class, new QueryCriteria("id", QueryCriteriaOperator.STARTS_WITH, "DELETED")));
+        save(manager, "DELETED", 1, 3);
+
+        // Closing the database writes the last checkpoint
+        factory.close();
+
+        // Recover a copy of the WAL files into an empty database
+        createFactory(DATABASE_LOCATION_RECOVERED).close();
+        final File recoveredWalDirectory = new File(DATABASE_LOCATION_RECOVERED + File.separator + "wal");
+        copyJournal(new File(DATABASE_LOCATION + File.separator + "wal"), recoveredWalDirectory);
+
+        // The WAL files end with a checkpoint so they are not recovered when the database is started
+        final EmbeddedPersistenceManagerFactory recoveredFactory = createFactory(DATABASE_LOCATION_RECOVERED);
+        final PersistenceManager recoveredManager = recoveredFactory.getPersistenceManager();
+        Assert.assertNull(recoveredManager.findById(AllAttributeEntity.class, "AFTER0"));
+
+        final long journalSize = journalSize(recoveredWalDirectory);
+        recoveredFactory.getSchemaContext().getTransactionController().recoverFromCheckpoint(transaction -> true);
+
+        Assert.assertNull(recoveredManager.findById(AllAttributeEntity.class, "BEFORE0"));
+
+        final List<AllAttributeEntity> after = recoveredManager.executeQuery(new Query(AllAttributeEntity.class, new QueryCriteria("id", QueryCriteriaOperator.STARTS_WITH, "AFTER")));
+        Assert.assertEquals(100, after.size());
+        for (AllAttributeEntity entity : after)
+        {
+            Assert.assertEquals(2, (int) entity.intValue);
+        }
+
+        final List<AllAttributeEntity> deleted = recoveredManager.executeQuery(new Query(AllAttributeEntity.class, new QueryCriteria("id", QueryCriteriaOperator.STARTS_WITH, "DELETED")));
+        Assert.assertEquals(1, deleted.size());
+        Assert.assertEquals(3, (int) deleted.get(0).intValue);
+
+        recoveredFactory.close();
+
+        // The recovered transactions are not journaled a second time, only the checkpoint written on close
+        Assert.assertEquals(journalSize + 5, journalSize(recoveredWalDirectory));
+    }
+
+    /**
+     * Saving a parent cascades to its child, which belongs to another lane.  The later save of the child on its own
+     * must not be overwritten by the earlier cascade.
+     */
+    @Test
+    public void bTestCascadeAppliedInOrder() throws EntityException
+    {
+        final EmbeddedPersistenceManagerFactory factory = createFactory(DATABASE_LOCATION_CASCADE);
+        final PersistenceManager manager = factory.getPersistenceManager();
+
+        for (int i = 0; i < 2000; i++)
+        {
+            final OneToOneParent parent = new OneToOneParent();
+            parent.identifier = "PARENT" + i;
+            parent.childNoInverse = new OneToOneChild();
+            parent.childNoInverse.identifier = "CHILD" + i;
+            parent.childNoInverse.correlation = 1;
+            manager.saveEntity(parent);
+        }
+
+        // Each child is saved again after every parent so its lane may reach it before the lane of its parent
+        for (int i = 0; i < 2000; i++)
+        {
+            final OneToOneChild child = new OneToOneChild();
+            child.identifier = "CHILD" + i;
+            child.correlation = 2;
+            manager.saveEntity(child);
+        }
+        factory.close();
+
+        final EmbeddedPersistenceManagerFactory recoveredFactory = createFactory(DATABASE_LOCATION_CASCADE_RECOVERED);
+        final PersistenceManager recoveredManager = recoveredFactory.getPersistenceManager();
+        recoveredFactory.getSchemaContext().getTransactionController().recoverDatabase(DATABASE_LOCATION_CASCADE + File.separator + "wal", transaction -> true);
+
+        for (int i = 0; i < 2000; i++)
+        {
+            final OneToOneChild child = (OneToOneChild) recoveredManager.findById(OneToOneChild.class, "CHILD" + i);
+            Assert.assertEquals(2, child.correlation);
+            Assert.assertNotNull(recoveredManager.findById(OneToOneParent.class, "PARENT" + i));
+        }
+
+        recoveredFactory.close();
+    }
+
+    /**
+     * A checkpoint is only written once every data file has been forced
+     */
+    @Test
+    public void cTestNoCheckpointWhenFlushFails() throws EntityException
+    {
+        final EmbeddedPersistenceManagerFactory factory = createFactory(DATABASE_LOCATION_FAILED_FLUSH);
+        final PersistenceManager manager = factory.getPersistenceManager();
+        final DefaultSchemaContext context = (DefaultSchemaContext) factory.getSchemaContext();
+
+        save(manager, "FLUSHED", 10, 1);
+        Assert.assertTrue(context.checkpoint());
+
+        // A closed data file can not be forced
+        save(manager, "NOT_FLUSHED", 10, 1);
+        context.getDataFile(context.getBaseDescriptorForEntity(AllAttributeEntity.class)).close();
+        Assert.assertFalse(context.checkpoint());
+
+        factory.close();
+    }
+
+    /**
+     * A database whose WAL does not end with a checkpoint is recovered when it is started
+     */
+    @Test
+    public void dTestRecoverOnStart() throws EntityException, IOException
+    {
+        final EmbeddedPersistenceManagerFactory factory = createFactory(DATABASE_LOCATION_CRASHED);
+        final PersistenceManager manager = factory.getPersistenceManager();
+        final DefaultSchemaContext context = (DefaultSchemaContext) factory.getSchemaContext();
+
+        save(manager, "BEFORE", 100, 1);
+        context.checkpoint();
+        save(manager, "AFTER", 100, 2);
+
+        // Copy the WAL files into an empty database before the database is closed as though it had crashed
+        createFactory(DATABASE_LOCATION_RESTARTED).close();
+        copyJournal(new File(DATABASE_LOCATION_CRASHED + File.separator + "wal"), new File(DATABASE_LOCATION_RESTARTED + File.separator + "wal"));
+        factory.close();
+
+        final EmbeddedPersistenceManagerFactory restartedFactory = createFactory(DATABASE_LOCATION_RESTARTED);
+        final PersistenceManager restartedManager = restartedFactory.getPersistenceManager();
+
+        final List<AllAttributeEntity> after = restartedManager.executeQuery(new Query(AllAttributeEntity.class, new QueryCriteria("id", QueryCriteriaOperator.STARTS_WITH, "AFTER")));
+        Assert.assertEquals(100, after.size());
+        for (AllAttributeEntity entity : after)
+        {
+            Assert.assertEquals(2, (int) entity.intValue);
+        }
+        Assert.assertFalse(restartedFactory.getSchemaContext().getTransactionController().isRecoveryNeeded());
+        restartedFactory.close();
+
+        // The recovered records were committed along with the checkpoint
+        final EmbeddedPersistenceManagerFactory reopenedFactory = createFactory(DATABASE_LOCATION_RESTARTED);
+        Assert.assertEquals(100, reopenedFactory.getPersistenceManager().executeQuery(new Query(AllAttributeEntity.class, new QueryCriteria("id", QueryCriteriaOperator.STARTS_WITH, "AFTER"))).size());
+        reopenedFactory.close();
+    }
+
+    protected static void save(PersistenceManager manager, String prefix, int count, int value) throws EntityException
+    {
+        for (int i = 0; i < count; i++)
+        {
+            final AllAttributeEntity entity = new AllAttributeEntity();
+            entity.id = prefix + i;
+            entity.intValue = value;
+            manager.saveEntity(entity);
+        }
+    }
+
+    protected static void copyJournal(File walDirectory, File copyDirectory) throws IOException
+    {
+        for (File walFile : copyDirectory.listFiles())
+        {
+            walFile.delete();
+        }
+        for (File walFile : walDirectory.listFiles())
+        {
+            Files.copy(walFile.toPath(), new File(copyDirectory, walFile.getName()).toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    protected static long journalSize(File walDirectory)
+    {
+        long journalSize = 0;
+        for (File walFile : walDirectory.listFiles())
+        {
+            journalSize += walFile.length();
+        }
+        return journalSize;
+    }
+
+    protected static EmbeddedPersistenceManagerFactory createFactory(String location) throws EntityException
+    {
+        final EmbeddedPersistenceManagerFactory factory = new EmbeddedPersistenceManagerFactory();
+        factory.setDatabaseLocation(location);
+        factory.setEnableJournaling(true);
+        factory.initialize();
+        return factory;
+    }
+}
@@ -0,0 +1,184 @@
+package transaction;
+
+import category.EmbeddedDatabaseTests;
+import com.onyx.exception.EntityException;
+import com.onyx.exception.TransactionException;
+import com.onyx.persistence.context.SchemaContext;
+import com.onyx.persistence.factory.impl.EmbeddedPersistenceManagerFactory;
+import com.onyx.persistence.manager.PersistenceManager;
+import com.onyx.persistence.query.Query;
+import com.onyx.transaction.JournalSyncPolicy;
+import com.onyx.transaction.impl.JournalWriter;
+import entities.AllAttributeEntity;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.runners.MethodSorters;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@Category({ EmbeddedDatabaseTests.class })
+public class JournalWriterTest
+{
+    protected static final String DATABASE_LOCATION = "C:/Sandbox/Onyx/Tests/journal.oxd";
+    protected static final String DATABASE_LOCATION_RECOVERED = "C:/Sandbox/Onyx/Tests/journalRecovered.oxd";
+
+    protected static final int THREADS = 8;
+    protected static final int SAVES_PER_THREAD = 500;
+
+    @BeforeClass
+    public static void beforeClass()
+    {
+        delete(new File(DATABASE_LOCATION));
+        delete(new File(DATABASE_LOCATION_RECOVERED));
+    }
+
+    /**
+     * Concurrent saves are grouped by the journal writer and replayed in full
+     */
+    @Test
+    public void aTestConcurrentBatchSync() throws Exception
+    {
+        final EmbeddedPersistenceManagerFactory factory = createFactory(DATABASE_LOCATION, JournalSyncPolicy.BATCH);
+        final PersistenceManager manager = factory.getPersistenceManager();
+
+        final ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        final List<Future> threads = new ArrayList<>();
+
+        for (int i = 0; i < THREADS; i++)
+        {
+            final int thread = i;
+            threads.add(pool.submit(() -> {
+                for (int j = 0; j < SAVES_PER_THREAD; j++)
+                {
+                    final AllAttributeEntity entity = new AllAttributeEntity();
+                    entity.id = "JOURNAL" + thread + "_" + j;
+                    entity.intValue = j;
+                    manager.saveEntity(entity);
+                }
+                return null;
+            }));
+        }
+
+        for (Future future : threads)
+        {
+            future.get();
+        }
+        pool.shutdown();
+
+        final AllAttributeEntity deleted = new AllAttributeEntity();
+        deleted.id = "JOURNAL0_0";
+        manager.deleteEntity(deleted);
+
+        factory.close();
+
+        final EmbeddedPersistenceManagerFactory recoveredFactory = createFactory(DATABASE_LOCATION_RECOVERED, JournalSyncPolicy.NONE);
+        final PersistenceManager recoveredManager = recoveredFactory.getPersistenceManager();
+
+        recoveredFactory.getSchemaContext().getTransactionController().recoverDatabase(DATABASE_LOCATION + File.separator + "wal", transaction -> true);
+
+        final Query existsQuery = new Query();
+        existsQuery.setEntityType(AllAttributeEntity.class);
+
+        final List results = recoveredManager.executeQuery(existsQuery);
+        Assert.assertEquals(THREADS * SAVES_PER_THREAD - 1, results.size());
+        Assert.assertNull(recoveredManager.findById(AllAttributeEntity.class, "JOURNAL0_0"));
+        Assert.assertNotNull(recoveredManager.findById(AllAttributeEntity.class, "JOURNAL7_499"));
+
+        recoveredFactory.close();
+    }
+
+    /**
+     * Transactions written with the interval policy are acknowledged once the interval sync runs
+     */
+    @Test
+    public void bTestIntervalSyncAcknowledgement() throws Exception
+    {
+        final EmbeddedPersistenceManagerFactory factory = createFactory(DATABASE_LOCATION, JournalSyncPolicy.INTERVAL);
+
+        final AllAttributeEntity entity = new AllAttributeEntity();
+        entity.id = "JOURNAL_INTERVAL";
+
+        final CompletableFuture<Void> acknowledgement = factory.getSchemaContext().getTransactionController().writeSave(entity);
+        acknowledgement.get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(acknowledgement.isDone());
+        Assert.assertFalse(acknowledgement.isCompletedExceptionally());
+
+        factory.close();
+    }
+
+    /**
+     * A failure other than writing the file stops the writer.  Its transactions fail rather than waiting forever and
+     * later writes fail right away.
+     */
+    @Test
+    public void cTestWriterFailure() throws Exception
+    {
+        final SchemaContext context = (SchemaContext) Proxy.newProxyInstance(SchemaContext.class.getClassLoader(), new Class[]{ SchemaContext.class }, (proxy, method, args) -> {
+            if (method.getName().equals("getTransactionFile"))
+            {
+                throw new IllegalStateException("No transaction file");
+            }
+            return null;
+        });
+
+        final JournalWriter writer = new JournalWriter(context);
+        final CompletableFuture<Void> acknowledgement = writer.write((byte) 1, ByteBuffer.wrap(new byte[16]));
+
+        try
+        {
+            acknowledgement.get(5, TimeUnit.SECONDS);
+            Assert.fail("The transaction should have failed");
+        } catch (ExecutionException e)
+        {
+            Assert.assertTrue(e.getCause() instanceof TransactionException);
+            Assert.assertTrue(((TransactionException) e.getCause()).rootCause instanceof IllegalStateException);
+        }
+
+        try
+        {
+            writer.write((byte) 1, ByteBuffer.wrap(new byte[16]));
+            Assert.fail("The writer should have stopped");
+        } catch (TransactionException expected)
+        {
+        }
+
+        writer.close();
+    }
+
+    protected static EmbeddedPersistenceManagerFactory createFactory(String location, JournalSyncPolicy syncPolicy) throws EntityException
+    {
+        final EmbeddedPersistenceManagerFactory factory = new EmbeddedPersistenceManagerFactory();
+        factory.setDatabaseLocation(location);
+        factory.setEnableJournaling(true);
+        factory.setJournalSyncPolicy(syncPolicy);
+        factory.setJournalSyncInterval(50);
+        factory.initialize();
+        return factory;
+    }
+
+    protected static void delete(File file)
+    {
+        if (file.isDirectory())
+        {
+            for (File child : file.listFiles())
+            {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -185,6 +185,7 @@ public class EntityDescriptor implements Serializable
                 final IndexDescriptor index = new IndexDescriptor();
                 index.setName(field.getName());
                 index.setType(field.getType());
+                index.setIndexType(field.getAnnotation(Index.class).type());
                 index.setEntityDescriptor(this);
 
                 indexes.put(field.getName(), index);
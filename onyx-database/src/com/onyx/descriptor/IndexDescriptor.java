@@ -1,5 +1,7 @@
 package com.onyx.descriptor;
 
+import com.onyx.persistence.annotations.IndexType;
+
 /**
  * Created by timothy.osborn on 12/11/14.
  */
@@ -8,6 +10,7 @@ public class IndexDescriptor extends AbstractBaseDescriptor implements BaseDescr
 
     protected String type = null;
     protected EntityDescriptor entityDescriptor;
+    protected IndexType indexType = IndexType.HASH;
 
     public EntityDescriptor getEntityDescriptor()
     {
@@ -19,6 +22,26 @@ public class IndexDescriptor extends AbstractBaseDescriptor implements BaseDescr
         this.entityDescriptor = entityDescriptor;
     }
 
+    public IndexType getIndexType()
+    {
+        return indexType;
+    }
+
+    public void setIndexType(IndexType indexType)
+    {
+        this.indexType = indexType;
+    }
+
+    /**
+     * Indicates whether the index keeps its values in order and can be used for range criteria
+     *
+     * @return true if the index is backed by an ordered structure
+     */
+    public boolean isOrdered()
+    {
+        return indexType == IndexType.ORDERED;
+    }
+
     ////////////////////////////////////////////////////////
     //
     //  Hashing Object Overrides
@@ -8,7 +8,9 @@ import com.onyx.persistence.IManagedEntity;
 import com.onyx.persistence.annotations.*;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by timothy.osborn on 3/2/15.
@@ -123,6 +125,7 @@ public class SystemEntity extends AbstractSystemEntity implements IManagedEntity
     public void setAttributes(List<SystemAttribute> attributes)
     {
         this.attributes = attributes;
+        this.attributeIndexes = null;
     }
 
     public List<SystemRelationship> getRelationships()
@@ -145,6 +148,33 @@ public class SystemEntity extends AbstractSystemEntity implements IManagedEntity
         this.indexes = indexes;
     }
 
+    // Position of each attribute within the sorted attributes.  This is built once the attributes are loaded.
+    protected transient volatile Map<String, Integer> attributeIndexes = null;
+
+    /**
+     * Get the position of an attribute within the record attribute table
+     *
+     * @param name Attribute name
+     * @return Index of the attribute or -1 if it does not exist within this version
+     */
+    public int getAttributeIndex(String name)
+    {
+        Map<String, Integer> indexes = attributeIndexes;
+
+        if(indexes == null)
+        {
+            indexes = new HashMap<>();
+            for(int i = 0; i < attributes.size(); i++)
+            {
+                indexes.put(attributes.get(i).getName(), i);
+            }
+            attributeIndexes = indexes;
+        }
+
+        final Integer index = indexes.get(name);
+        return (index == null) ? -1 : index;
+    }
+
     public String getClassName()
     {
         return className;
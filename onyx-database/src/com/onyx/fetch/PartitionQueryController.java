@@ -1,7 +1,12 @@
 package com.onyx.fetch;
 
 import com.onyx.descriptor.EntityDescriptor;
+import com.onyx.exception.AttributeMissingException;
+import com.onyx.exception.AttributeTypeMismatchException;
 import com.onyx.exception.EntityException;
+import com.onyx.exception.InvalidDataTypeForOperator;
+import com.onyx.fetch.impl.FullTableScanner;
+import com.onyx.fetch.impl.RelationshipScanner;
 import com.onyx.helpers.IndexHelper;
 import com.onyx.helpers.PartitionContext;
 import com.onyx.helpers.PartitionHelper;
@@ -21,6 +26,7 @@ import com.onyx.util.ObjectUtil;
 import gnu.trove.THashMap;
 
 import java.util.*;
+import java.util.concurrent.locks.Lock;
 
 /**
  * Created by timothy.osborn on 3/5/15.
@@ -36,6 +42,9 @@ public class PartitionQueryController extends PartitionContext
     protected MapBuilder temporaryDataFile;
     protected PersistenceManager persistenceManager;
 
+    // Held until cleanup so compaction can not move the records found before they are read
+    protected Lock recordIdLock;
+
     private static ObjectUtil reflection = ObjectUtil.getInstance();
     /**
      * Constructor that gets the necessary entity information
@@ -56,11 +65,28 @@ public class PartitionQueryController extends PartitionContext
         this.query = query;
         this.persistenceManager = persistenceManager;
 
-        temporaryDataFile = context.createTemporaryMapBuilder();
+        this.recordIdLock = context.getRecordIdLock().readLock();
+        this.recordIdLock.lock();
+    }
+
+    /**
+     * Temporary data file for query intermediates too large to keep in memory.  It is only created once a query
+     * spills so most queries never create one.
+     *
+     * @return Temporary data file
+     */
+    protected synchronized MapBuilder getTemporaryDataFile()
+    {
+        if (temporaryDataFile == null)
+        {
+            temporaryDataFile = context.createTemporaryMapBuilder();
+        }
+        return temporaryDataFile;
     }
 
     /**
-     * Find object ids that match the criteria
+     * Find object ids that match the criteria.  The criteria of a query are scanned in the order chosen by the
+     * {@link QueryPlanner}.
      *
      * @param criteria
      * @param startingResults
@@ -70,14 +96,131 @@ public class PartitionQueryController extends PartitionContext
      */
     public Map getIndexesForCriteria(QueryCriteria criteria, Map startingResults, boolean replace, Query query) throws EntityException
     {
+        if(criteria == null){
+            criteria = new QueryCriteria(descriptor.getIdentifier().getName(), QueryCriteriaOperator.NOT_EQUAL);
+        }
+
+        if(startingResults != null)
+        {
+            return scanCriteria(criteria, startingResults, replace, query);
+        }
+
+        final QueryPlan plan = explain(criteria);
+        if(!plan.isPlanned())
+        {
+            return scanCriteria(criteria, null, replace, query);
+        }
 
         Map results = null;
+        for(QueryPlan.Step step : plan.getSteps())
+        {
+            if(query.isTerminated())
+                return new THashMap();
 
+            results = (results == null) ? step.getScanner().scan() : step.getScanner().scan(results);
+        }
+
+        if(query.isTerminated())
+        {
+            return new THashMap();
+        }
+
+        return results;
+    }
+
+    /**
+     * Find up to a number of object ids that match the criteria.  The first step of the plan supplies records one at a
+     * time and each one is checked against the rest of the criteria, so scanning stops as soon as enough records match.
+     * If the criteria can not be checked a record at a time every match is found first.
+     *
+     * @param criteria
+     * @param query
+     * @param limit Number of object ids to find
+     * @return Object ids in the order they were found
+     * @throws EntityException
+     */
+    public Map getIndexesForCriteria(QueryCriteria criteria, Query query, int limit) throws EntityException
+    {
         if(criteria == null){
             criteria = new QueryCriteria(descriptor.getIdentifier().getName(), QueryCriteriaOperator.NOT_EQUAL);
         }
 
-        final TableScanner scanner = ScannerFactory.getInstance(context).getScannerForQueryCriteria(criteria, classToScan, temporaryDataFile, query, persistenceManager);
+        final QueryPlan plan = explain(criteria);
+        if(!plan.isPlanned() || plan.getSteps().get(0).getScanner() instanceof RelationshipScanner)
+        {
+            return getIndexesForCriteria(criteria, null, true, query);
+        }
+
+        // Every step after the first is checked against the attributes of each record
+        final List<FullTableScanner> filters = new ArrayList<>();
+        for(QueryPlan.Step step : plan.getSteps().subList(1, plan.getSteps().size()))
+        {
+            if(step.getScanner() instanceof FullTableScanner)
+            {
+                filters.add((FullTableScanner) step.getScanner());
+            }
+            else if(descriptor.getAttributes().get(step.getCriteria().getAttribute()) != null)
+            {
+                filters.add(new FullTableScanner(step.getCriteria(), classToScan, descriptor, query, context, persistenceManager));
+            }
+            else
+            {
+                return getIndexesForCriteria(criteria, null, true, query);
+            }
+        }
+
+        final TableScanner first = plan.getSteps().get(0).getScanner();
+        if(first instanceof FullTableScanner)
+        {
+            return ((FullTableScanner) first).scan(filters, limit);
+        }
+
+        final Map results = new LinkedHashMap();
+        for(Object recordId : first.scan().keySet())
+        {
+            if(results.size() >= limit || query.isTerminated())
+                break;
+
+            if(FullTableScanner.matchesAll(filters, (long) recordId))
+            {
+                results.put(recordId, recordId);
+            }
+        }
+
+        return results;
+    }
+
+    /**
+     * Plan the scan of criteria without scanning
+     *
+     * @param criteria Criteria of the query.  Null matches every record.
+     * @return The plan
+     * @throws EntityException
+     */
+    public QueryPlan explain(QueryCriteria criteria) throws EntityException
+    {
+        if(criteria == null){
+            criteria = new QueryCriteria(descriptor.getIdentifier().getName(), QueryCriteriaOperator.NOT_EQUAL);
+        }
+
+        return new QueryPlanner(classToScan, descriptor, query, context, persistenceManager).plan(criteria);
+    }
+
+    /**
+     * Find object ids that match the criteria in the order they were declared
+     *
+     * @param criteria
+     * @param startingResults
+     * @param replace
+     * @return
+     * @throws com.onyx.exception.EntityException
+     */
+    protected Map scanCriteria(QueryCriteria criteria, Map startingResults, boolean replace, Query query) throws EntityException
+    {
+
+        Map results = null;
+
+        final TableScanner scanner = ScannerFactory.getInstance(context).getScannerForQueryCriteria(criteria, classToScan, query, persistenceManager);
 
         if (startingResults != null)
         {
@@ -87,7 +230,12 @@ public class PartitionQueryController extends PartitionContext
             results = scanner.scan();
         }
 
-        if (!replace && startingResults != null)
+        // Record id sets are merged rather than copied entry by entry
+        if (!replace && results instanceof RecordIdSet && startingResults instanceof RecordIdSet)
+        {
+            results = RecordIdSet.or((RecordIdSet) results, (RecordIdSet) startingResults);
+        }
+        else if (!replace && startingResults != null)
         {
             for (Object index : startingResults.keySet())
             {
@@ -103,7 +251,13 @@ public class PartitionQueryController extends PartitionContext
         {
             if(query.isTerminated())
                 break;
-            Map orResults = getIndexesForCriteria(orCriteria, startingResults, false, query);
+            Map orResults = scanCriteria(orCriteria, startingResults, false, query);
+
+            if (results instanceof RecordIdSet && orResults instanceof RecordIdSet)
+            {
+                results = RecordIdSet.or((RecordIdSet) results, (RecordIdSet) orResults);
+                continue;
+            }
 
             for (Object index : orResults.keySet())
             {
@@ -119,7 +273,7 @@ public class PartitionQueryController extends PartitionContext
             if(query.isTerminated())
                 break;
 
-            results = getIndexesForCriteria(andCriteria, results, true, query);
+            results = scanCriteria(andCriteria, results, true, query);
         }
 
         if(query.isTerminated())
@@ -143,10 +297,10 @@ public class PartitionQueryController extends PartitionContext
     public List hydrateResultsWithIndexes(Map results, QueryOrder[] orderBy, int start, int count) throws EntityException
     {
 
-        // Sort if needed
+        // Sort if needed.  Only the records up to the last one requested need to be sorted.
         if (orderBy != null && orderBy.length > 0)
         {
-            results = this.sort(orderBy, results);
+            results = this.sort(orderBy, results, (count > 0) ? start + count : -1);
         }
 
         final List returnValue = new ArrayList<>();
@@ -214,16 +368,321 @@ public class PartitionQueryController extends PartitionContext
      * @param indexValues
      * @return
      * @throws EntityException
-     * @throws IllegalAccessException
-     * @throws InstantiationException
      */
     public Map sort(QueryOrder[] orderBy, Map indexValues) throws EntityException
     {
-        final Map retVal = new TreeMap(new PartitionSortCompare(query, orderBy, indexValues, descriptor, context, this));
-        retVal.putAll(indexValues);
+        return sort(orderBy, indexValues, -1);
+    }
+
+    /**
+     * Sort using order by query order objects with included values.  If there is a limit, only the records that sort
+     * within the limit are returned.
+     *
+     * @param orderBy
+     * @param indexValues
+     * @param limit Number of sorted records needed or -1 for all of them
+     * @return Records in sorted order
+     * @throws EntityException
+     */
+    public Map sort(QueryOrder[] orderBy, Map indexValues, long limit) throws EntityException
+    {
+        final Map retVal = new LinkedHashMap();
+
+        if (limit < 0 || limit > indexValues.size())
+        {
+            limit = indexValues.size();
+        }
+
+        // Nothing to sort by, keep the original order
+        if (orderBy.length == 0)
+        {
+            final Iterator<Map.Entry<Object, Object>> iterator = indexValues.entrySet().iterator();
+            while (iterator.hasNext() && retVal.size() < limit)
+            {
+                final Map.Entry<Object, Object> entry = iterator.next();
+                retVal.put(entry.getKey(), entry.getValue());
+            }
+            return retVal;
+        }
+
+        final PartitionSortCompare comparator = new PartitionSortCompare(query, orderBy, indexValues, descriptor, context, this);
+
+        if (limit < indexValues.size())
+        {
+            sortTop(comparator, indexValues, (int) limit, retVal);
+        }
+        else if (indexValues.size() > context.getQuerySpillSize())
+        {
+            return sortExternal(comparator, indexValues);
+        }
+        else
+        {
+            final List<PartitionSortCompare.SortKey> keys = new ArrayList<>(indexValues.size());
+            long sequence = 0;
+            for (Object reference : indexValues.keySet())
+            {
+                keys.add(comparator.createSortKey(reference, sequence++));
+            }
+
+            keys.sort(comparator);
+
+            for (PartitionSortCompare.SortKey key : keys)
+            {
+                retVal.put(key.reference, indexValues.get(key.reference));
+            }
+        }
+
         return retVal;
     }
 
+    /**
+     * Keep the first records in a bounded heap.  The heap is ordered in reverse so the last record within the limit can
+     * be replaced when a record that sorts before it is found.
+     *
+     * @param comparator Sort comparator
+     * @param indexValues Records to sort
+     * @param limit Number of records to keep
+     * @param retVal Sorted records
+     */
+    protected void sortTop(PartitionSortCompare comparator, Map indexValues, int limit, Map retVal)
+    {
+        if (limit == 0)
+        {
+            return;
+        }
+
+        final PriorityQueue<PartitionSortCompare.SortKey> heap = new PriorityQueue<>(limit + 1, comparator.reversed());
+        long sequence = 0;
+
+        for (Object reference : indexValues.keySet())
+        {
+            if (query.isTerminated())
+                return;
+
+            final PartitionSortCompare.SortKey key = comparator.createSortKey(reference, sequence++);
+
+            if (heap.size() < limit)
+            {
+                heap.add(key);
+            }
+            else if (comparator.compare(key, heap.peek()) < 0)
+            {
+                heap.poll();
+                heap.add(key);
+            }
+        }
+
+        final List<PartitionSortCompare.SortKey> keys = new ArrayList<>(heap);
+        keys.sort(comparator);
+
+        for (PartitionSortCompare.SortKey key : keys)
+        {
+            retVal.put(key.reference, indexValues.get(key.reference));
+        }
+    }
+
+    /**
+     * Sort records in runs that are spilled to the temporary data file.  The runs are merged as the returned map is
+     * iterated so only a single run is held in memory.
+     *
+     * @param comparator Sort comparator
+     * @param indexValues Records to sort
+     * @return Sorted records backed by the runs
+     */
+    protected Map sortExternal(PartitionSortCompare comparator, Map indexValues)
+    {
+        final int runSize = context.getQuerySpillSize();
+        final List<SortRun> runs = new ArrayList<>();
+        final List<PartitionSortCompare.SortKey> keys = new ArrayList<>(runSize);
+        long sequence = 0;
+
+        for (Object reference : indexValues.keySet())
+        {
+            if (query.isTerminated())
+                return new LinkedHashMap();
+
+            keys.add(comparator.createSortKey(reference, sequence++));
+
+            if (keys.size() == runSize)
+            {
+                runs.add(new SortRun(keys, comparator, indexValues, runs.size()));
+                keys.clear();
+            }
+        }
+
+        if (keys.size() > 0)
+        {
+            runs.add(new SortRun(keys, comparator, indexValues, runs.size()));
+            keys.clear();
+        }
+
+        return new SortedRuns(runs, comparator, indexValues.size());
+    }
+
+    /**
+     * Sorted records read by merging the sorted runs.  Each iteration merges the runs again by always taking the first
+     * remaining key of all runs.  Lookups by reference scan the runs.
+     */
+    protected class SortedRuns extends AbstractMap<Object, Object>
+    {
+        protected final List<SortRun> runs;
+        protected final PartitionSortCompare comparator;
+        protected final int size;
+
+        /**
+         * Constructor
+         *
+         * @param runs Sorted runs
+         * @param comparator Sort comparator
+         * @param size Number of records within all runs
+         */
+        public SortedRuns(List<SortRun> runs, PartitionSortCompare comparator, int size)
+        {
+            this.runs = runs;
+            this.comparator = comparator;
+            this.size = size;
+        }
+
+        @Override
+        public Set<Map.Entry<Object, Object>> entrySet()
+        {
+            return new AbstractSet<Map.Entry<Object, Object>>()
+            {
+                @Override
+                public Iterator<Map.Entry<Object, Object>> iterator()
+                {
+                    return new MergeIterator();
+                }
+
+                @Override
+                public int size()
+                {
+                    return size;
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            return size;
+        }
+
+        /**
+         * Iterator merging the runs in sorted order
+         */
+        protected class MergeIterator implements Iterator<Map.Entry<Object, Object>>
+        {
+            protected final PriorityQueue<SortRun.Cursor> heap = new PriorityQueue<>(Math.max(1, runs.size()), (cursor1, cursor2) -> comparator.compare(cursor1.current, cursor2.current));
+
+            public MergeIterator()
+            {
+                for (SortRun run : runs)
+                {
+                    final SortRun.Cursor cursor = run.cursor();
+                    if (cursor.next())
+                    {
+                        heap.add(cursor);
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext()
+            {
+                return !heap.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<Object, Object> next()
+            {
+                final SortRun.Cursor cursor = heap.poll();
+                if (cursor == null)
+                {
+                    throw new NoSuchElementException();
+                }
+
+                final Map.Entry<Object, Object> entry = new SimpleImmutableEntry<>(cursor.current.reference, cursor.value);
+
+                if (cursor.next())
+                {
+                    heap.add(cursor);
+                }
+
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * Sorted run of keys stored within the temporary data file
+     */
+    protected class SortRun
+    {
+        protected Map<Integer, Object[]> keys;
+        protected int size;
+
+        /**
+         * Constructor.  Sorts the keys and writes them to the temporary data file along with their values.
+         *
+         * @param keys Keys within the run
+         * @param comparator Sort comparator
+         * @param indexValues Records being sorted
+         * @param run Run number
+         */
+        public SortRun(List<PartitionSortCompare.SortKey> keys, PartitionSortCompare comparator, Map indexValues, int run)
+        {
+            keys.sort(comparator);
+
+            this.keys = getTemporaryDataFile().getHashMap("sortRun" + run);
+            this.size = keys.size();
+
+            int i = 0;
+            for (PartitionSortCompare.SortKey key : keys)
+            {
+                this.keys.put(i++, new Object[]{key.reference, key.sequence, key.values, indexValues.get(key.reference)});
+            }
+        }
+
+        /**
+         * @return Cursor positioned before the first key of the run
+         */
+        public Cursor cursor()
+        {
+            return new Cursor();
+        }
+
+        /**
+         * Position within the run
+         */
+        protected class Cursor
+        {
+            protected int position = 0;
+            protected PartitionSortCompare.SortKey current;
+            protected Object value;
+
+            /**
+             * Read the next key within the run
+             *
+             * @return false if the run is exhausted
+             */
+            public boolean next()
+            {
+                if (position >= size)
+                {
+                    current = null;
+                    value = null;
+                    return false;
+                }
+
+                final Object[] key = keys.get(position++);
+                current = new PartitionSortCompare.SortKey(key[0], (long) key[1], (Object[]) key[2]);
+                value = key[3];
+                return true;
+            }
+        }
+    }
+
     /**
      * Hydrate given attributes
      *
@@ -246,9 +705,13 @@ public class PartitionQueryController extends PartitionContext
         {
             results = new LinkedHashMap<>();
         }
+        else if(indexValues.size() > context.getQuerySpillSize())
+        {
+            results = getTemporaryDataFile().getHashMap("sortingValues");
+        }
         else
         {
-            results = temporaryDataFile.getHashMap("sortingValues");
+            results = new HashMap<>();
         }
 
         if(indexValues.size() == 0)
@@ -287,30 +750,7 @@ public class PartitionQueryController extends PartitionContext
             entry = iterator.next();
             for (ScannerProperties properties : scanObjects)
             {
-                if(properties.useParentDescriptor == true)
-                {
-                    if(entry.getKey() instanceof PartitionReference)
-                    {
-                        PartitionReference ref = (PartitionReference) entry.getKey();
-                        entityAttribute = getRecordControllerForPartition(ref.partition).getAttributeWithReferenceId(properties.attributeDescriptor.getName(), ref.reference);
-                    }
-                    else
-                    {
-                        entityAttribute = properties.recordController.getAttributeWithReferenceId(properties.attributeDescriptor.getName(), (long)entry.getKey());
-                    }
-                }
-                else
-                {
-                    if(entry.getKey() instanceof PartitionReference)
-                    {
-                        PartitionReference ref = (PartitionReference) entry.getValue();
-                        entityAttribute = getRecordControllerForPartition(ref.partition).getAttributeWithReferenceId(properties.attributeDescriptor.getName(), ref.reference);
-                    }
-                    else
-                    {
-                        entityAttribute = properties.recordController.getAttributeWithReferenceId(properties.attributeDescriptor.getName(), (long)entry.getValue());
-                    }
-                }
+                entityAttribute = getAttribute(properties, entry);
 
                 /*
                 if(entity == null)
@@ -330,6 +770,202 @@ public class PartitionQueryController extends PartitionContext
         return results;
     }
 
+    /**
+     * Read an attribute of a result
+     *
+     * @param properties Attribute to read
+     * @param entry Result reference and the reference of the related record the criteria matched
+     * @return Attribute value
+     * @throws EntityException
+     */
+    protected Object getAttribute(ScannerProperties properties, Map.Entry<Object, Object> entry) throws EntityException
+    {
+        if(properties.useParentDescriptor == true)
+        {
+            if(entry.getKey() instanceof PartitionReference)
+            {
+                PartitionReference ref = (PartitionReference) entry.getKey();
+                return getRecordControllerForPartition(ref.partition).getAttributeWithReferenceId(properties.attributeDescriptor.getName(), ref.reference);
+            }
+            return properties.recordController.getAttributeWithReferenceId(properties.attributeDescriptor.getName(), (long)entry.getKey());
+        }
+
+        if(entry.getKey() instanceof PartitionReference)
+        {
+            PartitionReference ref = (PartitionReference) entry.getValue();
+            return getRecordControllerForPartition(ref.partition).getAttributeWithReferenceId(properties.attributeDescriptor.getName(), ref.reference);
+        }
+        return properties.recordController.getAttributeWithReferenceId(properties.attributeDescriptor.getName(), (long)entry.getValue());
+    }
+
+    /**
+     * Compute projections over the results while they are scanned.  Results are grouped by the group by attributes and
+     * only the attributes are read so entities are not hydrated.
+     *
+     * @param projections Aggregates to compute
+     * @param groupBy Attributes to group by.  Null computes a single row over every result.
+     * @param indexValues Results
+     * @param orderBy Order of the rows by group by attribute or projection field name
+     * @param start First row
+     * @param count Number of rows.  0 or less returns every row.
+     * @return A map for each group containing the group by attributes and the projection values
+     * @throws EntityException
+     */
+    public List<Map<String, Object>> aggregate(List<QueryProjection> projections, List<String> groupBy, Map indexValues, QueryOrder[] orderBy, int start, int count) throws EntityException
+    {
+        final String[] groupAttributes = (groupBy == null) ? new String[0] : groupBy.toArray(new String[groupBy.size()]);
+        final List<ScannerProperties> groupProperties = ScannerProperties.getScannerProperties(groupAttributes, descriptor, query, context);
+
+        // Counting records does not read an attribute
+        final ScannerProperties[] projectionProperties = new ScannerProperties[projections.size()];
+        for (int i = 0; i < projections.size(); i++)
+        {
+            final QueryProjection projection = projections.get(i);
+            if (projection.getFieldName() == null)
+            {
+                if (projection.getType() != QueryProjectionType.COUNT)
+                {
+                    throw new AttributeMissingException(AttributeMissingException.ENTITY_MISSING_ATTRIBUTE + ": " + projection.getAlias());
+                }
+                continue;
+            }
+
+            projectionProperties[i] = ScannerProperties.getScannerProperties(new String[]{projection.getFieldName()}, descriptor, query, context).get(0);
+
+            final Class type = projectionProperties[i].attributeDescriptor.getType();
+            if ((projection.getType() == QueryProjectionType.SUM || projection.getType() == QueryProjectionType.AVG) && !isNumeric(type))
+            {
+                throw new AttributeTypeMismatchException(AttributeTypeMismatchException.ATTRIBUTE_TYPE_MISMATCH, Number.class, type, projection.getFieldName());
+            }
+        }
+
+        final Map<List<Object>, ProjectionAccumulator[]> groups = new LinkedHashMap<>();
+
+        // Without grouping there is a row even if nothing matched
+        if (groupAttributes.length == 0)
+        {
+            groups.put(Collections.emptyList(), createAccumulators(projections));
+        }
+
+        final Iterator<Map.Entry<Object, Object>> iterator = indexValues.entrySet().iterator();
+        while (iterator.hasNext() && !query.isTerminated())
+        {
+            final Map.Entry<Object, Object> entry = iterator.next();
+
+            List<Object> groupKey = Collections.emptyList();
+            if (groupAttributes.length > 0)
+            {
+                groupKey = new ArrayList<>(groupAttributes.length);
+                for (ScannerProperties properties : groupProperties)
+                {
+                    groupKey.add(getAttribute(properties, entry));
+                }
+            }
+
+            ProjectionAccumulator[] accumulators = groups.get(groupKey);
+            if (accumulators == null)
+            {
+                accumulators = createAccumulators(projections);
+                groups.put(groupKey, accumulators);
+            }
+
+            for (int i = 0; i < accumulators.length; i++)
+            {
+                accumulators[i].add((projectionProperties[i] == null) ? null : getAttribute(projectionProperties[i], entry));
+            }
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(groups.size());
+        for (Map.Entry<List<Object>, ProjectionAccumulator[]> group : groups.entrySet())
+        {
+            final Map<String, Object> row = new HashMap<>();
+            for (int i = 0; i < groupAttributes.length; i++)
+            {
+                row.put(groupAttributes[i], group.getKey().get(i));
+            }
+            for (int i = 0; i < projections.size(); i++)
+            {
+                row.put(projections.get(i).getAlias(), group.getValue()[i].getValue());
+            }
+            rows.add(row);
+        }
+
+        if (orderBy != null && orderBy.length > 0)
+        {
+            rows.sort((row1, row2) -> compareRows(orderBy, row1, row2));
+        }
+
+        if (start > 0 || count > 0)
+        {
+            final int from = Math.min(start, rows.size());
+            final int to = (count > 0) ? (int) Math.min((long) from + count, rows.size()) : rows.size();
+            rows = new ArrayList<>(rows.subList(from, to));
+        }
+
+        return rows;
+    }
+
+    /**
+     * Create an accumulator for each projection
+     *
+     * @param projections
+     * @return
+     */
+    protected static ProjectionAccumulator[] createAccumulators(List<QueryProjection> projections)
+    {
+        final ProjectionAccumulator[] accumulators = new ProjectionAccumulator[projections.size()];
+        for (int i = 0; i < accumulators.length; i++)
+        {
+            accumulators[i] = new ProjectionAccumulator(projections.get(i).getType(), projections.get(i).getFieldName() == null);
+        }
+        return accumulators;
+    }
+
+    /**
+     * Compare aggregated rows by the query orders
+     *
+     * @param orderBy
+     * @param row1
+     * @param row2
+     * @return
+     */
+    protected static int compareRows(QueryOrder[] orderBy, Map<String, Object> row1, Map<String, Object> row2)
+    {
+        for (QueryOrder queryOrder : orderBy)
+        {
+            final Object attribute1 = row1.get(queryOrder.getAttribute());
+            final Object attribute2 = row2.get(queryOrder.getAttribute());
+
+            try
+            {
+                if (CompareUtil.compare(attribute2, attribute1, QueryCriteriaOperator.GREATER_THAN))
+                {
+                    return queryOrder.isAscending() ? 1 : -1;
+                }
+                else if (CompareUtil.compare(attribute2, attribute1, QueryCriteriaOperator.LESS_THAN))
+                {
+                    return queryOrder.isAscending() ? -1 : 1;
+                }
+            } catch (InvalidDataTypeForOperator invalidDataTypeForOperator)
+            {
+                break;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Whether an attribute type can be summed
+     *
+     * @param type
+     * @return
+     */
+    protected static boolean isNumeric(Class type)
+    {
+        return Number.class.isAssignableFrom(type) || type == int.class || type == long.class || type == double.class
+                || type == float.class || type == short.class || type == byte.class;
+    }
+
     /**
      * Delete record with reference ids
      *
@@ -569,9 +1205,19 @@ public class PartitionQueryController extends PartitionContext
         return recordsUpdated;
     }
 
-    public void cleanup()
+    public synchronized void cleanup()
     {
-        temporaryDataFile.delete();
+        if (temporaryDataFile != null)
+        {
+            temporaryDataFile.delete();
+            temporaryDataFile = null;
+        }
+
+        if (recordIdLock != null)
+        {
+            recordIdLock.unlock();
+            recordIdLock = null;
+        }
     }
 }
 
@@ -4,28 +4,25 @@ import com.onyx.descriptor.EntityDescriptor;
 import com.onyx.exception.EntityException;
 import com.onyx.exception.InvalidDataTypeForOperator;
 import com.onyx.helpers.PartitionContext;
-import com.onyx.persistence.IManagedEntity;
 import com.onyx.persistence.context.SchemaContext;
 import com.onyx.persistence.query.Query;
 import com.onyx.persistence.query.QueryCriteriaOperator;
 import com.onyx.persistence.query.QueryOrder;
 import com.onyx.util.CompareUtil;
-import com.onyx.util.ObjectUtil;
 import java.util.*;
-import java.util.function.BiFunction;
 
 /**
  * Created by timothy.osborn on 2/11/15.
+ *
+ * Compares records by their order by attributes.  The attributes are read once per record into a sort key rather than
+ * within each comparison.
  */
-public class PartitionSortCompare<T> extends PartitionContext implements Comparator<T>
+public class PartitionSortCompare extends PartitionContext implements Comparator<PartitionSortCompare.SortKey>
 {
     protected List<ScannerProperties> scanObjects = null;
     protected QueryOrder[] orderBy = null;
     protected Map<Object, Object> indexValues;
 
-    protected List<Map<Object, Object>> parentObjects = new ArrayList<>();
-    protected List<Map<Object, Object>> childrenObjects = new ArrayList<>();
-    protected ObjectUtil reflection = ObjectUtil.getInstance();
     protected Query query;
     protected SchemaContext context;
     protected PartitionQueryController queryController;
@@ -48,8 +45,6 @@ public class PartitionSortCompare<T> extends PartitionContext implements Compara
         for (QueryOrder order : orderBy)
         {
             attributes[i] = order.getAttribute();
-            parentObjects.add(new WeakHashMap());
-            childrenObjects.add(new WeakHashMap());
             i++;
         }
 
@@ -64,147 +59,57 @@ public class PartitionSortCompare<T> extends PartitionContext implements Compara
         this.queryController = queryController;
     }
 
-    @Override
-    public int compare(T t1, T t2)
+    /**
+     * Read the order by attributes of a record
+     *
+     * @param reference Record reference within the results
+     * @param sequence Position within the results.  Records with equal attributes keep their original order.
+     * @return Sort key for record
+     */
+    public SortKey createSortKey(Object reference, long sequence)
     {
-
-        Object o1 = (Object)t1;
-        Object o2 = (Object)t2;
-
-        Object attribute1 = null;
-        Object attribute2 = null;
-
-        QueryOrder queryOrder = null;
-
-        IManagedEntity e1 = null;
-        IManagedEntity e2 = null;
+        final Object[] values = new Object[scanObjects.size()];
 
         for (int i = 0; i < scanObjects.size(); i++)
         {
-
-            queryOrder = orderBy[i];
             final ScannerProperties scannerProperties = scanObjects.get(i);
 
+            // Relationship attributes are read from the parent record the result maps to
+            final Object recordReference = (scannerProperties.useParentDescriptor) ? reference : indexValues.get(reference);
+
             try
             {
-                Map kiddos = childrenObjects.get(i);
-                Map papas = parentObjects.get(i);
-
-                if (scannerProperties.useParentDescriptor == true)
+                if (recordReference instanceof PartitionReference)
                 {
-                    attribute1 = kiddos.compute(o1, new BiFunction<Object, Object, Object>() {
-                        @Override
-                        public Object apply(Object aLong, Object attributeVal)
-                        {
-                            if(attributeVal != null)
-                            {
-                                return attributeVal;
-                            }
-                            try
-                            {
-                                if(aLong instanceof PartitionReference)
-                                {
-                                    PartitionReference ref = (PartitionReference) aLong;
-                                    return getRecordControllerForPartition(ref.partition).getAttributeWithReferenceId(scannerProperties.attributeDescriptor.field.field.getName(), ((PartitionReference)aLong).reference);
-                                }
-                                else
-                                {
-                                    return scannerProperties.recordController.getAttributeWithReferenceId(scannerProperties.attributeDescriptor.field.field.getName(), (long) aLong);
-                                }
-                            } catch (Exception e)
-                            {
-                                return null;
-                            }
-
-                        }
-                    });
-                    attribute2 = kiddos.compute(o2, new BiFunction<Object, Object, Object>() {
-                        @Override
-                        public Object apply(Object aLong, Object attributeVal)
-                        {
-                            if(attributeVal != null)
-                            {
-                                return attributeVal;
-                            }
-                            try
-                            {
-
-                                if(aLong instanceof PartitionReference)
-                                {
-                                    PartitionReference ref = (PartitionReference) aLong;
-                                    return getRecordControllerForPartition(ref.partition).getAttributeWithReferenceId(scannerProperties.attributeDescriptor.field.field.getName(), ((PartitionReference)aLong).reference);
-                                }
-                                else
-                                {
-                                    return scannerProperties.recordController.getAttributeWithReferenceId(scannerProperties.attributeDescriptor.field.field.getName(), (long) aLong);
-                                }
-                            } catch (Exception e)
-                            {
-                                return null;
-                            }
-                        }
-                    });
-
-                } else
+                    final PartitionReference ref = (PartitionReference) recordReference;
+                    values[i] = getRecordControllerForPartition(ref.partition).getAttributeWithReferenceId(scannerProperties.attributeDescriptor.field.field.getName(), ref.reference);
+                }
+                else
                 {
-
-                    o1 = indexValues.get(o1);
-                    o2 = indexValues.get(o2);
-
-                    attribute1 = papas.compute(o1, new BiFunction<Object, Object, Object>() {
-                        @Override
-                        public Object apply(Object aLong, Object attributeVal)
-                        {
-                            if(attributeVal != null)
-                            {
-                                return attributeVal;
-                            }
-                            try
-                            {
-                                if(aLong instanceof PartitionReference)
-                                {
-                                    PartitionReference ref = (PartitionReference) aLong;
-                                    return getRecordControllerForPartition(ref.partition).getAttributeWithReferenceId(scannerProperties.attributeDescriptor.field.field.getName(), ((PartitionReference)aLong).reference);
-                                }
-
-                                return scannerProperties.recordController.getAttributeWithReferenceId(scannerProperties.attributeDescriptor.field.field.getName(), (long) aLong);
-                            } catch (Exception e)
-                            {
-                                return null;
-                            }
-
-                        }
-                    });
-                    attribute2 = papas.compute(o2, new BiFunction<Object, Object, Object>() {
-                        @Override
-                        public Object apply(Object aLong, Object attributeVal)
-                        {
-                            if(attributeVal != null)
-                            {
-                                return attributeVal;
-                            }
-                            try
-                            {
-                                if(aLong instanceof PartitionReference)
-                                {
-                                    PartitionReference ref = (PartitionReference) aLong;
-                                    return getRecordControllerForPartition(ref.partition).getAttributeWithReferenceId(scannerProperties.attributeDescriptor.field.field.getName(), ((PartitionReference)aLong).reference);
-                                }
-
-                                return scannerProperties.recordController.getAttributeWithReferenceId(scannerProperties.attributeDescriptor.field.field.getName(), (long) aLong);
-                            } catch (Exception e)
-                            {
-                                return null;
-                            }
-                        }
-                    });
-
+                    values[i] = scannerProperties.recordController.getAttributeWithReferenceId(scannerProperties.attributeDescriptor.field.field.getName(), (long) recordReference);
                 }
-
             } catch (Exception e)
             {
-                e.printStackTrace();
+                values[i] = null;
             }
+        }
+
+        return new SortKey(reference, sequence, values);
+    }
+
+    @Override
+    public int compare(SortKey key1, SortKey key2)
+    {
+        Object attribute1 = null;
+        Object attribute2 = null;
+
+        QueryOrder queryOrder = null;
+
+        for (int i = 0; i < key1.values.length; i++)
+        {
+            queryOrder = orderBy[i];
+            attribute1 = key1.values[i];
+            attribute2 = key2.values[i];
 
             try
             {
@@ -226,10 +131,27 @@ public class PartitionSortCompare<T> extends PartitionContext implements Compara
                 }
             } catch (InvalidDataTypeForOperator invalidDataTypeForOperator)
             {
-                return 0;
+                break;
             }
         }
 
-        return 1;
+        return Long.compare(key1.sequence, key2.sequence);
+    }
+
+    /**
+     * Record reference along with the attributes it is sorted by
+     */
+    public static class SortKey
+    {
+        public Object reference;
+        public long sequence;
+        public Object[] values;
+
+        public SortKey(Object reference, long sequence, Object[] values)
+        {
+            this.reference = reference;
+            this.sequence = sequence;
+            this.values = values;
+        }
     }
-};
\ No newline at end of file
+}
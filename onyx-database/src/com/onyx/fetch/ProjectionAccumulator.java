@@ -0,0 +1,176 @@
+package com.onyx.fetch;
+
+import com.onyx.persistence.query.QueryProjectionType;
+
+/**
+ * Running value of a query projection for a group of records.  Numbers are accumulated in primitives so values are not
+ * boxed as records are scanned.  Whole numbers are summed as a long and the rest as a double.  Null values are
+ * skipped unless every record is counted.
+ */
+public class ProjectionAccumulator
+{
+    protected final QueryProjectionType type;
+
+    // Count every record rather than values that are not null
+    protected final boolean countRecords;
+
+    protected long count = 0;
+
+    protected long longSum = 0;
+    protected double doubleSum = 0;
+    protected boolean floatingPoint = false;
+
+    // Lowest and highest whole number or floating point number
+    protected long longMin = Long.MAX_VALUE;
+    protected long longMax = Long.MIN_VALUE;
+    protected double doubleMin = Double.POSITIVE_INFINITY;
+    protected double doubleMax = Double.NEGATIVE_INFINITY;
+
+    // Lowest and highest value that is not a number
+    protected Comparable min = null;
+    protected Comparable max = null;
+
+    // Type of the first number so the minimum and maximum keep the type of the attribute
+    protected Class numberType = null;
+
+    /**
+     * Constructor
+     *
+     * @param type Aggregate function
+     * @param countRecords Count every record rather than values that are not null
+     */
+    public ProjectionAccumulator(QueryProjectionType type, boolean countRecords)
+    {
+        this.type = type;
+        this.countRecords = countRecords;
+    }
+
+    /**
+     * Add the value of a record
+     *
+     * @param value Attribute value
+     */
+    public void add(Object value)
+    {
+        if (value == null)
+        {
+            if (countRecords)
+            {
+                count++;
+            }
+            return;
+        }
+
+        count++;
+
+        if (type == QueryProjectionType.COUNT)
+        {
+            return;
+        }
+
+        if (value instanceof Number)
+        {
+            addNumber((Number) value);
+        }
+        else if (value instanceof Comparable)
+        {
+            final Comparable comparable = (Comparable) value;
+            if (min == null || comparable.compareTo(min) < 0)
+            {
+                min = comparable;
+            }
+            if (max == null || comparable.compareTo(max) > 0)
+            {
+                max = comparable;
+            }
+        }
+    }
+
+    /**
+     * Add a number to the sum, minimum and maximum
+     *
+     * @param number
+     */
+    protected void addNumber(Number number)
+    {
+        if (numberType == null)
+        {
+            numberType = number.getClass();
+        }
+
+        if (number instanceof Double || number instanceof Float)
+        {
+            final double value = number.doubleValue();
+            floatingPoint = true;
+            doubleSum += value;
+            doubleMin = Math.min(doubleMin, value);
+            doubleMax = Math.max(doubleMax, value);
+        }
+        else
+        {
+            final long value = number.longValue();
+            longSum += value;
+            longMin = Math.min(longMin, value);
+            longMax = Math.max(longMax, value);
+        }
+    }
+
+    /**
+     * Value of the projection
+     *
+     * @return Null if there were no values other than for a count
+     */
+    public Object getValue()
+    {
+        if (type == QueryProjectionType.COUNT)
+        {
+            return count;
+        }
+
+        if (count == 0)
+        {
+            return null;
+        }
+
+        switch (type)
+        {
+            case SUM:
+                return (floatingPoint) ? (Object) (doubleSum + longSum) : (Object) longSum;
+            case AVG:
+                return (doubleSum + longSum) / count;
+            case MIN:
+                if (numberType == null)
+                    return min;
+                return toNumberType((floatingPoint) ? Math.min(doubleMin, (double) longMin) : longMin);
+            case MAX:
+                if (numberType == null)
+                    return max;
+                return toNumberType((floatingPoint) ? Math.max(doubleMax, (double) longMax) : longMax);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Convert a minimum or maximum back to the type of the attribute
+     *
+     * @param value
+     * @return
+     */
+    protected Object toNumberType(Number value)
+    {
+        if (numberType == Integer.class)
+            return value.intValue();
+        else if (numberType == Long.class)
+            return value.longValue();
+        else if (numberType == Double.class)
+            return value.doubleValue();
+        else if (numberType == Float.class)
+            return value.floatValue();
+        else if (numberType == Short.class)
+            return value.shortValue();
+        else if (numberType == Byte.class)
+            return value.byteValue();
+        return value;
+    }
+}
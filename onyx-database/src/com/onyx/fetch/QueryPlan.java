@@ -0,0 +1,176 @@
+package com.onyx.fetch;
+
+import com.onyx.persistence.query.QueryCriteria;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Order the criteria of a query are scanned in and the scanner used for each.  The first step finds the records and
+ * each step after it filters the records found so far.
+ *
+ * A plan without steps means the criteria could not be reordered and are evaluated as they were declared.
+ */
+public class QueryPlan
+{
+    protected final long recordCount;
+    protected final List<Step> steps = new ArrayList<>();
+
+    /**
+     * Constructor
+     *
+     * @param recordCount Number of records within the entity
+     */
+    public QueryPlan(long recordCount)
+    {
+        this.recordCount = recordCount;
+    }
+
+    /**
+     * Add a step to the end of the plan
+     *
+     * @param step
+     */
+    protected void add(Step step)
+    {
+        steps.add(step);
+    }
+
+    /**
+     * Steps in the order they are scanned
+     *
+     * @return
+     */
+    public List<Step> getSteps()
+    {
+        return Collections.unmodifiableList(steps);
+    }
+
+    /**
+     * Whether the criteria were reordered into steps
+     *
+     * @return False if the criteria are evaluated as declared
+     */
+    public boolean isPlanned()
+    {
+        return !steps.isEmpty();
+    }
+
+    /**
+     * Number of records within the entity when the plan was made
+     *
+     * @return
+     */
+    public long getRecordCount()
+    {
+        return recordCount;
+    }
+
+    /**
+     * Estimated number of records read or looked up by every step
+     *
+     * @return
+     */
+    public long getEstimatedCost()
+    {
+        long cost = 0;
+        for (Step step : steps)
+        {
+            cost += step.cost;
+        }
+        return cost;
+    }
+
+    /**
+     * Estimated number of records that match every step
+     *
+     * @return
+     */
+    public long getEstimatedRows()
+    {
+        return (steps.isEmpty()) ? recordCount : steps.get(steps.size() - 1).resultRows;
+    }
+
+    @Override
+    public String toString()
+    {
+        if (steps.isEmpty())
+        {
+            return "Criteria evaluated as declared over " + recordCount + " records";
+        }
+
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < steps.size(); i++)
+        {
+            if (i > 0)
+            {
+                builder.append('\n');
+            }
+            builder.append(i + 1).append(". ").append(steps.get(i));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Criteria scanned by a single scanner
+     */
+    public static class Step
+    {
+        protected final QueryCriteria criteria;
+        protected final TableScanner scanner;
+        protected final long estimatedRows;
+        protected final long resultRows;
+        protected final long cost;
+
+        /**
+         * Constructor
+         *
+         * @param criteria Criteria scanned
+         * @param scanner Scanner for the criteria
+         * @param estimatedRows Estimated number of records that match the criteria on their own
+         * @param resultRows Estimated number of records that match this step and every step before it
+         * @param cost Estimated number of records read or looked up
+         */
+        public Step(QueryCriteria criteria, TableScanner scanner, long estimatedRows, long resultRows, long cost)
+        {
+            this.criteria = criteria;
+            this.scanner = scanner;
+            this.estimatedRows = estimatedRows;
+            this.resultRows = resultRows;
+            this.cost = cost;
+        }
+
+        public QueryCriteria getCriteria()
+        {
+            return criteria;
+        }
+
+        public TableScanner getScanner()
+        {
+            return scanner;
+        }
+
+        public long getEstimatedRows()
+        {
+            return estimatedRows;
+        }
+
+        public long getResultRows()
+        {
+            return resultRows;
+        }
+
+        public long getCost()
+        {
+            return cost;
+        }
+
+        @Override
+        public String toString()
+        {
+            return scanner.getClass().getSimpleName() + " " + criteria.getAttribute() + " " + criteria.getOperator() + " " + criteria.getValue()
+                    + " (rows " + estimatedRows + ", cost " + cost + ")";
+        }
+    }
+}
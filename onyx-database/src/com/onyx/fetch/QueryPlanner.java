@@ -0,0 +1,369 @@
+package com.onyx.fetch;
+
+import com.onyx.descriptor.EntityDescriptor;
+import com.onyx.exception.EntityException;
+import com.onyx.fetch.impl.*;
+import com.onyx.helpers.PartitionHelper;
+import com.onyx.index.IndexController;
+import com.onyx.persistence.context.SchemaContext;
+import com.onyx.persistence.manager.PersistenceManager;
+import com.onyx.persistence.query.Query;
+import com.onyx.persistence.query.QueryCriteria;
+import com.onyx.persistence.query.QueryCriteriaOperator;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Orders the criteria of a query so the most selective one is scanned first and the rest only filter the records it
+ * found.  Criteria joined by and are reordered by the number of records they are estimated to match.  Equal criteria
+ * on the same attribute joined by or are scanned as a single in criteria.
+ *
+ * Estimates come from the index statistics when the attribute is indexed.  Otherwise a fixed fraction of the records
+ * is assumed to match depending on the operator.  Long in lists on an index are estimated from the average number of
+ * records per index value rather than counting each value.
+ *
+ * Criteria that include an or of anything else and partitioned entities are evaluated as declared.
+ */
+public class QueryPlanner
+{
+    // Fraction of records assumed to match criteria that are not estimated from an index
+    protected static final double EQUAL_SELECTIVITY = 0.1;
+    protected static final double RANGE_SELECTIVITY = 1.0 / 3.0;
+    protected static final double PATTERN_SELECTIVITY = 0.25;
+    protected static final double NEGATED_SELECTIVITY = 0.9;
+
+    // In lists with more values than this are estimated from the average records per index value
+    protected static final int MAX_COUNTED_VALUES = 100;
+
+    protected final SchemaContext context;
+    protected final EntityDescriptor descriptor;
+    protected final Class classToScan;
+    protected final Query query;
+    protected final PersistenceManager persistenceManager;
+
+    /**
+     * Constructor
+     *
+     * @param classToScan
+     * @param descriptor
+     * @param query
+     * @param context
+     * @param persistenceManager
+     */
+    public QueryPlanner(Class classToScan, EntityDescriptor descriptor, Query query, SchemaContext context, PersistenceManager persistenceManager)
+    {
+        this.classToScan = classToScan;
+        this.descriptor = descriptor;
+        this.query = query;
+        this.context = context;
+        this.persistenceManager = persistenceManager;
+    }
+
+    /**
+     * Plan the scan of criteria
+     *
+     * @param criteria Root criteria of the query
+     * @return Plan without steps if the criteria must be evaluated as declared
+     * @throws EntityException
+     */
+    public QueryPlan plan(QueryCriteria criteria) throws EntityException
+    {
+        final long recordCount = context.getDataFile(descriptor).getHashMap(descriptor.getClazz().getCanonicalName()).size();
+        final QueryPlan plan = new QueryPlan(recordCount);
+
+        if (PartitionHelper.hasPartitionField(query.getEntityType(), context))
+        {
+            return plan;
+        }
+
+        final QueryCriteria root = combineOrCriteria(criteria);
+        final List<QueryCriteria> conjuncts = new ArrayList<>();
+        if (root == null || !collectConjuncts(root, conjuncts))
+        {
+            return plan;
+        }
+
+        final List<Candidate> candidates = new ArrayList<>();
+        for (QueryCriteria conjunct : conjuncts)
+        {
+            candidates.add(estimate(conjunct, recordCount));
+        }
+
+        // The first step is the one that reads the fewest records on its own
+        Candidate first = candidates.get(0);
+        for (Candidate candidate : candidates)
+        {
+            if (candidate.scanCost() < first.scanCost())
+            {
+                first = candidate;
+            }
+        }
+        candidates.remove(first);
+
+        long rows = first.rows;
+        plan.add(new QueryPlan.Step(first.criteria, first.scanner, first.rows, rows, first.scanCost()));
+
+        // Most selective filters first so the records left to check drop as quickly as possible
+        candidates.sort((candidate1, candidate2) -> Long.compare(candidate1.rows, candidate2.rows));
+
+        for (Candidate candidate : candidates)
+        {
+            TableScanner scanner = candidate.scanner;
+            long cost = candidate.filterCost(rows);
+
+            // Looking up every record of an index value costs more than checking the records already found
+            if (cost > rows && !(scanner instanceof FullTableScanner) && descriptor.getAttributes().get(candidate.criteria.getAttribute()) != null)
+            {
+                scanner = new FullTableScanner(candidate.criteria, classToScan, descriptor, query, context, persistenceManager);
+                cost = rows;
+            }
+
+            rows = (recordCount == 0) ? 0 : Math.min(rows, (long) Math.ceil((double) rows * candidate.rows / recordCount));
+            plan.add(new QueryPlan.Step(candidate.criteria, scanner, candidate.rows, rows, cost));
+        }
+
+        return plan;
+    }
+
+    /**
+     * Combine equal criteria on the same attribute that are joined by or into a single in criteria
+     *
+     * @param criteria
+     * @return The criteria if there is nothing joined by or, the in criteria or null if they can not be combined
+     */
+    protected static QueryCriteria combineOrCriteria(QueryCriteria criteria)
+    {
+        if (criteria.getOrCriteria().isEmpty())
+        {
+            return criteria;
+        }
+
+        final List<Object> values = new ArrayList<>();
+        if (!addInValues(criteria, criteria.getAttribute(), values))
+        {
+            return null;
+        }
+
+        for (QueryCriteria orCriteria : criteria.getOrCriteria())
+        {
+            if (!orCriteria.getAndCriteria().isEmpty() || !orCriteria.getOrCriteria().isEmpty() || !addInValues(orCriteria, criteria.getAttribute(), values))
+            {
+                return null;
+            }
+        }
+
+        // Values must all be of a type an in criteria can hold
+        final Class type = values.get(0).getClass();
+        if (type != String.class && type != Double.class && type != Date.class && type != Long.class && type != Integer.class)
+        {
+            return null;
+        }
+        for (Object value : values)
+        {
+            if (value.getClass() != type)
+            {
+                return null;
+            }
+        }
+
+        final QueryCriteria inCriteria = new QueryCriteria(criteria.getAttribute(), QueryCriteriaOperator.IN, values);
+        inCriteria.getAndCriteria().addAll(criteria.getAndCriteria());
+        return inCriteria;
+    }
+
+    /**
+     * Add the values of an equal or in criteria
+     *
+     * @param criteria
+     * @param attribute Attribute every criteria must be on
+     * @param values Values to add to
+     * @return False if the criteria is not an equal or in criteria on the attribute
+     */
+    protected static boolean addInValues(QueryCriteria criteria, String attribute, List<Object> values)
+    {
+        if (!attribute.equals(criteria.getAttribute()) || criteria.getValue() == null)
+        {
+            return false;
+        }
+
+        if (criteria.getOperator() == QueryCriteriaOperator.EQUAL && !(criteria.getValue() instanceof List))
+        {
+            values.add(criteria.getValue());
+        }
+        else if (criteria.getOperator() == QueryCriteriaOperator.IN && criteria.getValue() instanceof List)
+        {
+            for (Object value : (List) criteria.getValue())
+            {
+                if (value == null)
+                {
+                    return false;
+                }
+                values.add(value);
+            }
+        }
+        else
+        {
+            return false;
+        }
+        return !values.isEmpty();
+    }
+
+    /**
+     * Collect the criteria joined by and
+     *
+     * @param criteria
+     * @param conjuncts Criteria to add to
+     * @return False if any of them are joined by or
+     */
+    protected static boolean collectConjuncts(QueryCriteria criteria, List<QueryCriteria> conjuncts)
+    {
+        if (!criteria.getOrCriteria().isEmpty())
+        {
+            return false;
+        }
+
+        conjuncts.add(criteria);
+        for (QueryCriteria andCriteria : criteria.getAndCriteria())
+        {
+            if (!collectConjuncts(andCriteria, conjuncts))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Estimate the number of records a criteria matches
+     *
+     * @param criteria
+     * @param recordCount Number of records within the entity
+     * @return
+     * @throws EntityException
+     */
+    protected Candidate estimate(QueryCriteria criteria, long recordCount) throws EntityException
+    {
+        final TableScanner scanner = ScannerFactory.getInstance(context).getScannerForQueryCriteria(criteria, classToScan, query, persistenceManager);
+        final Object value = criteria.getValue();
+        final int valueCount = (value instanceof List) ? ((List) value).size() : 1;
+
+        long rows;
+        if (scanner instanceof IdentifierScanner)
+        {
+            rows = valueCount;
+        }
+        else if (scanner instanceof RangeIndexScanner)
+        {
+            final IndexController indexController = context.getIndexController(descriptor.getIndexes().get(criteria.getAttribute()));
+            final double selectivity = (scanner instanceof PrefixIndexScanner) ? PATTERN_SELECTIVITY : RANGE_SELECTIVITY;
+            rows = (long) Math.ceil(indexController.getReferenceCount() * selectivity);
+        }
+        else if (scanner instanceof IndexScanner)
+        {
+            final IndexController indexController = context.getIndexController(descriptor.getIndexes().get(criteria.getAttribute()));
+            rows = 0;
+            if (valueCount > MAX_COUNTED_VALUES)
+            {
+                final long distinctValues = Math.max(indexController.getDistinctValueCount(), 1);
+                rows = (long) Math.ceil((double) indexController.getReferenceCount() * valueCount / distinctValues);
+            }
+            else if (value instanceof List)
+            {
+                for (Object indexValue : (List) value)
+                {
+                    rows += indexController.count(indexValue);
+                }
+            }
+            else
+            {
+                rows = indexController.count(value);
+            }
+        }
+        else
+        {
+            rows = (long) Math.ceil(recordCount * selectivity(criteria.getOperator(), valueCount));
+        }
+
+        return new Candidate(criteria, scanner, Math.min(rows, recordCount), recordCount, valueCount);
+    }
+
+    /**
+     * Fraction of records assumed to match an operator
+     *
+     * @param operator
+     * @param valueCount Number of values of an in criteria
+     * @return
+     */
+    protected static double selectivity(QueryCriteriaOperator operator, int valueCount)
+    {
+        switch (operator)
+        {
+            case EQUAL:
+                return EQUAL_SELECTIVITY;
+            case IN:
+                return Math.min(1.0, EQUAL_SELECTIVITY * valueCount);
+            case LESS_THAN:
+            case LESS_THAN_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_EQUAL:
+                return RANGE_SELECTIVITY;
+            case STARTS_WITH:
+            case CONTAINS:
+            case LIKE:
+            case MATCHES:
+                return PATTERN_SELECTIVITY;
+            default:
+                return NEGATED_SELECTIVITY;
+        }
+    }
+
+    /**
+     * Criteria with its scanner and estimates
+     */
+    protected static class Candidate
+    {
+        protected final QueryCriteria criteria;
+        protected final TableScanner scanner;
+        protected final long rows;
+        protected final long recordCount;
+        protected final int valueCount;
+
+        protected Candidate(QueryCriteria criteria, TableScanner scanner, long rows, long recordCount, int valueCount)
+        {
+            this.criteria = criteria;
+            this.scanner = scanner;
+            this.rows = rows;
+            this.recordCount = recordCount;
+            this.valueCount = valueCount;
+        }
+
+        /**
+         * Records read or looked up to find the matches without any records found so far
+         *
+         * @return
+         */
+        protected long scanCost()
+        {
+            if (scanner instanceof IdentifierScanner)
+                return valueCount;
+            else if (scanner instanceof IndexScanner)
+                return rows + valueCount;
+            return recordCount;
+        }
+
+        /**
+         * Records read or looked up to filter the records found so far
+         *
+         * @param existingRows Estimated number of records found so far
+         * @return
+         */
+        protected long filterCost(long existingRows)
+        {
+            if (scanner instanceof IdentifierScanner || scanner instanceof IndexScanner)
+                return scanCost();
+            return existingRows;
+        }
+    }
+}
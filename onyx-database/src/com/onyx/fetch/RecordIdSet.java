@@ -0,0 +1,418 @@
+package com.onyx.fetch;
+
+import java.util.*;
+
+/**
+ * Record ids matching a query kept in a sorted array of primitives.  It is a map of each record id to itself so it can
+ * be passed anywhere the results of a scanner are used, while taking 8 bytes per record rather than two boxed longs and
+ * a hash entry.
+ *
+ * Ids added in ascending order are appended.  Ids added out of order are sorted in and duplicates removed the next time
+ * the set is read.  Intersections and unions of two sets are merges of the arrays.
+ *
+ * Only record ids of entities that are not partitioned are kept.  The value of a record id is always the record id.
+ */
+public class RecordIdSet extends AbstractMap<Long, Long>
+{
+    protected static final int DEFAULT_CAPACITY = 16;
+
+    protected long[] ids;
+    protected int size = 0;
+
+    // Whether the ids are in ascending order without duplicates
+    protected boolean sorted = true;
+
+    /**
+     * Constructor
+     */
+    public RecordIdSet()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param capacity Number of ids expected
+     */
+    public RecordIdSet(int capacity)
+    {
+        ids = new long[Math.max(1, capacity)];
+    }
+
+    /**
+     * Constructor with ids in any order
+     *
+     * @param ids Ids.  The array is kept by the set.
+     */
+    public RecordIdSet(long[] ids)
+    {
+        this.ids = (ids.length == 0) ? new long[1] : ids;
+        this.size = ids.length;
+        this.sorted = false;
+    }
+
+    /**
+     * Constructor with record ids in any order
+     *
+     * @param ids
+     */
+    public RecordIdSet(Collection<Long> ids)
+    {
+        this(ids.size());
+        for (Long id : ids)
+        {
+            add(id);
+        }
+    }
+
+    /**
+     * Add a record id
+     *
+     * @param id
+     */
+    public void add(long id)
+    {
+        if (size > 0)
+        {
+            final long last = ids[size - 1];
+            if (id == last)
+            {
+                return;
+            }
+            else if (id < last)
+            {
+                sorted = false;
+            }
+        }
+
+        if (size == ids.length)
+        {
+            ids = Arrays.copyOf(ids, Math.max(DEFAULT_CAPACITY, size + (size >> 1)));
+        }
+        ids[size++] = id;
+    }
+
+    /**
+     * Check whether a record id is within the set
+     *
+     * @param id
+     * @return
+     */
+    public boolean contains(long id)
+    {
+        sort();
+        return Arrays.binarySearch(ids, 0, size, id) >= 0;
+    }
+
+    /**
+     * Record id at a position within the ascending order
+     *
+     * @param index
+     * @return
+     */
+    public long get(int index)
+    {
+        sort();
+        if (index >= size)
+        {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return ids[index];
+    }
+
+    /**
+     * Record ids within both sets
+     *
+     * @param set1
+     * @param set2
+     * @return New set
+     */
+    public static RecordIdSet and(RecordIdSet set1, RecordIdSet set2)
+    {
+        set1.sort();
+        set2.sort();
+
+        final RecordIdSet results = new RecordIdSet(Math.min(set1.size, set2.size));
+        int i = 0;
+        int j = 0;
+        while (i < set1.size && j < set2.size)
+        {
+            final long id1 = set1.ids[i];
+            final long id2 = set2.ids[j];
+            if (id1 < id2)
+            {
+                i++;
+            }
+            else if (id1 > id2)
+            {
+                j++;
+            }
+            else
+            {
+                results.ids[results.size++] = id1;
+                i++;
+                j++;
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Record ids within either set
+     *
+     * @param set1
+     * @param set2
+     * @return New set
+     */
+    public static RecordIdSet or(RecordIdSet set1, RecordIdSet set2)
+    {
+        set1.sort();
+        set2.sort();
+
+        final RecordIdSet results = new RecordIdSet(set1.size + set2.size);
+        int i = 0;
+        int j = 0;
+        while (i < set1.size || j < set2.size)
+        {
+            final long id;
+            if (j == set2.size || (i < set1.size && set1.ids[i] < set2.ids[j]))
+            {
+                id = set1.ids[i++];
+            }
+            else if (i == set1.size || set2.ids[j] < set1.ids[i])
+            {
+                id = set2.ids[j++];
+            }
+            else
+            {
+                id = set1.ids[i++];
+                j++;
+            }
+            results.ids[results.size++] = id;
+        }
+        return results;
+    }
+
+    /**
+     * Sort the ids and remove duplicates if any were added out of order
+     */
+    protected void sort()
+    {
+        if (sorted)
+        {
+            return;
+        }
+
+        Arrays.sort(ids, 0, size);
+        int unique = 0;
+        for (int i = 0; i < size; i++)
+        {
+            if (unique == 0 || ids[i] != ids[unique - 1])
+            {
+                ids[unique++] = ids[i];
+            }
+        }
+        size = unique;
+        sorted = true;
+    }
+
+    /**
+     * Remove the id at a position within the ascending order
+     *
+     * @param index
+     */
+    protected void removeAt(int index)
+    {
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+    }
+
+    @Override
+    public int size()
+    {
+        sort();
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key)
+    {
+        return (key instanceof Long) && contains((Long) key);
+    }
+
+    @Override
+    public boolean containsValue(Object value)
+    {
+        return containsKey(value);
+    }
+
+    @Override
+    public Long get(Object key)
+    {
+        return containsKey(key) ? (Long) key : null;
+    }
+
+    /**
+     * Add a record id.  The value is ignored since the value of a record id is always itself.  Ids put out of order are
+     * not looked up, their duplicates are removed the next time the set is read.
+     *
+     * @param key Record id
+     * @param value Ignored
+     * @return null
+     */
+    @Override
+    public Long put(Long key, Long value)
+    {
+        add(key);
+        return null;
+    }
+
+    @Override
+    public Long remove(Object key)
+    {
+        if (!(key instanceof Long))
+        {
+            return null;
+        }
+
+        sort();
+        final int index = Arrays.binarySearch(ids, 0, size, (Long) key);
+        if (index < 0)
+        {
+            return null;
+        }
+        removeAt(index);
+        return (Long) key;
+    }
+
+    @Override
+    public void clear()
+    {
+        size = 0;
+        sorted = true;
+    }
+
+    @Override
+    public Set<Long> keySet()
+    {
+        return new AbstractSet<Long>()
+        {
+            @Override
+            public Iterator<Long> iterator()
+            {
+                return new IdIterator<Long>()
+                {
+                    @Override
+                    protected Long value(long id)
+                    {
+                        return id;
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return RecordIdSet.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o)
+            {
+                return containsKey(o);
+            }
+
+            @Override
+            public boolean remove(Object o)
+            {
+                return RecordIdSet.this.remove(o) != null;
+            }
+        };
+    }
+
+    @Override
+    public Collection<Long> values()
+    {
+        return keySet();
+    }
+
+    @Override
+    public Set<Entry<Long, Long>> entrySet()
+    {
+        return new AbstractSet<Entry<Long, Long>>()
+        {
+            @Override
+            public Iterator<Entry<Long, Long>> iterator()
+            {
+                return new IdIterator<Entry<Long, Long>>()
+                {
+                    @Override
+                    protected Entry<Long, Long> value(long id)
+                    {
+                        return new SimpleImmutableEntry<>(id, id);
+                    }
+                };
+            }
+
+            @Override
+            public int size()
+            {
+                return RecordIdSet.this.size();
+            }
+        };
+    }
+
+    /**
+     * Iterates the ids in ascending order
+     *
+     * @param <T> Type returned for each id
+     */
+    protected abstract class IdIterator<T> implements Iterator<T>
+    {
+        protected int next = 0;
+        protected int last = -1;
+
+        protected IdIterator()
+        {
+            sort();
+        }
+
+        protected abstract T value(long id);
+
+        @Override
+        public boolean hasNext()
+        {
+            return next < size;
+        }
+
+        @Override
+        public T next()
+        {
+            if (next >= size)
+            {
+                throw new NoSuchElementException();
+            }
+            last = next++;
+            return value(ids[last]);
+        }
+
+        @Override
+        public void remove()
+        {
+            if (last < 0)
+            {
+                throw new IllegalStateException();
+            }
+            removeAt(last);
+            next = last;
+            last = -1;
+        }
+    }
+}
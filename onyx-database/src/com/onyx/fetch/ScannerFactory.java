@@ -8,7 +8,6 @@ import com.onyx.exception.EntityException;
 import com.onyx.exception.SingletonException;
 import com.onyx.fetch.impl.*;
 import com.onyx.helpers.PartitionHelper;
-import com.onyx.map.MapBuilder;
 import com.onyx.persistence.IManagedEntity;
 import com.onyx.persistence.manager.PersistenceManager;
 import com.onyx.persistence.context.SchemaContext;
@@ -17,6 +16,8 @@ import com.onyx.persistence.query.QueryCriteria;
 import com.onyx.persistence.query.QueryCriteriaOperator;
 import com.onyx.persistence.query.QueryPartitionMode;
 
+import java.util.Date;
+
 /**
  * Created by timothy.osborn on 1/6/15.
  */
@@ -58,7 +59,7 @@ public class ScannerFactory
      * @return
      * @throws EntityException
      */
-    public TableScanner getScannerForQueryCriteria(QueryCriteria criteria, Class classToScan, MapBuilder temporaryDataFile, Query query, PersistenceManager persistenceManager) throws EntityException
+    public TableScanner getScannerForQueryCriteria(QueryCriteria criteria, Class classToScan, Query query, PersistenceManager persistenceManager) throws EntityException
     {
         final IManagedEntity entity = EntityDescriptor.createNewEntity(classToScan);
         EntityDescriptor descriptor = null;
@@ -79,7 +80,7 @@ public class ScannerFactory
         // This has a dot in it, it must be a relationship or a typo
         if(segments.length > 1)
         {
-            final RelationshipScanner relationshipScanner = new RelationshipScanner(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+            final RelationshipScanner relationshipScanner = new RelationshipScanner(criteria, classToScan, descriptor, query, context, persistenceManager);
             return relationshipScanner;
         }
 
@@ -88,12 +89,12 @@ public class ScannerFactory
         {
             if(PartitionHelper.hasPartitionField(query.getEntityType(), context))
             {
-                final PartitionIdentifierScanner indexScanner = new PartitionIdentifierScanner(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+                final PartitionIdentifierScanner indexScanner = new PartitionIdentifierScanner(criteria, classToScan, descriptor, query, context, persistenceManager);
                 return indexScanner;
             }
             else
             {
-                final IdentifierScanner indexScanner = new IdentifierScanner(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+                final IdentifierScanner indexScanner = new IdentifierScanner(criteria, classToScan, descriptor, query, context, persistenceManager);
                 return indexScanner;
             }
         }
@@ -104,28 +105,43 @@ public class ScannerFactory
         {
             if(PartitionHelper.hasPartitionField(query.getEntityType(), context))
             {
-                final PartitionIndexScanner indexScanner = new PartitionIndexScanner(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+                final PartitionIndexScanner indexScanner = new PartitionIndexScanner(criteria, classToScan, descriptor, query, context, persistenceManager);
                 return indexScanner;
             }
             else
             {
-                final IndexScanner indexScanner = new IndexScanner(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+                final IndexScanner indexScanner = new IndexScanner(criteria, classToScan, descriptor, query, context, persistenceManager);
                 return indexScanner;
             }
         }
 
+        // Ordered indexes can also be used for range and prefix criteria
+        if(indexDescriptor != null && indexDescriptor.isOrdered() && isRangeCriteria(criteria, indexDescriptor) && !PartitionHelper.hasPartitionField(query.getEntityType(), context))
+        {
+            if(criteria.getOperator() == QueryCriteriaOperator.STARTS_WITH)
+            {
+                final PrefixIndexScanner prefixScanner = new PrefixIndexScanner(criteria, classToScan, descriptor, query, context, persistenceManager);
+                return prefixScanner;
+            }
+            else
+            {
+                final RangeIndexScanner rangeScanner = new RangeIndexScanner(criteria, classToScan, descriptor, query, context, persistenceManager);
+                return rangeScanner;
+            }
+        }
+
         final AttributeDescriptor attributeDescriptor = descriptor.getAttributes().get(attributeToScan);
         if(attributeDescriptor != null)
         {
             if(PartitionHelper.hasPartitionField(query.getEntityType(), context))
             {
-                final PartitionFullTableScanner fullTableScanner = new PartitionFullTableScanner(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+                final PartitionFullTableScanner fullTableScanner = new PartitionFullTableScanner(criteria, classToScan, descriptor, query, context, persistenceManager);
                 return fullTableScanner;
 
             }
             else
             {
-                final FullTableScanner fullTableScanner = new FullTableScanner(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+                final FullTableScanner fullTableScanner = new FullTableScanner(criteria, classToScan, descriptor, query, context, persistenceManager);
                 return fullTableScanner;
             }
         }
@@ -133,6 +149,48 @@ public class ScannerFactory
         throw new AttributeMissingException(AttributeMissingException.ENTITY_MISSING_ATTRIBUTE + " " + attributeToScan);
     }
 
+    /**
+     * Determines whether the criteria can be resolved using an ordered index.  The criteria value must be the same type
+     * as the index so values compare the same way they would during a full table scan.
+     *
+     * @param criteria
+     * @param indexDescriptor
+     * @return
+     */
+    protected static boolean isRangeCriteria(QueryCriteria criteria, IndexDescriptor indexDescriptor)
+    {
+        final Object value = criteria.getValue();
+        final Class type = indexDescriptor.getType();
+
+        if(value == null)
+        {
+            return false;
+        }
+
+        switch (criteria.getOperator())
+        {
+            case STARTS_WITH:
+                return type == String.class && value instanceof String;
+            case LESS_THAN:
+            case LESS_THAN_EQUAL:
+            case GREATER_THAN:
+            case GREATER_THAN_EQUAL:
+                if(type == int.class || type == Integer.class)
+                    return value instanceof Integer;
+                else if(type == long.class || type == Long.class)
+                    return value instanceof Long;
+                else if(type == double.class || type == Double.class)
+                    return value instanceof Double;
+                else if(type == String.class)
+                    return value instanceof String;
+                else if(Date.class.isAssignableFrom(type))
+                    return value instanceof Date;
+                return false;
+            default:
+                return false;
+        }
+    }
+
     /**
      * Resets the context and singleton instance
      */
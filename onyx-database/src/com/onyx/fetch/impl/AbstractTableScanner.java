@@ -31,7 +31,6 @@ public abstract class AbstractTableScanner extends PartitionContext
     protected AttributeField fieldToGrab = null;
 
     protected DiskMap<Object, IManagedEntity> records = null;
-    protected MapBuilder temporaryDataFile = null;
     protected Query query;
     protected PersistenceManager persistenceManager;
 
@@ -42,7 +41,7 @@ public abstract class AbstractTableScanner extends PartitionContext
      * @param classToScan
      * @param descriptor
      */
-    public AbstractTableScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, MapBuilder temporaryDataFile, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
+    public AbstractTableScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
     {
         super(context, descriptor);
         this.criteria = criteria;
@@ -56,7 +55,6 @@ public abstract class AbstractTableScanner extends PartitionContext
         final MapBuilder dataFile = context.getDataFile(descriptor);
         records = (DiskMap)dataFile.getHashMap(descriptor.getClazz().getCanonicalName());
 
-        this.temporaryDataFile = temporaryDataFile;
 
         // Ensure it is not a relationship
         if(!criteria.getAttribute().contains("."))
@@ -2,20 +2,24 @@ package com.onyx.fetch.impl;
 
 import com.onyx.descriptor.EntityDescriptor;
 import com.onyx.exception.EntityException;
+import com.onyx.exception.EntityExceptionWrapper;
 import com.onyx.fetch.PartitionReference;
+import com.onyx.fetch.RecordIdSet;
 import com.onyx.fetch.TableScanner;
-import com.onyx.map.MapBuilder;
-import com.onyx.persistence.IManagedEntity;
 import com.onyx.persistence.manager.PersistenceManager;
 import com.onyx.persistence.context.SchemaContext;
 import com.onyx.persistence.query.Query;
 import com.onyx.persistence.query.QueryCriteria;
 import com.onyx.record.RecordController;
 import com.onyx.util.CompareUtil;
-import com.onyx.util.ObjectUtil;
 import gnu.trove.THashMap;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.StreamSupport;
 
 /**
  * Created by timothy.osborn on 1/3/15.
@@ -24,8 +28,8 @@ import java.util.*;
  */
 public class FullTableScanner extends AbstractTableScanner implements TableScanner
 {
-
-    private static ObjectUtil reflection = ObjectUtil.getInstance();
+    // Parallel scans share a bounded pool rather than competing with the rest of the application for the common pool
+    protected static final ForkJoinPool SCAN_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
 
     /**
      * Constructor
@@ -34,9 +38,9 @@ public class FullTableScanner extends AbstractTableScanner implements TableScann
      * @param classToScan
      * @param descriptor
      */
-    public FullTableScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, MapBuilder temporaryDataFile, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
+    public FullTableScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
     {
-        super(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+        super(criteria, classToScan, descriptor, query, context, persistenceManager);
     }
 
 
@@ -48,33 +52,120 @@ public class FullTableScanner extends AbstractTableScanner implements TableScann
      */
     public Map<Long, Long> scan() throws EntityException
     {
-        final Map<Long, Long> allResults = new THashMap();
+        final AtomicReference<EntityException> failure = new AtomicReference<>();
+        final String attribute = fieldToGrab.field.getName();
 
-        // We need to do a full scan
-        final Iterator<Map.Entry<Object, IManagedEntity>> iterator = records.entrySet().iterator();
+        // Each worker scans a branch of the bitmap.  The record ids come from the bitmap itself so the keys do not need to be looked up again.
+        // Matches are collected as primitives and sorted once rather than boxed into a map.
+        final ForkJoinTask<long[]> task = SCAN_POOL.submit(() -> StreamSupport.stream(records.recordIdSpliterator(), true).filter(recId ->
+        {
+            if(query.isTerminated() || failure.get() != null)
+                return false;
 
-        Map.Entry<Object, IManagedEntity> entry = null;
-        Object attributeValue = null;
+            final Object attributeValue = records.getAttributeWithRecID(attribute, recId);
 
-        while(iterator.hasNext())
+            try
+            {
+                return CompareUtil.compare(criteria.getValue(), attributeValue, criteria.getOperator());
+            } catch (EntityException e)
+            {
+                failure.compareAndSet(null, e);
+                return false;
+            }
+        }).mapToLong(Long::longValue).toArray());
+
+        final long[] matches;
+        try
         {
-            if(query.isTerminated())
-                return allResults;
+            matches = task.get();
+        } catch (InterruptedException e)
+        {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new EntityException(EntityException.UNKNOWN_EXCEPTION, e);
+        } catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new EntityException(EntityException.UNKNOWN_EXCEPTION, e.getCause());
+        }
 
-            entry = iterator.next();
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
 
-            attributeValue = reflection.getAttribute(fieldToGrab, entry.getValue());
+        return new RecordIdSet(matches);
+    }
 
-            // Compare and add
-            if (CompareUtil.compare(criteria.getValue(), attributeValue, criteria.getOperator()))
+    /**
+     * Scan records one at a time until enough of them match
+     *
+     * @param filters Further criteria a record must match
+     * @param limit Number of records to find
+     * @return Matching record ids in the order they were found
+     * @throws EntityException
+     */
+    public Map<Long, Long> scan(List<FullTableScanner> filters, int limit) throws EntityException
+    {
+        final Map<Long, Long> results = new LinkedHashMap<>();
+        final Spliterator<Long> recordIds = records.recordIdSpliterator();
+        final EntityExceptionWrapper wrapper = new EntityExceptionWrapper();
+
+        while (results.size() < limit && !query.isTerminated() && wrapper.exception == null && recordIds.tryAdvance(recId ->
+        {
+            try
+            {
+                if (matches(recId) && matchesAll(filters, recId))
+                {
+                    results.put(recId, recId);
+                }
+            } catch (EntityException e)
             {
-                long recId = records.getRecID(entry.getKey());
-                allResults.put(recId, recId);
+                wrapper.exception = e;
             }
+        }));
 
+        if (wrapper.exception != null)
+        {
+            throw wrapper.exception;
         }
 
-        return allResults;
+        return results;
+    }
+
+    /**
+     * Check whether a record matches the criteria
+     *
+     * @param recordId
+     * @return
+     * @throws EntityException
+     */
+    public boolean matches(long recordId) throws EntityException
+    {
+        return CompareUtil.compare(criteria.getValue(), records.getAttributeWithRecID(fieldToGrab.field.getName(), recordId), criteria.getOperator());
+    }
+
+    /**
+     * Check whether a record matches the criteria of every scanner
+     *
+     * @param scanners
+     * @param recordId
+     * @return
+     * @throws EntityException
+     */
+    public static boolean matchesAll(List<FullTableScanner> scanners, long recordId) throws EntityException
+    {
+        for (FullTableScanner scanner : scanners)
+        {
+            if (!scanner.matches(recordId))
+            {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -86,7 +177,8 @@ public class FullTableScanner extends AbstractTableScanner implements TableScann
      */
     public Map scan(Map existingValues) throws EntityException
     {
-        final Map allResults = new THashMap();
+        // Ids of a record id set are iterated in order so matches are appended
+        final Map allResults = (existingValues instanceof RecordIdSet) ? new RecordIdSet() : new THashMap();
 
         final Iterator<Long> iterator = existingValues.keySet().iterator();
         Object entityAttribute = null;
@@ -2,8 +2,8 @@ package com.onyx.fetch.impl;
 
 import com.onyx.descriptor.EntityDescriptor;
 import com.onyx.exception.EntityException;
+import com.onyx.fetch.RecordIdSet;
 import com.onyx.fetch.TableScanner;
-import com.onyx.map.MapBuilder;
 import com.onyx.persistence.manager.PersistenceManager;
 import com.onyx.persistence.context.SchemaContext;
 import com.onyx.persistence.query.Query;
@@ -11,7 +11,6 @@ import com.onyx.persistence.query.QueryCriteria;
 import com.onyx.record.RecordController;
 import gnu.trove.THashMap;
 
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -29,9 +28,9 @@ public class IdentifierScanner extends AbstractTableScanner implements TableScan
      * @param descriptor
      * @throws EntityException
      */
-    public IdentifierScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, MapBuilder temporaryDataFile, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
+    public IdentifierScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
     {
-        super(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+        super(criteria, classToScan, descriptor, query, context, persistenceManager);
     }
 
     /**
@@ -43,7 +42,18 @@ public class IdentifierScanner extends AbstractTableScanner implements TableScan
     @Override
     public Map<Long, Long> scan() throws EntityException
     {
-        final Map<Long, Long> returnValue = new THashMap();
+        return findReferenceIds();
+    }
+
+    /**
+     * Find the reference of every identifier that exists
+     *
+     * @return
+     * @throws EntityException
+     */
+    protected RecordIdSet findReferenceIds() throws EntityException
+    {
+        final RecordIdSet returnValue = new RecordIdSet();
 
         final RecordController recordController = context.getRecordController(descriptor);
 
@@ -59,7 +69,7 @@ public class IdentifierScanner extends AbstractTableScanner implements TableScan
                 // The id does exist, lets add it to the results
                 if(referenceId > -1)
                 {
-                    returnValue.put(referenceId, referenceId);
+                    returnValue.add(referenceId);
                 }
             }
         }
@@ -71,7 +81,7 @@ public class IdentifierScanner extends AbstractTableScanner implements TableScan
             long referenceId = recordController.getReferenceId(criteria.getValue());
             if(referenceId > -1)
             {
-                returnValue.put(referenceId, referenceId);
+                returnValue.add(referenceId);
             }
         }
 
@@ -88,43 +98,24 @@ public class IdentifierScanner extends AbstractTableScanner implements TableScan
     @Override
     public Map<Long, Long> scan(Map<Long, Long> existingValues) throws EntityException
     {
-        final Map<Long, Long> returnValue = new THashMap();
-
-        final RecordController recordController = context.getRecordController(descriptor);
-
-        Iterator<Long> iterator = existingValues.keySet().iterator();
+        final RecordIdSet identifiers = findReferenceIds();
+        if (existingValues instanceof RecordIdSet)
+        {
+            return RecordIdSet.and(identifiers, (RecordIdSet) existingValues);
+        }
 
-        Long key = null;
+        final Map<Long, Long> returnValue = new THashMap();
 
-        while (iterator.hasNext())
+        // Look up each identifier once and check whether it is within the existing values rather than looking up
+        // every identifier for each existing value
+        for (Long referenceId : identifiers.keySet())
         {
-            key = iterator.next();
+            if(query.isTerminated())
+                return returnValue;
 
-            // If it is an in clause
-            if(criteria.getValue() instanceof List)
+            if (existingValues.containsKey(referenceId))
             {
-                for (Object idValue : (List)criteria.getValue())
-                {
-                    if(query.isTerminated())
-                        return returnValue;
-
-                    long referenceId = recordController.getReferenceId(idValue);
-
-                    if(referenceId == key)
-                    {
-                        returnValue.put(referenceId, referenceId);
-                    }
-                }
-            }
-            // Its an equals, if the object exists, add it to the results
-            else
-            {
-                long referenceId = recordController.getReferenceId(criteria.getValue());
-
-                if(referenceId == key)
-                {
-                    returnValue.put(referenceId, referenceId);
-                }
+                returnValue.put(referenceId, referenceId);
             }
         }
 
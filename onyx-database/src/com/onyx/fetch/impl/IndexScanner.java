@@ -3,9 +3,9 @@ package com.onyx.fetch.impl;
 import com.onyx.descriptor.EntityDescriptor;
 import com.onyx.descriptor.IndexDescriptor;
 import com.onyx.exception.EntityException;
+import com.onyx.fetch.RecordIdSet;
 import com.onyx.fetch.TableScanner;
 import com.onyx.index.IndexController;
-import com.onyx.map.MapBuilder;
 import com.onyx.persistence.manager.PersistenceManager;
 import com.onyx.persistence.context.SchemaContext;
 import com.onyx.persistence.query.Query;
@@ -27,12 +27,11 @@ public class IndexScanner extends AbstractTableScanner implements TableScanner {
      * @param criteria
      * @param classToScan
      * @param descriptor
-     * @param temporaryDataFile
      * @throws EntityException
      */
-    public IndexScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, MapBuilder temporaryDataFile, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
+    public IndexScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
     {
-        super(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+        super(criteria, classToScan, descriptor, query, context, persistenceManager);
 
         final IndexDescriptor indexDescriptor = descriptor.getIndexes().get(criteria.getAttribute());
         indexController = context.getIndexController(indexDescriptor);
@@ -47,8 +46,18 @@ public class IndexScanner extends AbstractTableScanner implements TableScanner {
     @Override
     public Map<Long, Long> scan() throws EntityException
     {
-        final Map<Long, Long> returnValue = new THashMap();
-        final List<Long> references = new ArrayList<>();
+        return findReferenceIds();
+    }
+
+    /**
+     * Find the references of every criteria value
+     *
+     * @return
+     * @throws EntityException
+     */
+    protected RecordIdSet findReferenceIds() throws EntityException
+    {
+        final RecordIdSet returnValue = new RecordIdSet();
 
         if(criteria.getValue() instanceof List)
         {
@@ -57,19 +66,14 @@ public class IndexScanner extends AbstractTableScanner implements TableScanner {
                 if(query.isTerminated())
                     return returnValue;
 
-                references.addAll(indexController.findAll(idValue));
+                indexController.findAll(idValue).forEach(returnValue::add);
             }
         }
         else
         {
-            references.addAll(indexController.findAll(criteria.getValue()));
+            indexController.findAll(criteria.getValue()).forEach(returnValue::add);
         }
 
-        references.stream().forEach(val->
-        {
-            returnValue.put(val, val);
-        });
-
         return returnValue;
     }
 
@@ -83,6 +87,11 @@ public class IndexScanner extends AbstractTableScanner implements TableScanner {
     @Override
     public Map<Long, Long> scan(Map<Long, Long> existingValues) throws EntityException
     {
+        if(existingValues instanceof RecordIdSet)
+        {
+            return RecordIdSet.and(findReferenceIds(), (RecordIdSet) existingValues);
+        }
+
         final Map<Long, Long> returnValue = new THashMap();
 
         if(criteria.getValue() instanceof List)
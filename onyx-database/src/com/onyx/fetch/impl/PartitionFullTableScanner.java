@@ -9,19 +9,18 @@ import com.onyx.fetch.PartitionReference;
 import com.onyx.fetch.TableScanner;
 import com.onyx.map.DiskMap;
 import com.onyx.map.MapBuilder;
-import com.onyx.persistence.IManagedEntity;
 import com.onyx.persistence.manager.PersistenceManager;
 import com.onyx.persistence.context.SchemaContext;
 import com.onyx.persistence.query.Query;
 import com.onyx.persistence.query.QueryCriteria;
 import com.onyx.persistence.query.QueryPartitionMode;
 import com.onyx.util.CompareUtil;
-import com.onyx.util.ObjectUtil;
 import gnu.trove.THashMap;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
+import java.util.stream.StreamSupport;
 
 /**
  * Created by timothy.osborn on 1/3/15.
@@ -30,8 +29,6 @@ import java.util.concurrent.Future;
  */
 public class PartitionFullTableScanner extends FullTableScanner implements TableScanner
 {
-
-    private static ObjectUtil reflection = ObjectUtil.getInstance();
     private SystemEntity systemEntity = null;
 
     /**
@@ -41,9 +38,9 @@ public class PartitionFullTableScanner extends FullTableScanner implements Table
      * @param classToScan
      * @param descriptor
      */
-    public PartitionFullTableScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, MapBuilder temporaryDataFile, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
+    public PartitionFullTableScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
     {
-        super(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+        super(criteria, classToScan, descriptor, query, context, persistenceManager);
         systemEntity = context.getSystemEntityByName(query.getEntityType().getCanonicalName());
     }
 
@@ -58,37 +55,35 @@ public class PartitionFullTableScanner extends FullTableScanner implements Table
     public Map scanPartition(DiskMap existingValues, long partitionId) throws EntityException
     {
         final Map allResults = new THashMap();
+        final String attribute = fieldToGrab.field.getName();
 
-        final Iterator<Long> iterator = existingValues.keySet().iterator();
-        IManagedEntity entity = null;
-        Object attributeValue = null;
-        Object keyValue = null;
+        final EntityExceptionWrapper wrapper = new EntityExceptionWrapper();
 
-        while(iterator.hasNext())
+        // Partitions are already scanned in parallel so each one is traversed on a single thread
+        StreamSupport.stream(existingValues.recordIdSpliterator(), false).forEach(recId ->
         {
-            if(query.isTerminated())
-                return allResults;
-
-            keyValue = iterator.next();
-
-            entity = (IManagedEntity)existingValues.get(keyValue);
-
-            // Ensure entity still exists
-            if(entity == null)
-            {
-                continue;
-            }
+            if(query.isTerminated() || wrapper.exception != null)
+                return;
 
             // Get the attribute value
-            attributeValue = reflection.getAttribute(fieldToGrab, entity);
+            final Object attributeValue = existingValues.getAttributeWithRecID(attribute, (long) recId);
 
-            // Compare and add
-            if (CompareUtil.compare(criteria.getValue(), attributeValue, criteria.getOperator()))
+            try
+            {
+                // Compare and add
+                if (CompareUtil.compare(criteria.getValue(), attributeValue, criteria.getOperator()))
+                {
+                    allResults.put(new PartitionReference(partitionId, (long) recId), new PartitionReference(partitionId, (long) recId));
+                }
+            } catch (EntityException e)
             {
-                long ref = existingValues.getRecID(keyValue);
-                allResults.put(new PartitionReference(partitionId, ref), new PartitionReference(partitionId, ref));
+                wrapper.exception = e;
             }
+        });
 
+        if (wrapper.exception != null)
+        {
+            throw wrapper.exception;
         }
 
         return allResults;
@@ -9,7 +9,6 @@ import com.onyx.exception.EntityExceptionWrapper;
 import com.onyx.fetch.PartitionReference;
 import com.onyx.fetch.TableScanner;
 import com.onyx.index.IndexController;
-import com.onyx.map.MapBuilder;
 import com.onyx.persistence.manager.PersistenceManager;
 import com.onyx.persistence.context.SchemaContext;
 import com.onyx.persistence.query.Query;
@@ -34,12 +33,11 @@ public class PartitionIndexScanner extends IndexScanner implements TableScanner
      * @param criteria
      * @param classToScan
      * @param descriptor
-     * @param temporaryDataFile
      * @throws EntityException
      */
-    public PartitionIndexScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, MapBuilder temporaryDataFile, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
+    public PartitionIndexScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
     {
-        super(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+        super(criteria, classToScan, descriptor, query, context, persistenceManager);
 
         final IndexDescriptor indexDescriptor = descriptor.getIndexes().get(criteria.getAttribute());
         indexController = context.getIndexController(indexDescriptor);
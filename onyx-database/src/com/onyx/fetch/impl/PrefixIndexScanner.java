@@ -0,0 +1,43 @@
+package com.onyx.fetch.impl;
+
+import com.onyx.descriptor.EntityDescriptor;
+import com.onyx.exception.EntityException;
+import com.onyx.fetch.TableScanner;
+import com.onyx.index.OrderedIndexController;
+import com.onyx.persistence.context.SchemaContext;
+import com.onyx.persistence.manager.PersistenceManager;
+import com.onyx.persistence.query.Query;
+import com.onyx.persistence.query.QueryCriteria;
+
+import java.util.Set;
+
+/**
+ * Scans an ordered index for string values that start with the criteria value
+ */
+public class PrefixIndexScanner extends RangeIndexScanner implements TableScanner {
+
+    /**
+     * Constructor
+     *
+     * @param criteria
+     * @param classToScan
+     * @param descriptor
+     * @throws EntityException
+     */
+    public PrefixIndexScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
+    {
+        super(criteria, classToScan, descriptor, query, context, persistenceManager);
+    }
+
+    /**
+     * Find the references that start with the criteria value
+     *
+     * @return
+     * @throws EntityException
+     */
+    @Override
+    protected Set<Long> findReferences() throws EntityException
+    {
+        return ((OrderedIndexController) indexController).findAllStartingWith((String) criteria.getValue());
+    }
+}
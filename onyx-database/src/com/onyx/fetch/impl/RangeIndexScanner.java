@@ -0,0 +1,132 @@
+package com.onyx.fetch.impl;
+
+import com.onyx.descriptor.EntityDescriptor;
+import com.onyx.exception.EntityException;
+import com.onyx.fetch.RecordIdSet;
+import com.onyx.fetch.TableScanner;
+import com.onyx.index.OrderedIndexController;
+import com.onyx.persistence.context.SchemaContext;
+import com.onyx.persistence.manager.PersistenceManager;
+import com.onyx.persistence.query.Query;
+import com.onyx.persistence.query.QueryCriteria;
+import com.onyx.persistence.query.QueryCriteriaOperator;
+import gnu.trove.THashMap;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Scans an ordered index for values that are less than or greater than the criteria value
+ */
+public class RangeIndexScanner extends IndexScanner implements TableScanner {
+
+    /**
+     * Constructor
+     *
+     * @param criteria
+     * @param classToScan
+     * @param descriptor
+     * @throws EntityException
+     */
+    public RangeIndexScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
+    {
+        super(criteria, classToScan, descriptor, query, context, persistenceManager);
+    }
+
+    /**
+     * Scan indexes
+     *
+     * @return
+     * @throws EntityException
+     */
+    @Override
+    public Map<Long, Long> scan() throws EntityException
+    {
+        return new RecordIdSet(findReferences());
+    }
+
+    /**
+     * Scan indexes that are within the existing values
+     *
+     * @param existingValues
+     * @return
+     * @throws EntityException
+     */
+    @Override
+    public Map<Long, Long> scan(Map<Long, Long> existingValues) throws EntityException
+    {
+        if (existingValues instanceof RecordIdSet)
+        {
+            return RecordIdSet.and(new RecordIdSet(findReferences()), (RecordIdSet) existingValues);
+        }
+
+        final Map<Long, Long> returnValue = new THashMap();
+
+        findReferences().stream().forEach(reference ->
+        {
+            if (existingValues.containsKey(reference))
+            {
+                returnValue.put(reference, reference);
+            }
+        });
+
+        return returnValue;
+    }
+
+    /**
+     * Find the references that match the criteria.  Null values match the same way they do with
+     * com.onyx.util.CompareUtil so the results are identical to a full table scan.
+     *
+     * @return
+     * @throws EntityException
+     */
+    protected Set<Long> findReferences() throws EntityException
+    {
+        final OrderedIndexController orderedIndexController = (OrderedIndexController) indexController;
+        final Object value = criteria.getValue();
+        final QueryCriteriaOperator operator = criteria.getOperator();
+
+        Set<Long> references = null;
+        boolean includeNull = false;
+
+        if (operator == QueryCriteriaOperator.GREATER_THAN)
+        {
+            references = orderedIndexController.findAllInRange(value, false, null, false);
+        }
+        else if (operator == QueryCriteriaOperator.GREATER_THAN_EQUAL)
+        {
+            references = orderedIndexController.findAllInRange(value, true, null, false);
+            includeNull = isNullValue(value);
+        }
+        else if (operator == QueryCriteriaOperator.LESS_THAN)
+        {
+            references = orderedIndexController.findAllInRange(null, false, value, false);
+            includeNull = true;
+        }
+        else
+        {
+            references = orderedIndexController.findAllInRange(null, false, value, true);
+            includeNull = isNullValue(value);
+        }
+
+        if (includeNull)
+        {
+            references.addAll(orderedIndexController.findAllNull());
+        }
+
+        return references;
+    }
+
+    /**
+     * Indicates the criteria value is the place holder used for null
+     *
+     * @param value
+     * @return
+     */
+    protected static boolean isNullValue(Object value)
+    {
+        return (value instanceof Long && (Long) value == QueryCriteria.NULL_LONG_VALUE)
+                || (value instanceof Integer && (Integer) value == QueryCriteria.NULL_INTEGER_VALUE)
+                || (value instanceof Double && (Double) value == QueryCriteria.NULL_DOUBLE_VALUE);
+    }
+}
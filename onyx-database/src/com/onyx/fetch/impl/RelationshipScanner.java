@@ -6,7 +6,6 @@ import com.onyx.exception.EntityException;
 import com.onyx.fetch.PartitionReference;
 import com.onyx.fetch.ScannerFactory;
 import com.onyx.fetch.TableScanner;
-import com.onyx.map.MapBuilder;
 import com.onyx.persistence.manager.PersistenceManager;
 import com.onyx.persistence.context.SchemaContext;
 import com.onyx.persistence.query.Query;
@@ -34,9 +33,9 @@ public class RelationshipScanner extends AbstractTableScanner implements TableSc
      * @param classToScan
      * @param descriptor
      */
-    public RelationshipScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, MapBuilder temporaryDataFile, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
+    public RelationshipScanner(QueryCriteria criteria, Class classToScan, EntityDescriptor descriptor, Query query, SchemaContext context, PersistenceManager persistenceManager) throws EntityException
     {
-        super(criteria, classToScan, descriptor, temporaryDataFile, query, context, persistenceManager);
+        super(criteria, classToScan, descriptor, query, context, persistenceManager);
 
     }
 
@@ -73,7 +72,7 @@ public class RelationshipScanner extends AbstractTableScanner implements TableSc
         criteria.setAttribute(criteria.getAttribute().replaceFirst(segments[0] + "\\.", ""));
 
         // Get the next scanner because we are not at the end of the line.  Otherwise, we would not have gotten to this place
-        final TableScanner tableScanner = ScannerFactory.getInstance(context).getScannerForQueryCriteria(criteria, relationshipDescriptor.getInverseClass(), temporaryDataFile, query, persistenceManager);
+        final TableScanner tableScanner = ScannerFactory.getInstance(context).getScannerForQueryCriteria(criteria, relationshipDescriptor.getInverseClass(), query, persistenceManager);
 
         // Sweet, lets get the scanner.  Note, this very well can be recursive, but sooner or later it will get to the
         // other scanners
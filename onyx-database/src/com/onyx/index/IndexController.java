@@ -62,4 +62,27 @@ public interface IndexController
      */
     void rebuild() throws EntityException;
 
+    /**
+     * Count the records with an index value
+     *
+     * @param indexValue
+     * @return
+     * @throws EntityException
+     */
+    long count(Object indexValue) throws EntityException;
+
+    /**
+     * Number of distinct index values
+     *
+     * @return
+     */
+    long getDistinctValueCount();
+
+    /**
+     * Number of records with an index value that is not null
+     *
+     * @return
+     */
+    long getReferenceCount();
+
 }
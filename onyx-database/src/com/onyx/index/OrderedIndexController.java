@@ -0,0 +1,41 @@
+package com.onyx.index;
+
+import com.onyx.exception.EntityException;
+
+import java.util.Set;
+
+/**
+ * Index controller that keeps its values in order so that it can be used for range and prefix criteria
+ */
+public interface OrderedIndexController extends IndexController
+{
+    /**
+     * Find all references with an index value within a range.  A null bound indicates the range is unbounded on
+     * that side.
+     *
+     * @param fromValue Lower bound
+     * @param fromInclusive Whether the lower bound is included
+     * @param toValue Upper bound
+     * @param toInclusive Whether the upper bound is included
+     * @return
+     * @throws EntityException
+     */
+    Set<Long> findAllInRange(Object fromValue, boolean fromInclusive, Object toValue, boolean toInclusive) throws EntityException;
+
+    /**
+     * Find all references with a string index value that starts with a prefix
+     *
+     * @param prefix
+     * @return
+     * @throws EntityException
+     */
+    Set<Long> findAllStartingWith(String prefix) throws EntityException;
+
+    /**
+     * Find all references that do not have an index value
+     *
+     * @return
+     * @throws EntityException
+     */
+    Set<Long> findAllNull() throws EntityException;
+}
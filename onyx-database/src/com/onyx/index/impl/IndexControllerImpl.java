@@ -6,28 +6,36 @@ import com.onyx.exception.EntityException;
 import com.onyx.index.IndexController;
 import com.onyx.map.DiskMap;
 import com.onyx.map.MapBuilder;
+import com.onyx.map.PostingLists;
+import com.onyx.map.StructureType;
 import com.onyx.persistence.IManagedEntity;
 import com.onyx.persistence.context.SchemaContext;
 import com.onyx.record.AbstractRecordController;
 import com.onyx.record.RecordController;
 
 import java.util.*;
-import java.util.function.BiFunction;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Created by timothy.osborn on 1/29/15.
  */
 public class IndexControllerImpl implements IndexController {
 
+    protected static final int VALUE_LOCK_STRIPES = 64;
 
     protected SchemaContext context;
 
-    protected Map<Object, Set<Long>> references = null; // Stores the references for an index value
+    protected Map<Object, Long> references = null; // Stores the posting list position for an index value
     protected Map<Long, Object> indexValues = null;
+    protected PostingLists postingLists = null; // Stores the references for an index value
     protected RecordController recordController = null;
     protected MapBuilder dataFile = null;
     protected IndexDescriptor indexDescriptor = null;
 
+    // Guards looking up a posting list and using it so an empty list is not freed while it is being added to
+    protected final ReadWriteLock[] valueLocks = new ReadWriteLock[VALUE_LOCK_STRIPES];
+
     public IndexDescriptor getIndexDescriptor()
     {
         return indexDescriptor;
@@ -47,8 +55,43 @@ public class IndexControllerImpl implements IndexController {
         this.indexDescriptor = indexDescriptor;
         this.recordController = context.getRecordController(descriptor);
 
-        references = dataFile.getHashMap(descriptor.getClazz().getCanonicalName() + indexDescriptor.getName());
-        indexValues = dataFile.getHashMap(descriptor.getClazz().getCanonicalName() + indexDescriptor.getName() + "indexValues");
+        references = dataFile.getHashMap(descriptor.getClazz().getCanonicalName() + indexDescriptor.getName() + "postingLists", StructureType.POSTING_LISTS);
+        indexValues = dataFile.getHashMap(descriptor.getClazz().getCanonicalName() + indexDescriptor.getName() + "indexValues", StructureType.REFERENCE_KEYS);
+        postingLists = dataFile.getPostingLists();
+
+        for(int i = 0; i < VALUE_LOCK_STRIPES; i++)
+        {
+            valueLocks[i] = new ReentrantReadWriteLock();
+        }
+
+        // Only look at the legacy map if there is one so it is not created on every open
+        final String legacyName = descriptor.getClazz().getCanonicalName() + indexDescriptor.getName();
+        if(dataFile.exists(legacyName))
+        {
+            migrateReferences(dataFile.getHashMap(legacyName));
+        }
+    }
+
+    /**
+     * Prior versions stored a set of references for each index value.  Move them into posting lists.  References that
+     * were moved before the legacy map was cleared are skipped.
+     *
+     * @param legacyReferences
+     */
+    protected void migrateReferences(Map<Object, Set<Long>> legacyReferences)
+    {
+        if(legacyReferences.isEmpty())
+        {
+            return;
+        }
+
+        for(Map.Entry<Object, Set<Long>> entry : legacyReferences.entrySet())
+        {
+            final long list = references.computeIfAbsent(entry.getKey(), o -> postingLists.create());
+            postingLists.addAll(list, entry.getValue());
+        }
+
+        legacyReferences.clear();
     }
 
     /**
@@ -66,24 +109,40 @@ public class IndexControllerImpl implements IndexController {
             delete(oldReference);
         }
 
-        if(indexValue != null) {
-            references.compute(indexValue, (o, longs) -> {
-                if (longs == null) {
-                    longs = new HashSet<Long>();
-                }
-                longs.add(reference);
+        // A reference is only listed once so the count of a list matches its references
+        final Object previous = indexValues.get(reference);
+        if(previous != null)
+        {
+            if(previous.equals(indexValue))
+            {
+                return;
+            }
+            delete(reference);
+        }
 
-                // Add previous index value
+        if(indexValue != null) {
+            final ReadWriteLock lock = getValueLock(indexValue);
+            lock.writeLock().lock();
 
-                return longs;
-            });
+            try
+            {
+                Long list = references.get(indexValue);
+                if (list == null) {
+                    list = references.computeIfAbsent(indexValue, o -> postingLists.create());
+                }
+                postingLists.add(list, reference);
+            } finally
+            {
+                lock.writeLock().unlock();
+            }
 
             indexValues.compute(reference, (aLong, o) -> indexValue);
         }
     }
 
     /**
-     * Delete an index value with a record reference
+     * Delete an index value with a record reference.  The posting list of the value is freed once its last reference
+     * is removed.
      *
      * @param reference
      * @throws EntityException
@@ -95,14 +154,21 @@ public class IndexControllerImpl implements IndexController {
             Object indexValue = indexValues.remove(reference);
             if (indexValue != null)
             {
-                references.computeIfPresent(indexValue, new BiFunction<Object, Set<Long>, Set<Long>>() {
-                    @Override
-                    public Set<Long> apply(Object o, Set<Long> longs)
+                final ReadWriteLock lock = getValueLock(indexValue);
+                lock.writeLock().lock();
+
+                try
+                {
+                    final Long list = references.get(indexValue);
+                    if (list != null && postingLists.remove(list, reference) <= 0)
                     {
-                        longs.remove(reference);
-                        return longs;
+                        references.remove(indexValue);
+                        postingLists.delete(list);
                     }
-                });
+                } finally
+                {
+                    lock.writeLock().unlock();
+                }
             }
         }
     }
@@ -116,10 +182,75 @@ public class IndexControllerImpl implements IndexController {
      */
     public Set<Long> findAll(Object indexValue) throws EntityException
     {
-        final Set<Long> refs = references.get(indexValue);
-        if(refs == null)
-            return new HashSet();
-        return refs;
+        final ReadWriteLock lock = getValueLock(indexValue);
+        lock.readLock().lock();
+
+        try
+        {
+            final Long list = references.get(indexValue);
+            if(list == null)
+                return new HashSet();
+            return postingLists.get(list);
+        } finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count the references for an index value
+     *
+     * @param indexValue
+     * @return
+     * @throws EntityException
+     */
+    protected long countReferences(Object indexValue) throws EntityException
+    {
+        final ReadWriteLock lock = getValueLock(indexValue);
+        lock.readLock().lock();
+
+        try
+        {
+            final Long list = references.get(indexValue);
+            if(list == null)
+                return 0;
+            return postingLists.size(list);
+        } finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count the records with an index value
+     *
+     * @param indexValue
+     * @return
+     * @throws EntityException
+     */
+    public long count(Object indexValue) throws EntityException
+    {
+        return countReferences(indexValue);
+    }
+
+    /**
+     * Number of distinct index values
+     *
+     * @return
+     */
+    public long getDistinctValueCount()
+    {
+        return references.size();
+    }
+
+    /**
+     * Number of records with an index value that is not null
+     *
+     * @return
+     */
+    public long getReferenceCount()
+    {
+        return indexValues.size();
     }
 
     /**
@@ -152,12 +283,22 @@ public class IndexControllerImpl implements IndexController {
                 long recId = records.getRecID(entry.getKey());
                 if(recId > 0) {
                     final Object indexValue = AbstractRecordController.getIndexValueFromEntity((IManagedEntity) entry.getValue(), indexDescriptor);
-                    if(indexValue != null)
-                        save(indexValue, recId, recId);
+                    save(indexValue, recId, recId);
                 }
             }
             // Catch an exception so it may continue the routine
             catch (Exception ignore){}
         }
     }
+
+    /**
+     * Lock stripe for an index value
+     *
+     * @param indexValue
+     * @return
+     */
+    protected ReadWriteLock getValueLock(Object indexValue)
+    {
+        return valueLocks[(indexValue == null ? 0 : indexValue.hashCode() & Integer.MAX_VALUE) % VALUE_LOCK_STRIPES];
+    }
 }
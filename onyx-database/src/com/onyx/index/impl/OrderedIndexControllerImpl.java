@@ -0,0 +1,161 @@
+package com.onyx.index.impl;
+
+import com.onyx.descriptor.EntityDescriptor;
+import com.onyx.descriptor.IndexDescriptor;
+import com.onyx.exception.EntityException;
+import com.onyx.index.OrderedIndexController;
+import com.onyx.map.OrderedDiskSet;
+import com.onyx.map.StructureType;
+import com.onyx.persistence.context.SchemaContext;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index controller that in addition to the hash index keeps the distinct index values within a B+ tree.  Range
+ * lookups walk the tree for the values within range and then gather the references for each of those values.
+ */
+public class OrderedIndexControllerImpl extends IndexControllerImpl implements OrderedIndexController
+{
+
+    protected OrderedDiskSet<Object> orderedValues = null; // Distinct index values in order
+    protected Map<Long, Long> nullReferences = null; // References that do not have an index value
+
+    /**
+     * Constructor with entity descriptor and index descriptor
+     *
+     * @param descriptor
+     * @param indexDescriptor
+     * @param context
+     * @throws EntityException
+     */
+    public OrderedIndexControllerImpl(EntityDescriptor descriptor, IndexDescriptor indexDescriptor, SchemaContext context) throws EntityException
+    {
+        super(descriptor, indexDescriptor, context);
+
+        orderedValues = dataFile.getOrderedSet(descriptor.getClazz().getCanonicalName() + indexDescriptor.getName() + "orderedValues");
+        nullReferences = dataFile.getHashMap(descriptor.getClazz().getCanonicalName() + indexDescriptor.getName() + "nullReferences", StructureType.REFERENCE_KEYS_AND_VALUES);
+
+        // The index existed prior to being ordered, so populate the ordered values
+        if(orderedValues.longSize() == 0 && indexValues.size() > 0)
+        {
+            rebuild();
+        }
+    }
+
+    /**
+     * Save an index value with the record reference
+     *
+     * @param indexValue
+     * @param oldReference
+     * @param reference
+     * @throws EntityException
+     */
+    @Override
+    public void save(Object indexValue, long oldReference, long reference) throws EntityException
+    {
+        super.save(indexValue, oldReference, reference);
+
+        if(indexValue == null)
+        {
+            if(reference > 0)
+            {
+                nullReferences.put(reference, reference);
+            }
+        }
+        else
+        {
+            synchronized (orderedValues)
+            {
+                orderedValues.add(indexValue);
+            }
+        }
+    }
+
+    /**
+     * Delete an index value with a record reference.  If it was the last reference for the value, the value is removed
+     * from the ordered values.
+     *
+     * @param reference
+     * @throws EntityException
+     */
+    @Override
+    public void delete(long reference) throws EntityException
+    {
+        if(reference > 0)
+        {
+            nullReferences.remove(reference);
+
+            final Object indexValue = indexValues.get(reference);
+            super.delete(reference);
+
+            if(indexValue != null)
+            {
+                synchronized (orderedValues)
+                {
+                    if(countReferences(indexValue) == 0)
+                    {
+                        orderedValues.remove(indexValue);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find all references with an index value within a range
+     *
+     * @param fromValue Lower bound
+     * @param fromInclusive Whether the lower bound is included
+     * @param toValue Upper bound
+     * @param toInclusive Whether the upper bound is included
+     * @return
+     * @throws EntityException
+     */
+    @Override
+    public Set<Long> findAllInRange(Object fromValue, boolean fromInclusive, Object toValue, boolean toInclusive) throws EntityException
+    {
+        final Set<Long> results = new HashSet<>();
+        for(Object indexValue : orderedValues.range(fromValue, fromInclusive, toValue, toInclusive))
+        {
+            results.addAll(findAll(indexValue));
+        }
+        return results;
+    }
+
+    /**
+     * Find all references with a string index value that starts with a prefix.  Since strings sharing a prefix are
+     * adjacent, this is a range lookup from the prefix up to the next possible prefix.
+     *
+     * @param prefix
+     * @return
+     * @throws EntityException
+     */
+    @Override
+    public Set<Long> findAllStartingWith(String prefix) throws EntityException
+    {
+        String upperBound = null;
+        for(int i = prefix.length() - 1; i >= 0; i--)
+        {
+            if(prefix.charAt(i) != Character.MAX_VALUE)
+            {
+                upperBound = prefix.substring(0, i) + (char)(prefix.charAt(i) + 1);
+                break;
+            }
+        }
+        return findAllInRange(prefix, true, upperBound, false);
+    }
+
+    /**
+     * Find all references that do not have an index value
+     *
+     * @return
+     * @throws EntityException
+     */
+    @Override
+    public Set<Long> findAllNull() throws EntityException
+    {
+        return new HashSet<>(nullReferences.keySet());
+    }
+}
@@ -0,0 +1,156 @@
+package com.onyx.map;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Flushes the writes to a set of files in the background a little at a time rather than flushing every file at once.
+ * Writes are left for half of the target lag so repeated writes to the same slice are flushed together.  After that
+ * each run flushes a share of the bytes waiting so that they are flushed by the time the oldest write reaches the
+ * target lag.  Once it has, everything waiting is flushed.
+ *
+ * Only slices that have been written to are flushed.  Writers that get too far ahead flush the oldest slice
+ * themselves, see {@link com.onyx.map.store.FileChannelStore#setMaxDirtyBytes(long)}.
+ */
+public class BackgroundFlusher implements Runnable
+{
+    // Milliseconds between runs
+    public static final long DEFAULT_INTERVAL = 200;
+
+    // Milliseconds a write may wait to be flushed
+    public static final long DEFAULT_TARGET_LAG = 5000;
+
+    protected final Supplier<Collection<MapBuilder>> files;
+    protected final long interval;
+    protected final long targetLag;
+
+    protected final LongAdder bytesFlushed = new LongAdder();
+
+    /**
+     * Constructor
+     *
+     * @param files Files to flush.  Called on each run.
+     */
+    public BackgroundFlusher(Supplier<Collection<MapBuilder>> files)
+    {
+        this(files, DEFAULT_INTERVAL, DEFAULT_TARGET_LAG);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param files Files to flush.  Called on each run.
+     * @param interval Milliseconds between runs
+     * @param targetLag Milliseconds a write may wait to be flushed
+     */
+    public BackgroundFlusher(Supplier<Collection<MapBuilder>> files, long interval, long targetLag)
+    {
+        this.files = files;
+        this.interval = Math.max(1, interval);
+        this.targetLag = targetLag;
+    }
+
+    /**
+     * Flush a share of the bytes waiting
+     */
+    @Override
+    public void run()
+    {
+        try
+        {
+            final Collection<MapBuilder> builders = files.get();
+
+            long dirty = 0;
+            long lag = 0;
+            for (MapBuilder builder : builders)
+            {
+                dirty += builder.getDirtyBytes();
+                lag = Math.max(lag, builder.getFlushLag());
+            }
+
+            if (dirty == 0 || lag < targetLag / 2)
+            {
+                return;
+            }
+
+            // Runs left before the oldest write reaches the target lag
+            final long runsLeft = Math.max(1, (targetLag - lag) / interval);
+            final double share = 1.0 / runsLeft;
+
+            for (MapBuilder builder : builders)
+            {
+                final long waiting = builder.getDirtyBytes();
+                if (waiting > 0)
+                {
+                    bytesFlushed.add(builder.flush(Math.max(1, (long) (waiting * share))));
+                }
+            }
+        } catch (Exception e)
+        {
+            // An exception would stop the runs from being scheduled
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Flush every byte waiting
+     */
+    public void flushAll()
+    {
+        for (MapBuilder builder : files.get())
+        {
+            bytesFlushed.add(builder.flush(Long.MAX_VALUE));
+        }
+    }
+
+    /**
+     * Milliseconds between runs
+     *
+     * @return
+     */
+    public long getInterval()
+    {
+        return interval;
+    }
+
+    /**
+     * Bytes flushed by the flusher
+     *
+     * @return
+     */
+    public long getBytesFlushed()
+    {
+        return bytesFlushed.sum();
+    }
+
+    /**
+     * Bytes waiting to be flushed
+     *
+     * @return
+     */
+    public long getDirtyBytes()
+    {
+        long dirty = 0;
+        for (MapBuilder builder : files.get())
+        {
+            dirty += builder.getDirtyBytes();
+        }
+        return dirty;
+    }
+
+    /**
+     * Milliseconds since the oldest write waiting to be flushed
+     *
+     * @return 0 if nothing is waiting
+     */
+    public long getFlushLag()
+    {
+        long lag = 0;
+        for (MapBuilder builder : files.get())
+        {
+            lag = Math.max(lag, builder.getFlushLag());
+        }
+        return lag;
+    }
+}
@@ -0,0 +1,261 @@
+package com.onyx.map;
+
+import com.onyx.map.serializer.ObjectBuffer;
+import com.onyx.map.store.Store;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bloom filter of the keys within a map stored within the same file.  A key that was never added is reported as
+ * missing without reading the map while a key that was added is always reported as possibly contained.
+ *
+ * The bits are kept in memory and each word is written through to the store as soon as a bit within it is set, before
+ * the record of the key is written.  Keys can not be taken out so removed keys only add false positives until the
+ * filter is rebuilt by compaction.
+ *
+ * The filter is made up of the number of bits and hash functions followed by the words.  Keys are hashed by their hash
+ * code the same as the map does so the bits are the same each time the file is opened.
+ */
+public class BloomFilter
+{
+    // Number of bits and number of hash functions
+    public static final int HEADER_SIZE = Long.BYTES * 2;
+
+    // Sized for a false positive rate of about 1 percent
+    public static final double BITS_PER_KEY = 9.6;
+    public static final int HASH_FUNCTIONS = 7;
+
+    // Keeps the words addressable by an int
+    protected static final long MAX_WORDS = Integer.MAX_VALUE - 8;
+
+    protected static final int LOCK_STRIPES = 16;
+
+    protected final Store fileStore;
+    protected final long position;
+    protected final long bitCount;
+    protected final int hashFunctions;
+    protected final AtomicLongArray words;
+
+    // Guards writing a word to the store so a newer value is not overwritten with an older one
+    protected final Object[] locks = new Object[LOCK_STRIPES];
+
+    /**
+     * Constructor
+     *
+     * @param fileStore Store the filter is persisted within
+     * @param position Position of the filter
+     * @param bitCount Number of bits.  A multiple of 64.
+     * @param hashFunctions Number of bits set for each key
+     * @param words Bits of the filter
+     */
+    protected BloomFilter(Store fileStore, long position, long bitCount, int hashFunctions, AtomicLongArray words)
+    {
+        this.fileStore = fileStore;
+        this.position = position;
+        this.bitCount = bitCount;
+        this.hashFunctions = hashFunctions;
+        this.words = words;
+
+        for (int i = 0; i < LOCK_STRIPES; i++)
+        {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Allocate an empty filter within a store
+     *
+     * @param fileStore Store to allocate within
+     * @param expectedKeys Number of keys the filter is sized for
+     * @return The new filter
+     */
+    public static BloomFilter create(Store fileStore, long expectedKeys)
+    {
+        final long wordCount = Math.min(MAX_WORDS, Math.max(1, (long) Math.ceil(Math.max(1, expectedKeys) * BITS_PER_KEY / Long.SIZE)));
+        final int size = HEADER_SIZE + (int) Math.min(Integer.MAX_VALUE - HEADER_SIZE, wordCount * Long.BYTES);
+        final int words = (size - HEADER_SIZE) / Long.BYTES;
+
+        final long position = fileStore.allocate(size);
+
+        // Space that was freed may be reused so every word is written
+        final ByteBuffer buffer = ObjectBuffer.allocate(size);
+        buffer.putLong((long) words * Long.SIZE);
+        buffer.putLong(HASH_FUNCTIONS);
+        buffer.position(size);
+        fileStore.write(new ObjectBuffer(buffer, fileStore.getSerializers()), position);
+
+        return new BloomFilter(fileStore, position, (long) words * Long.SIZE, HASH_FUNCTIONS, new AtomicLongArray(words));
+    }
+
+    /**
+     * Read a filter from a store
+     *
+     * @param fileStore Store the filter is within
+     * @param position Position of the filter
+     * @return The filter
+     */
+    public static BloomFilter read(Store fileStore, long position)
+    {
+        final ObjectBuffer header = fileStore.read(position, HEADER_SIZE);
+        final long bitCount = header.readLong();
+        final int hashFunctions = (int) header.readLong();
+        final int words = (int) (bitCount / Long.SIZE);
+
+        final ObjectBuffer buffer = fileStore.read(position + HEADER_SIZE, words * Long.BYTES);
+        final AtomicLongArray bits = new AtomicLongArray(words);
+        for (int i = 0; i < words; i++)
+        {
+            bits.set(i, buffer.readLong());
+        }
+
+        return new BloomFilter(fileStore, position, bitCount, hashFunctions, bits);
+    }
+
+    /**
+     * Add a key
+     *
+     * @param key
+     */
+    public void add(Object key)
+    {
+        final long hash = mix(key.hashCode());
+        final int first = (int) hash;
+        final int second = (int) (hash >>> 32);
+
+        for (int i = 0; i < hashFunctions; i++)
+        {
+            final long bit = index(first, second, i);
+            final int word = (int) (bit >>> 6);
+            final long mask = 1L << bit;
+
+            long current;
+            do
+            {
+                current = words.get(word);
+                if ((current & mask) != 0)
+                {
+                    break;
+                }
+            } while (!words.compareAndSet(word, current, current | mask));
+
+            if ((current & mask) == 0)
+            {
+                writeWord(word);
+            }
+        }
+    }
+
+    /**
+     * Check whether a key may have been added
+     *
+     * @param key
+     * @return False if the key was never added
+     */
+    public boolean mightContain(Object key)
+    {
+        final long hash = mix(key.hashCode());
+        final int first = (int) hash;
+        final int second = (int) (hash >>> 32);
+
+        for (int i = 0; i < hashFunctions; i++)
+        {
+            final long bit = index(first, second, i);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Remove every key
+     */
+    public void clear()
+    {
+        for (int i = 0; i < words.length(); i++)
+        {
+            if (words.getAndSet(i, 0) != 0)
+            {
+                writeWord(i);
+            }
+        }
+    }
+
+    /**
+     * Position of the filter within the store
+     *
+     * @return
+     */
+    public long getPosition()
+    {
+        return position;
+    }
+
+    /**
+     * Number of bytes the filter occupies within the store
+     *
+     * @return
+     */
+    public int getSize()
+    {
+        return HEADER_SIZE + words.length() * Long.BYTES;
+    }
+
+    /**
+     * Number of bits
+     *
+     * @return
+     */
+    public long getBitCount()
+    {
+        return bitCount;
+    }
+
+    /**
+     * Write the current value of a word
+     *
+     * @param word Index of the word
+     */
+    protected void writeWord(int word)
+    {
+        synchronized (locks[word & (LOCK_STRIPES - 1)])
+        {
+            final ByteBuffer buffer = ObjectBuffer.allocate(Long.BYTES);
+            buffer.putLong(words.get(word));
+            fileStore.write(new ObjectBuffer(buffer, fileStore.getSerializers()), position + HEADER_SIZE + ((long) word * Long.BYTES));
+        }
+    }
+
+    /**
+     * Bit picked by a hash function.  The functions are derived from two hashes.
+     *
+     * @param first
+     * @param second
+     * @param function
+     * @return
+     */
+    protected long index(int first, int second, int function)
+    {
+        final int combined = first + (function * second);
+        return (combined & 0xffffffffL) % bitCount;
+    }
+
+    /**
+     * Spread the bits of a hash code so sequential keys do not set neighbouring bits
+     *
+     * @param hashCode
+     * @return
+     */
+    protected static long mix(int hashCode)
+    {
+        long hash = hashCode * 0x9e3779b97f4a7c15L;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -1,6 +1,7 @@
 package com.onyx.map;
 
 import com.onyx.map.base.AbstractIterableDiskMap;
+import com.onyx.map.base.DefaultLevelReadWriteLock;
 import com.onyx.map.node.BitMapNode;
 import com.onyx.map.node.Header;
 import com.onyx.map.node.RecordReference;
@@ -31,6 +32,20 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         }
     }
 
+    /**
+     * Constructor
+     *
+     * @param fileStore
+     * @param header
+     * @param inMemory
+     * @param lockStripes Stripes within each lock level.  Raise it when many threads write to the same map.
+     */
+    public DefaultDiskMap(Store fileStore, Header header, boolean inMemory, int lockStripes)
+    {
+        this(fileStore, header, inMemory);
+        readWriteLock = new DefaultLevelReadWriteLock(lockStripes);
+    }
+
     @Override
     public int size()
     {
@@ -50,7 +65,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
     @Override
     public boolean isEmpty()
     {
-        return (fileStore.getFileSize() == 0);
+        return (header.recordCount.get() == 0);
     }
 
     /**
@@ -61,20 +76,22 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
      */
     public long getRecID(Object key)
     {
+        if(!mightContainKey(key))
+            return -1;
+
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
-        final int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
 
-        readWriteLock.readLock(hashDigits[1]).lock();
+        readWriteLock.readLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
         try
         {
-            Long ref = keyCache.get(key);
-            if(ref != null)
+            final long ref = getCachedRecId(key);
+            if(ref > 0)
                 return ref;
 
-            final BitMapNode node = this.seek(hash(key), false, hashDigits);
-            if (node != null && node.next[hashDigit] > 0)
+            final BitMapNode node = this.seek(hash, false, hashDigits);
+            if (node != null && node.next[getRecordSlot(node, hashDigits)] > 0)
             {
                 final RecordReference[] references = this.getRecordReference(node, key, hashDigits);
                 if (references != null && references[1] != null)
@@ -85,7 +102,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             return -1;
         } finally
         {
-            readWriteLock.readLock(hashDigits[1]).unlock();
+            readWriteLock.readLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
     }
 
@@ -97,12 +114,14 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
      */
     public V getWithRecID(long recordId)
     {
-        final RecordReference reference = this.getRecordReference(recordId);
-        if(reference != null && reference.position == recordId)
-        {
-            return (V) getRecordValue(reference);
-        }
-        return null;
+        return readShared(() -> {
+            final RecordReference reference = this.getRecordReference(recordId);
+            if(reference != null && reference.position == recordId)
+            {
+                return (V) getRecordValue(reference);
+            }
+            return null;
+        });
     }
 
     /**
@@ -114,12 +133,28 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
      */
     public Map getMapWithRecID(long recordId)
     {
-        final RecordReference reference = this.getRecordReference(recordId);
-        if(reference != null && reference.position == recordId)
-        {
-            return getRecordValueAsDictionary(reference);
-        }
-        return null;
+        return readShared(() -> {
+            final RecordReference reference = this.getRecordReference(recordId);
+            if(reference != null && reference.position == recordId)
+            {
+                return getRecordValueAsDictionary(reference);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Get an attribute of the value with record id
+     *
+     * @param attribute Attribute name to fetch
+     * @param recordId Record reference within storage structure
+     *
+     * @return Attribute value
+     */
+    @Override
+    public Object getAttributeWithRecID(String attribute, long recordId)
+    {
+        return readShared(() -> super.getAttributeWithRecID(attribute, recordId));
     }
 
     @Override
@@ -130,19 +165,21 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             return false;
         }
 
-        if(keyCache.containsKey(key))
+        if(getCachedRecId(key) > 0)
             return true;
 
+        if(!mightContainKey(key))
+            return false;
+
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
-        final int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
 
         try
         {
-            readWriteLock.readLock(hashDigits[1]).lock();
+            readWriteLock.readLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
-            final BitMapNode node = this.seek(hash(key), false, hashDigits);
-            if (node != null && node.next[hashDigit] > 0)
+            final BitMapNode node = this.seek(hash, false, hashDigits);
+            if (node != null && node.next[getRecordSlot(node, hashDigits)] > 0)
             {
                 final RecordReference[] references = this.getRecordReference(node, key, hashDigits);
                 if (references != null && references[1] != null)
@@ -153,7 +190,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             return false;
         } finally
         {
-            readWriteLock.readLock(hashDigits[1]).unlock();
+            readWriteLock.readLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
     }
 
@@ -169,22 +206,25 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         if(key == null)
             return null;
 
-        Long ref = keyCache.get(key);
-        if(ref != null)
+        final long ref = getCachedRecId(key);
+        if(ref > 0)
         {
             return (V)getRecordValue(getRecordReference(ref));
         }
 
+        if(!mightContainKey(key))
+            return null;
+
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
 
         try
         {
 
-            readWriteLock.readLock(hashDigits[1]).lock();
+            readWriteLock.readLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
             final BitMapNode node = this.seek(hash, false, hashDigits);
-            if (node != null && node.next[hashDigits[BitMapNode.RECORD_REFERENCE_INDEX]] > 0)
+            if (node != null && node.next[getRecordSlot(node, hashDigits)] > 0)
             {
                 final RecordReference[] references = this.getRecordReference(node, key, hashDigits);
                 if (references != null && references[1] != null)
@@ -195,7 +235,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             return null;
         } finally
         {
-            readWriteLock.readLock(hashDigits[1]).unlock();
+            readWriteLock.readLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
     }
 
@@ -207,15 +247,13 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
 
-        int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
-
-        readWriteLock.writeLock(hashDigits[1]).lock();
+        readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
         try
         {
             final BitMapNode node = this.seek(hash, true, hashDigits);
 
-            if (node != null && node.next[hashDigit] > 0)
+            if (node != null && node.next[getRecordSlot(node, hashDigits)] > 0)
             {
                 final RecordReference[] references = this.getRecordReference(node, key, hashDigits);
 
@@ -232,7 +270,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             }
         } finally
         {
-            readWriteLock.writeLock(hashDigits[1]).unlock();
+            readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
         return value;
     }
@@ -244,15 +282,13 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
 
-        int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
-
-        readWriteLock.writeLock(hashDigits[1]).lock();
+        readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
         try
         {
 
-            final BitMapNode node = this.seek(hash(key), true, hashDigits);
-            if (node != null && node.next[hashDigit] > 0)
+            final BitMapNode node = this.seek(hash, true, hashDigits);
+            if (node != null && node.next[getRecordSlot(node, hashDigits)] > 0)
             {
                 final RecordReference[] references = this.getRecordReference(node, key, hashDigits);
                 if (references != null && references[1] != null)
@@ -266,7 +302,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             return null;
         } finally
         {
-            readWriteLock.writeLock(hashDigits[1]).unlock();
+            readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
     }
 
@@ -282,12 +318,20 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
 
         try
         {
+            markChanged(CLEARED);
+
             header.firstNode = 0;
             header.recordCount.set(0);
             updateHeaderRecordCount();
 
             fileStore.write(header, header.position);
 
+            clearCaches();
+
+            final BloomFilter filter = bloomFilter;
+            if(filter != null)
+                filter.clear();
+
         } finally
         {
             readWriteLock.writeLock().unlock();
@@ -344,7 +388,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
 
-        readWriteLock.writeLock(hashDigits[1]).lock();
+        readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
         try
         {
@@ -355,7 +399,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             return null;
         } finally
         {
-            readWriteLock.writeLock(hashDigits[1]).unlock();
+            readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
     }
 
@@ -373,7 +417,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
 
-        readWriteLock.writeLock(hashDigits[1]).lock();
+        readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
         try
         {
@@ -386,7 +430,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             return false;
         } finally
         {
-            readWriteLock.writeLock(hashDigits[1]).unlock();
+            readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
     }
 
@@ -404,7 +448,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
 
-        readWriteLock.writeLock(hashDigits[1]).lock();
+        readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
         try
         {
@@ -417,7 +461,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             return false;
         } finally
         {
-            readWriteLock.writeLock(hashDigits[1]).unlock();
+            readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
     }
 
@@ -449,16 +493,15 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
 
-        int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
+        V value = null;
 
-        readWriteLock.writeLock(hashDigits[1]).lock();
+        readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
         try
         {
-            V value = null;
             final BitMapNode node = this.seek(hash, true, hashDigits);
 
-            if (node != null && node.next[hashDigit] > 0)
+            if (node != null && node.next[getRecordSlot(node, hashDigits)] > 0)
             {
                 final RecordReference[] references = this.getRecordReference(node, key, hashDigits);
 
@@ -477,9 +520,9 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             }
         } finally
         {
-            readWriteLock.writeLock(hashDigits[1]).unlock();
+            readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
-        return null;
+        return value;
     }
 
     /**
@@ -496,16 +539,14 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
 
-        int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
-
-        readWriteLock.writeLock(hashDigits[1]).lock();
+        readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
         try
         {
             V value = null;
             final BitMapNode node = this.seek(hash, true, hashDigits);
 
-            if (node != null && node.next[hashDigit] > 0)
+            if (node != null && node.next[getRecordSlot(node, hashDigits)] > 0)
             {
                 final RecordReference[] references = this.getRecordReference(node, key, hashDigits);
 
@@ -521,7 +562,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             }
         } finally
         {
-            readWriteLock.writeLock(hashDigits[1]).unlock();
+            readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
         return null;
     }
@@ -540,11 +581,9 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
 
-        int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
-
         V value = null;
 
-        readWriteLock.writeLock(hashDigits[1]).lock();
+        readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
         try
         {
@@ -552,7 +591,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
 
             final BitMapNode node = this.seek(hash, true, hashDigits);
 
-            if (node != null && node.next[hashDigit] > 0)
+            if (node != null && node.next[getRecordSlot(node, hashDigits)] > 0)
             {
                 final RecordReference[] references = this.getRecordReference(node, key, hashDigits);
 
@@ -572,7 +611,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             }
         } finally
         {
-            readWriteLock.writeLock(hashDigits[1]).unlock();
+            readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
         return value;
     }
@@ -592,15 +631,13 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
         int hash = hash(key);
         final int[] hashDigits = getHashDigits(hash);
 
-        int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
-
-        readWriteLock.writeLock(hashDigits[1]).lock();
+        readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).lock();
 
         try
         {
             final BitMapNode node = this.seek(hash, true, hashDigits);
 
-            if (node != null && node.next[hashDigit] > 0)
+            if (node != null && node.next[getRecordSlot(node, hashDigits)] > 0)
             {
                 final RecordReference[] references = this.getRecordReference(node, key, hashDigits);
 
@@ -620,7 +657,7 @@ public class DefaultDiskMap<K, V> extends AbstractIterableDiskMap<K, V> implemen
             }
         } finally
         {
-            readWriteLock.writeLock(hashDigits[1]).unlock();
+            readWriteLock.writeLock(getLockLevel(hashDigits), getLockHash(hash)).unlock();
         }
         return value;
     }
@@ -1,5 +1,9 @@
 package com.onyx.map;
 
+import com.onyx.map.base.AbstractBitMap;
+import com.onyx.map.base.AbstractCachedBitMap;
+import com.onyx.map.base.Compactable;
+import com.onyx.map.base.DefaultLevelReadWriteLock;
 import com.onyx.map.node.Header;
 import com.onyx.map.serializer.ObjectBuffer;
 import com.onyx.map.serializer.Serializers;
@@ -10,6 +14,9 @@ import gnu.trove.THashMap;
 import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -18,11 +25,44 @@ import java.util.Map;
 public class DefaultMapBuilder implements MapBuilder
 {
 
+    // Reserved map containing the kind of each structure that is not a plain hash map
+    protected static final String STRUCTURES_MAP_NAME = "__structures__";
+
+    // Reserved map containing the position of the bloom filter of each map that has one
+    protected static final String BLOOM_FILTERS_MAP_NAME = "__bloomFilters__";
+
     protected Store storage = null;
 
+    protected String filePath = null;
+    protected StoreType storeType = null;
+    protected SchemaContext context = null;
+
+    // Size of each region of the file mapped into memory
+    protected int sliceSize = MemoryMappedStore.SLICE_SIZE;
+
+    // Stripes within each lock level of the maps opened by this builder
+    protected int lockStripes = DefaultLevelReadWriteLock.DEFAULT_STRIPES;
+
+    // Keys the bloom filter of each map is sized for.  0 does not keep bloom filters.
+    protected long bloomFilterKeys = 0;
+
+    // Bytes that may wait to be flushed before writers have to flush them
+    protected long maxDirtyBytes = FileChannelStore.DEFAULT_MAX_DIRTY_BYTES;
+
+    // Only one compaction can run at a time
+    protected final Object compactionLock = new Object();
+
+    protected PostingLists postingLists = null;
+
+    // Structures blocked while a compacted file is swapped in
+    protected final List<Object> paused = new ArrayList<>();
+
     // Contains all initialized maps
     protected Map<String, Map> maps = new THashMap();
 
+    // Contains all initialized ordered sets
+    protected Map<String, OrderedDiskSet> orderedSets = new THashMap();
+
     /**
      * Constructor
      *
@@ -70,6 +110,18 @@ public class DefaultMapBuilder implements MapBuilder
      * @param filePath
      */
     public DefaultMapBuilder(String fileSystemPath, String filePath, StoreType type, SchemaContext context)
+    {
+        this(fileSystemPath, filePath, type, context, MemoryMappedStore.SLICE_SIZE);
+    }
+
+    /**
+     * Constructor with the size of each region of the file mapped into memory.  A large file needs far fewer mappings
+     * with a larger slice size, for example 64MB to 1GB.
+     *
+     * @param filePath
+     * @param sliceSize
+     */
+    public DefaultMapBuilder(String fileSystemPath, String filePath, StoreType type, SchemaContext context, int sliceSize)
     {
         String path = null;
 
@@ -78,21 +130,51 @@ public class DefaultMapBuilder implements MapBuilder
         else
             path = fileSystemPath + File.separator + filePath;
 
-        if(type == StoreType.FILE || !isMemmapSupported())
+        this.filePath = path;
+        this.storeType = (type == StoreType.FILE || !isMemmapSupported()) ? StoreType.FILE : type;
+        this.context = context;
+        this.sliceSize = sliceSize;
+        this.storage = createStore(path);
+
+        if(this.storage != null)
+            this.storage.init();
+    }
+
+    /**
+     * Open the store for a file
+     *
+     * @param path
+     * @return
+     */
+    protected Store createStore(String path)
+    {
+        if(storeType == StoreType.FILE)
+        {
+            return new FileChannelStore(path, this, context);
+        }
+        else if(storeType == StoreType.MEMORY_MAPPED_FILE)
         {
-            this.storage = new FileChannelStore(path, this, context);
+            return new MemoryMappedStore(path, this, context, sliceSize);
         }
-        else if(type == StoreType.MEMORY_MAPPED_FILE)
+        else if(storeType == StoreType.IN_MEMORY)
         {
-            this.storage = new MemoryMappedStore(path, this, context);
+            return new InMemoryStore(this, context, sliceSize);
         }
-        else if(type == StoreType.IN_MEMORY)
+        else if(storeType == StoreType.IN_MEMORY_OFF_HEAP)
         {
-            this.storage = new InMemoryStore(this, context);
+            return new OffHeapStore(this, context, sliceSize);
         }
+        return null;
+    }
 
-        if(this.storage != null)
-            this.storage.init();
+    /**
+     * Whether a structure with the name exists.  Unlike getHashMap it is not created if it does not.
+     *
+     * @param name
+     * @return
+     */
+    public synchronized boolean exists(String name) {
+        return maps.containsKey(name) || orderedSets.containsKey(name) || findHeader(name) != null;
     }
 
     /**
@@ -107,6 +189,183 @@ public class DefaultMapBuilder implements MapBuilder
             return maps.get(name);
         }
 
+        // Create a new disk map and return it
+        final DiskMap retVal = newDiskMap(storage, getHeader(name), getStructureType(name));
+        ((AbstractCachedBitMap) retVal).setCacheName(name);
+        attachBloomFilter(name, retVal);
+        maps.put(name, retVal);
+        return retVal;
+    }
+
+    /**
+     * Method get returns an instance of a hashmap and records what it contains so it can be compacted
+     *
+     * @param name
+     * @param type Kind of hash map
+     * @return
+     */
+    public synchronized Map getHashMap(String name, StructureType type) {
+        // The layout of the bitmap can not change once a map has records
+        if (type == StructureType.RADIX_HASH_MAP && getStructureType(name) != type && getHeader(name).firstNode > 0) {
+            return getHashMap(name);
+        }
+
+        registerStructure(name, type);
+        return getHashMap(name);
+    }
+
+    /**
+     * Method returns an instance of a set that keeps its keys in order
+     *
+     * @param name
+     * @return
+     */
+    public synchronized OrderedDiskSet getOrderedSet(String name) {
+        // If it is already initialized, return it
+        if (orderedSets.containsKey(name)) {
+            return orderedSets.get(name);
+        }
+
+        registerStructure(name, StructureType.ORDERED_SET);
+
+        final OrderedDiskSet retVal = new DefaultOrderedDiskSet(storage, getHeader(name));
+        orderedSets.put(name, retVal);
+        return retVal;
+    }
+
+    /**
+     * Posting lists stored within the same file
+     *
+     * @return
+     */
+    public synchronized PostingLists getPostingLists() {
+        if (postingLists == null) {
+            postingLists = new PostingLists(storage);
+        }
+        return postingLists;
+    }
+
+    /**
+     * Record the kind of structure.  Plain hash maps are not recorded.
+     *
+     * @param name
+     * @param type
+     */
+    protected void registerStructure(String name, StructureType type) {
+        if (type == StructureType.HASH_MAP) {
+            return;
+        }
+
+        final Map<String, Integer> structures = getHashMap(STRUCTURES_MAP_NAME);
+        if (!Integer.valueOf(type.ordinal()).equals(structures.get(name))) {
+            structures.put(name, type.ordinal());
+        }
+    }
+
+    /**
+     * Get the recorded kind of a structure
+     *
+     * @param name
+     * @return
+     */
+    protected StructureType getStructureType(String name) {
+        if (name.equals(STRUCTURES_MAP_NAME)) {
+            return StructureType.HASH_MAP;
+        }
+
+        final Integer type = (Integer) getHashMap(STRUCTURES_MAP_NAME).get(name);
+        return (type == null) ? StructureType.HASH_MAP : StructureType.values()[type];
+    }
+
+    /**
+     * Get the names and kinds of all structures within the file other than the reserved ones
+     *
+     * @return
+     */
+    protected synchronized Map<String, StructureType> getStructures() {
+        final Map<String, StructureType> structures = new LinkedHashMap<>();
+        final Map<String, Integer> types = getHashMap(STRUCTURES_MAP_NAME);
+
+        Header header = (Header) storage.read(8, Header.HEADER_SIZE, Header.class);
+        while (header != null && header.idPosition > 0) {
+            final String name = (String) storage.read(header.idPosition, header.idSize, String.class);
+            if (name != null && !name.startsWith("__serializers__") && !name.equals(STRUCTURES_MAP_NAME) && !name.equals(BLOOM_FILTERS_MAP_NAME)) {
+                final Integer type = types.get(name);
+                structures.put(name, (type == null) ? StructureType.HASH_MAP : StructureType.values()[type]);
+            }
+
+            header = (header.next > 0) ? (Header) storage.read(header.next, Header.HEADER_SIZE, Header.class) : null;
+        }
+
+        return structures;
+    }
+
+    /**
+     * Open the bloom filter of a map or build one if the map does not have one yet.  When bloom filters are not kept
+     * the filter of the map is dropped since it would no longer be maintained.
+     *
+     * @param name
+     * @param map
+     */
+    protected void attachBloomFilter(String name, DiskMap map) {
+        if (name.startsWith("__")) {
+            return;
+        }
+
+        if (bloomFilterKeys <= 0) {
+            ((AbstractBitMap) map).setBloomFilter(null);
+            if (findHeader(BLOOM_FILTERS_MAP_NAME) != null) {
+                final Map<String, Long> filters = getHashMap(BLOOM_FILTERS_MAP_NAME);
+                final Long position = filters.remove(name);
+                if (position != null) {
+                    storage.deallocate(position, BloomFilter.read(storage, position).getSize());
+                }
+            }
+            return;
+        }
+
+        final Map<String, Long> filters = getHashMap(BLOOM_FILTERS_MAP_NAME);
+        final Long position = filters.get(name);
+        if (position != null) {
+            ((AbstractBitMap) map).setBloomFilter(BloomFilter.read(storage, position));
+            return;
+        }
+
+        // The position is only recorded once every key is within the filter
+        final BloomFilter filter = BloomFilter.create(storage, Math.max(bloomFilterKeys, map.size()));
+        for (Object key : map.keySet()) {
+            filter.add(key);
+        }
+        filters.put(name, filter.getPosition());
+        ((AbstractBitMap) map).setBloomFilter(filter);
+    }
+
+    /**
+     * Find the header for a named structure without creating it
+     *
+     * @param name
+     * @return The header or null if there is no structure with the name
+     */
+    protected Header findHeader(String name) {
+        Header header = (Header) storage.read(8, Header.HEADER_SIZE, Header.class);
+        while (header != null && header.idPosition > 0) {
+            final String targetName = (String) storage.read(header.idPosition, header.idSize, String.class);
+            if (name.equals(targetName)) {
+                return header;
+            }
+
+            header = (header.next > 0) ? (Header) storage.read(header.next, Header.HEADER_SIZE, Header.class) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Find the header for a named structure.  If it does not exist, it is created
+     *
+     * @param name
+     * @return
+     */
+    protected Header getHeader(String name) {
         // Get the first header.  All header records are stored in a linked list.  They cannot be deleted.
         // Starts at eight becuase the first 8 bytes contains the file size
         Header header = (Header) storage.read(8, Header.HEADER_SIZE, Header.class);
@@ -119,10 +378,8 @@ public class DefaultMapBuilder implements MapBuilder
                     // Get the id, which is a string
                     String targetName = (String) storage.read(header.idPosition, header.idSize, String.class);
                     if (targetName != null && targetName.equals(name)) {
-                        // We found a match, store it in the map cache and return it
-                        final DiskMap retVal = newDiskMap(storage, header);
-                        maps.put(name, retVal);
-                        return retVal;
+                        // We found a match
+                        return header;
                     }
 
                     // If there is a next header, read it and continue
@@ -158,10 +415,7 @@ public class DefaultMapBuilder implements MapBuilder
         storage.write(buffer, newHeader.idPosition);
         storage.write(newHeader, newHeader.position); //Write the new header
 
-        // Create a new disk map and return it
-        final DiskMap retVal = newDiskMap(storage, newHeader);
-        maps.put(name, retVal);
-        return retVal;
+        return newHeader;
     }
 
     /**
@@ -181,14 +435,144 @@ public class DefaultMapBuilder implements MapBuilder
 
     public void close()
     {
+        // Cached records of the structures would otherwise hold their share of the shared cache until evicted
+        maps.values().forEach(map -> ((AbstractCachedBitMap) map).clearCaches());
+        orderedSets.values().forEach(set -> ((DefaultOrderedDiskSet) set).clearCaches());
+
         storage.close();
     }
 
+    /**
+     * Copy the live structures into a new file and swap it with the current one.  Reads and writes continue while the
+     * structures are copied.
+     *
+     * @param bytesPerSecond Maximum rate to copy at.  0 copies as fast as possible.
+     * @return Bytes reclaimed
+     * @throws IOException Failed to swap files
+     * @see MapCompaction
+     */
+    public long compact(long bytesPerSecond) throws IOException
+    {
+        if (storeType == StoreType.IN_MEMORY || storeType == StoreType.IN_MEMORY_OFF_HEAP)
+        {
+            return 0;
+        }
+
+        synchronized (compactionLock)
+        {
+            return new MapCompaction(this, bytesPerSecond).run();
+        }
+    }
+
+    /**
+     * Block reads and writes to every open structure
+     */
+    protected void pause()
+    {
+        paused.addAll(maps.values());
+        paused.addAll(orderedSets.values());
+        paused.forEach(structure -> ((Compactable) structure).pause());
+
+        if (postingLists != null)
+        {
+            postingLists.pause();
+            paused.add(postingLists);
+        }
+    }
+
+    /**
+     * Resume reads and writes to the structures blocked by pause
+     */
+    protected void resume()
+    {
+        paused.forEach(structure -> {
+            if (structure instanceof PostingLists)
+            {
+                ((PostingLists) structure).resume();
+            }
+            else
+            {
+                ((Compactable) structure).resume();
+            }
+        });
+        paused.clear();
+    }
+
+    /**
+     * Open the file again once it has been replaced and move every open structure over to it.  Called while the
+     * structures are paused, so every read of the previous store has drained and it is closed once they have moved.
+     */
+    protected void reopen()
+    {
+        final Store previous = storage;
+        storage = createStore(filePath);
+        storage.setMaxDirtyBytes(maxDirtyBytes);
+
+        maps.forEach((name, map) -> ((Compactable) map).relocate(storage, getHeader(name)));
+        orderedSets.forEach((name, set) -> ((Compactable) set).relocate(storage, getHeader(name)));
+        if (postingLists != null)
+        {
+            postingLists.relocate(storage);
+        }
+
+        // Filters are rebuilt within the new file so they are opened again once every map has moved
+        for (String name : new ArrayList<>(maps.keySet()))
+        {
+            attachBloomFilter(name, (DiskMap) maps.get(name));
+        }
+
+        storage.init();
+
+        previous.close();
+    }
+
     public void commit()
     {
         storage.commit();
     }
 
+    /**
+     * Flush every write and force the file to the storage device
+     *
+     * @throws IOException Failed to force the file
+     */
+    public void sync() throws IOException
+    {
+        storage.sync();
+    }
+
+    /**
+     * Flush the oldest writes to the file that have not been flushed yet
+     *
+     * @param maxBytes Bytes to flush
+     * @return Bytes flushed
+     */
+    public long flush(long maxBytes)
+    {
+        return storage.flush(maxBytes);
+    }
+
+    public long getDirtyBytes()
+    {
+        return storage.getDirtyBytes();
+    }
+
+    public long getFlushLag()
+    {
+        return storage.getFlushLag();
+    }
+
+    /**
+     * Set the bytes that may wait to be flushed.  Once more are waiting writers flush the oldest themselves.
+     *
+     * @param maxDirtyBytes
+     */
+    public void setMaxDirtyBytes(long maxDirtyBytes)
+    {
+        this.maxDirtyBytes = maxDirtyBytes;
+        storage.setMaxDirtyBytes(maxDirtyBytes);
+    }
+
     /**
      * Check if large files can be mapped into memory.
      * For example 32bit JVM can only address 2GB and large files can not be mapped,
@@ -220,11 +604,36 @@ public class DefaultMapBuilder implements MapBuilder
         return this.storage.getSerializers();
     }
 
-    protected DiskMap newDiskMap(Store store, Header header)
+    /**
+     * Set the number of lock stripes within each level.  Only applies to maps opened afterwards.
+     *
+     * @param lockStripes Stripes per level
+     */
+    public void setLockStripes(int lockStripes)
     {
-        if(store instanceof InMemoryStore)
-            return new DefaultDiskMap(store, header, true);
+        this.lockStripes = lockStripes;
+    }
+
+    /**
+     * Keep a bloom filter for each map so looking up a key that is not within the map does not have to search it.
+     * Only applies to maps opened afterwards.
+     *
+     * @param bloomFilterKeys Keys each filter is sized for.  Filters of maps that already hold more keys are sized for
+     *                        those.  0 does not keep filters.
+     */
+    public void setBloomFilterKeys(long bloomFilterKeys)
+    {
+        this.bloomFilterKeys = bloomFilterKeys;
+    }
+
+    protected DiskMap newDiskMap(Store store, Header header, StructureType type)
+    {
+        // Off heap records are cached as file records are, in a cache that is released when the heap runs low
+        final boolean inMemory = store instanceof InMemoryStore && !(store instanceof OffHeapStore);
+
+        if (type == StructureType.RADIX_HASH_MAP)
+            return new RadixDiskMap(store, header, inMemory, lockStripes);
         else
-            return new DefaultDiskMap(store, header);
+            return new DefaultDiskMap(store, header, inMemory, lockStripes);
     }
 }
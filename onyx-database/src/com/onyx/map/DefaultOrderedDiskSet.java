@@ -0,0 +1,654 @@
+package com.onyx.map;
+
+import com.onyx.map.base.CacheMap;
+import com.onyx.map.base.Compactable;
+import com.onyx.map.node.BTreeNode;
+import com.onyx.map.node.Header;
+import com.onyx.map.serializer.ObjectBuffer;
+import com.onyx.map.store.Store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * B+ tree implementation of an ordered set.  The root node is referenced by the header's first node.
+ *
+ * Nodes are split once they exceed the maximum number of keys.  Empty nodes are removed on delete but the tree is not
+ * re-balanced since index values are rarely removed in bulk.
+ */
+public class DefaultOrderedDiskSet<K> implements OrderedDiskSet<K>, Compactable
+{
+    // Maximum number of keys per node before it is split
+    public static final int MAX_KEYS = 64;
+
+    // Marker indicating the key already exists
+    protected static final Split DUPLICATE = new Split(null, null);
+
+    protected Store fileStore = null;
+    protected Header header = null;
+
+    protected final ReadWriteLock readWriteLock = new ReentrantReadWriteLock(true);
+
+    // Readers fill the cache while only holding the read lock.  CacheMap is backed by a ConcurrentHashMap.
+    protected final Map<Long, BTreeNode> nodeCache = new CacheMap();
+
+    // Keys changed while the set is being compacted
+    protected volatile Set<Object> changedKeys = null;
+
+    /**
+     * Constructor
+     *
+     * @param fileStore
+     * @param header
+     */
+    public DefaultOrderedDiskSet(Store fileStore, Header header)
+    {
+        this.fileStore = fileStore;
+        this.header = header;
+    }
+
+    /**
+     * Add a key to the set
+     *
+     * @param key
+     * @return true if the key was added
+     */
+    @Override
+    public boolean add(K key)
+    {
+        readWriteLock.writeLock().lock();
+
+        try
+        {
+            final Set<Object> changed = changedKeys;
+            if (changed != null)
+            {
+                changed.add(key);
+            }
+
+            if (header.firstNode == 0)
+            {
+                final BTreeNode root = new BTreeNode();
+                root.keys.add(key);
+                writeNode(root);
+                updateHeaderFirstNode(root.position);
+                incrementRecordCount(1);
+                return true;
+            }
+
+            BTreeNode root = getNode(header.firstNode);
+            final long rootPosition = root.position;
+
+            final Split split = insert(root, key);
+            if (split == DUPLICATE)
+            {
+                return false;
+            }
+
+            // The root was split, grow the tree
+            if (split != null)
+            {
+                final BTreeNode newRoot = new BTreeNode();
+                newRoot.leaf = false;
+                newRoot.keys.add(split.key);
+                newRoot.children.add(root.position);
+                newRoot.children.add(split.right.position);
+                writeNode(newRoot);
+                root = newRoot;
+            }
+
+            if (root.position != rootPosition)
+            {
+                updateHeaderFirstNode(root.position);
+            }
+
+            incrementRecordCount(1);
+            return true;
+        } finally
+        {
+            readWriteLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a key from the set
+     *
+     * @param key
+     * @return true if the key was removed
+     */
+    @Override
+    public boolean remove(K key)
+    {
+        readWriteLock.writeLock().lock();
+
+        try
+        {
+            final Set<Object> changed = changedKeys;
+            if (changed != null)
+            {
+                changed.add(key);
+            }
+
+            if (header.firstNode == 0)
+            {
+                return false;
+            }
+
+            BTreeNode root = getNode(header.firstNode);
+            final long rootPosition = root.position;
+
+            if (!delete(root, key))
+            {
+                return false;
+            }
+
+            // Collapse the root while it only points to a single child
+            while (!root.leaf && root.children.size() == 1)
+            {
+                final BTreeNode child = getNode(root.children.get(0));
+                deallocateNode(root);
+                root = child;
+            }
+
+            if (!root.leaf && root.children.size() == 0)
+            {
+                deallocateNode(root);
+                updateHeaderFirstNode(0);
+            }
+            else if (root.position != rootPosition)
+            {
+                updateHeaderFirstNode(root.position);
+            }
+
+            incrementRecordCount(-1);
+            return true;
+        } finally
+        {
+            readWriteLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns true if the set contains the key
+     *
+     * @param key
+     * @return
+     */
+    @Override
+    public boolean contains(K key)
+    {
+        readWriteLock.readLock().lock();
+
+        try
+        {
+            if (header.firstNode == 0)
+            {
+                return false;
+            }
+
+            BTreeNode node = getNode(header.firstNode);
+            while (!node.leaf)
+            {
+                node = getNode(node.children.get(childIndex(search(node, key))));
+            }
+            return search(node, key) >= 0;
+        } finally
+        {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get all of the keys within a range in ascending order
+     *
+     * @param fromKey Lower bound
+     * @param fromInclusive Whether the lower bound is included
+     * @param toKey Upper bound
+     * @param toInclusive Whether the upper bound is included
+     * @return
+     */
+    @Override
+    public List<K> range(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive)
+    {
+        final List<K> results = new ArrayList<>();
+
+        readWriteLock.readLock().lock();
+
+        try
+        {
+            if (header.firstNode > 0)
+            {
+                collect(getNode(header.firstNode), fromKey, fromInclusive, toKey, toInclusive, results);
+            }
+        } finally
+        {
+            readWriteLock.readLock().unlock();
+        }
+
+        return results;
+    }
+
+    /**
+     * Number of keys within the set
+     *
+     * @return
+     */
+    @Override
+    public long longSize()
+    {
+        return header.recordCount.get();
+    }
+
+    /**
+     * Get Storage mechanism for the set
+     *
+     * @return
+     */
+    @Override
+    public Store getFileStore()
+    {
+        return fileStore;
+    }
+
+    /**
+     * Record the keys changed from now on
+     *
+     * @param changedKeys Set to record changed keys in or null to stop tracking
+     */
+    @Override
+    public void trackChanges(Set<Object> changedKeys)
+    {
+        this.changedKeys = changedKeys;
+    }
+
+    /**
+     * Block reads and writes
+     */
+    @Override
+    public void pause()
+    {
+        readWriteLock.writeLock().lock();
+    }
+
+    /**
+     * Resume reads and writes
+     */
+    @Override
+    public void resume()
+    {
+        readWriteLock.writeLock().unlock();
+    }
+
+    /**
+     * Move the set over to a new store and discard the cached nodes
+     *
+     * @param store New store
+     * @param header Header of the set within the new store
+     */
+    @Override
+    public void relocate(Store store, Header header)
+    {
+        this.fileStore = store;
+        this.header = header;
+        clearCaches();
+    }
+
+    /**
+     * Discard the cached nodes so they no longer count against the shared cache
+     */
+    public void clearCaches()
+    {
+        nodeCache.clear();
+    }
+
+    /**
+     * Compare two keys.  Numbers of different types are compared by their value so that an index on an int can be
+     * searched with a long.
+     *
+     * @param key
+     * @param key2
+     * @return
+     */
+    public static int compare(Object key, Object key2)
+    {
+        if (key instanceof Number && key2 instanceof Number && key.getClass() != key2.getClass())
+        {
+            return Double.compare(((Number) key).doubleValue(), ((Number) key2).doubleValue());
+        }
+        return ((Comparable) key).compareTo(key2);
+    }
+
+    /**
+     * Insert a key into a sub tree
+     *
+     * @param node Root of the sub tree
+     * @param key Key to insert
+     * @return Split information if the node was split, DUPLICATE if the key already exists, otherwise null
+     */
+    protected Split insert(BTreeNode node, Object key)
+    {
+        final int index = search(node, key);
+
+        if (node.leaf)
+        {
+            if (index >= 0)
+            {
+                return DUPLICATE;
+            }
+            node.keys.add(-(index + 1), key);
+            return writeAndSplit(node);
+        }
+
+        final int childIndex = childIndex(index);
+        final BTreeNode child = getNode(node.children.get(childIndex));
+        final long childPosition = child.position;
+
+        final Split childSplit = insert(child, key);
+        if (childSplit == DUPLICATE)
+        {
+            return DUPLICATE;
+        }
+
+        // Nothing changed within this node
+        if (childSplit == null && child.position == childPosition)
+        {
+            return null;
+        }
+
+        node.children.set(childIndex, child.position);
+
+        if (childSplit != null)
+        {
+            node.keys.add(childIndex, childSplit.key);
+            node.children.add(childIndex + 1, childSplit.right.position);
+        }
+
+        return writeAndSplit(node);
+    }
+
+    /**
+     * Delete a key from a sub tree
+     *
+     * @param node Root of the sub tree
+     * @param key Key to delete
+     * @return Whether the key was removed
+     */
+    protected boolean delete(BTreeNode node, Object key)
+    {
+        final int index = search(node, key);
+
+        if (node.leaf)
+        {
+            if (index < 0)
+            {
+                return false;
+            }
+            node.keys.remove(index);
+            writeNode(node);
+            return true;
+        }
+
+        final int childIndex = childIndex(index);
+        final BTreeNode child = getNode(node.children.get(childIndex));
+        final long childPosition = child.position;
+
+        if (!delete(child, key))
+        {
+            return false;
+        }
+
+        if ((child.leaf && child.keys.size() == 0) || (!child.leaf && child.children.size() == 0))
+        {
+            // Remove the empty child along with its separator
+            node.children.remove(childIndex);
+            if (node.keys.size() > 0)
+            {
+                node.keys.remove((childIndex == 0) ? 0 : childIndex - 1);
+            }
+            deallocateNode(child);
+            writeNode(node);
+        }
+        else if (child.position != childPosition)
+        {
+            node.children.set(childIndex, child.position);
+            writeNode(node);
+        }
+
+        return true;
+    }
+
+    /**
+     * Collect the keys within range for a sub tree
+     *
+     * @param node
+     * @param fromKey
+     * @param fromInclusive
+     * @param toKey
+     * @param toInclusive
+     * @param results
+     */
+    protected void collect(BTreeNode node, Object fromKey, boolean fromInclusive, Object toKey, boolean toInclusive, List results)
+    {
+        if (node.leaf)
+        {
+            int start = 0;
+            if (fromKey != null)
+            {
+                final int index = search(node, fromKey);
+                start = (index >= 0) ? (fromInclusive ? index : index + 1) : -(index + 1);
+            }
+
+            for (int i = start; i < node.keys.size(); i++)
+            {
+                final Object key = node.keys.get(i);
+                if (toKey != null)
+                {
+                    final int comparison = compare(key, toKey);
+                    if (comparison > 0 || (comparison == 0 && !toInclusive))
+                    {
+                        break;
+                    }
+                }
+                results.add(key);
+            }
+            return;
+        }
+
+        final int first = (fromKey == null) ? 0 : childIndex(search(node, fromKey));
+        final int last = (toKey == null) ? node.children.size() - 1 : childIndex(search(node, toKey));
+
+        for (int i = first; i <= last; i++)
+        {
+            collect(getNode(node.children.get(i)), fromKey, fromInclusive, toKey, toInclusive, results);
+        }
+    }
+
+    /**
+     * Write a node and split it if it has exceeded the maximum number of keys
+     *
+     * @param node
+     * @return Split information if the node was split, otherwise null
+     */
+    protected Split writeAndSplit(BTreeNode node)
+    {
+        if (node.keys.size() <= MAX_KEYS)
+        {
+            writeNode(node);
+            return null;
+        }
+
+        final int size = node.keys.size();
+        final int middle = size / 2;
+        final BTreeNode right = new BTreeNode();
+        right.leaf = node.leaf;
+
+        final Object promoted;
+
+        if (node.leaf)
+        {
+            right.keys = new ArrayList<>(node.keys.subList(middle, size));
+            node.keys = new ArrayList<>(node.keys.subList(0, middle));
+            promoted = right.keys.get(0);
+        }
+        else
+        {
+            promoted = node.keys.get(middle);
+            right.keys = new ArrayList<>(node.keys.subList(middle + 1, size));
+            right.children = new ArrayList<>(node.children.subList(middle + 1, node.children.size()));
+            node.keys = new ArrayList<>(node.keys.subList(0, middle));
+            node.children = new ArrayList<>(node.children.subList(0, middle + 1));
+        }
+
+        writeNode(node);
+        writeNode(right);
+
+        return new Split(promoted, right);
+    }
+
+    /**
+     * Binary search for a key within a node
+     *
+     * @param node
+     * @param key
+     * @return index of the key, or (-(insertion point) - 1) if it does not exist
+     */
+    protected int search(BTreeNode node, Object key)
+    {
+        return Collections.binarySearch(node.keys, key, DefaultOrderedDiskSet::compare);
+    }
+
+    /**
+     * Child that contains the key based on the node search result.  Keys equal to a separator are located in the right
+     * child.
+     *
+     * @param searchIndex
+     * @return
+     */
+    protected static int childIndex(int searchIndex)
+    {
+        return (searchIndex >= 0) ? searchIndex + 1 : -(searchIndex + 1);
+    }
+
+    /**
+     * Get a node from the cache or the store
+     *
+     * @param position
+     * @return
+     */
+    protected BTreeNode getNode(long position)
+    {
+        BTreeNode node = nodeCache.get(position);
+        if (node == null)
+        {
+            final ObjectBuffer buffer = fileStore.read(position, BTreeNode.NODE_HEADER_SIZE);
+            buffer.readLong();
+            final int capacity = buffer.readInt();
+
+            node = (BTreeNode) fileStore.read(position, capacity, BTreeNode.class);
+            nodeCache.put(position, node);
+        }
+        return node;
+    }
+
+    /**
+     * Write a node.  If the node no longer fits within its allocated space it is moved and the caller is responsible
+     * for updating the reference to it.
+     *
+     * @param node
+     */
+    protected void writeNode(BTreeNode node)
+    {
+        ObjectBuffer buffer = serialize(node);
+
+        if (node.position == 0 || buffer.getSize() > node.capacity)
+        {
+            if (node.position > 0)
+            {
+                deallocateNode(node);
+            }
+
+            // Leave room to grow so the node is not moved on every insert
+            node.capacity = buffer.getSize() + (buffer.getSize() / 2);
+            node.position = fileStore.allocate(node.capacity);
+            buffer = serialize(node);
+        }
+
+        fileStore.write(buffer, node.position);
+        nodeCache.put(node.position, node);
+    }
+
+    /**
+     * Release the space used by a node
+     *
+     * @param node
+     */
+    protected void deallocateNode(BTreeNode node)
+    {
+        nodeCache.remove(node.position);
+        fileStore.deallocate(node.position, node.capacity);
+    }
+
+    /**
+     * Serialize a node
+     *
+     * @param node
+     * @return
+     */
+    protected ObjectBuffer serialize(BTreeNode node)
+    {
+        final ObjectBuffer buffer = new ObjectBuffer(fileStore.getSerializers());
+        try
+        {
+            node.writeObject(buffer);
+        } catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        return buffer;
+    }
+
+    /**
+     * Only update the first position for a header
+     *
+     * @param firstNode
+     */
+    protected void updateHeaderFirstNode(long firstNode)
+    {
+        header.firstNode = firstNode;
+        final ByteBuffer buffer = ObjectBuffer.allocate(Long.BYTES);
+        buffer.putLong(firstNode);
+        final ObjectBuffer objectBuffer = new ObjectBuffer(buffer, fileStore.getSerializers());
+        fileStore.write(objectBuffer, header.position);
+    }
+
+    /**
+     * This method will only update the record count rather than the entire header
+     *
+     * @param delta
+     */
+    protected void incrementRecordCount(long delta)
+    {
+        final ByteBuffer buffer = ObjectBuffer.allocate(Long.BYTES);
+        buffer.putLong(header.recordCount.addAndGet(delta));
+        final ObjectBuffer objectBuffer = new ObjectBuffer(buffer, fileStore.getSerializers());
+        fileStore.write(objectBuffer, header.position + Integer.BYTES + (4 * Long.BYTES));
+    }
+
+    /**
+     * Result of splitting a node.  Contains the key promoted to the parent and the new right sibling.
+     */
+    protected static class Split
+    {
+        protected final Object key;
+        protected final BTreeNode right;
+
+        protected Split(Object key, BTreeNode right)
+        {
+            this.key = key;
+            this.right = right;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import com.onyx.map.node.RecordReference;
 import com.onyx.map.store.Store;
 
 import java.util.Map;
+import java.util.Spliterator;
 
 /**
  * Created by tosborn1 on 7/30/15.
@@ -44,6 +45,13 @@ public interface DiskMap<K,V> extends Map<K,V> {
      */
     Object getAttributeWithRecID(String attribute, long reference);
 
+    /**
+     * Spliterator of the record ids within the map.  This can be used to traverse the records in parallel.
+     *
+     * @return Record id spliterator
+     */
+    Spliterator<Long> recordIdSpliterator();
+
     /**
      * Get Storage mechanism for a dismap
      *
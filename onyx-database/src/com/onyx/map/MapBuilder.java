@@ -3,6 +3,7 @@ package com.onyx.map;
 import com.onyx.map.node.Header;
 import com.onyx.map.serializer.Serializers;
 
+import java.io.IOException;
 import java.util.Map;
 
 /**
@@ -18,6 +19,38 @@ public interface MapBuilder
      */
     Map getHashMap(String name);
 
+    /**
+     * Whether a structure with the name exists.  Unlike getHashMap it is not created if it does not.
+     *
+     * @param name
+     * @return
+     */
+    boolean exists(String name);
+
+    /**
+     * Method get returns an instance of a hashmap and records what it contains so it can be compacted
+     *
+     * @param name
+     * @param type Kind of hash map
+     * @return
+     */
+    Map getHashMap(String name, StructureType type);
+
+    /**
+     * Method returns an instance of a set that keeps its keys in order
+     *
+     * @param name
+     * @return
+     */
+    OrderedDiskSet getOrderedSet(String name);
+
+    /**
+     * Posting lists stored within the same file
+     *
+     * @return
+     */
+    PostingLists getPostingLists();
+
     /**
      * Only update the first position for a header
      *
@@ -36,11 +69,51 @@ public interface MapBuilder
      */
     void commit();
 
+    /**
+     * Flush every write and force the file to the storage device.  Unlike commit a failure is thrown.
+     *
+     * @throws IOException Failed to force the file
+     */
+    void sync() throws IOException;
+
     /**
      * Delete file
      */
     void delete();
 
+    /**
+     * Flush the oldest writes to the file that have not been flushed yet
+     *
+     * @param maxBytes Bytes to flush
+     * @return Bytes flushed
+     */
+    long flush(long maxBytes);
+
+    /**
+     * Bytes written to the file that have not been flushed yet
+     *
+     * @return
+     */
+    long getDirtyBytes();
+
+    /**
+     * Milliseconds since the oldest write to the file that has not been flushed yet
+     *
+     * @return 0 if nothing is waiting
+     */
+    long getFlushLag();
+
+    /**
+     * Copy the live structures into a new file and swap it with the current one.  Reads and writes continue while the
+     * structures are copied and are only paused while the changes made in the meantime are applied and the files are
+     * swapped.
+     *
+     * @param bytesPerSecond Maximum rate to copy at.  0 copies as fast as possible.
+     * @return Bytes reclaimed
+     * @throws IOException Failed to swap files
+     */
+    long compact(long bytesPerSecond) throws IOException;
+
     /**
      * Getter for serializers
      *
@@ -0,0 +1,466 @@
+package com.onyx.map;
+
+import com.onyx.map.base.AbstractIterableDiskMap;
+import com.onyx.map.base.Compactable;
+import com.onyx.map.base.DefaultLevelReadWriteLock;
+import com.onyx.map.store.FileChannelStore;
+import gnu.trove.TLongLongHashMap;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Copies the live structures of a map builder into a new file so the space left behind by deleted and moved records is
+ * given back.  Structures are copied while they remain online and the keys changed in the meantime are tracked.  Reads
+ * and writes are then paused while the changed keys are copied again and the new file replaces the current one.
+ *
+ * Records are placed at new positions within the new file.  The new position of each record is kept so structures that
+ * reference records by position can be translated.  Those structures are copied while paused.
+ */
+public class MapCompaction
+{
+    // Extension of the file structures are copied into
+    public static final String COMPACTION_EXTENSION = ".compact";
+
+    // Number of keys copied between checking the copy rate
+    protected static final int THROTTLE_INTERVAL = 100;
+
+    protected final DefaultMapBuilder builder;
+    protected final long bytesPerSecond;
+
+    protected DefaultMapBuilder target = null;
+
+    // Position of a record within the current file to its position within the new file
+    protected final TLongLongHashMap relocations = new TLongLongHashMap();
+
+    // Keys changed while copying for each structure
+    protected final Map<String, Set<Object>> changes = new HashMap<>();
+
+    // Keys that could not be copied for each structure.  They are copied again once paused.
+    protected final Map<String, Set<Object>> failures = new HashMap<>();
+
+    protected long startTime;
+    protected long startSize;
+    protected long keysCopied = 0;
+
+    /**
+     * Constructor
+     *
+     * @param builder Map builder to compact
+     * @param bytesPerSecond Maximum rate to copy at.  0 copies as fast as possible.
+     */
+    public MapCompaction(DefaultMapBuilder builder, long bytesPerSecond)
+    {
+        this.builder = builder;
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * Copy the structures and swap the files
+     *
+     * @return Bytes reclaimed
+     * @throws IOException Failed to swap files or a key could not be copied.  The current file is kept.
+     */
+    public long run() throws IOException
+    {
+        final long sizeBefore = builder.storage.getFileSize();
+        final File file = new File(builder.filePath);
+        final File compactFile = new File(builder.filePath + COMPACTION_EXTENSION);
+        deleteFiles(compactFile);
+
+        // Open every structure so the changes made while it is copied are tracked
+        final Map<String, StructureType> structures = builder.getStructures();
+        structures.forEach((name, type) -> {
+            if (!isReference(type))
+            {
+                final Set<Object> changed = ConcurrentHashMap.newKeySet();
+                changes.put(name, changed);
+                open(builder, name, type).trackChanges(changed);
+            }
+        });
+
+        target = new DefaultMapBuilder("", compactFile.getPath(), builder.storeType, builder.context, builder.sliceSize);
+        startTime = System.currentTimeMillis();
+        startSize = target.storage.getFileSize();
+
+        boolean swapped = false;
+        try
+        {
+            for (Map.Entry<String, StructureType> structure : structures.entrySet())
+            {
+                if (!isReference(structure.getValue()))
+                {
+                    copy(structure.getKey(), structure.getValue());
+                }
+            }
+
+            // Queries find records and then read them by record id, so they are drained before the records move
+            final Lock recordIdLock = (builder.context != null) ? builder.context.getRecordIdLock().writeLock() : null;
+            if (recordIdLock != null)
+            {
+                recordIdLock.lock();
+            }
+
+            try
+            {
+                // New structures can not be opened while paused since their headers would be written to the current file
+                synchronized (builder)
+                {
+                    builder.pause();
+                    try
+                    {
+                        changes.forEach((name, changed) -> replay(name, structures.get(name), changed));
+
+                        for (Map.Entry<String, StructureType> structure : builder.getStructures().entrySet())
+                        {
+                            if (!isReference(structure.getValue()) && !structures.containsKey(structure.getKey()))
+                            {
+                                // Created after the copy started
+                                copy(structure.getKey(), structure.getValue());
+                            }
+                        }
+
+                        // Every record must be in the new file before references to them are translated
+                        retryFailures();
+
+                        for (Map.Entry<String, StructureType> structure : builder.getStructures().entrySet())
+                        {
+                            if (isReference(structure.getValue()))
+                            {
+                                copyReferences(structure.getKey(), structure.getValue());
+                            }
+                        }
+
+                        swap(file, compactFile);
+                        swapped = true;
+                    } finally
+                    {
+                        stopTracking(structures);
+                        builder.resume();
+                    }
+                }
+            } finally
+            {
+                if (recordIdLock != null)
+                {
+                    recordIdLock.unlock();
+                }
+            }
+        } finally
+        {
+            if (!swapped)
+            {
+                stopTracking(structures);
+                target.close();
+                deleteFiles(compactFile);
+            }
+        }
+
+        return sizeBefore - builder.storage.getFileSize();
+    }
+
+    /**
+     * Copy every key within a structure
+     *
+     * @param name Structure name
+     * @param type Structure kind
+     */
+    protected void copy(String name, StructureType type)
+    {
+        if (type == StructureType.ORDERED_SET)
+        {
+            final OrderedDiskSet source = builder.getOrderedSet(name);
+            final OrderedDiskSet destination = target.getOrderedSet(name);
+
+            for (Object key : source.range(null, true, null, true))
+            {
+                destination.add(key);
+                throttle();
+            }
+        }
+        else
+        {
+            final AbstractIterableDiskMap source = (AbstractIterableDiskMap) builder.getHashMap(name);
+
+            // The bloom filter is built again while copying, sized for the keys the map holds now
+            if (builder.bloomFilterKeys > 0)
+            {
+                target.setBloomFilterKeys(Math.max(builder.bloomFilterKeys, ((Map) source).size()));
+            }
+            final DiskMap destination = (DiskMap) target.getHashMap(name, type);
+
+            // Keys are gathered a branch at a time so writes to the rest of the map are not blocked
+            for (int level = 0; level < DefaultLevelReadWriteLock.LEVELS; level++)
+            {
+                for (Object key : source.getKeysForLevel(level))
+                {
+                    try
+                    {
+                        copyKey((DiskMap) source, destination, key);
+                    } catch (RuntimeException e)
+                    {
+                        // The key may be changing.  Whatever the cause it is copied again once paused.
+                        failures.computeIfAbsent(name, structure -> new HashSet<>()).add(key);
+                    }
+                    throttle();
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy a single key and record where it was moved to
+     *
+     * @param source Map within the current file
+     * @param destination Map within the new file
+     * @param key Key to copy
+     */
+    protected void copyKey(DiskMap source, DiskMap destination, Object key)
+    {
+        if (!source.containsKey(key))
+        {
+            destination.remove(key);
+            return;
+        }
+
+        destination.put(key, source.get(key));
+
+        final long position = source.getRecID(key);
+        if (position > 0)
+        {
+            relocations.put(position, destination.getRecID(key));
+        }
+    }
+
+    /**
+     * Copy the keys that failed to copy again.  Nothing can change them while paused so a key that fails again can not
+     * be copied and the compaction is abandoned rather than swapping in a file without it.
+     *
+     * @throws IOException A key failed to copy again
+     */
+    protected void retryFailures() throws IOException
+    {
+        for (Map.Entry<String, Set<Object>> failed : failures.entrySet())
+        {
+            final DiskMap source = (DiskMap) builder.getHashMap(failed.getKey());
+            final DiskMap destination = (DiskMap) target.getHashMap(failed.getKey());
+
+            for (Object key : failed.getValue())
+            {
+                try
+                {
+                    copyKey(source, destination, key);
+                } catch (RuntimeException e)
+                {
+                    throw new IOException("Compaction abandoned, key " + key + " of " + failed.getKey() + " could not be copied", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the keys changed while the structure was copied
+     *
+     * @param name Structure name
+     * @param type Structure kind
+     * @param changed Changed keys
+     */
+    protected void replay(String name, StructureType type, Set<Object> changed)
+    {
+        if (changed.isEmpty())
+        {
+            return;
+        }
+
+        if (type == StructureType.ORDERED_SET)
+        {
+            final OrderedDiskSet source = builder.getOrderedSet(name);
+            final OrderedDiskSet destination = target.getOrderedSet(name);
+
+            for (Object key : changed)
+            {
+                if (source.contains(key))
+                {
+                    destination.add(key);
+                }
+                else
+                {
+                    destination.remove(key);
+                }
+            }
+        }
+        else if (changed.contains(Compactable.CLEARED))
+        {
+            target.getHashMap(name).clear();
+            copy(name, type);
+        }
+        else
+        {
+            final DiskMap source = (DiskMap) builder.getHashMap(name);
+            final DiskMap destination = (DiskMap) target.getHashMap(name);
+
+            for (Object key : changed)
+            {
+                copyKey(source, destination, key);
+            }
+        }
+    }
+
+    /**
+     * Copy a structure that references records by position and translate the positions to the new file.  References
+     * to records that no longer exist are dropped.
+     *
+     * @param name Structure name
+     * @param type Structure kind
+     */
+    protected void copyReferences(String name, StructureType type)
+    {
+        final Map<Object, Object> source = builder.getHashMap(name);
+        final Map<Object, Object> destination = target.getHashMap(name, type);
+
+        for (Map.Entry<Object, Object> entry : source.entrySet())
+        {
+            Object key = entry.getKey();
+            Object value = entry.getValue();
+
+            if (type == StructureType.POSTING_LISTS)
+            {
+                value = copyPostingList((Long) value);
+            }
+            else
+            {
+                key = translate((Long) key);
+                if (type == StructureType.REFERENCE_KEYS_AND_VALUES)
+                {
+                    value = translate((Long) value);
+                }
+            }
+
+            if (key != null && value != null)
+            {
+                destination.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Copy a posting list into the new file
+     *
+     * @param list Position of the list within the current file
+     * @return Position of the list within the new file
+     */
+    protected Long copyPostingList(Long list)
+    {
+        final PostingLists destination = target.getPostingLists();
+        final long copy = destination.create();
+
+        for (Long reference : builder.getPostingLists().get(list))
+        {
+            final Long position = translate(reference);
+            if (position != null)
+            {
+                destination.add(copy, position);
+            }
+        }
+
+        return copy;
+    }
+
+    /**
+     * Translate a record position to the new file
+     *
+     * @param position Position within the current file
+     * @return Position within the new file or null if the record was not copied
+     */
+    protected Long translate(Long position)
+    {
+        final long relocated = (position == null) ? 0 : relocations.get(position);
+        return (relocated > 0) ? relocated : null;
+    }
+
+    /**
+     * Replace the current file with the compacted one.  The released space of the current file no longer applies.
+     *
+     * @param file Current file
+     * @param compactFile Compacted file
+     * @throws IOException Failed to move file
+     */
+    protected void swap(File file, File compactFile) throws IOException
+    {
+        target.close();
+
+        builder.storage.commit();
+        builder.storage.getFreeSpace().clear();
+
+        Files.move(compactFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        final File freeSpaceFile = new File(file.getPath() + FileChannelStore.FREE_SPACE_EXTENSION);
+        final File compactFreeSpaceFile = new File(compactFile.getPath() + FileChannelStore.FREE_SPACE_EXTENSION);
+        freeSpaceFile.delete();
+        if (compactFreeSpaceFile.exists())
+        {
+            Files.move(compactFreeSpaceFile.toPath(), freeSpaceFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        builder.reopen();
+    }
+
+    /**
+     * Sleep when copying faster than the maximum rate
+     */
+    protected void throttle()
+    {
+        if (bytesPerSecond <= 0 || ++keysCopied % THROTTLE_INTERVAL != 0)
+        {
+            return;
+        }
+
+        final long expected = ((target.storage.getFileSize() - startSize) * 1000) / bytesPerSecond;
+        final long elapsed = System.currentTimeMillis() - startTime;
+
+        if (expected > elapsed)
+        {
+            try
+            {
+                Thread.sleep(expected - elapsed);
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    protected void stopTracking(Map<String, StructureType> structures)
+    {
+        structures.forEach((name, type) -> {
+            if (!isReference(type))
+            {
+                open(builder, name, type).trackChanges(null);
+            }
+        });
+    }
+
+    protected static Compactable open(DefaultMapBuilder builder, String name, StructureType type)
+    {
+        return (Compactable) ((type == StructureType.ORDERED_SET) ? builder.getOrderedSet(name) : builder.getHashMap(name));
+    }
+
+    protected static boolean isReference(StructureType type)
+    {
+        return type == StructureType.REFERENCE_KEYS || type == StructureType.REFERENCE_KEYS_AND_VALUES || type == StructureType.POSTING_LISTS;
+    }
+
+    protected static void deleteFiles(File compactFile)
+    {
+        compactFile.delete();
+        new File(compactFile.getPath() + FileChannelStore.FREE_SPACE_EXTENSION).delete();
+    }
+}
@@ -0,0 +1,62 @@
+package com.onyx.map;
+
+import com.onyx.map.store.Store;
+
+import java.util.List;
+
+/**
+ * Set of keys that are kept in sorted order on disk.  This supports range lookups that are proportional to the
+ * number of keys returned rather than the size of the set.
+ */
+public interface OrderedDiskSet<K>
+{
+    /**
+     * Add a key to the set
+     *
+     * @param key
+     * @return true if the key was not already within the set
+     */
+    boolean add(K key);
+
+    /**
+     * Remove a key from the set
+     *
+     * @param key
+     * @return true if the key existed within the set
+     */
+    boolean remove(K key);
+
+    /**
+     * Returns true if the set contains the key
+     *
+     * @param key
+     * @return
+     */
+    boolean contains(K key);
+
+    /**
+     * Get all of the keys within a range in ascending order.  A null bound indicates the range is unbounded on that
+     * side.
+     *
+     * @param fromKey Lower bound
+     * @param fromInclusive Whether the lower bound is included
+     * @param toKey Upper bound
+     * @param toInclusive Whether the upper bound is included
+     * @return Keys within range
+     */
+    List<K> range(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive);
+
+    /**
+     * Number of keys within the set
+     *
+     * @return
+     */
+    long longSize();
+
+    /**
+     * Get Storage mechanism for the set
+     *
+     * @return
+     */
+    Store getFileStore();
+}
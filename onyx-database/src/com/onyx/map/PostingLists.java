@@ -0,0 +1,480 @@
+package com.onyx.map;
+
+import com.onyx.map.serializer.ObjectBuffer;
+import com.onyx.map.store.Store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append only lists of record references stored within a chain of blocks.  A list is identified by the position of its
+ * first block which never changes for the life of the list.
+ *
+ * Each entry is the difference from the previous entry in the block, zig zag and variable length encoded with the low
+ * bit indicating whether the entry is an add or a tombstone.  Adding and removing a reference only writes the new entry
+ * and the block headers so the cost does not grow with the size of the list.  Once tombstones outnumber the live
+ * references the list is compacted in place.
+ */
+public class PostingLists
+{
+    // Block header is next, tail, last, count, tombstones, capacity, and used
+    public static final int BLOCK_HEADER_SIZE = (Long.BYTES * 5) + (Integer.BYTES * 2);
+
+    // Blocks start small since most index values only have a few references and double up to the max size
+    public static final int INITIAL_BLOCK_SIZE = 64;
+    public static final int MAX_BLOCK_SIZE = 4096;
+
+    // Minimum number of tombstones before a list is considered for compaction
+    public static final int MIN_COMPACTION_TOMBSTONES = 64;
+
+    protected static final int LOCK_STRIPES = 64;
+
+    protected Store fileStore = null;
+
+    protected final ReadWriteLock[] locks = new ReadWriteLock[LOCK_STRIPES];
+
+    /**
+     * Constructor
+     *
+     * @param fileStore
+     */
+    public PostingLists(Store fileStore)
+    {
+        this.fileStore = fileStore;
+
+        for(int i = 0; i < LOCK_STRIPES; i++)
+        {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Create a new empty list
+     *
+     * @return position of the list
+     */
+    public long create()
+    {
+        final Block block = new Block();
+        block.capacity = INITIAL_BLOCK_SIZE;
+        block.position = fileStore.allocate(block.capacity);
+        block.tail = block.position;
+        writeBlockHeader(block);
+        return block.position;
+    }
+
+    /**
+     * Add a reference to a list
+     *
+     * @param list position of the list
+     * @param reference
+     */
+    public void add(long list, long reference)
+    {
+        final ReadWriteLock lock = getLock(list);
+        lock.writeLock().lock();
+
+        try
+        {
+            append(readBlockHeader(list), reference, false);
+        } finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Add references to a list skipping the ones it already has so they are not counted twice
+     *
+     * @param list position of the list
+     * @param references
+     */
+    public void addAll(long list, Collection<Long> references)
+    {
+        final ReadWriteLock lock = getLock(list);
+        lock.writeLock().lock();
+
+        try
+        {
+            final Block head = readBlockHeader(list);
+            final Set<Long> existing = decode(head);
+
+            for(Long reference : references)
+            {
+                if(existing.add(reference))
+                {
+                    append(head, reference, false);
+                }
+            }
+        } finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a reference from a list.  This appends a tombstone and compacts the list if there are too many.
+     *
+     * @param list position of the list
+     * @param reference
+     * @return Number of live references left within the list
+     */
+    public long remove(long list, long reference)
+    {
+        final ReadWriteLock lock = getLock(list);
+        lock.writeLock().lock();
+
+        try
+        {
+            final Block head = readBlockHeader(list);
+            append(head, reference, true);
+
+            if(head.tombstones >= MIN_COMPACTION_TOMBSTONES && head.tombstones > head.count)
+            {
+                compact(head);
+            }
+            return head.count;
+        } finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Free every block of a list.  The list must not be used afterwards.
+     *
+     * @param list position of the list
+     */
+    public void delete(long list)
+    {
+        final ReadWriteLock lock = getLock(list);
+        lock.writeLock().lock();
+
+        try
+        {
+            long position = list;
+            while(position > 0)
+            {
+                final Block block = readBlockHeader(position);
+                fileStore.deallocate(block.position, block.capacity);
+                position = block.next;
+            }
+        } finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Get all of the references within a list
+     *
+     * @param list position of the list
+     * @return
+     */
+    public Set<Long> get(long list)
+    {
+        final ReadWriteLock lock = getLock(list);
+        lock.readLock().lock();
+
+        try
+        {
+            return decode(readBlockHeader(list));
+        } finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of live references within a list
+     *
+     * @param list position of the list
+     * @return
+     */
+    public long size(long list)
+    {
+        final ReadWriteLock lock = getLock(list);
+        lock.readLock().lock();
+
+        try
+        {
+            return readBlockHeader(list).count;
+        } finally
+        {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Block reads and writes to every list
+     */
+    public void pause()
+    {
+        for(ReadWriteLock lock : locks)
+        {
+            lock.writeLock().lock();
+        }
+    }
+
+    /**
+     * Resume reads and writes
+     */
+    public void resume()
+    {
+        for(ReadWriteLock lock : locks)
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Move the lists over to a new store.  List positions within the new store are not the same so they must be
+     * looked up again.
+     *
+     * @param store New store
+     */
+    public void relocate(Store store)
+    {
+        this.fileStore = store;
+    }
+
+    /**
+     * Append an entry to the tail of the list
+     *
+     * @param head First block of the list
+     * @param reference Reference to add or remove
+     * @param tombstone Whether the entry removes the reference
+     */
+    protected void append(Block head, long reference, boolean tombstone)
+    {
+        Block tail = (head.tail == head.position) ? head : readBlockHeader(head.tail);
+        byte[] entry = encode(reference - tail.last, tombstone);
+
+        // Link a new block since the entry does not fit.  Each block is encoded independently of the previous one.
+        if(tail.used + entry.length > tail.capacity - BLOCK_HEADER_SIZE)
+        {
+            final Block block = new Block();
+            block.capacity = Math.min(tail.capacity * 2, MAX_BLOCK_SIZE);
+            block.position = fileStore.allocate(block.capacity);
+
+            tail.next = block.position;
+            if(tail != head)
+            {
+                writeBlockHeader(tail);
+            }
+
+            head.tail = block.position;
+            tail = block;
+            entry = encode(reference, tombstone);
+        }
+
+        final ByteBuffer buffer = ObjectBuffer.allocate(entry.length);
+        buffer.put(entry);
+        fileStore.write(new ObjectBuffer(buffer, fileStore.getSerializers()), tail.position + BLOCK_HEADER_SIZE + tail.used);
+
+        tail.used += entry.length;
+        tail.last = reference;
+
+        if(tombstone)
+        {
+            head.count--;
+            head.tombstones++;
+        }
+        else
+        {
+            head.count++;
+        }
+
+        if(tail != head)
+        {
+            writeBlockHeader(tail);
+        }
+        writeBlockHeader(head);
+    }
+
+    /**
+     * Re-write a list without its tombstones.  The first block is re-used so the position of the list does not change.
+     *
+     * @param head First block of the list
+     */
+    protected void compact(Block head)
+    {
+        final List<Long> references = new ArrayList<>(decode(head));
+        Collections.sort(references);
+
+        long position = head.next;
+        while(position > 0)
+        {
+            final Block block = readBlockHeader(position);
+            fileStore.deallocate(block.position, block.capacity);
+            position = block.next;
+        }
+
+        head.next = 0;
+        head.tail = head.position;
+        head.last = 0;
+        head.count = 0;
+        head.tombstones = 0;
+        head.used = 0;
+
+        for(Long reference : references)
+        {
+            append(head, reference, false);
+        }
+
+        writeBlockHeader(head);
+    }
+
+    /**
+     * Decode all of the blocks within a list and apply the adds and tombstones in order
+     *
+     * @param head First block of the list
+     * @return
+     */
+    protected Set<Long> decode(Block head)
+    {
+        final Set<Long> references = new HashSet<>((int)Math.max(head.count, 0));
+
+        Block block = head;
+        while(true)
+        {
+            if(block.used > 0)
+            {
+                final ObjectBuffer buffer = fileStore.read(block.position + BLOCK_HEADER_SIZE, block.used);
+
+                long last = 0;
+                int read = 0;
+                while(read < block.used)
+                {
+                    long value = 0;
+                    int shift = 0;
+                    byte b;
+                    do
+                    {
+                        b = buffer.readByte();
+                        read++;
+                        value |= (long)(b & 0x7F) << shift;
+                        shift += 7;
+                    } while((b & 0x80) != 0);
+
+                    final long zigZag = value >>> 1;
+                    last += (zigZag >>> 1) ^ -(zigZag & 1);
+
+                    if((value & 1) == 1)
+                    {
+                        references.remove(last);
+                    }
+                    else
+                    {
+                        references.add(last);
+                    }
+                }
+            }
+
+            if(block.next == 0)
+            {
+                break;
+            }
+            block = readBlockHeader(block.next);
+        }
+
+        return references;
+    }
+
+    /**
+     * Encode an entry
+     *
+     * @param delta Difference from the previous entry
+     * @param tombstone Whether the entry removes the reference
+     * @return
+     */
+    protected static byte[] encode(long delta, boolean tombstone)
+    {
+        long value = (((delta << 1) ^ (delta >> 63)) << 1) | (tombstone ? 1 : 0);
+
+        final byte[] bytes = new byte[10];
+        int length = 0;
+        while((value & ~0x7FL) != 0)
+        {
+            bytes[length++] = (byte)((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        bytes[length++] = (byte)value;
+
+        return Arrays.copyOf(bytes, length);
+    }
+
+    /**
+     * Read the header of a block
+     *
+     * @param position
+     * @return
+     */
+    protected Block readBlockHeader(long position)
+    {
+        final ObjectBuffer buffer = fileStore.read(position, BLOCK_HEADER_SIZE);
+        final Block block = new Block();
+        block.position = position;
+        block.next = buffer.readLong();
+        block.tail = buffer.readLong();
+        block.last = buffer.readLong();
+        block.count = buffer.readLong();
+        block.tombstones = buffer.readLong();
+        block.capacity = buffer.readInt();
+        block.used = buffer.readInt();
+        return block;
+    }
+
+    /**
+     * Write the header of a block
+     *
+     * @param block
+     */
+    protected void writeBlockHeader(Block block)
+    {
+        final ObjectBuffer buffer = new ObjectBuffer(ObjectBuffer.allocate(BLOCK_HEADER_SIZE), fileStore.getSerializers());
+        try
+        {
+            buffer.writeLong(block.next);
+            buffer.writeLong(block.tail);
+            buffer.writeLong(block.last);
+            buffer.writeLong(block.count);
+            buffer.writeLong(block.tombstones);
+            buffer.writeInt(block.capacity);
+            buffer.writeInt(block.used);
+        } catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+        fileStore.write(buffer, block.position);
+    }
+
+    /**
+     * Get the lock guarding a list
+     *
+     * @param list
+     * @return
+     */
+    protected ReadWriteLock getLock(long list)
+    {
+        return locks[(int)((list ^ (list >>> 32)) & (LOCK_STRIPES - 1))];
+    }
+
+    /**
+     * Block header.  Tail, count and tombstones are only maintained within the first block of a list.
+     */
+    protected static class Block
+    {
+        protected long position;
+        protected long next;
+        protected long tail;
+        protected long last;
+        protected long count;
+        protected long tombstones;
+        protected int capacity;
+        protected int used;
+    }
+}
@@ -0,0 +1,348 @@
+package com.onyx.map;
+
+import com.onyx.map.base.DefaultLevelReadWriteLock;
+import com.onyx.map.node.BitMapNode;
+import com.onyx.map.node.Header;
+import com.onyx.map.node.RadixNode;
+import com.onyx.map.node.RadixRecordReference;
+import com.onyx.map.node.Record;
+import com.onyx.map.node.RecordReference;
+import com.onyx.map.store.Store;
+
+import java.util.List;
+
+/**
+ * Hash map whose bitmap nodes have 64 slots picked by 6 bits of the hash rather than 10 slots picked by a decimal digit.
+ *
+ * The hash code of the key is mixed so sequential hash codes are spread over every branch.  The whole mixed hash is kept
+ * with each record so a chain is searched by comparing hashes before reading any key.  Chains start within the nodes
+ * below the root.  Once a chain holds more than SPLIT_SIZE records it is moved into a node one level down that is picked
+ * by the next 6 bits, so branches only grow as deep as the keys within them need.  6 levels cover all 32 bits, the last
+ * one only uses 2 of them.
+ */
+public class RadixDiskMap<K, V> extends DefaultDiskMap<K, V>
+{
+    // Bits of the hash picking the slot within each level
+    public static final int BITS_PER_LEVEL = 6;
+
+    // Most levels of nodes a branch grows to
+    public static final int LEVELS = 6;
+
+    // Records within a chain before it is split into a node of its own
+    public static final int SPLIT_SIZE = 8;
+
+    // Bits of the hash left for the deepest level
+    protected static final int LAST_LEVEL_MASK = (1 << (Integer.SIZE - (BITS_PER_LEVEL * (LEVELS - 1)))) - 1;
+
+    public RadixDiskMap(Store fileStore, Header header)
+    {
+        super(fileStore, header);
+        initialize();
+    }
+
+    public RadixDiskMap(Store fileStore, Header header, boolean inMemory, int lockStripes)
+    {
+        super(fileStore, header, inMemory, lockStripes);
+        initialize();
+    }
+
+    protected void initialize()
+    {
+        nodeType = RadixNode.class;
+        nodeSize = RadixNode.RADIX_NODE_SIZE;
+        referenceType = RadixRecordReference.class;
+        referenceSize = RadixRecordReference.RADIX_RECORD_REFERENCE_SIZE;
+    }
+
+    /**
+     * Mix the bits of the hash code so each bit depends on all of them.  This is the finalizer of murmur 3.
+     *
+     * @param key
+     * @return Mixed hash
+     */
+    @Override
+    protected int hash(final Object key)
+    {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+
+    /**
+     * Split the hash into the slot of each level starting with the root
+     *
+     * @param hash
+     * @return
+     */
+    @Override
+    protected int[] getHashDigits(int hash)
+    {
+        final int[] digits = new int[LEVELS];
+        for (int level = 0; level < LEVELS; level++)
+        {
+            digits[level] = getHashDigit(hash, level);
+        }
+        return digits;
+    }
+
+    /**
+     * Slot of a hash within a level.  The root uses the highest bits.
+     *
+     * @param hash
+     * @param level
+     * @return
+     */
+    protected static int getHashDigit(int hash, int level)
+    {
+        if (level == LEVELS - 1)
+        {
+            return hash & LAST_LEVEL_MASK;
+        }
+        return (hash >>> (Integer.SIZE - (BITS_PER_LEVEL * (level + 1)))) & (RadixNode.SLOTS - 1);
+    }
+
+    /**
+     * The branches of the root are divided between the level locks
+     *
+     * @param hashDigits
+     * @return
+     */
+    @Override
+    protected int getLockLevel(int[] hashDigits)
+    {
+        return hashDigits[0] % DefaultLevelReadWriteLock.LEVELS;
+    }
+
+    /**
+     * Chains never start above the second level so the bits picking the first two levels pick the stripe.  A chain
+     * and every node it is split into are then guarded by a single stripe.
+     *
+     * @param hash
+     * @return
+     */
+    @Override
+    protected int getLockHash(int hash)
+    {
+        return hash >>> (Integer.SIZE - (BITS_PER_LEVEL * 2));
+    }
+
+    /**
+     * Find the node holding the chain for a hash.  Slots are followed down for as long as they point to nodes.
+     *
+     * @param hash
+     * @param forInsert
+     * @param hashDigits
+     * @return
+     */
+    @Override
+    public BitMapNode seek(int hash, boolean forInsert, final int[] hashDigits)
+    {
+        BitMapNode node = null;
+
+        if (header.firstNode > 0)
+        {
+            node = getBitmapNode(header.firstNode);
+        }
+        else if (forInsert)
+        {
+            node = createFirstNode();
+        }
+        else
+        {
+            return null;
+        }
+
+        // Every branch of the root leads to a node
+        final long branch = node.next[hashDigits[0]];
+        if (branch != 0)
+        {
+            node = getBitmapNode(getNodePosition(branch));
+        }
+        else if (forInsert)
+        {
+            node = createNode(node, hashDigits[0]);
+        }
+        else
+        {
+            return null;
+        }
+
+        long reference = node.next[getRecordSlot(node, hashDigits)];
+        while (isNodeReference(reference, 0))
+        {
+            node = getBitmapNode(getNodePosition(reference));
+            reference = node.next[getRecordSlot(node, hashDigits)];
+        }
+
+        return node;
+    }
+
+    /**
+     * Create the node below a branch of the root
+     *
+     * @param parent Parent node
+     * @param index Index of the child within the parent
+     * @return Child node
+     */
+    @Override
+    protected BitMapNode createNode(BitMapNode parent, int index)
+    {
+        synchronized (nodeCreationLock)
+        {
+            final long existing = fileStore.read(parent.position + (Long.BYTES * index) + Long.BYTES, Long.BYTES).readLong();
+            if (existing != 0)
+            {
+                parent.next[index] = existing;
+                return getBitmapNode(getNodePosition(existing));
+            }
+
+            final RadixNode node = new RadixNode(((RadixNode) parent).level + 1);
+            node.position = fileStore.allocate(nodeSize);
+
+            writeBitmapNode(node.position, node);
+            updateBitmapNodeReference(parent, index, -node.position);
+            return node;
+        }
+    }
+
+    /**
+     * Insert a record and split its chain if it has grown too long
+     *
+     * @param parentRecordReference
+     * @param node
+     * @param key
+     * @param value
+     * @param hashDigits
+     * @return
+     */
+    @Override
+    public Record insert(RecordReference parentRecordReference, BitMapNode node, Object key, Object value, int[] hashDigits)
+    {
+        final Record record = super.insert(parentRecordReference, node, key, value, hashDigits);
+
+        if (record != null && parentRecordReference != null && ((RadixNode) node).level < LEVELS - 1)
+        {
+            split((RadixNode) node, getRecordSlot(node, hashDigits));
+        }
+        return record;
+    }
+
+    /**
+     * Move a chain holding more than SPLIT_SIZE records into a new node one level down.  The records are linked into
+     * the slots of the new node by the hash they keep so no key is read.
+     *
+     * @param node Node holding the chain
+     * @param slot Slot of the chain
+     */
+    protected void split(RadixNode node, int slot)
+    {
+        int length = 0;
+        for (long position = node.next[slot]; position > 0 && length <= SPLIT_SIZE; position = getRecordReference(position).next)
+        {
+            length++;
+        }
+
+        if (length <= SPLIT_SIZE)
+        {
+            return;
+        }
+
+        final RadixNode branch = new RadixNode(node.level + 1);
+        final RecordReference[] tails = new RecordReference[RadixNode.SLOTS];
+
+        long position = node.next[slot];
+        while (position > 0)
+        {
+            final RecordReference reference = getRecordReference(position);
+            position = reference.next;
+
+            final int digit = getHashDigit(((RadixRecordReference) reference).hash, branch.level);
+            if (tails[digit] == null)
+            {
+                branch.next[digit] = reference.position;
+            }
+            else if (tails[digit].next != reference.position)
+            {
+                tails[digit].next = reference.position;
+                updateReferenceNext(tails[digit]);
+            }
+            tails[digit] = reference;
+        }
+
+        // The last record of each new chain may still point further along the old one
+        for (RecordReference tail : tails)
+        {
+            if (tail != null && tail.next != 0)
+            {
+                tail.next = 0;
+                updateReferenceNext(tail);
+            }
+        }
+
+        branch.position = fileStore.allocate(nodeSize);
+        writeBitmapNode(branch.position, branch);
+        updateBitmapNodeReference(node, slot, -branch.position);
+    }
+
+    @Override
+    protected int getRecordSlot(BitMapNode node, int[] hashDigits)
+    {
+        return hashDigits[((RadixNode) node).level];
+    }
+
+    /**
+     * Nodes are referenced by their negated position so a slot can hold either a node or a chain
+     *
+     * @param reference Value of the slot
+     * @param depth Depth of the node holding the slot
+     * @return
+     */
+    @Override
+    protected boolean isNodeReference(long reference, int depth)
+    {
+        return reference < 0;
+    }
+
+    @Override
+    protected long getNodePosition(long reference)
+    {
+        return -reference;
+    }
+
+    @Override
+    protected RecordReference newRecordReference(Object key)
+    {
+        final RadixRecordReference reference = new RadixRecordReference();
+        reference.hash = hash(key);
+        return reference;
+    }
+
+    @Override
+    protected boolean hasHash(RecordReference reference, int hash)
+    {
+        return ((RadixRecordReference) reference).hash == hash;
+    }
+
+    @Override
+    protected BitMapNode newBitmapNode()
+    {
+        return new RadixNode();
+    }
+
+    @Override
+    protected void collectKeysForLevel(int level, List<Object> results)
+    {
+        final BitMapNode root = getBitmapNode(header.firstNode);
+        for (int slot = level; slot < root.next.length; slot += DefaultLevelReadWriteLock.LEVELS)
+        {
+            if (root.next[slot] != 0)
+            {
+                collectKeys(getNodePosition(root.next[slot]), 1, results);
+            }
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.onyx.map;
+
+/**
+ * Kind of structure stored within a map builder.  Structures holding record ids must be translated when the records
+ * are moved by compaction.
+ */
+public enum StructureType
+{
+    HASH_MAP,
+    ORDERED_SET,
+    REFERENCE_KEYS, // Hash map keyed by record id
+    REFERENCE_KEYS_AND_VALUES, // Hash map of record ids to record ids
+    POSTING_LISTS, // Hash map of values to posting lists of record ids
+    RADIX_HASH_MAP // Hash map with 64 slot bitmap nodes
+}
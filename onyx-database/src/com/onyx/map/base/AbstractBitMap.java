@@ -1,5 +1,6 @@
 package com.onyx.map.base;
 
+import com.onyx.map.BloomFilter;
 import com.onyx.map.node.BitMapNode;
 import com.onyx.map.node.Header;
 import com.onyx.map.node.Record;
@@ -11,6 +12,7 @@ import com.onyx.util.CompareUtil;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
 
 /**
@@ -25,6 +27,27 @@ public class AbstractBitMap
     public Store fileStore;
 
     protected Map<Object, Long> keyCache = new WeakHashMap<>();
+
+    // Keys changed while the map is being compacted
+    protected volatile Set<Object> changedKeys = null;
+
+    // Guards the creation of bitmap nodes that are shared between lock stripes
+    protected final Object nodeCreationLock = new Object();
+
+    // Kind of bitmap node and its size within the store
+    protected Class<? extends BitMapNode> nodeType = BitMapNode.class;
+    protected int nodeSize = BitMapNode.BITMAP_NODE_SIZE;
+
+    // Index of the hash digit picking the record reference within the last node.  The digits before it pick the nodes.
+    protected int recordReferenceIndex = BitMapNode.RECORD_REFERENCE_INDEX;
+
+    // Kind of record reference and its size within the store
+    protected Class<? extends RecordReference> referenceType = RecordReference.class;
+    protected int referenceSize = RecordReference.RECORD_REFERENCE_LIST_SIZE;
+
+    // Filter of the keys within the map.  Null if the map does not have one.
+    protected volatile BloomFilter bloomFilter = null;
+
     /**
      * Constructor
      *
@@ -56,12 +79,7 @@ public class AbstractBitMap
         } else
         {
             // No default node, lets create one // It must mean we are inserting
-            node = new BitMapNode();
-            node.position = fileStore.allocate(BitMapNode.BITMAP_NODE_SIZE);
-            header.firstNode = node.position;
-
-            writeBitmapNode(node.position, node);
-            updateHeaderFirstNode(header, node.position);
+            node = createFirstNode();
         }
 
         // There is no default node return -1 because it was not found
@@ -73,7 +91,7 @@ public class AbstractBitMap
         int hashDigit = 0;
 
         // Break down the nodes and iterate through them.  We should be left with the remaining node which should point us to the record
-        for (int level = 0; level < 10; level++)
+        for (int level = 0; level < recordReferenceIndex; level++)
         {
 
             hashDigit = hashDigits[level];
@@ -82,14 +100,7 @@ public class AbstractBitMap
 
             if (nodePosition == 0 && forInsert == true)
             {
-                node = new BitMapNode();
-                node.position = fileStore.allocate(BitMapNode.BITMAP_NODE_SIZE);
-
-                writeBitmapNode(node.position, node);
-                updateBitmapNodeReference(previousNode, hashDigit, node.position);
-
-                previousNode = node;
-                node = new BitMapNode();
+                previousNode = createNode(previousNode, hashDigit);
             }
 
             // Not found because it is not in the
@@ -102,6 +113,60 @@ public class AbstractBitMap
         return previousNode; // This should contain the drones you are looking for (Star Wars reference) // This contains the key to the linked list
     }
 
+    /**
+     * Create the root node.  Writers that do not share a lock stripe can get here at the same time so the header is
+     * checked again once the node creation lock is held.
+     *
+     * @return Root node
+     */
+    protected BitMapNode createFirstNode()
+    {
+        synchronized (nodeCreationLock)
+        {
+            if (header.firstNode > 0)
+            {
+                return getBitmapNode(header.firstNode);
+            }
+
+            final BitMapNode node = newBitmapNode();
+            node.position = fileStore.allocate(nodeSize);
+
+            writeBitmapNode(node.position, node);
+            updateHeaderFirstNode(header, node.position);
+            header.firstNode = node.position;
+            return node;
+        }
+    }
+
+    /**
+     * Create the child node of a parent.  Writers that do not share a lock stripe can share an ancestor node so the
+     * reference is read again from the store once the node creation lock is held.  Otherwise a second writer would
+     * replace the branch the first one created.
+     *
+     * @param parent Parent node
+     * @param index Index of the child within the parent
+     * @return Child node
+     */
+    protected BitMapNode createNode(BitMapNode parent, int index)
+    {
+        synchronized (nodeCreationLock)
+        {
+            final long existing = fileStore.read(parent.position + (Long.BYTES * index) + Long.BYTES, Long.BYTES).readLong();
+            if (existing > 0)
+            {
+                parent.next[index] = existing;
+                return getBitmapNode(existing);
+            }
+
+            final BitMapNode node = newBitmapNode();
+            node.position = fileStore.allocate(nodeSize);
+
+            writeBitmapNode(node.position, node);
+            updateBitmapNodeReference(parent, index, node.position);
+            return node;
+        }
+    }
+
     /**
      * Inserts a new record
      *
@@ -111,6 +176,14 @@ public class AbstractBitMap
      */
     public Record insert(RecordReference parentRecordReference, BitMapNode node, Object key, Object value, int[] hashDigits)
     {
+        markChanged(key);
+
+        // The key is added before the record is written so it is never missing from the filter
+        final BloomFilter filter = bloomFilter;
+        if (filter != null)
+        {
+            filter.add(key);
+        }
 
         try
         {
@@ -123,14 +196,14 @@ public class AbstractBitMap
             final ObjectBuffer buffer = new ObjectBuffer(fileStore.getSerializers());
             record.writeObject(buffer); // Write the record to the buffer
 
-            final RecordReference reference = new RecordReference();
+            final RecordReference reference = newRecordReference(key);
             reference.recordSize = record.getSize();
             reference.keySize = record.keySize;
             reference.serializerId = buffer.getSerializerId(value); // Get the serializer id.  Note: This only applies to Managed Entities in order to version
 
             // Update the record position as well as the BitMapNode to show the location
             final ObjectBuffer referenceBuffer = new ObjectBuffer(fileStore.getSerializers());
-            long recordPosition = fileStore.allocate((reference.recordSize + RecordReference.RECORD_REFERENCE_LIST_SIZE));
+            long recordPosition = fileStore.allocate((reference.recordSize + referenceSize));
             reference.writeObject(referenceBuffer);
 
             final ObjectBuffer totalBuffer = new ObjectBuffer(fileStore.getSerializers());
@@ -148,7 +221,7 @@ public class AbstractBitMap
             } else
             {
                 // Update the record position as well as the BitMapNode to show the location
-                updateBitmapNodeReference(node, hashDigits[BitMapNode.RECORD_REFERENCE_INDEX], recordPosition);
+                updateBitmapNodeReference(node, getRecordSlot(node, hashDigits), recordPosition);
             }
 
             header.recordCount.incrementAndGet();
@@ -223,10 +296,8 @@ public class AbstractBitMap
      */
     public RecordReference[] getRecordReference(BitMapNode node, Object key, int[] hashDigits)
     {
-        // Convert the hash number to digits with leading 0s
-        int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
-
-        long position = node.next[hashDigit];
+        final int hash = hash(key);
+        long position = node.next[getRecordSlot(node, hashDigits)];
 
         RecordReference reference = null;
         RecordReference parent = null;
@@ -237,7 +308,7 @@ public class AbstractBitMap
         {
             reference = getRecordReference(position);
 
-            if(reference.keySize != 0) {
+            if(reference.keySize != 0 && hasHash(reference, hash)) {
 
                 compareKey = (Object) getRecordKey(reference);
 
@@ -272,8 +343,9 @@ public class AbstractBitMap
      */
     public Record update(BitMapNode node, RecordReference parentRecordReference, RecordReference recordReference, Object key, Object value, int[] hashDigits)
     {
+        markChanged(key);
 
-        int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
+        int hashDigit = getRecordSlot(node, hashDigits);
 
         try
         {
@@ -289,11 +361,11 @@ public class AbstractBitMap
             // The record has grown, we need to move it to a new spot that is big enough
             if (recordReference.recordSize < record.getSize())
             {
-                fileStore.deallocate(recordReference.position, (recordReference.recordSize + RecordReference.RECORD_REFERENCE_LIST_SIZE));
-                recordPosition = fileStore.allocate((record.getSize() + RecordReference.RECORD_REFERENCE_LIST_SIZE));
+                fileStore.deallocate(recordReference.position, (recordReference.recordSize + referenceSize));
+                recordPosition = fileStore.allocate((record.getSize() + referenceSize));
             }
 
-            int recordSize = (record.getSize() + RecordReference.RECORD_REFERENCE_LIST_SIZE);
+            int recordSize = (record.getSize() + referenceSize);
             recordReference.recordSize = record.getSize();
             recordReference.keySize = record.keySize;
             recordReference.position = recordPosition;
@@ -343,9 +415,9 @@ public class AbstractBitMap
      */
     public void delete(BitMapNode node, RecordReference parentRecordReference, RecordReference recordReference, int[] hashDigits, Object key)
     {
-        // Convert the hash number to digits with leading 0s
+        markChanged(key);
 
-        int hashDigit = hashDigits[BitMapNode.RECORD_REFERENCE_INDEX];
+        int hashDigit = getRecordSlot(node, hashDigits);
 
         if (node.next[hashDigit] == recordReference.position)
         {
@@ -360,7 +432,21 @@ public class AbstractBitMap
         header.recordCount.decrementAndGet();
         updateHeaderRecordCount();
 
-        fileStore.deallocate(recordReference.position, (recordReference.recordSize + RecordReference.RECORD_REFERENCE_LIST_SIZE));
+        fileStore.deallocate(recordReference.position, (recordReference.recordSize + referenceSize));
+    }
+
+    /**
+     * Record a key changed while the map is being compacted
+     *
+     * @param key
+     */
+    protected void markChanged(Object key)
+    {
+        final Set<Object> changed = changedKeys;
+        if (changed != null)
+        {
+            changed.add(key);
+        }
     }
 
     /**
@@ -371,7 +457,17 @@ public class AbstractBitMap
      */
     protected BitMapNode getBitmapNode(long position)
     {
-        return (BitMapNode)fileStore.read(position, BitMapNode.BITMAP_NODE_SIZE, BitMapNode.class);
+        return (BitMapNode)fileStore.read(position, nodeSize, nodeType);
+    }
+
+    /**
+     * Create an empty bitmap node of the kind used by this map
+     *
+     * @return
+     */
+    protected BitMapNode newBitmapNode()
+    {
+        return new BitMapNode();
     }
 
     /**
@@ -393,7 +489,7 @@ public class AbstractBitMap
      */
     protected Object getRecordKey(RecordReference reference)
     {
-        return fileStore.read(reference.position + RecordReference.RECORD_REFERENCE_LIST_SIZE, reference.keySize, Object.class);
+        return fileStore.read(reference.position + referenceSize, reference.keySize, Object.class);
     }
 
     /**
@@ -404,11 +500,35 @@ public class AbstractBitMap
      */
     protected RecordReference getRecordReference(long position)
     {
-        final RecordReference reference = (RecordReference) fileStore.read(position, RecordReference.RECORD_REFERENCE_LIST_SIZE, RecordReference.class);
+        final RecordReference reference = (RecordReference) fileStore.read(position, referenceSize, referenceType);
         reference.position = position; // This is needed.  We do not persist the position to save time so we need to get it here
         return reference;
     }
 
+    /**
+     * Create the reference of a record being inserted
+     *
+     * @param key Key of the record
+     * @return
+     */
+    protected RecordReference newRecordReference(Object key)
+    {
+        return new RecordReference();
+    }
+
+    /**
+     * Whether a record within a chain can hold a key with the hash.  Records do not keep the hash of their key so every
+     * key within the chain is compared.
+     *
+     * @param reference Record within the chain
+     * @param hash Hash of the key being looked up
+     * @return False if the record definitely does not hold the key
+     */
+    protected boolean hasHash(RecordReference reference, int hash)
+    {
+        return true;
+    }
+
     /**
      * Get Value
      *
@@ -417,7 +537,7 @@ public class AbstractBitMap
      */
     public Object getRecordValue(RecordReference reference)
     {
-        return fileStore.read(reference.position + reference.keySize + RecordReference.RECORD_REFERENCE_LIST_SIZE, (reference.recordSize - reference.keySize), Object.class, reference.serializerId);
+        return fileStore.read(reference.position + reference.keySize + referenceSize, (reference.recordSize - reference.keySize), Object.class, reference.serializerId);
     }
 
     /**
@@ -429,7 +549,7 @@ public class AbstractBitMap
      */
     public Map getRecordValueAsDictionary(RecordReference reference)
     {
-        ObjectBuffer buffer = fileStore.read(reference.position + reference.keySize + RecordReference.RECORD_REFERENCE_LIST_SIZE, (reference.recordSize - reference.keySize));
+        ObjectBuffer buffer = fileStore.read(reference.position + reference.keySize + referenceSize, (reference.recordSize - reference.keySize));
         return buffer.toMap(reference.serializerId);
     }
 
@@ -443,7 +563,7 @@ public class AbstractBitMap
      */
     public Object getAttributeWithRecID(String attribute, RecordReference reference)
     {
-        ObjectBuffer buffer = fileStore.read(reference.position + reference.keySize + RecordReference.RECORD_REFERENCE_LIST_SIZE, (reference.recordSize - reference.keySize));
+        ObjectBuffer buffer = fileStore.read(reference.position + reference.keySize + referenceSize, (reference.recordSize - reference.keySize));
         return buffer.getAttribute(attribute, reference.serializerId);
     }
 
@@ -459,6 +579,96 @@ public class AbstractBitMap
         return key.hashCode();
     }
 
+    /**
+     * Set the filter of the keys within the map.  It must already contain every key.
+     *
+     * @param bloomFilter Filter or null to stop using one
+     */
+    public void setBloomFilter(BloomFilter bloomFilter)
+    {
+        this.bloomFilter = bloomFilter;
+    }
+
+    /**
+     * Get the filter of the keys within the map
+     *
+     * @return Filter or null if the map does not have one
+     */
+    public BloomFilter getBloomFilter()
+    {
+        return bloomFilter;
+    }
+
+    /**
+     * Check the filter for a key before searching the map
+     *
+     * @param key
+     * @return False if the key is definitely not within the map
+     */
+    protected boolean mightContainKey(Object key)
+    {
+        final BloomFilter filter = bloomFilter;
+        return filter == null || filter.mightContain(key);
+    }
+
+    /**
+     * Level lock guarding the branch a hash is stored in.  The first digit is the sign of the hash so the second one is
+     * used.
+     *
+     * @param hashDigits
+     * @return
+     */
+    protected int getLockLevel(int[] hashDigits)
+    {
+        return hashDigits[1];
+    }
+
+    /**
+     * Hash picking the lock stripe within the level.  Keys that can share a chain of records must share a stripe.
+     *
+     * @param hash
+     * @return
+     */
+    protected int getLockHash(int hash)
+    {
+        return hash;
+    }
+
+    /**
+     * Slot of the node returned by seek holding the chain of records for a hash
+     *
+     * @param node Node returned by seek
+     * @param hashDigits
+     * @return
+     */
+    protected int getRecordSlot(BitMapNode node, int[] hashDigits)
+    {
+        return hashDigits[recordReferenceIndex];
+    }
+
+    /**
+     * Whether a slot of a bitmap node points to another bitmap node rather than a chain of records
+     *
+     * @param reference Value of the slot
+     * @param depth Depth of the node holding the slot.  The root is at 0.
+     * @return
+     */
+    protected boolean isNodeReference(long reference, int depth)
+    {
+        return depth < recordReferenceIndex;
+    }
+
+    /**
+     * Position of the bitmap node a slot points to
+     *
+     * @param reference Value of the slot
+     * @return
+     */
+    protected long getNodePosition(long reference)
+    {
+        return reference;
+    }
+
     /**
      * Helper method for getting the digits of a hash number.  This relies on it being a 10 digit number max
      *
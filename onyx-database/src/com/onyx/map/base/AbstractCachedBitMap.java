@@ -13,6 +13,7 @@ import com.onyx.util.ObjectUtil;
 import java.util.Collections;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Created by timothy.osborn on 3/27/15.
@@ -23,6 +24,11 @@ public class AbstractCachedBitMap extends AbstractBitMap {
     protected Map<Long, Record> recordCache;
     protected Map<Object, Long> keyCache;
 
+    // Record ids of integer or long keys.  Only the first of the two kinds seen is cached so an integer key is not
+    // mistaken for a long key of the same value.
+    protected final LongKeyCache recordIdCache = new LongKeyCache();
+    protected final AtomicReference<Class> primitiveKeyType = new AtomicReference<>();
+
     /**
      * Constructor
      *
@@ -33,7 +39,7 @@ public class AbstractCachedBitMap extends AbstractBitMap {
     {
         super(fileStore, header);
         nodeCache = Collections.synchronizedMap(new WeakHashMap());
-        recordCache = Collections.synchronizedMap(new CacheMap());
+        recordCache = new CacheMap();
         keyCache = Collections.synchronizedMap(new WeakHashMap());
     }
 
@@ -58,7 +64,7 @@ public class AbstractCachedBitMap extends AbstractBitMap {
             recordCache.put(parentRecordReference.position, parentRecord);
         }
         recordCache.put(record.reference.position, record);
-        keyCache.put(key, record.reference.position);
+        cacheRecId(key, record.reference.position);
 
         return record;
     }
@@ -93,7 +99,7 @@ public class AbstractCachedBitMap extends AbstractBitMap {
         }
 
         recordCache.put(record.reference.position, record);
-        keyCache.put(key, record.reference.position);
+        cacheRecId(key, record.reference.position);
 
 
         return record;
@@ -121,7 +127,7 @@ public class AbstractCachedBitMap extends AbstractBitMap {
         }
         nodeCache.remove(node.position);
         recordCache.remove(recordReference.position);
-        keyCache.remove((Object)key);
+        uncacheRecId(key);
     }
 
     /**
@@ -235,7 +241,7 @@ public class AbstractCachedBitMap extends AbstractBitMap {
         final RecordReference[] references = super.getRecordReference(node, key, hashDigits);
         if(references[1] != null)
         {
-            keyCache.put(key, references[1].position);
+            cacheRecId(key, references[1].position);
         }
 
         return references;
@@ -268,6 +274,80 @@ public class AbstractCachedBitMap extends AbstractBitMap {
         return record.value;
     }
 
+    /**
+     * Whether the record id of a key is cached within the primitive cache
+     *
+     * @param key
+     * @return
+     */
+    protected boolean isPrimitiveKey(Object key)
+    {
+        final Class type = key.getClass();
+        if (type != Long.class && type != Integer.class)
+        {
+            return false;
+        }
+        primitiveKeyType.compareAndSet(null, type);
+        return primitiveKeyType.get() == type;
+    }
+
+    /**
+     * Get the cached record id of a key
+     *
+     * @param key
+     * @return Record id or 0 if it is not cached
+     */
+    protected long getCachedRecId(Object key)
+    {
+        if (isPrimitiveKey(key))
+        {
+            return recordIdCache.get(((Number) key).longValue());
+        }
+
+        final Long recordId = keyCache.get(key);
+        return (recordId == null) ? 0 : recordId;
+    }
+
+    protected void cacheRecId(Object key, long recordId)
+    {
+        if (isPrimitiveKey(key))
+            recordIdCache.put(((Number) key).longValue(), recordId);
+        else
+            keyCache.put(key, recordId);
+    }
+
+    protected void uncacheRecId(Object key)
+    {
+        if (isPrimitiveKey(key))
+            recordIdCache.remove(((Number) key).longValue());
+        else
+            keyCache.remove(key);
+    }
+
+    /**
+     * Discard every cached node, record and record id
+     */
+    public void clearCaches()
+    {
+        nodeCache.clear();
+        recordCache.clear();
+        keyCache.clear();
+        recordIdCache.clear();
+    }
+
+    /**
+     * Set the name the records are weighted by within the shared record cache
+     *
+     * @param name Structure name
+     */
+    public void setCacheName(String name)
+    {
+        if (recordCache instanceof CacheMap)
+        {
+            ((CacheMap) recordCache).setName(name);
+        }
+    }
+
     private static ObjectUtil reflection = ObjectUtil.getInstance();
 
     /**
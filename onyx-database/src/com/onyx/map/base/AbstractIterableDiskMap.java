@@ -13,11 +13,13 @@ import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Created by timothy.osborn on 3/26/15.
  */
-public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap implements Map<K, V> {
+public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap implements Map<K, V>, Compactable {
 
     protected LevelReadWriteLock readWriteLock = new DefaultLevelReadWriteLock();
 
@@ -35,6 +37,25 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
         dict = new DictionaryCollection(fileStore, this);
     }
 
+    /**
+     * Read records outside of the level locks.  The master read lock is held so the read can not overlap moving the map
+     * to a compacted file.  It must not be called while holding a level lock.
+     *
+     * @param read Read to perform
+     * @return Result of the read
+     */
+    protected <T> T readShared(Supplier<T> read)
+    {
+        readWriteLock.readLock().lock();
+        try
+        {
+            return read.get();
+        } finally
+        {
+            readWriteLock.readLock().unlock();
+        }
+    }
+
     ///////////////////////////////////////////////////////////////////////////////////////////////////
     //
     // Iterate-able properties on map
@@ -104,6 +125,18 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
         return entries;
     }
 
+    /**
+     * Spliterator of the record ids within the map.  It splits on the branches of the bitmap so the records can be
+     * traversed in parallel without looking up the keys again.
+     *
+     * @return Record id spliterator
+     * @see AbstractIterableDiskMap.RecordIdSpliterator
+     */
+    public Spliterator<Long> recordIdSpliterator()
+    {
+        return new RecordIdSpliterator(header);
+    }
+
     /**
      * For Each Iterator
      *
@@ -138,6 +171,154 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
         }
     }
 
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+    //
+    // Compaction
+    //
+    ///////////////////////////////////////////////////////////////////////////////////////////////////
+
+    /**
+     * Record the keys changed from now on
+     *
+     * @param changedKeys Set to record changed keys in or null to stop tracking
+     */
+    @Override
+    public void trackChanges(Set<Object> changedKeys)
+    {
+        this.changedKeys = changedKeys;
+    }
+
+    /**
+     * Block reads and writes by taking every level write lock
+     */
+    @Override
+    public void pause()
+    {
+        readWriteLock.writeLock().lock();
+        for (int level = 0; level < DefaultLevelReadWriteLock.LEVELS; level++)
+        {
+            readWriteLock.writeLock(level).lock();
+        }
+    }
+
+    /**
+     * Resume reads and writes
+     */
+    @Override
+    public void resume()
+    {
+        for (int level = DefaultLevelReadWriteLock.LEVELS - 1; level >= 0; level--)
+        {
+            readWriteLock.writeLock(level).unlock();
+        }
+        readWriteLock.writeLock().unlock();
+    }
+
+    /**
+     * Keys stored within the branches guarded by a level lock.  The lock is held while they are read so that records
+     * being moved by a concurrent write are not read.
+     *
+     * @param level Level lock
+     * @return Keys within the branches for the level
+     */
+    public List<Object> getKeysForLevel(int level)
+    {
+        final List<Object> results = new ArrayList<>();
+
+        readWriteLock.readLock(level).lock();
+        try
+        {
+            if (header.firstNode > 0)
+            {
+                collectKeysForLevel(level, results);
+            }
+        } finally
+        {
+            readWriteLock.readLock(level).unlock();
+        }
+
+        return results;
+    }
+
+    /**
+     * Gather the keys within the branches guarded by a level lock
+     *
+     * @param level Level lock
+     * @param results Keys found
+     */
+    protected void collectKeysForLevel(int level, List<Object> results)
+    {
+        // The first level of the bitmap is the sign of the hash and the second is guarded by the level lock
+        final BitMapNode root = getBitmapNode(header.firstNode);
+        for (int sign = 0; sign < 2; sign++)
+        {
+            if (root.next[sign] > 0)
+            {
+                final long branch = getBitmapNode(root.next[sign]).next[level];
+                if (branch > 0)
+                {
+                    collectKeys(branch, 2, results);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gather the keys below a bitmap node
+     *
+     * @param position Position of the bitmap node
+     * @param depth Depth of the node within the bitmap
+     * @param results Keys found
+     */
+    protected void collectKeys(long position, int depth, List<Object> results)
+    {
+        final BitMapNode node = getBitmapNode(position);
+
+        for (int i = 0; i < node.next.length; i++)
+        {
+            long reference = node.next[i];
+            if (reference == 0)
+            {
+                continue;
+            }
+
+            if (isNodeReference(reference, depth))
+            {
+                collectKeys(getNodePosition(reference), depth + 1, results);
+            }
+            else
+            {
+                // Records with colliding hashes are linked together
+                while (reference > 0)
+                {
+                    final RecordReference recordReference = getRecordReference(reference);
+                    results.add(getRecordKey(recordReference));
+                    reference = recordReference.next;
+                }
+            }
+        }
+    }
+
+    /**
+     * Move the map over to a new store and discard the cached nodes and records
+     *
+     * @param store New store
+     * @param header Header of the map within the new store
+     */
+    @Override
+    public void relocate(Store store, Header header)
+    {
+        this.fileStore = store;
+        this.header = header;
+
+        clearCaches();
+
+        entries = new EntryCollection(fileStore, this);
+        values = new ValueCollection(fileStore, this);
+        keys = new KeyCollection(fileStore, this);
+        dict = new DictionaryCollection(fileStore, this);
+    }
+
     /**
      * Class for sifting through values
      *
@@ -468,12 +649,14 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
         @Override
         public Object next()
         {
-            final RecordReference reference = (RecordReference) super.next();
-            if (reference != null)
-            {
-                return getRecordValue(reference);
-            }
-            return null;
+            return readShared(() -> {
+                final RecordReference reference = (RecordReference) super.next();
+                if (reference != null)
+                {
+                    return getRecordValue(reference);
+                }
+                return null;
+            });
         }
     }
 
@@ -489,12 +672,14 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
         @Override
         public Object next()
         {
-            final RecordReference reference = (RecordReference) super.next();
-            if (reference != null)
-            {
-                return getRecordKey(reference);
-            }
-            return null;
+            return readShared(() -> {
+                final RecordReference reference = (RecordReference) super.next();
+                if (reference != null)
+                {
+                    return getRecordKey(reference);
+                }
+                return null;
+            });
         }
     }
 
@@ -520,12 +705,14 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
         @Override
         public Object next()
         {
-            final RecordReference reference = (RecordReference) super.next();
-            if (reference != null)
-            {
-                return new DiskMapEntry(reference);
-            }
-            return null;
+            return readShared(() -> {
+                final RecordReference reference = (RecordReference) super.next();
+                if (reference != null)
+                {
+                    return new DiskMapEntry(reference);
+                }
+                return null;
+            });
         }
     }
 
@@ -554,12 +741,14 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
         @Override
         public Object next()
         {
-            final RecordReference reference = (RecordReference) super.next();
-            if (reference != null)
-            {
-                return getRecordValueAsDictionary(reference);
-            }
-            return null;
+            return readShared(() -> {
+                final RecordReference reference = (RecordReference) super.next();
+                if (reference != null)
+                {
+                    return getRecordValueAsDictionary(reference);
+                }
+                return null;
+            });
         }
     }
 
@@ -593,7 +782,7 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
         public K getKey()
         {
             if (key == null) // Lazy load the key
-                key = (K) getRecordKey(node);
+                key = (K) readShared(() -> getRecordKey(node));
 
             return key;
         }
@@ -607,7 +796,7 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
         public V getValue()
         {
             if (value == null) // Lazy load the key
-                value = (V) getRecordValue(node);
+                value = (V) readShared(() -> getRecordValue(node));
             return value;
         }
 
@@ -619,6 +808,159 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
         }
     }
 
+    /**
+     * Record Id Spliterator
+     * <p/>
+     * Walks the bitmap nodes the same way as the node iterator.  Splitting hands off half of the nodes that have not been
+     * visited yet.  If there is only one, it is expanded into its branches first.
+     */
+    class RecordIdSpliterator implements Spliterator<Long> {
+
+        protected Deque<NodeEntry> nodes = new ArrayDeque<>(); // Bitmap nodes that have not been expanded
+        protected Deque<Long> references = new ArrayDeque<>(); // Record references that have not been visited
+
+        protected long estimatedSize;
+
+        /**
+         * Constructor
+         *
+         * @param header
+         */
+        public RecordIdSpliterator(Header header)
+        {
+            if (header.firstNode > 0)
+            {
+                nodes.push(new NodeEntry(header.firstNode, (short) -1));
+            }
+            estimatedSize = header.recordCount.get();
+        }
+
+        /**
+         * Constructor for a split
+         *
+         * @param nodes
+         * @param estimatedSize
+         */
+        protected RecordIdSpliterator(Deque<NodeEntry> nodes, long estimatedSize)
+        {
+            this.nodes = nodes;
+            this.estimatedSize = estimatedSize;
+        }
+
+        /**
+         * Read a bitmap node and queue up its branches
+         *
+         * @param nodeEntry
+         */
+        protected void expand(NodeEntry nodeEntry)
+        {
+            final BitMapNode node = readShared(() -> getBitmapNode(nodeEntry.reference));
+            long reference = 0;
+
+            for (int i = 0; i < node.next.length; i++)
+            {
+                reference = node.next[i];
+                if (reference != 0)
+                {
+                    if (isNodeReference(reference, nodeEntry.level + 1))
+                    {
+                        nodes.push(new NodeEntry(getNodePosition(reference), (short) (nodeEntry.level + 1)));
+                    } else
+                    {
+                        references.push(reference);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Visit the next record id
+         *
+         * @param action
+         * @return false if there are no more records
+         */
+        @Override
+        public boolean tryAdvance(Consumer<? super Long> action)
+        {
+            while (references.isEmpty())
+            {
+                if (nodes.isEmpty())
+                {
+                    return false;
+                }
+                expand(nodes.pop());
+            }
+
+            final long position = references.pop();
+            final RecordReference reference = readShared(() -> getRecordReference(position));
+
+            // Records with colliding hashes are linked together
+            if (reference.next > 0)
+            {
+                references.push(reference.next);
+            }
+
+            action.accept(reference.position);
+            return true;
+        }
+
+        /**
+         * Split off half of the nodes that have not been expanded
+         *
+         * @return Spliterator of the other half or null if the nodes cannot be split
+         */
+        @Override
+        public Spliterator<Long> trySplit()
+        {
+            // Expand until there is more than one branch to hand off
+            while (nodes.size() == 1 && references.isEmpty())
+            {
+                expand(nodes.pop());
+            }
+
+            if (nodes.size() < 2)
+            {
+                return null;
+            }
+
+            final Deque<NodeEntry> split = new ArrayDeque<>();
+            final int splitCount = nodes.size() / 2;
+            for (int i = 0; i < splitCount; i++)
+            {
+                split.add(nodes.pollLast());
+            }
+
+            estimatedSize = estimatedSize / 2;
+            return new RecordIdSpliterator(split, estimatedSize);
+        }
+
+        @Override
+        public long estimateSize()
+        {
+            return estimatedSize;
+        }
+
+        @Override
+        public int characteristics()
+        {
+            return Spliterator.DISTINCT | Spliterator.NONNULL;
+        }
+
+        /**
+         * Bitmap node that has not been expanded and its level within the bitmap
+         */
+        protected class NodeEntry {
+            public NodeEntry(long reference, short level)
+            {
+                this.reference = reference;
+                this.level = level;
+            }
+
+            public long reference;
+            public short level;
+        }
+    }
+
     /**
      * Abstract Node iterator
      * <p/>
@@ -640,7 +982,10 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
             {
                 nodeStack.push(new NodeEntry(header.firstNode, (short)-1));
             }
-            queueUpNext();
+            readShared(() -> {
+                queueUpNext();
+                return null;
+            });
 
         }
 
@@ -673,14 +1018,14 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
                 node = getBitmapNode(nodeEntry.reference);
 
                 // Add all the other related nodes in the bitmap
-                for (int i = 0; i < BitMapNode.RECORD_REFERENCE_INDEX; i++)
+                for (int i = 0; i < node.next.length; i++)
                 {
                     reference = node.next[i];
-                    if (reference > 0)
+                    if (reference != 0)
                     {
-                        if (nodeEntry.level < (BitMapNode.RECORD_REFERENCE_INDEX - 1))
+                        if (isNodeReference(reference, nodeEntry.level + 1))
                         {
-                            newEntry = new NodeEntry(reference, (short) (nodeEntry.level + 1));
+                            newEntry = new NodeEntry(getNodePosition(reference), (short) (nodeEntry.level + 1));
                             nodeStack.add(newEntry);
                         } else
                         {
@@ -706,11 +1051,11 @@ public abstract class AbstractIterableDiskMap<K, V> extends AbstractCachedBitMap
 
             if (referenceStack.size() > 0)
             {
-                RecordReference reference = getRecordReference(referenceStack.pop());
-                while (reference.next > 0)
+                // Records sharing a slot are linked together.  The rest of the chain is visited afterwards.
+                final RecordReference reference = getRecordReference(referenceStack.pop());
+                if (reference.next > 0)
                 {
                     referenceStack.push(reference.next);
-                    reference = getRecordReference(reference.next);
                 }
                 return reference;
             }
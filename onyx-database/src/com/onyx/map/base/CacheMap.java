@@ -1,95 +1,97 @@
 package com.onyx.map.base;
 
 
-import javax.management.Notification;
-import javax.management.NotificationEmitter;
-import javax.management.NotificationListener;
-import java.lang.management.*;
+import com.onyx.map.node.BTreeNode;
+import com.onyx.map.node.Record;
+import com.onyx.map.node.RecordReference;
+
 import java.util.*;
-import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Created by timothy.osborn on 4/2/15.
+ *
+ * Cache of a single map.  The entries count against the budget of the shared cache and are evicted by it.  It is safe
+ * to use from several threads without synchronizing.
  */
 public class CacheMap implements Map {
 
-    // MBean for monitoring
-    protected MemoryPoolMXBean memoryPool = null;
-
-    // Maximum threshold that will be used to flush the entire cache
-    public static final Double MAX_THRESHOLD = 0.90;
+    // Weight of a value whose size is not known
+    public static final int DEFAULT_WEIGHT = 64;
 
-    // Maximum threshold to release items
-    public static final Double RELEASE_THRESHOLD = 0.80;
+    protected final SharedCache cache;
 
-    // Maximum threshold to refrain from adding to cache
-    public static final Double RELIEF_THRESHOLD = 0.70;
+    // Entries of this map.  Only changed by the shared cache while holding its lock.
+    protected final ConcurrentHashMap<Object, SharedCache.CacheEntry> entries = new ConcurrentHashMap<>();
 
-    // Number of items to release per release warning
-    public static final int RELEASE_COUNT = 10000;
+    // Name of the structure the weight factor is looked up by
+    protected volatile String name = null;
 
     /**
-     * Constructor that initializes memory constraints
-     *
+     * Constructor for a cache within the shared cache of the JVM
      */
     public CacheMap()
     {
+        this(SharedCache.getInstance());
+    }
 
-        // Get the HEAP memory pool
-        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
-        {
-            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported())
-            {
-                memoryPool = pool;
-            }
-        }
-
-        // setting for threshold
-        memoryPool.setCollectionUsageThreshold((int) Math.floor(memoryPool.getUsage().getMax() * MAX_THRESHOLD));
-        memoryPool.setUsageThreshold((int) Math.floor(memoryPool.getUsage().getMax() * RELEASE_THRESHOLD));
-
-        final MemoryMXBean mbean = ManagementFactory.getMemoryMXBean();
-        final NotificationEmitter emitter = (NotificationEmitter) mbean;
-        emitter.addNotificationListener(new NotificationListener() {
-            public void handleNotification(Notification n, Object hb)
-            {
-                if (n.getType().equals( MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED))
-                {
-                    hash.clear(); // Clear the cache
-                }
-                else if (n.getType().equals(MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED))
-                {
-                    flushLast(RELEASE_COUNT); // Release items
-                }
-            }
-        }, null, null);
+    /**
+     * Constructor
+     *
+     * @param cache Shared cache the entries belong to
+     */
+    public CacheMap(SharedCache cache)
+    {
+        this.cache = cache;
     }
 
     /**
-     * The actual cache contained in a linked list
+     * Set the name of the structure so the weight factor set for it applies
+     *
+     * @param name
      */
-    protected LinkedHashMap hash = new LinkedHashMap();
+    public void setName(String name)
+    {
+        this.name = name;
+    }
 
     /**
-     * Getter to determine whether there is enough memory to add
+     * Weight of a value in bytes.  Records weigh their serialized size.
      *
+     * @param value
      * @return
      */
-    protected boolean hasEnoughMemory()
+    protected int weigh(Object value)
     {
-        long used = memoryPool.getUsage().getUsed();
-        long threshold = (long) (memoryPool.getUsage().getMax() * RELIEF_THRESHOLD);
-        return (used < threshold);
+        int size = DEFAULT_WEIGHT;
+        if (value instanceof Record && ((Record) value).reference != null)
+        {
+            size = ((Record) value).reference.recordSize + RecordReference.RECORD_REFERENCE_LIST_SIZE;
+        }
+        else if (value instanceof BTreeNode)
+        {
+            size = ((BTreeNode) value).capacity;
+        }
+
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, size * cache.getWeightFactor(name)));
     }
 
     @Override
     public Object get(Object key)
     {
-        return hash.get(key);
+        final SharedCache.CacheEntry entry = entries.get(key);
+        if (entry == null)
+        {
+            cache.recordMiss();
+            return null;
+        }
+
+        cache.recordHit(entry);
+        return entry.value;
     }
 
     /**
-     * Put into cache
+     * Put into cache.  A null value removes the key.
      * @param key
      * @param value
      * @return
@@ -97,91 +99,95 @@ public class CacheMap implements Map {
     @Override
     public Object put(Object key, Object value)
     {
-        if(hasEnoughMemory()) // If we have enough memory do this
-            return hash.put(key, value);
-        flushLast(1);// Otherwise, we result to a FIFO
-        return hash.put(key, value);
-    }
-
-    /**
-     * Flush items from cache
-     *
-     * @param count
-     */
-    public synchronized void flushLast(int count)
-    {
-        for (int i = 0; i < count; i++)
-        {
-            if(hash.size() > 0)
-            {
-                Iterator it = hash.keySet().iterator();
-                if(it.hasNext())
-                {
-                    Object key = it.next();
-                    hash.remove(key);
-                }
-            }
-        }
+        if (value == null)
+            return remove(key);
+        return cache.put(this, key, value, weigh(value));
     }
 
     @Override
     public int size()
     {
-        return hash.size();
+        return entries.size();
     }
 
     @Override
     public boolean isEmpty()
     {
-        return hash.isEmpty();
+        return entries.isEmpty();
     }
 
     @Override
     public boolean containsKey(Object key)
     {
-        return hash.containsKey(key);
+        return entries.containsKey(key);
     }
 
     @Override
     public boolean containsValue(Object value)
     {
-        return hash.containsValue(value);
+        for (SharedCache.CacheEntry entry : entries.values())
+        {
+            if (Objects.equals(value, entry.value))
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     public Object remove(Object key)
     {
-        return hash.remove(key);
+        return cache.remove(this, key);
     }
 
     @Override
     public void putAll(Map m)
     {
-        hash.putAll(m);
+        for (Object entry : m.entrySet())
+        {
+            put(((Entry) entry).getKey(), ((Entry) entry).getValue());
+        }
     }
 
     @Override
     public void clear()
     {
-        hash.clear();
+        cache.clear(this);
     }
 
     @Override
     public Set keySet()
     {
-        return hash.keySet();
+        return Collections.unmodifiableSet(entries.keySet());
     }
 
+    /**
+     * Copy of the cached values
+     */
     @Override
     public Collection values()
     {
-        return hash.values();
+        final List<Object> values = new ArrayList<>();
+        for (SharedCache.CacheEntry entry : entries.values())
+        {
+            values.add(entry.value);
+        }
+        return values;
     }
 
+    /**
+     * Copy of the cached entries
+     */
     @Override
     public Set<Entry> entrySet()
     {
-        return hash.entrySet();
+        final Map<Object, Object> copy = new HashMap<>();
+        for (SharedCache.CacheEntry entry : entries.values())
+        {
+            copy.put(entry.key, entry.value);
+        }
+        return (Set) copy.entrySet();
     }
 
 }
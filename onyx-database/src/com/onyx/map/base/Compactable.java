@@ -0,0 +1,41 @@
+package com.onyx.map.base;
+
+import com.onyx.map.node.Header;
+import com.onyx.map.store.Store;
+
+import java.util.Set;
+
+/**
+ * Structure that can be moved into a compacted store while it remains online.  Changes made while it is being copied
+ * are tracked so they can be replayed before it is moved over.
+ */
+public interface Compactable
+{
+    // Marker indicating every key was removed
+    Object CLEARED = new Object();
+
+    /**
+     * Record the keys changed from now on.  The key is added before the change is written.
+     *
+     * @param changedKeys Set to record changed keys in or null to stop tracking
+     */
+    void trackChanges(Set<Object> changedKeys);
+
+    /**
+     * Block reads and writes until resumed
+     */
+    void pause();
+
+    /**
+     * Resume reads and writes blocked by pause
+     */
+    void resume();
+
+    /**
+     * Move the structure over to a new store.  Anything cached from the previous store is discarded.
+     *
+     * @param store New store
+     * @param header Header of the structure within the new store
+     */
+    void relocate(Store store, Header header);
+}
@@ -1,31 +1,68 @@
 package com.onyx.map.base;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Created by tosborn1 on 8/4/15.
+ *
+ * Each level is split into stripes chosen by the hash of the key.  Keys with the same hash always share a stripe so
+ * they are still serialized, while keys that only share a level no longer wait on each other.
  */
 public class DefaultLevelReadWriteLock implements LevelReadWriteLock
 {
+    // Number of level locks
+    public static final int LEVELS = 10;
+
+    // Default number of stripes within each level
+    public static final int DEFAULT_STRIPES = 16;
+
     public ReentrantReadWriteLock masterLock = new ReentrantReadWriteLock(true);
 
     public ReadWriteLock[] locks;
 
+    protected final int stripeMask;
+
+    protected final Lock[] levelReadLocks = new Lock[LEVELS];
+    protected final Lock[] levelWriteLocks = new Lock[LEVELS];
+
     public DefaultLevelReadWriteLock()
     {
-        locks = new ReadWriteLock[10];
-        locks[0] = new ReentrantReadWriteLock(true);
-        locks[1] = new ReentrantReadWriteLock(true);
-        locks[2] = new ReentrantReadWriteLock(true);
-        locks[3] = new ReentrantReadWriteLock(true);
-        locks[4] = new ReentrantReadWriteLock(true);
-        locks[5] = new ReentrantReadWriteLock(true);
-        locks[6] = new ReentrantReadWriteLock(true);
-        locks[7] = new ReentrantReadWriteLock(true);
-        locks[8] = new ReentrantReadWriteLock(true);
-        locks[9] = new ReentrantReadWriteLock(true);
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param stripes Stripes within each level.  Rounded up to a power of 2.
+     */
+    public DefaultLevelReadWriteLock(int stripes)
+    {
+        final int stripesPerLevel = (stripes <= 1) ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        stripeMask = stripesPerLevel - 1;
+
+        // Fairness makes readers queue behind a waiting writer even when the stripe is only read locked
+        locks = new ReadWriteLock[LEVELS * stripesPerLevel];
+        for (int i = 0; i < locks.length; i++)
+        {
+            locks[i] = new ReentrantReadWriteLock();
+        }
+
+        for (int level = 0; level < LEVELS; level++)
+        {
+            final Lock[] readLocks = new Lock[stripesPerLevel];
+            final Lock[] writeLocks = new Lock[stripesPerLevel];
+            for (int stripe = 0; stripe < stripesPerLevel; stripe++)
+            {
+                readLocks[stripe] = locks[level * stripesPerLevel + stripe].readLock();
+                writeLocks[stripe] = locks[level * stripesPerLevel + stripe].writeLock();
+            }
+            levelReadLocks[level] = new LevelLock(readLocks);
+            levelWriteLocks[level] = new LevelLock(writeLocks);
+        }
     }
 
     @Override
@@ -42,11 +79,149 @@ public class DefaultLevelReadWriteLock implements LevelReadWriteLock
 
     public Lock readLock(int level)
     {
-        return locks[level].readLock();
+        return levelReadLocks[level];
     }
 
     public Lock writeLock(int level)
     {
-        return locks[level].writeLock();
+        return levelWriteLocks[level];
+    }
+
+    public Lock readLock(int level, int hash)
+    {
+        return locks[stripe(level, hash)].readLock();
+    }
+
+    public Lock writeLock(int level, int hash)
+    {
+        return locks[stripe(level, hash)].writeLock();
+    }
+
+    /**
+     * Number of stripes within each level
+     *
+     * @return Stripes per level
+     */
+    public int getStripes()
+    {
+        return stripeMask + 1;
+    }
+
+    /**
+     * Index of the stripe a hash belongs to.  The digits of the hash pick the level so the bits are spread before
+     * picking the stripe within it.
+     *
+     * @param level Level
+     * @param hash Hash of the key
+     * @return Index within locks
+     */
+    protected int stripe(int level, int hash)
+    {
+        final int spread = hash ^ (hash >>> 16);
+        return level * (stripeMask + 1) + ((spread ^ (spread >>> 7)) & stripeMask);
+    }
+
+    /**
+     * Locks every stripe within a level in order and unlocks them in reverse
+     */
+    protected static class LevelLock implements Lock
+    {
+        protected final Lock[] stripes;
+
+        public LevelLock(Lock[] stripes)
+        {
+            this.stripes = stripes;
+        }
+
+        @Override
+        public void lock()
+        {
+            for (Lock stripe : stripes)
+            {
+                stripe.lock();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException
+        {
+            int locked = 0;
+            try
+            {
+                for (; locked < stripes.length; locked++)
+                {
+                    stripes[locked].lockInterruptibly();
+                }
+            } finally
+            {
+                if (locked < stripes.length)
+                {
+                    unlock(locked);
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock()
+        {
+            for (int i = 0; i < stripes.length; i++)
+            {
+                if (!stripes[i].tryLock())
+                {
+                    unlock(i);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException
+        {
+            final long deadline = System.nanoTime() + unit.toNanos(time);
+            int locked = 0;
+            try
+            {
+                for (; locked < stripes.length; locked++)
+                {
+                    if (!stripes[locked].tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+                    {
+                        return false;
+                    }
+                }
+                return true;
+            } finally
+            {
+                if (locked < stripes.length)
+                {
+                    unlock(locked);
+                }
+            }
+        }
+
+        @Override
+        public void unlock()
+        {
+            unlock(stripes.length);
+        }
+
+        /**
+         * Unlock the first stripes in reverse order
+         *
+         * @param count Number of stripes locked
+         */
+        protected void unlock(int count)
+        {
+            for (int i = count - 1; i >= 0; i--)
+            {
+                stripes[i].unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition()
+        {
+            throw new UnsupportedOperationException();
+        }
     }
 }
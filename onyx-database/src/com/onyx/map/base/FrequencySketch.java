@@ -0,0 +1,104 @@
+package com.onyx.map.base;
+
+/**
+ * Estimates how often an entry was used recently.  Each hash is counted by 4 counters of 4 bits and the smallest is the
+ * estimate.  Once enough increments are sampled every counter is halved so entries that were popular long ago fade.
+ *
+ * This is not thread safe.  It is only used while holding the lock of the shared cache.
+ */
+public class FrequencySketch
+{
+    protected static final long[] SEEDS = { 0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L };
+    protected static final long RESET_MASK = 0x7777777777777777L;
+
+    // Largest table.  Each long holds 16 counters.
+    protected static final int MAXIMUM_LENGTH = 1 << 20;
+
+    protected long[] table;
+    protected int tableMask;
+    protected int sampleSize;
+    protected int size;
+
+    /**
+     * Constructor
+     *
+     * @param maximumEntries Number of entries expected to be cached at once
+     */
+    public FrequencySketch(long maximumEntries)
+    {
+        final int length = (int) Math.min(MAXIMUM_LENGTH, Math.max(64, Long.highestOneBit(Math.max(1, maximumEntries - 1)) << 1));
+        table = new long[length];
+        tableMask = length - 1;
+        sampleSize = 10 * length;
+    }
+
+    /**
+     * Estimated number of times a hash was used
+     *
+     * @param hash
+     * @return Frequency up to 15
+     */
+    public int frequency(int hash)
+    {
+        final int start = (hash & 3) << 2;
+        int frequency = Integer.MAX_VALUE;
+        for (int i = 0; i < 4; i++)
+        {
+            final int offset = (start + i) << 2;
+            final int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Count a use of a hash
+     *
+     * @param hash
+     */
+    public void increment(int hash)
+    {
+        final int start = (hash & 3) << 2;
+        boolean added = false;
+        for (int i = 0; i < 4; i++)
+        {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++size == sampleSize)
+        {
+            reset();
+        }
+    }
+
+    protected boolean incrementAt(int index, int counter)
+    {
+        final int offset = counter << 2;
+        final long mask = 0xfL << offset;
+        if ((table[index] & mask) != mask)
+        {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halve every counter
+     */
+    protected void reset()
+    {
+        for (int i = 0; i < table.length; i++)
+        {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = size / 2;
+    }
+
+    protected int indexOf(int hash, int i)
+    {
+        long position = (hash + SEEDS[i]) * SEEDS[i];
+        position += position >>> 32;
+        return ((int) position) & tableMask;
+    }
+}
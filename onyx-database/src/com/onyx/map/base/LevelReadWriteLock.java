@@ -22,4 +22,22 @@ public interface LevelReadWriteLock extends ReadWriteLock
      * @return
      */
     Lock writeLock(int level);
-}
\ No newline at end of file
+
+    /**
+     * Get Read lock for the stripe of a hash within a level
+     *
+     * @param level
+     * @param hash
+     * @return
+     */
+    Lock readLock(int level, int hash);
+
+    /**
+     * Get Write lock for the stripe of a hash within a level
+     *
+     * @param level
+     * @param hash
+     * @return
+     */
+    Lock writeLock(int level, int hash);
+}
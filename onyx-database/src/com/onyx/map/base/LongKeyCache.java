@@ -0,0 +1,242 @@
+package com.onyx.map.base;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded cache of long keys to record ids kept within primitive arrays.  Keys are neither boxed nor weakly referenced
+ * so entries survive garbage collection.
+ *
+ * A key may be stored in any of the 4 slots of its bucket.  When they are all used an entry is replaced, and once
+ * enough entries have been replaced the table is grown until it reaches its maximum capacity.  Record ids are greater
+ * than 0 so 0 marks an empty slot.
+ *
+ * Reads do not lock.  Each slot has a version that is odd while the slot is written, so a read that overlaps a write
+ * is detected and treated as a miss.  Writes lock the bucket.
+ */
+public class LongKeyCache
+{
+    public static final int INITIAL_CAPACITY = 1 << 10;
+    public static final int MAXIMUM_CAPACITY = 1 << 18;
+
+    protected static final int BUCKET_SIZE = 4;
+    protected static final int STRIPES = 64;
+
+    protected final Object[] stripes = new Object[STRIPES];
+    protected final int maximumCapacity;
+
+    protected volatile Table table;
+
+    public LongKeyCache()
+    {
+        this(INITIAL_CAPACITY, MAXIMUM_CAPACITY);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param initialCapacity Slots allocated up front.  Must be a power of 2.
+     * @param maximumCapacity Slots the table may grow to.  Must be a power of 2.
+     */
+    public LongKeyCache(int initialCapacity, int maximumCapacity)
+    {
+        for (int i = 0; i < STRIPES; i++)
+        {
+            stripes[i] = new Object();
+        }
+        this.maximumCapacity = maximumCapacity;
+        this.table = new Table(initialCapacity);
+    }
+
+    /**
+     * Get the record id of a key
+     *
+     * @param key
+     * @return Record id or 0 if it is not cached
+     */
+    public long get(long key)
+    {
+        final Table table = this.table;
+        final int bucket = table.bucket(key);
+
+        for (int slot = bucket; slot < bucket + BUCKET_SIZE; slot++)
+        {
+            final int version = table.versions.get(slot);
+            if ((version & 1) != 0)
+            {
+                continue;
+            }
+
+            final long cachedKey = table.entries.get(slot << 1);
+            final long recordId = table.entries.get((slot << 1) + 1);
+            if (cachedKey == key && recordId > 0 && table.versions.get(slot) == version)
+            {
+                return recordId;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Cache the record id of a key
+     *
+     * @param key
+     * @param recordId Record id greater than 0
+     */
+    public void put(long key, long recordId)
+    {
+        final Table table = this.table;
+        final int bucket = table.bucket(key);
+        boolean replaced = false;
+
+        synchronized (stripes[(bucket / BUCKET_SIZE) & (STRIPES - 1)])
+        {
+            int target = table.find(bucket, key);
+            if (target < 0)
+            {
+                target = table.findEmpty(bucket);
+            }
+            if (target < 0)
+            {
+                target = bucket + ThreadLocalRandom.current().nextInt(BUCKET_SIZE);
+                replaced = true;
+            }
+            table.write(target, key, recordId);
+        }
+
+        if (replaced && table.replacements.incrementAndGet() > table.capacity / 4 && table.capacity < maximumCapacity)
+        {
+            grow(table);
+        }
+    }
+
+    /**
+     * Remove the record id of a key
+     *
+     * @param key
+     */
+    public void remove(long key)
+    {
+        final Table table = this.table;
+        final int bucket = table.bucket(key);
+
+        synchronized (stripes[(bucket / BUCKET_SIZE) & (STRIPES - 1)])
+        {
+            final int slot = table.find(bucket, key);
+            if (slot >= 0)
+            {
+                table.write(slot, key, 0);
+            }
+        }
+    }
+
+    /**
+     * Remove every entry
+     */
+    public void clear()
+    {
+        table = new Table(table.capacity);
+    }
+
+    /**
+     * Number of slots of the table
+     *
+     * @return
+     */
+    public int getCapacity()
+    {
+        return table.capacity;
+    }
+
+    /**
+     * Replace a table that is too small with a larger empty one.  Entries are not copied since they are only cached.
+     *
+     * @param full Table that was too small
+     */
+    protected synchronized void grow(Table full)
+    {
+        if (table == full)
+        {
+            table = new Table(Math.min(maximumCapacity, full.capacity * 4));
+        }
+    }
+
+    /**
+     * Slots of keys and record ids along with their versions
+     */
+    protected static class Table
+    {
+        protected final int capacity;
+        protected final AtomicLongArray entries;
+        protected final AtomicIntegerArray versions;
+        protected final AtomicInteger replacements = new AtomicInteger(0);
+
+        protected Table(int capacity)
+        {
+            this.capacity = capacity;
+            this.entries = new AtomicLongArray(capacity * 2);
+            this.versions = new AtomicIntegerArray(capacity);
+        }
+
+        /**
+         * First slot of the bucket of a key
+         *
+         * @param key
+         * @return
+         */
+        protected int bucket(long key)
+        {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            return ((int) key) & (capacity - 1) & ~(BUCKET_SIZE - 1);
+        }
+
+        /**
+         * Find the slot within a bucket that holds a key
+         *
+         * @param bucket
+         * @param key
+         * @return Slot or -1 if not found
+         */
+        protected int find(int bucket, long key)
+        {
+            for (int slot = bucket; slot < bucket + BUCKET_SIZE; slot++)
+            {
+                if (entries.get((slot << 1) + 1) > 0 && entries.get(slot << 1) == key)
+                {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Find an empty slot within a bucket
+         *
+         * @param bucket
+         * @return Slot or -1 if the bucket is full
+         */
+        protected int findEmpty(int bucket)
+        {
+            for (int slot = bucket; slot < bucket + BUCKET_SIZE; slot++)
+            {
+                if (entries.get((slot << 1) + 1) == 0)
+                {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        protected void write(int slot, long key, long recordId)
+        {
+            versions.incrementAndGet(slot);
+            entries.set(slot << 1, key);
+            entries.set((slot << 1) + 1, recordId);
+            versions.incrementAndGet(slot);
+        }
+    }
+}
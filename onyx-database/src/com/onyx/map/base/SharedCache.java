@@ -0,0 +1,650 @@
+package com.onyx.map.base;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Cache shared by the record caches of every map within the JVM.  The combined weight of the entries is bounded by a
+ * single budget in bytes.
+ *
+ * Entries are evicted by W-TinyLFU.  A new entry starts in a small window ordered by recency.  When it leaves the
+ * window it is only admitted to the main region if it was used more often than the entry it would replace, so a large
+ * scan of entries used once does not flush the entries that are used often.  The main region is split into a probation
+ * queue and a protected queue for entries used again after they were admitted.
+ *
+ * Reads do not lock.  They are recorded within a buffer that is applied to the queues by whichever thread gets the lock
+ * first.  The buffer drops reads when it is full since the queues only need to be approximately ordered.
+ *
+ * Writes change the entries of their segment right away without locking either.  Linking, unlinking and weighing the
+ * entries is queued and applied the same way as reads.  Writes are never dropped, a writer that finds too many waiting
+ * waits for the lock and applies them itself.
+ */
+public class SharedCache
+{
+    // Share of the budget for the window of new entries
+    protected static final double WINDOW_SHARE = 0.01;
+
+    // Share of the main region for entries used again after they were admitted
+    protected static final double PROTECTED_SHARE = 0.80;
+
+    // Weight assumed for an entry when sizing the frequency sketch
+    protected static final int AVERAGE_WEIGHT = 512;
+
+    // Reads recorded before they are applied.  Must be a power of 2.
+    protected static final int READ_BUFFER_SIZE = 128;
+    protected static final int DRAIN_INTERVAL = 32;
+
+    // Writes waiting to be applied before writers wait for the lock
+    protected static final int WRITE_BUFFER_SIZE = 128;
+
+    // Collection usage of the heap that releases half of the cache
+    public static final Double MAX_THRESHOLD = 0.90;
+
+    protected static final int WINDOW = 0;
+    protected static final int PROBATION = 1;
+    protected static final int PROTECTED = 2;
+    protected static final int REMOVED = 3;
+
+    protected static final SharedCache instance = new SharedCache(Runtime.getRuntime().maxMemory() / 4);
+
+    static
+    {
+        instance.releaseOnLowMemory();
+    }
+
+    /**
+     * Cache shared by the maps within the JVM.  Its budget is a quarter of the maximum heap unless it is changed.
+     *
+     * @return Shared cache
+     */
+    public static SharedCache getInstance()
+    {
+        return instance;
+    }
+
+    protected final ReentrantLock lock = new ReentrantLock();
+
+    protected final CacheEntry window = new CacheEntry();
+    protected final CacheEntry probation = new CacheEntry();
+    protected final CacheEntry protectedEntries = new CacheEntry();
+
+    protected long maximumWeight;
+    protected long windowMaximum;
+    protected long protectedMaximum;
+
+    protected long windowWeight = 0;
+    protected long probationWeight = 0;
+    protected long protectedWeight = 0;
+
+    protected FrequencySketch sketch;
+
+    protected final AtomicReferenceArray<CacheEntry> readBuffer = new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+    protected final AtomicLong reads = new AtomicLong(0);
+
+    protected final ConcurrentLinkedQueue<Runnable> writeBuffer = new ConcurrentLinkedQueue<>();
+    protected final AtomicInteger pendingWrites = new AtomicInteger(0);
+
+    protected final LongAdder hits = new LongAdder();
+    protected final LongAdder misses = new LongAdder();
+    protected final LongAdder evictions = new LongAdder();
+
+    // Weight of the entries of a named structure relative to their size
+    protected final Map<String, Double> weightFactors = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param maximumWeight Budget in bytes
+     */
+    public SharedCache(long maximumWeight)
+    {
+        setMaximumWeight(maximumWeight);
+    }
+
+    /**
+     * Change the budget.  Entries are evicted right away if it is lowered.
+     *
+     * @param maximumWeight Budget in bytes
+     */
+    public void setMaximumWeight(long maximumWeight)
+    {
+        lock.lock();
+        try
+        {
+            this.maximumWeight = maximumWeight;
+            this.windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_SHARE));
+            this.protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_SHARE);
+            this.sketch = new FrequencySketch(maximumWeight / AVERAGE_WEIGHT);
+            drainBuffers();
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public long getMaximumWeight()
+    {
+        return maximumWeight;
+    }
+
+    /**
+     * Combined weight of the cached entries
+     *
+     * @return Weight in bytes
+     */
+    public long getWeightedSize()
+    {
+        lock.lock();
+        try
+        {
+            drainBuffers();
+            return windowWeight + probationWeight + protectedWeight;
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * Set the weight of the entries of a named structure relative to their size.  A factor below 1 keeps more entries
+     * of the structure cached and a factor above 1 keeps fewer.
+     *
+     * @param name Structure name.  For entity records this is the canonical name of the entity class.
+     * @param factor Weight factor
+     */
+    public void setWeightFactor(String name, double factor)
+    {
+        weightFactors.put(name, factor);
+    }
+
+    public double getWeightFactor(String name)
+    {
+        final Double factor = (name == null) ? null : weightFactors.get(name);
+        return (factor == null) ? 1.0 : factor;
+    }
+
+    /**
+     * Record a read of a cached entry
+     *
+     * @param entry
+     */
+    protected void recordHit(CacheEntry entry)
+    {
+        hits.increment();
+
+        final long read = reads.getAndIncrement();
+        readBuffer.lazySet((int) (read & (READ_BUFFER_SIZE - 1)), entry);
+
+        if ((read & (DRAIN_INTERVAL - 1)) == 0 && lock.tryLock())
+        {
+            try
+            {
+                drainBuffers();
+            } finally
+            {
+                lock.unlock();
+            }
+        }
+    }
+
+    protected void recordMiss()
+    {
+        misses.increment();
+    }
+
+    /**
+     * Add or replace an entry of a segment
+     *
+     * @param segment Cache map the entry belongs to
+     * @param key
+     * @param value
+     * @param weight Weight in bytes
+     * @return Previous value
+     */
+    protected Object put(CacheMap segment, Object key, Object value, int weight)
+    {
+        final CacheEntry existing = segment.entries.get(key);
+        if (existing != null)
+        {
+            final Object previous = existing.value;
+            existing.value = value;
+            afterWrite(() -> {
+                if (existing.queue != REMOVED)
+                {
+                    adjustWeight(existing, weight - existing.weight);
+                    onAccess(existing);
+                }
+            });
+            return previous;
+        }
+
+        if (weight > maximumWeight)
+        {
+            return null;
+        }
+
+        final CacheEntry entry = new CacheEntry(segment, key, value, weight);
+        final CacheEntry raced = segment.entries.put(key, entry);
+        afterWrite(() -> {
+            if (raced != null)
+            {
+                unlink(raced);
+            }
+
+            // The entry may have been replaced or removed before it was linked
+            if (segment.entries.get(key) == entry)
+            {
+                sketch.increment(entry.hash);
+                entry.queue = WINDOW;
+                link(window, entry);
+                windowWeight += entry.weight;
+            }
+        });
+        return (raced == null) ? null : raced.value;
+    }
+
+    /**
+     * Remove an entry of a segment
+     *
+     * @param segment
+     * @param key
+     * @return Removed value
+     */
+    protected Object remove(CacheMap segment, Object key)
+    {
+        final CacheEntry entry = segment.entries.remove(key);
+        if (entry == null)
+        {
+            return null;
+        }
+
+        afterWrite(() -> unlink(entry));
+        return entry.value;
+    }
+
+    /**
+     * Queue a change to the queues.  It is applied right away if the lock is free or too many are waiting.
+     *
+     * @param write Change applied while holding the lock
+     */
+    protected void afterWrite(Runnable write)
+    {
+        writeBuffer.add(write);
+
+        if (pendingWrites.incrementAndGet() > WRITE_BUFFER_SIZE)
+        {
+            lock.lock();
+        }
+        else if (!lock.tryLock())
+        {
+            return;
+        }
+
+        try
+        {
+            drainBuffers();
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remove every entry of a segment
+     *
+     * @param segment
+     */
+    protected void clear(CacheMap segment)
+    {
+        lock.lock();
+        try
+        {
+            drainBuffers();
+            for (CacheEntry entry : segment.entries.values())
+            {
+                unlink(entry);
+            }
+            segment.entries.clear();
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Evict entries until the cache weighs no more than a limit
+     *
+     * @param weight Limit in bytes
+     */
+    public void trim(long weight)
+    {
+        lock.lock();
+        try
+        {
+            drainBuffers();
+            while (windowWeight + probationWeight + protectedWeight > weight)
+            {
+                evictEntry(victim());
+            }
+        } finally
+        {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Apply the recorded reads and writes and evict what no longer fits
+     */
+    protected void drainBuffers()
+    {
+        drainReads();
+        drainWrites();
+        evict();
+    }
+
+    /**
+     * Apply the queued writes in the order they were made
+     */
+    protected void drainWrites()
+    {
+        Runnable write;
+        while ((write = writeBuffer.poll()) != null)
+        {
+            pendingWrites.decrementAndGet();
+            write.run();
+        }
+    }
+
+    /**
+     * Apply the recorded reads to the queues
+     */
+    protected void drainReads()
+    {
+        for (int i = 0; i < READ_BUFFER_SIZE; i++)
+        {
+            final CacheEntry entry = readBuffer.getAndSet(i, null);
+            if (entry != null && entry.queue != REMOVED)
+            {
+                sketch.increment(entry.hash);
+                onAccess(entry);
+            }
+        }
+    }
+
+    /**
+     * Move an entry that was used to the most recent end of its queue.  An entry on probation is protected once used
+     * again.
+     *
+     * @param entry
+     */
+    protected void onAccess(CacheEntry entry)
+    {
+        if (entry.queue == WINDOW)
+        {
+            moveToTail(window, entry);
+        }
+        else if (entry.queue == PROBATION)
+        {
+            unlink(entry);
+            entry.queue = PROTECTED;
+            link(protectedEntries, entry);
+            protectedWeight += entry.weight;
+
+            // Demote the least recently used protected entries so the protected queue stays within its share
+            while (protectedWeight > protectedMaximum && protectedEntries.next != entry)
+            {
+                final CacheEntry demoted = protectedEntries.next;
+                unlink(demoted);
+                demoted.queue = PROBATION;
+                link(probation, demoted);
+                probationWeight += demoted.weight;
+            }
+        }
+        else if (entry.queue == PROTECTED)
+        {
+            moveToTail(protectedEntries, entry);
+        }
+    }
+
+    /**
+     * Move entries that no longer fit in the window to probation and evict until the cache is within its budget.
+     * Entries leaving the window are candidates that must be used more often than the victim they would replace.
+     */
+    protected void evict()
+    {
+        CacheEntry candidate = null;
+        while (windowWeight > windowMaximum && window.next != window)
+        {
+            final CacheEntry entry = window.next;
+            unlink(entry);
+            entry.queue = PROBATION;
+            link(probation, entry);
+            probationWeight += entry.weight;
+
+            if (candidate == null)
+            {
+                candidate = entry;
+            }
+        }
+
+        while (windowWeight + probationWeight + protectedWeight > maximumWeight)
+        {
+            final CacheEntry victim = victim();
+
+            if (candidate == null || candidate.queue != PROBATION)
+            {
+                evictEntry(victim);
+            }
+            else if (victim == candidate)
+            {
+                candidate = nextCandidate(candidate);
+                evictEntry(victim);
+            }
+            else if (sketch.frequency(candidate.hash) > sketch.frequency(victim.hash))
+            {
+                evictEntry(victim);
+            }
+            else
+            {
+                final CacheEntry rejected = candidate;
+                candidate = nextCandidate(candidate);
+                evictEntry(rejected);
+            }
+        }
+    }
+
+    protected CacheEntry nextCandidate(CacheEntry candidate)
+    {
+        return (candidate.next == probation) ? null : candidate.next;
+    }
+
+    /**
+     * Least recently used entry of probation, or of the protected entries or the window when probation is empty
+     *
+     * @return Entry to evict
+     */
+    protected CacheEntry victim()
+    {
+        if (probation.next != probation)
+        {
+            return probation.next;
+        }
+        else if (protectedEntries.next != protectedEntries)
+        {
+            return protectedEntries.next;
+        }
+        return window.next;
+    }
+
+    protected void evictEntry(CacheEntry entry)
+    {
+        entry.segment.entries.remove(entry.key, entry);
+        unlink(entry);
+        evictions.increment();
+    }
+
+    protected void adjustWeight(CacheEntry entry, int difference)
+    {
+        entry.weight += difference;
+        if (entry.queue == WINDOW)
+        {
+            windowWeight += difference;
+        }
+        else if (entry.queue == PROBATION)
+        {
+            probationWeight += difference;
+        }
+        else if (entry.queue == PROTECTED)
+        {
+            protectedWeight += difference;
+        }
+    }
+
+    protected static void link(CacheEntry queue, CacheEntry entry)
+    {
+        entry.previous = queue.previous;
+        entry.next = queue;
+        queue.previous.next = entry;
+        queue.previous = entry;
+    }
+
+    protected void unlink(CacheEntry entry)
+    {
+        if (entry.queue == REMOVED)
+        {
+            return;
+        }
+
+        if (entry.queue == WINDOW)
+        {
+            windowWeight -= entry.weight;
+        }
+        else if (entry.queue == PROBATION)
+        {
+            probationWeight -= entry.weight;
+        }
+        else
+        {
+            protectedWeight -= entry.weight;
+        }
+
+        entry.previous.next = entry.next;
+        entry.next.previous = entry.previous;
+        entry.previous = null;
+        entry.next = null;
+        entry.queue = REMOVED;
+    }
+
+    protected static void moveToTail(CacheEntry queue, CacheEntry entry)
+    {
+        entry.previous.next = entry.next;
+        entry.next.previous = entry.previous;
+        link(queue, entry);
+    }
+
+    /**
+     * Release half of the cache when the heap is still nearly full after a collection
+     */
+    protected void releaseOnLowMemory()
+    {
+        MemoryPoolMXBean memoryPool = null;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans())
+        {
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported())
+            {
+                memoryPool = pool;
+            }
+        }
+
+        if (memoryPool == null || memoryPool.getUsage().getMax() < 0)
+        {
+            return;
+        }
+
+        memoryPool.setCollectionUsageThreshold((long) Math.floor(memoryPool.getUsage().getMax() * MAX_THRESHOLD));
+
+        final NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        emitter.addNotificationListener(new NotificationListener() {
+            public void handleNotification(Notification n, Object hb)
+            {
+                if (n.getType().equals(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED))
+                {
+                    trim(getWeightedSize() / 2);
+                }
+            }
+        }, null, null);
+    }
+
+    /**
+     * Cached value and its place within the queues.  The queues are circular lists with an empty entry at their head.
+     */
+    protected static class CacheEntry
+    {
+        protected final CacheMap segment;
+        protected final Object key;
+        protected final int hash;
+        protected volatile Object value;
+        protected int weight;
+        protected int queue;
+
+        protected CacheEntry previous;
+        protected CacheEntry next;
+
+        /**
+         * Head of a queue
+         */
+        protected CacheEntry()
+        {
+            this.segment = null;
+            this.key = null;
+            this.hash = 0;
+            this.previous = this;
+            this.next = this;
+        }
+
+        protected CacheEntry(CacheMap segment, Object key, Object value, int weight)
+        {
+            this.segment = segment;
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+
+            // Not within a queue until the write is applied
+            this.queue = REMOVED;
+
+            int hash = System.identityHashCode(segment) * 31 + key.hashCode();
+            hash ^= hash >>> 16;
+            hash *= 0x85ebca6b;
+            hash ^= hash >>> 13;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.onyx.map.node;
+
+import com.onyx.map.exception.SerializationException;
+import com.onyx.map.serializer.ObjectBuffer;
+import com.onyx.map.serializer.ObjectSerializable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Node within an ordered B+ tree.  Leaf nodes contain the keys while internal nodes contain separator keys and
+ * references to their children.  Since keys vary in size, each node records the capacity that was allocated for it so
+ * it can be read back without knowing its size ahead of time.
+ */
+public class BTreeNode implements ObjectSerializable
+{
+    // Position and capacity are always written first so the node size can be read before the node itself
+    public static final int NODE_HEADER_SIZE = Long.BYTES + Integer.BYTES;
+
+    public long position;
+    public int capacity;
+    public boolean leaf = true;
+
+    public List<Object> keys = new ArrayList<>();
+    public List<Long> children = new ArrayList<>();
+
+    /**
+     * Write Object
+     *
+     * @param buffer
+     * @throws IOException
+     */
+    @Override
+    public void writeObject(ObjectBuffer buffer) throws IOException
+    {
+        buffer.writeLong(position);
+        buffer.writeInt(capacity);
+        buffer.writeBoolean(leaf);
+        buffer.writeInt(keys.size());
+
+        for(Object key : keys)
+        {
+            buffer.writeObject(key);
+        }
+
+        if(!leaf)
+        {
+            buffer.writeInt(children.size());
+            for(Long child : children)
+            {
+                buffer.writeLong(child);
+            }
+        }
+    }
+
+    /**
+     * Read Object
+     *
+     * @param buffer
+     * @throws IOException
+     */
+    @Override
+    public void readObject(ObjectBuffer buffer) throws IOException
+    {
+        position = buffer.readLong();
+        capacity = buffer.readInt();
+        leaf = buffer.readBoolean();
+
+        final int keyCount = buffer.readInt();
+        keys = new ArrayList<>(keyCount + 1);
+        for(int i = 0; i < keyCount; i++)
+        {
+            keys.add(buffer.readObject());
+        }
+
+        children = new ArrayList<>();
+        if(!leaf)
+        {
+            final int childCount = buffer.readInt();
+            for(int i = 0; i < childCount; i++)
+            {
+                children.add(buffer.readLong());
+            }
+        }
+    }
+
+    @Override
+    public void readObject(ObjectBuffer buffer, long checksum) throws IOException
+    {
+        readObject(buffer);
+        if(this.position != checksum)
+            throw new SerializationException();
+    }
+
+    @Override
+    public void readObject(ObjectBuffer buffer, long position, int serializerId) throws IOException {
+
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return new Long(position).hashCode();
+    }
+
+    @Override
+    public boolean equals(Object val)
+    {
+        return (val instanceof BTreeNode && ((BTreeNode) val).position == position);
+    }
+}
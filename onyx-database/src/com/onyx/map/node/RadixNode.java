@@ -0,0 +1,54 @@
+package com.onyx.map.node;
+
+import com.onyx.map.serializer.ObjectBuffer;
+
+import java.io.IOException;
+
+/**
+ * Bitmap node with a slot for each value of 6 bits of a hash.  A slot holds either the first record of a chain or the
+ * negated position of the node below it.  The level of the node follows its slots.
+ */
+public class RadixNode extends BitMapNode
+{
+    public static final int SLOTS = 64;
+    public static final int RADIX_NODE_SIZE = ((SLOTS + 1) * Long.BYTES) + Integer.BYTES;
+
+    public int level;
+
+    public RadixNode()
+    {
+        next = new long[SLOTS];
+    }
+
+    public RadixNode(int level)
+    {
+        this();
+        this.level = level;
+    }
+
+    /**
+     * Write Object
+     *
+     * @param buffer
+     * @throws java.io.IOException
+     */
+    @Override
+    public void writeObject(ObjectBuffer buffer) throws IOException
+    {
+        super.writeObject(buffer);
+        buffer.writeInt(level);
+    }
+
+    /**
+     * Read Object
+     * @param buffer
+     * @throws java.io.IOException
+     */
+    @Override
+    public void readObject(ObjectBuffer buffer) throws IOException
+    {
+        position = buffer.readLong();
+        next = buffer.readLongArray(SLOTS);
+        level = buffer.readInt();
+    }
+}
@@ -0,0 +1,29 @@
+package com.onyx.map.node;
+
+import com.onyx.map.serializer.ObjectBuffer;
+
+import java.io.IOException;
+
+/**
+ * Record reference that keeps the hash of its key so a chain is searched without reading keys that can not match.
+ */
+public class RadixRecordReference extends RecordReference
+{
+    public static final int RADIX_RECORD_REFERENCE_SIZE = RECORD_REFERENCE_LIST_SIZE + Integer.BYTES;
+
+    public int hash;
+
+    @Override
+    public void writeObject(ObjectBuffer buffer) throws IOException
+    {
+        super.writeObject(buffer);
+        buffer.writeInt(hash);
+    }
+
+    @Override
+    public void readObject(ObjectBuffer buffer) throws IOException
+    {
+        super.readObject(buffer);
+        hash = buffer.readInt();
+    }
+}
@@ -180,6 +180,33 @@ public class ObjectBuffer
         return array;
     }
 
+    /**
+     * Read Byte
+     *
+     * @return
+     */
+    public byte readByte()
+    {
+        return buffer.get();
+    }
+
+    /**
+     * Read the attribute offset table of a managed entity if it was written with one.  The buffer is positioned at the
+     * first attribute afterwards.  Entities written before the table was introduced start with their first attribute.
+     *
+     * @return Number of attributes within the table or -1 if there is no table
+     */
+    public int readAttributeTable()
+    {
+        if(buffer.remaining() == 0 || buffer.get(buffer.position()) != ObjectType.ATTRIBUTE_TABLE.getType())
+            return -1;
+
+        buffer.get();
+        final int attributeCount = buffer.getInt();
+        buffer.position(buffer.position() + (attributeCount * Integer.BYTES));
+        return attributeCount;
+    }
+
     /**
      * Read Short
      *
@@ -269,6 +296,17 @@ public class ObjectBuffer
         buffer.putInt(val);
     }
 
+    /**
+     * Write Int at a position that has already been written
+     *
+     * @param position
+     * @param val
+     */
+    public void writeInt(int position, int val)
+    {
+        buffer.putInt(position, val);
+    }
+
     /**
      * Write Byte
      *
@@ -1215,8 +1253,9 @@ public class ObjectBuffer
     public static Object unwrapOther(ByteBuffer buffer) throws IOException
     {
         // Write the node using an ObjectOutputStream
+        // Buffers read from a store may be a read only view so the bytes are not taken from the backing array
         byte[] subBytes = new byte[buffer.limit() - buffer.position()];
-        System.arraycopy(buffer.array(), buffer.position(), subBytes, 0, subBytes.length);
+        buffer.duplicate().get(subBytes);
         final ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(subBytes);
         final ObjectInputStream ois = new ObjectInputStream(byteArrayInputStream);
 
@@ -1330,6 +1369,7 @@ public class ObjectBuffer
         // Read the type and serializer id to put the position in the right place to read attributes
         buffer.get();
         buffer.getShort();
+        readAttributeTable();
 
         SystemEntity systemEntity = serializers.context.getSystemEntityById(serializerId);
 
@@ -1358,6 +1398,26 @@ public class ObjectBuffer
     {
         SystemEntity systemEntity = serializers.context.getSystemEntityById(serializerId);
 
+        // Seek directly to the attribute using the offset table.  The values are relative to the end of the table.
+        if(this.buffer.get(3) == ObjectType.ATTRIBUTE_TABLE.getType())
+        {
+            final int attributeCount = this.buffer.getInt(4);
+            final int index = systemEntity.getAttributeIndex(attributeName);
+
+            if(index < 0 || index >= attributeCount)
+                return null;
+
+            final int tableEnd = 8 + (attributeCount * Integer.BYTES);
+            this.buffer.position(tableEnd + this.buffer.getInt(8 + (index * Integer.BYTES)));
+
+            try {
+                return this.readObject();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            return null;
+        }
+
         this.buffer.position(3);
 
         for (SystemAttribute attribute : systemEntity.getAttributes())
@@ -1366,8 +1426,7 @@ public class ObjectBuffer
             try {
                 obj = this.readObject();
 
-                if(attribute.hashCode() == attributeName.hashCode()
-                    && attribute.getName().equals(attributeName))
+                if(attribute.getName().equals(attributeName))
                     return obj;
             } catch (Exception e) {
                 e.printStackTrace();
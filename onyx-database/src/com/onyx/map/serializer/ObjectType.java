@@ -33,7 +33,8 @@ public enum ObjectType
     BYTE((byte) 23),
     CLASS((byte) 24),
     LAZY_RELATIONSHIP_COLLECTION((byte) 25),
-    LAZY_COLLECTION((byte) 26);
+    LAZY_COLLECTION((byte) 26),
+    ATTRIBUTE_TABLE((byte) 27);
 
     private byte type;
 
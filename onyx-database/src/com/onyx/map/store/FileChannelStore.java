@@ -12,8 +12,9 @@ import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
-import java.util.*;
+import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Created by timothy.osborn on 3/25/15.
@@ -39,22 +40,32 @@ public class FileChannelStore implements Store
     // This is an internal map only used to store serializers
     public Serializers serializers = null;
 
-    // This is an internal map only used to store serializers
-    protected TreeSet<ReclaimedSpace> reclaim = new TreeSet<ReclaimedSpace>();
+    // Space released by deleted and moved records
+    protected FreeSpaceManager freeSpace = new FreeSpaceManager();
+
+    // Extension of the file the free space map is kept in between restarts
+    public static final String FREE_SPACE_EXTENSION = ".free";
 
     protected MapBuilder builder = null;
 
+    // Bytes that may wait to be flushed before writers have to flush them
+    public static final long DEFAULT_MAX_DIRTY_BYTES = 256L * 1024L * 1024L;
+
+    protected volatile long maxDirtyBytes = DEFAULT_MAX_DIRTY_BYTES;
+
+    // Bytes written since the file was last flushed and when the oldest of them was written.  0 when clean.
+    protected final AtomicLong dirtyBytes = new AtomicLong(0);
+    protected final AtomicLong dirtySince = new AtomicLong(0);
+
+    protected final LongAdder bytesFlushed = new LongAdder();
+
     /**
      * Constructor open file
      * @param filePath
      */
     public FileChannelStore(String filePath, MapBuilder builder, SchemaContext context)
     {
-        this.filePath = filePath;
-        open(filePath);
-        this.setSize();
-        this.builder = builder;
-        this.context = context;
+        openStore(filePath, builder, context);
     }
 
     public FileChannelStore()
@@ -62,6 +73,24 @@ public class FileChannelStore implements Store
 
     }
 
+    /**
+     * Open the file and read its size and free space.  Subclasses that need to be configured before the file is opened
+     * call this once configured.
+     *
+     * @param filePath
+     * @param builder
+     * @param context
+     */
+    protected void openStore(String filePath, MapBuilder builder, SchemaContext context)
+    {
+        this.filePath = filePath;
+        open(filePath);
+        this.setSize();
+        this.loadFreeSpace();
+        this.builder = builder;
+        this.context = context;
+    }
+
     /**
      * Initialize the file
      */
@@ -125,17 +154,62 @@ public class FileChannelStore implements Store
         }
     }
 
+    /**
+     * Read the free space map written when the file was last closed.  The map is removed once it is read so that after a
+     * crash, space allocated since will not be handed out again.  Space freed before a crash is not recovered.
+     */
+    protected void loadFreeSpace()
+    {
+        if (filePath == null)
+        {
+            return;
+        }
+
+        final File freeSpaceFile = new File(filePath + FREE_SPACE_EXTENSION);
+        if (freeSpaceFile.exists())
+        {
+            try
+            {
+                freeSpace.load(freeSpaceFile, fileSize.get());
+            } catch (IOException e)
+            {
+                e.printStackTrace();
+            }
+            freeSpaceFile.delete();
+        }
+    }
+
+    /**
+     * Write the free space map so that it survives a restart
+     */
+    protected void saveFreeSpace()
+    {
+        if (filePath == null || freeSpace.getHoleCount() == 0)
+        {
+            return;
+        }
+
+        try
+        {
+            freeSpace.save(new File(filePath + FREE_SPACE_EXTENSION));
+        } catch (IOException e)
+        {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Close the data file
      *
      * @return
      */
-    public boolean close()
+    public synchronized boolean close()
     {
         try
         {
             this.channel.force(true);
             this.channel.close();
+            saveFreeSpace();
             return !this.channel.isOpen();
         } catch (IOException e)
         {
@@ -143,14 +217,96 @@ public class FileChannelStore implements Store
         }
     }
 
+    /**
+     * Flush the file if it has been written to since it was last flushed
+     */
     @Override
     public void commit() {
+        flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * Force the file to the storage device
+     *
+     * @throws IOException Failed to force the file.  The writes are still counted as waiting.
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        final long since = dirtySince.getAndSet(0);
+        final long bytes = dirtyBytes.getAndSet(0);
+
+        try {
+            this.channel.force(true);
+        } catch (IOException e) {
+            dirtyBytes.addAndGet(bytes);
+            dirtySince.compareAndSet(0, since);
+            throw e;
+        }
+        bytesFlushed.add(bytes);
+    }
+
+    /**
+     * Flush the file.  A file channel can only be flushed as a whole.
+     *
+     * @param maxBytes Not used
+     * @return Bytes flushed
+     */
+    public synchronized long flush(long maxBytes) {
+        if (dirtyBytes.get() == 0 || !channel.isOpen()) {
+            return 0;
+        }
+
+        // Writes from here on are flushed the next time
+        dirtySince.set(0);
+        final long bytes = dirtyBytes.getAndSet(0);
+
         try {
             this.channel.force(true);
         } catch (IOException e)
         {
             e.printStackTrace();
         }
+        bytesFlushed.add(bytes);
+        return bytes;
+    }
+
+    /**
+     * Record bytes written.  Once too many are waiting the writer flushes them so writers can not get too far ahead.
+     *
+     * @param bytes
+     */
+    protected void markDirty(long bytes)
+    {
+        if (dirtyBytes.getAndAdd(bytes) == 0)
+        {
+            dirtySince.compareAndSet(0, System.currentTimeMillis());
+        }
+
+        if (dirtyBytes.get() > maxDirtyBytes)
+        {
+            flush(maxDirtyBytes);
+        }
+    }
+
+    public long getDirtyBytes()
+    {
+        return dirtyBytes.get();
+    }
+
+    public long getFlushLag()
+    {
+        final long since = dirtySince.get();
+        return (since == 0) ? 0 : Math.max(0, System.currentTimeMillis() - since);
+    }
+
+    public long getBytesFlushed()
+    {
+        return bytesFlushed.sum();
+    }
+
+    public void setMaxDirtyBytes(long maxDirtyBytes)
+    {
+        this.maxDirtyBytes = maxDirtyBytes;
     }
 
     /**
@@ -165,7 +321,9 @@ public class FileChannelStore implements Store
 
         try
         {
-            return channel.write(buffer.getByteBuffer(), position);
+            final int written = channel.write(buffer.getByteBuffer(), position);
+            markDirty(written);
+            return written;
         } catch (IOException e)
         {
             e.printStackTrace();
@@ -195,7 +353,9 @@ public class FileChannelStore implements Store
 
         try
         {
-            return channel.write(objectBuffer.getByteBuffer(), position);
+            final int written = channel.write(objectBuffer.getByteBuffer(), position);
+            markDirty(written);
+            return written;
         } catch (IOException e)
         {
             e.printStackTrace();
@@ -342,25 +502,12 @@ public class FileChannelStore implements Store
      */
     public long allocate(int size)
     {
-        synchronized(reclaim)
+        final long reclaimed = freeSpace.allocate(size);
+        if (reclaimed > -1)
         {
-            if (reclaim.size() > 0)
-            {
-                final ReclaimedSpace space = reclaim.higher(new ReclaimedSpace(0, size));
-                if (space != null)
-                {
-                    long retVal = space.position;
-                    reclaim.remove(space);
-                    if (size + 20 < space.size) // Check to see if the remainder is > 20.  If not, its too small to worry about
-                    {
-                        space.size -= size;
-                        space.position += size;
-                        reclaim.add(space);
-                    }
-                    return retVal;
-                }
-            }
+            return reclaimed;
         }
+
         final ObjectBuffer buffer = new ObjectBuffer(serializers);
         long newFileSize = fileSize.getAndAdd(size);
         try {
@@ -381,10 +528,18 @@ public class FileChannelStore implements Store
      */
     public void deallocate(long position, int size)
     {
-        synchronized (reclaim)
-        {
-            reclaim.add(new ReclaimedSpace(position, size));
-        }
+        freeSpace.deallocate(position, size);
+    }
+
+    /**
+     * Getter for the space released within the file
+     *
+     * @return Free space manager
+     */
+    @Override
+    public FreeSpaceManager getFreeSpace()
+    {
+        return freeSpace;
     }
 
     @Override
@@ -412,40 +567,10 @@ public class FileChannelStore implements Store
         final File dataFile = new File(filePath);
         if(dataFile.exists())
             dataFile.delete();
-    }
-
-    class ReclaimedSpace implements Comparable<ReclaimedSpace>
-    {
-        long position;
-        int size;
-
-        public ReclaimedSpace(long position, int size)
-        {
-            this.position = position;
-            this.size = size;
-        }
 
-        @Override
-        public int hashCode()
-        {
-            return new Long(position).hashCode();
-        }
-
-        @Override
-        public boolean equals(Object obj)
-        {
-            if(obj != null && obj instanceof ReclaimedSpace)
-            {
-                return (((ReclaimedSpace) obj).position == position && ((ReclaimedSpace) obj).size == size);
-            }
-            return false;
-        }
-
-        @Override
-        public int compareTo(ReclaimedSpace o)
-        {
-            return new Integer(new Integer(size)).compareTo(o.size);
-        }
+        final File freeSpaceFile = new File(filePath + FREE_SPACE_EXTENSION);
+        if(freeSpaceFile.exists())
+            freeSpaceFile.delete();
     }
 
 }
@@ -0,0 +1,420 @@
+package com.onyx.map.store;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps track of space released within a store so it can be allocated again.  Free space is divided into stripes each
+ * with their own lock.  Within a stripe holes are kept in size class bins ordered by size so an allocation finds the
+ * smallest hole it fits in.  Adjacent holes within a stripe are merged when released.
+ *
+ * When the remainder of a hole is too small to track it is handed out with the allocation.  Callers only release the
+ * size they asked for, so the remainder is remembered by the position it starts at and rejoined with the allocation
+ * once it is released.
+ */
+public class FreeSpaceManager
+{
+    // Holes smaller than this are not worth tracking
+    public static final int MIN_HOLE_SIZE = 20;
+
+    protected static final int STRIPES = 16;
+
+    // Released space is assigned to a stripe by the 1MB region it starts in
+    protected static final int REGION_SHIFT = 20;
+
+    protected static final int SIZE_CLASSES = 32;
+
+    // Identifies a persisted free space map
+    protected static final long FREE_SPACE_MAGIC = 0x4f4e5958465245L;
+
+    protected final Stripe[] stripes = new Stripe[STRIPES];
+
+    // Remainders handed out with an allocation by the position they start at, which is the end of the allocation
+    protected final Map<Long, Integer> remainders = new ConcurrentHashMap<>();
+
+    // Total bytes handed back out from released space
+    protected final AtomicLong reclaimedBytes = new AtomicLong(0);
+
+    /**
+     * Constructor
+     */
+    public FreeSpaceManager()
+    {
+        for (int i = 0; i < STRIPES; i++)
+        {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Allocate from released space.  The stripe for the current thread is tried first so concurrent writers do not
+     * compete for the same lock.
+     *
+     * @param size Size of the allocation
+     * @return Position of the allocation or -1 if there is no hole large enough
+     */
+    public long allocate(int size)
+    {
+        final int start = (int) (Thread.currentThread().getId() % STRIPES);
+
+        for (int i = 0; i < STRIPES; i++)
+        {
+            final Stripe stripe = stripes[(start + i) % STRIPES];
+            if (stripe.freeBytes < size)
+            {
+                continue;
+            }
+
+            final long position = stripe.allocate(size, remainders);
+            if (position > -1)
+            {
+                reclaimedBytes.addAndGet(size);
+                return position;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Release space so it can be allocated again
+     *
+     * @param position Position of the released space
+     * @param size Size of the released space
+     */
+    public void deallocate(long position, int size)
+    {
+        final Integer remainder = remainders.remove(position + size);
+        if (remainder != null)
+        {
+            size += remainder;
+        }
+
+        if (size < MIN_HOLE_SIZE)
+        {
+            return;
+        }
+
+        stripes[(int) ((position >>> REGION_SHIFT) % STRIPES)].deallocate(position, size);
+    }
+
+    /**
+     * Bytes currently available for allocation
+     *
+     * @return Free bytes
+     */
+    public long getFreeBytes()
+    {
+        long freeBytes = 0;
+        for (Stripe stripe : stripes)
+        {
+            freeBytes += stripe.freeBytes;
+        }
+        return freeBytes;
+    }
+
+    /**
+     * Number of holes available for allocation
+     *
+     * @return Hole count
+     */
+    public int getHoleCount()
+    {
+        int count = 0;
+        for (Stripe stripe : stripes)
+        {
+            stripe.lock.lock();
+            try
+            {
+                count += stripe.holes.size();
+            } finally
+            {
+                stripe.lock.unlock();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Total bytes allocated from released space rather than by growing the store
+     *
+     * @return Reclaimed bytes
+     */
+    public long getReclaimedBytes()
+    {
+        return reclaimedBytes.get();
+    }
+
+    /**
+     * Fragmentation of the free space.  This is 0 when all free space is in a single hole and approaches 1 as it is
+     * split into many small holes.
+     *
+     * @return Fraction of free space outside of the largest hole
+     */
+    public double getFragmentation()
+    {
+        long largest = 0;
+        long freeBytes = 0;
+
+        for (Stripe stripe : stripes)
+        {
+            stripe.lock.lock();
+            try
+            {
+                freeBytes += stripe.freeBytes;
+                largest = Math.max(largest, stripe.largestHole());
+            } finally
+            {
+                stripe.lock.unlock();
+            }
+        }
+
+        return (freeBytes == 0) ? 0 : 1.0 - ((double) largest / freeBytes);
+    }
+
+    /**
+     * Forget all of the released space.  This is used once a store has been replaced.
+     */
+    public void clear()
+    {
+        remainders.clear();
+        for (Stripe stripe : stripes)
+        {
+            stripe.lock.lock();
+            try
+            {
+                stripe.holes.clear();
+                for (TreeMap<Integer, Set<Long>> sizeClass : stripe.sizeClasses)
+                {
+                    sizeClass.clear();
+                }
+                stripe.freeBytes = 0;
+            } finally
+            {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Write the free space map to a file
+     *
+     * @param file File to write to
+     * @throws IOException Failed to write file
+     */
+    public void save(File file) throws IOException
+    {
+        final List<long[]> holes = new ArrayList<>();
+        for (Stripe stripe : stripes)
+        {
+            stripe.lock.lock();
+            try
+            {
+                stripe.holes.forEach((position, size) -> holes.add(new long[]{position, size}));
+            } finally
+            {
+                stripe.lock.unlock();
+            }
+        }
+
+        try (DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))))
+        {
+            stream.writeLong(FREE_SPACE_MAGIC);
+            stream.writeInt(holes.size());
+            for (long[] hole : holes)
+            {
+                stream.writeLong(hole[0]);
+                stream.writeInt((int) hole[1]);
+            }
+        }
+    }
+
+    /**
+     * Read a free space map written by save
+     *
+     * @param file File to read from
+     * @param fileSize Size of the store.  Holes beyond it are ignored.
+     * @throws IOException Failed to read file
+     */
+    public void load(File file, long fileSize) throws IOException
+    {
+        try (DataInputStream stream = new DataInputStream(new BufferedInputStream(new FileInputStream(file))))
+        {
+            if (stream.readLong() != FREE_SPACE_MAGIC)
+            {
+                return;
+            }
+
+            final int count = stream.readInt();
+            for (int i = 0; i < count; i++)
+            {
+                final long position = stream.readLong();
+                final int size = stream.readInt();
+
+                if (position > 0 && position + size <= fileSize)
+                {
+                    deallocate(position, size);
+                }
+            }
+        }
+    }
+
+    /**
+     * Free space for a range of the store
+     */
+    protected static class Stripe
+    {
+        protected final ReentrantLock lock = new ReentrantLock();
+
+        // Holes by position used to merge adjacent holes
+        protected final TreeMap<Long, Integer> holes = new TreeMap<>();
+
+        // Holes by size class and then size
+        protected final TreeMap<Integer, Set<Long>>[] sizeClasses = new TreeMap[SIZE_CLASSES];
+
+        protected volatile long freeBytes = 0;
+
+        protected Stripe()
+        {
+            for (int i = 0; i < SIZE_CLASSES; i++)
+            {
+                sizeClasses[i] = new TreeMap<>();
+            }
+        }
+
+        /**
+         * Find the smallest hole the allocation fits in and split off the remainder
+         *
+         * @param size Size of the allocation
+         * @param remainders Remainders too small to track that were handed out with an allocation
+         * @return Position of the allocation or -1 if there is no hole large enough
+         */
+        protected long allocate(int size, Map<Long, Integer> remainders)
+        {
+            lock.lock();
+            try
+            {
+                final int sizeClass = sizeClass(size);
+
+                for (int i = sizeClass; i < SIZE_CLASSES; i++)
+                {
+                    // Every hole in a larger size class fits the allocation
+                    final Map.Entry<Integer, Set<Long>> entry = (i == sizeClass) ? sizeClasses[i].ceilingEntry(size) : sizeClasses[i].firstEntry();
+                    if (entry == null)
+                    {
+                        continue;
+                    }
+
+                    final int holeSize = entry.getKey();
+                    final long position = entry.getValue().iterator().next();
+                    remove(position, holeSize);
+
+                    // A remainder too small to track stays with the allocation until it is released
+                    if (holeSize - size >= MIN_HOLE_SIZE)
+                    {
+                        add(position + size, holeSize - size);
+                    }
+                    else if (holeSize > size)
+                    {
+                        remainders.put(position + size, holeSize - size);
+                    }
+
+                    return position;
+                }
+
+                return -1;
+            } finally
+            {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Add a hole and merge it with the holes on either side of it
+         *
+         * @param position Position of the released space
+         * @param size Size of the released space
+         */
+        protected void deallocate(long position, int size)
+        {
+            lock.lock();
+            try
+            {
+                long start = position;
+                long end = position + size;
+
+                final Map.Entry<Long, Integer> previous = holes.floorEntry(position);
+                final Map.Entry<Long, Integer> next = holes.ceilingEntry(position);
+
+                // Space that is already free must not be handed out twice
+                if ((previous != null && previous.getKey() + previous.getValue() > position) || (next != null && next.getKey() < end))
+                {
+                    return;
+                }
+
+                if (previous != null && previous.getKey() + previous.getValue() == position && end - previous.getKey() <= Integer.MAX_VALUE)
+                {
+                    remove(previous.getKey(), previous.getValue());
+                    start = previous.getKey();
+                }
+
+                if (next != null && next.getKey() == end && next.getKey() + next.getValue() - start <= Integer.MAX_VALUE)
+                {
+                    remove(next.getKey(), next.getValue());
+                    end = next.getKey() + next.getValue();
+                }
+
+                add(start, (int) (end - start));
+            } finally
+            {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Size of the largest hole
+         *
+         * @return Largest hole size or 0 if there are none
+         */
+        protected int largestHole()
+        {
+            for (int i = SIZE_CLASSES - 1; i >= 0; i--)
+            {
+                if (!sizeClasses[i].isEmpty())
+                {
+                    return sizeClasses[i].lastKey();
+                }
+            }
+            return 0;
+        }
+
+        protected void add(long position, int size)
+        {
+            holes.put(position, size);
+            sizeClasses[sizeClass(size)].computeIfAbsent(size, key -> new LinkedHashSet<>()).add(position);
+            freeBytes += size;
+        }
+
+        protected void remove(long position, int size)
+        {
+            holes.remove(position);
+
+            final TreeMap<Integer, Set<Long>> sizeClass = sizeClasses[sizeClass(size)];
+            final Set<Long> positions = sizeClass.get(size);
+            positions.remove(position);
+            if (positions.isEmpty())
+            {
+                sizeClass.remove(size);
+            }
+            freeBytes -= size;
+        }
+
+        protected static int sizeClass(int size)
+        {
+            return 31 - Integer.numberOfLeadingZeros(size);
+        }
+    }
+}
@@ -5,8 +5,7 @@ import com.onyx.map.serializer.ObjectBuffer;
 import com.onyx.persistence.context.SchemaContext;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.Arrays;
 
 /**
  * Created by tosborn on 3/27/15.
@@ -20,13 +19,31 @@ public class InMemoryStore extends MemoryMappedStore implements Store {
      * @param builder
      */
     public InMemoryStore(MapBuilder builder, SchemaContext context) {
+        this(builder, context, SLICE_SIZE);
+    }
+
+    /**
+     * Constructor with the size of each allocated region
+     *
+     * @param builder
+     * @param sliceSize
+     */
+    public InMemoryStore(MapBuilder builder, SchemaContext context, int sliceSize) {
         super();
+        this.sliceSize = (sliceSize > 0) ? sliceSize : SLICE_SIZE;
         this.builder = builder;
         this.context = context;
         open(null);
         this.setSize();
     }
 
+    /**
+     * Nothing to force since there is no file
+     */
+    @Override
+    public void sync() {
+    }
+
     /**
      * Open the data file
      *
@@ -35,53 +52,48 @@ public class InMemoryStore extends MemoryMappedStore implements Store {
      */
     public synchronized boolean open(String filePath) {
 
-        slices = new ArrayList<>();
-        long fileSize = this.fileSize.get();
-
+        initSliceAccess();
+        final int count = (int) ((this.fileSize.get() + sliceSize - 1) / sliceSize);
 
-        // Lets open the memory mapped files in 2Gig increments since on 32 bit machines the max is I think 2G.  Also buffers are limited by
-        // using an int for position.  We are gonna bust that.
-        long offset = 0;
-        ByteBuffer buffer = null;
-
-        while (fileSize > 0) {
-            buffer = ObjectBuffer.allocate(SLICE_SIZE);
-            slices.add(new FileSlice(buffer, new ReentrantLock(true)));
-            offset += SLICE_SIZE;
-            fileSize -= SLICE_SIZE;
+        final FileSlice[] table = new FileSlice[count];
+        for (int i = 0; i < count; i++) {
+            table[i] = new FileSlice(allocateSlice(), i);
         }
-
+        slices = table;
 
         return true;
     }
 
     /**
-     * Get the associated buffer to the position of the file.  So if the position is 2G + it will get the prop
-     * er "slice" of the file
+     * Allocate slices up to the one requested.  Memory is not allocated ahead since it would not be given back.
      *
-     * @param position
-     * @return
+     * @param index Slice that must be allocated
+     * @return The slice
      */
-    protected FileSlice getBuffer(long position) {
-
-        int index = 0;
-        if (position > 0) {
-            index = (int) (position / SLICE_SIZE);
-        }
+    protected FileSlice grow(int index) {
+        synchronized (growLock) {
+            final FileSlice[] table = slices;
+            if (index < table.length) {
+                return table[index];
+            }
 
-        synchronized (slices) {
-            if (index >= slices.size()) {
-                ByteBuffer buffer = ObjectBuffer.allocate(SLICE_SIZE);
-                slices.add(new FileSlice(buffer, new ReentrantLock(true)));
+            final FileSlice[] grown = Arrays.copyOf(table, index + 1);
+            for (int i = table.length; i < grown.length; i++) {
+                grown[i] = new FileSlice(allocateSlice(), i);
             }
-        }
 
-        try {
-            return slices.get(index);
-        } catch (Exception e) {
-            e.printStackTrace();
+            slices = grown;
+            return grown[index];
         }
-        return null;
+    }
+
+    /**
+     * Allocate the memory for a slice
+     *
+     * @return Buffer of the slice size
+     */
+    protected ByteBuffer allocateSlice() {
+        return ObjectBuffer.allocate(sliceSize);
     }
 
     @Override
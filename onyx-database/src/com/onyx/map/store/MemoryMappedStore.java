@@ -7,12 +7,15 @@ import com.onyx.persistence.context.SchemaContext;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
@@ -20,9 +23,34 @@ import java.util.concurrent.locks.ReentrantLock;
  */
 public class MemoryMappedStore extends FileChannelStore implements Store {
 
+    // Default size of each mapped region of the file
     public static final int SLICE_SIZE = ((1024 * 1024) * 3);
 
-    public List<FileSlice> slices;
+    // Most bytes mapped ahead of the end of the file when it grows
+    protected static final long MAX_PREALLOCATION = 1024L * 1024L * 1024L;
+
+    // Writes are coordinated by the 4KB pages they touch with pages assigned to a fixed number of stripes
+    protected static final int PAGE_SHIFT = 12;
+    protected static final int WRITE_STRIPES = 64;
+
+    protected int sliceSize = SLICE_SIZE;
+
+    // Slice table.  It is replaced rather than modified so slices are looked up without locking.
+    public volatile FileSlice[] slices;
+
+    protected final Object growLock = new Object();
+
+    // Created when opened since the parent constructor opens the file
+    protected ReentrantLock[] writeStripes;
+
+    // Views of each slice owned by the current thread.  Replaced when the slices are mapped again.
+    protected volatile ThreadLocal<ByteBuffer[]> views;
+
+    // Number of mapped slices written since they were last flushed
+    protected final AtomicInteger dirtySlices = new AtomicInteger(0);
+
+    // Number of pages within the mapped slices written since they were last flushed
+    protected final AtomicLong dirtyPages = new AtomicLong(0);
 
     public MemoryMappedStore()
     {
@@ -35,7 +63,34 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
      * @param filePath
      */
     public MemoryMappedStore(String filePath, MapBuilder builder, SchemaContext context) {
-        super(filePath, builder, context);
+        this(filePath, builder, context, SLICE_SIZE);
+    }
+
+    /**
+     * Constructor open file with the size of each mapped region.  Larger slices need far fewer mappings for a large file.
+     *
+     * @param filePath
+     * @param sliceSize
+     */
+    public MemoryMappedStore(String filePath, MapBuilder builder, SchemaContext context, int sliceSize) {
+        super();
+        this.sliceSize = (sliceSize > 0) ? sliceSize : SLICE_SIZE;
+        openStore(filePath, builder, context);
+    }
+
+    /**
+     * Create the locks writers coordinate on and discard views of previously mapped slices
+     */
+    protected void initSliceAccess() {
+        views = ThreadLocal.withInitial(() -> new ByteBuffer[0]);
+
+        if (writeStripes == null) {
+            final ReentrantLock[] stripes = new ReentrantLock[WRITE_STRIPES];
+            for (int i = 0; i < WRITE_STRIPES; i++) {
+                stripes[i] = new ReentrantLock();
+            }
+            writeStripes = stripes;
+        }
     }
 
     /**
@@ -50,21 +105,16 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
             // Open the file Channel
             super.open(filePath);
 
-            slices = new ArrayList<>();
-            long fileSize = this.fileSize.get();
-
+            initSliceAccess();
+            final int count = (int) ((this.fileSize.get() + sliceSize - 1) / sliceSize);
 
-            // Lets open the memory mapped files in 2Gig increments since on 32 bit machines the max is I think 2G.  Also buffers are limited by
+            // Lets open the memory mapped files in slices since on 32 bit machines the max is I think 2G.  Also buffers are limited by
             // using an int for position.  We are gonna bust that.
-            long offset = 0;
-            MappedByteBuffer buffer = null;
-
-            while (fileSize > 0) {
-                buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, SLICE_SIZE);
-                slices.add(new FileSlice(buffer, new ReentrantLock(true)));
-                offset += SLICE_SIZE;
-                fileSize -= SLICE_SIZE;
+            final FileSlice[] table = new FileSlice[count];
+            for (int i = 0; i < count; i++) {
+                table[i] = new FileSlice(channel.map(FileChannel.MapMode.READ_WRITE, sliceSize * (long) i, sliceSize), i);
             }
+            slices = table;
 
         } catch (FileNotFoundException e) {
             return false;
@@ -83,10 +133,18 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
     public synchronized boolean close() {
         try {
 
-            this.slices.forEach(file ->
-            {
-                file.flush();
-            });
+            for (FileSlice slice : slices) {
+                if (slice.dirtySince.getAndSet(0) != 0) {
+                    dirtySlices.decrementAndGet();
+                    slice.clearDirtyPages();
+                    slice.flush();
+                }
+
+                // Unmap is necessary on Windows, otherwise the file is locked until the buffer is garbage collected
+                if (slice.mapped) {
+                    OffHeapAllocator.clean(slice.buffer);
+                }
+            }
 
 
             try {
@@ -96,6 +154,7 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
             }
 
             this.channel.close();
+            saveFreeSpace();
 
             return !this.channel.isOpen();
         } catch (Exception e) {
@@ -116,7 +175,8 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
     }
 
     /**
-     * Write a buffer.  This is a helper function to work with a buffer rather than a FileChannel
+     * Write a buffer.  This is a helper function to work with a buffer rather than a FileChannel.  Writers only wait
+     * on each other when they touch the same pages.
      *
      * @param byteBuffer
      * @param position
@@ -124,55 +184,39 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
      */
     protected int write(ByteBuffer byteBuffer, long position) {
 
-        final FileSlice slice = getBuffer(position);
         final byte[] bytesToWrite = byteBuffer.array();
+        final FileSlice slice = getBuffer(position);
 
         int bufLocation = getBufferLocation(position);
         int endBufLocation = bufLocation + bytesToWrite.length;
 
-        // This occurs when we bridge from one slice to another
-        if (endBufLocation > SLICE_SIZE) {
-            final FileSlice overflowSlice = getBuffer(position + bytesToWrite.length);
-
-            byte[] firstSlice = new byte[(int) (SLICE_SIZE - bufLocation)];
-            System.arraycopy(bytesToWrite, 0, firstSlice, 0, firstSlice.length);
-
-            byte[] secondSlice = new byte[endBufLocation - bufLocation - firstSlice.length];
-            System.arraycopy(bytesToWrite, firstSlice.length, secondSlice, 0, secondSlice.length);
-
-            slice.lock.lock();
+        lockPages(position, bytesToWrite.length);
+        try {
+            // This occurs when we bridge from one slice to another
+            if (endBufLocation > sliceSize) {
+                final FileSlice overflowSlice = getBuffer(position + bytesToWrite.length);
+                final int firstLength = sliceSize - bufLocation;
 
-            try {
-                slice.buffer.position(bufLocation);
-                slice.buffer.put(firstSlice);
-            } finally {
-                slice.lock.unlock();
-            }
-            overflowSlice.lock.lock();
-            try {
-                overflowSlice.buffer.position(0);
-                overflowSlice.buffer.put(secondSlice);
-            } catch (Exception e) {
-                e.printStackTrace();
-            } finally {
-                overflowSlice.lock.unlock();
-            }
-            return (int) byteBuffer.position();
-        } else {
-            slice.lock.lock();
-            try {
-                slice.buffer.position(getBufferLocation(position));
-                slice.buffer.put(bytesToWrite);
-                return (int) byteBuffer.position();
-            } finally {
-                slice.lock.unlock();
+                slice.put(bufLocation, bytesToWrite, 0, firstLength);
+                overflowSlice.put(0, bytesToWrite, firstLength, bytesToWrite.length - firstLength);
+            } else {
+                slice.put(bufLocation, bytesToWrite, 0, bytesToWrite.length);
             }
+        } finally {
+            unlockPages(position, bytesToWrite.length);
+        }
 
+        // Writers flush the oldest slices themselves once too many pages are waiting
+        if (getDirtyBytes() > maxDirtyBytes) {
+            flushExcess();
         }
+
+        return (int) byteBuffer.position();
     }
 
     /**
-     * Read a mem mapped file
+     * Read a mem mapped file.  Reads copy from a view of the slice owned by the calling thread so they never wait on
+     * each other.
      *
      * @param buffer
      * @param position
@@ -180,58 +224,108 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
     protected void read(ByteBuffer buffer, long position) {
 
         final FileSlice slice = getBuffer(position);
+        final byte[] bytes = buffer.array();
+        final int length = buffer.limit();
 
         int bufLocation = getBufferLocation(position);
-        int endBufLocation = bufLocation + buffer.array().length;
+        int endBufLocation = bufLocation + length;
 
         // This occurs when we bridge from one slice to another
-        if (endBufLocation >= SLICE_SIZE) {
-            final FileSlice overflowSlice = getBuffer(position + buffer.array().length);
+        if (endBufLocation > sliceSize) {
+            final FileSlice overflowSlice = getBuffer(position + length);
+            final int firstLength = sliceSize - bufLocation;
+
+            slice.get(bufLocation, bytes, buffer.arrayOffset(), firstLength);
+            overflowSlice.get(0, bytes, buffer.arrayOffset() + firstLength, length - firstLength);
+        } else {
+            slice.get(bufLocation, bytes, buffer.arrayOffset(), length);
+        }
 
-            byte[] firstSlice = new byte[(int) (SLICE_SIZE - bufLocation)];
-            byte[] secondSlice = new byte[endBufLocation - bufLocation - firstSlice.length];
+        buffer.rewind();
+    }
 
-            slice.lock.lock();
+    /**
+     * Get a read only view of a record within the mapped slice so it can be decoded without copying it.  Only a record
+     * that spans two slices is copied.
+     *
+     * @param position
+     * @param size
+     * @return Buffer starting at position 0 with a limit of size
+     */
+    protected ByteBuffer readView(long position, int size) {
 
-            try {
-                slice.buffer.position(bufLocation);
-                slice.buffer.get(firstSlice);
-            } finally {
-                slice.lock.unlock();
-            }
-            overflowSlice.lock.lock();
-            try {
-                overflowSlice.buffer.position(0);
-                overflowSlice.buffer.get(secondSlice);
-            } finally {
-                overflowSlice.lock.unlock();
-            }
+        final FileSlice slice = getBuffer(position);
+        final int bufLocation = getBufferLocation(position);
 
-            buffer.put(firstSlice);
-            buffer.put(secondSlice);
-        } else {
-            slice.lock.lock();
+        if (bufLocation + size > sliceSize) {
+            final ByteBuffer buffer = ObjectBuffer.allocate(size);
+            this.read(buffer, position);
+            return buffer;
+        }
 
-            try {
+        final ByteBuffer view = slice.readOnly.duplicate();
+        view.limit(bufLocation + size);
+        view.position(bufLocation);
+        return view.slice();
+    }
+
+    /**
+     * Lock the write stripes covering a range of the file.  Stripes are always taken in ascending order.
+     *
+     * @param position
+     * @param length
+     */
+    protected void lockPages(long position, int length) {
+        final long firstPage = position >>> PAGE_SHIFT;
+        final long lastPage = (position + Math.max(length, 1) - 1) >>> PAGE_SHIFT;
 
-                final byte[] bytes = new byte[buffer.limit()];
+        for (int i = 0; i < WRITE_STRIPES; i++) {
+            if (isStripeCovered(i, firstPage, lastPage)) {
+                writeStripes[i].lock();
+            }
+        }
+    }
 
-                slice.buffer.position(getBufferLocation(position));
-                slice.buffer.get(bytes);
+    /**
+     * Unlock the write stripes taken by lockPages
+     *
+     * @param position
+     * @param length
+     */
+    protected void unlockPages(long position, int length) {
+        final long firstPage = position >>> PAGE_SHIFT;
+        final long lastPage = (position + Math.max(length, 1) - 1) >>> PAGE_SHIFT;
 
-                buffer.put(bytes);
-                buffer.rewind();
-            } finally {
-                slice.lock.unlock();
+        for (int i = WRITE_STRIPES - 1; i >= 0; i--) {
+            if (isStripeCovered(i, firstPage, lastPage)) {
+                writeStripes[i].unlock();
             }
+        }
+    }
 
+    /**
+     * Whether a range of pages maps onto a write stripe
+     *
+     * @param stripe
+     * @param firstPage
+     * @param lastPage
+     * @return
+     */
+    protected static boolean isStripeCovered(int stripe, long firstPage, long lastPage) {
+        if (lastPage - firstPage + 1 >= WRITE_STRIPES) {
+            return true;
         }
 
+        final int first = (int) (firstPage % WRITE_STRIPES);
+        final int last = (int) (lastPage % WRITE_STRIPES);
+
+        // The range wraps around the end of the stripes
+        return (first <= last) ? (stripe >= first && stripe <= last) : (stripe >= first || stripe <= last);
     }
 
     /**
      * Get the associated buffer to the position of the file.  So if the position is 2G + it will get the prop
-     * er "slice" of the file
+     * er "slice" of the file.  A mapped slice is looked up without locking.
      *
      * @param position
      * @return
@@ -240,28 +334,56 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
 
         int index = 0;
         if (position > 0) {
-            index = (int) (position / SLICE_SIZE);
+            index = (int) (position / sliceSize);
+        }
+
+        final FileSlice[] table = slices;
+        if (index < table.length) {
+            return table[index];
         }
 
-        synchronized (slices) {
-            if (index >= slices.size()) {
-                long offset = (SLICE_SIZE * (long) index);
-                ByteBuffer buffer = null;
+        return grow(index);
+    }
+
+    /**
+     * Map the file up to and beyond a slice.  The mapped region grows by a quarter each time, so a growing file is
+     * remapped rarely and writers within the mapped region are never held up.  The file is truncated to its used size
+     * when closed.
+     *
+     * @param index Slice that must be mapped
+     * @return The slice
+     */
+    protected FileSlice grow(int index) {
+        synchronized (growLock) {
+            final FileSlice[] table = slices;
+            if (index < table.length) {
+                return table[index];
+            }
+
+            final int ahead = (int) Math.max(1, Math.min(table.length / 4, MAX_PREALLOCATION / sliceSize));
+            final FileSlice[] grown = Arrays.copyOf(table, Math.max(index + 1, table.length + ahead));
+
+            for (int i = table.length; i < grown.length; i++) {
                 try {
-                    buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, SLICE_SIZE);
+                    grown[i] = new FileSlice(channel.map(FileChannel.MapMode.READ_WRITE, sliceSize * (long) i, sliceSize), i);
                 } catch (IOException e) {
                     e.printStackTrace();
+                    return null;
                 }
-                slices.add(new FileSlice(buffer, new ReentrantLock(true)));
             }
-        }
 
-        try {
-            return slices.get(index);
-        } catch (Exception e) {
-            e.printStackTrace();
+            slices = grown;
+            return grown[index];
         }
-        return null;
+    }
+
+    /**
+     * Size of each mapped region of the file
+     *
+     * @return Slice size in bytes
+     */
+    public int getSliceSize() {
+        return sliceSize;
     }
 
     /**
@@ -296,10 +418,7 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
         if (position >= fileSize.get())
             return null;
 
-        final ByteBuffer buffer = ObjectBuffer.allocate(size);
-
-        this.read(buffer, position);
-        buffer.rewind();
+        final ByteBuffer buffer = this.readView(position, size);
 
         try {
             if(serializerId > 0)
@@ -336,10 +455,7 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
         if (position >= fileSize.get())
             return null;
 
-        final ByteBuffer buffer = ObjectBuffer.allocate(size);
-
-        this.read(buffer, position);
-        buffer.rewind();
+        final ByteBuffer buffer = this.readView(position, size);
 
         try {
             if (ObjectSerializable.class.isAssignableFrom(type)) {
@@ -361,6 +477,23 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
         return null;
     }
 
+    /**
+     * Read a buffer from the memory mapped slices
+     *
+     * @param position
+     * @param size
+     * @return
+     */
+    @Override
+    public ObjectBuffer read(long position, int size) {
+        if (position >= fileSize.get())
+            return null;
+
+        final ByteBuffer buffer = this.readView(position, size);
+
+        return new ObjectBuffer(buffer, serializers);
+    }
+
     /**
      * Get the location within the buffer slice
      *
@@ -370,61 +503,240 @@ public class MemoryMappedStore extends FileChannelStore implements Store {
     protected int getBufferLocation(long position) {
         int index = 0;
         if (position > 0) {
-            index = (int) (position % SLICE_SIZE);
+            index = (int) (position % sliceSize);
         }
         return index;
     }
 
+    /**
+     * Duplicate of a slice owned by the calling thread.  The position of the mapped buffer is never moved so threads
+     * do not share a position.
+     *
+     * @param slice Slice to view
+     * @return Thread's view of the slice
+     */
+    protected ByteBuffer getView(FileSlice slice) {
+        final ThreadLocal<ByteBuffer[]> views = this.views;
+
+        ByteBuffer[] threadViews = views.get();
+        if (slice.index >= threadViews.length) {
+            threadViews = Arrays.copyOf(threadViews, Math.max(slice.index + 1, threadViews.length * 2));
+            views.set(threadViews);
+        }
+
+        ByteBuffer view = threadViews[slice.index];
+        if (view == null) {
+            view = slice.buffer.duplicate();
+            threadViews[slice.index] = view;
+        }
+        return view;
+    }
+
     /**
      * File Slice
      * <p>
-     * This contains the memory mapped segment as well as a lock for it
+     * This contains the memory mapped segment.  It is read and written through views owned by each thread.
      */
     class FileSlice {
         public ByteBuffer buffer;
-        public ReentrantLock lock;
+        public final int index;
+
+        // Shared read only view records are decoded from.  Its position is never moved.
+        public final ByteBuffer readOnly;
+
+        // Only slices mapped to the file are flushed
+        protected final boolean mapped;
+
+        // When the slice was first written to since it was last flushed.  0 when clean.
+        protected final AtomicLong dirtySince = new AtomicLong(0);
+
+        // One bit for each page written to since the slice was last flushed
+        protected final AtomicLongArray pages;
 
-        public FileSlice(ByteBuffer buffer, ReentrantLock lock) {
+        public FileSlice(ByteBuffer buffer, int index) {
             this.buffer = buffer;
-            this.lock = lock;
+            this.index = index;
+            this.readOnly = buffer.asReadOnlyBuffer();
+            this.mapped = buffer instanceof MappedByteBuffer;
+            this.pages = new AtomicLongArray(mapped ? ((buffer.capacity() >>> PAGE_SHIFT) >>> 6) + 1 : 0);
         }
 
-        /* Hack to unmap MappedByteBuffer.
-        * Unmap is necessary on Windows, otherwise file is locked until JVM exits or BB is GCed.
-        * There is no public JVM API to unmap buffer, so this tries to use SUN proprietary API for unmap.
-        * Any error is silently ignored (for example SUN API does not exist on Android).
-        */
+        /**
+         * Copy bytes out of the slice
+         *
+         * @param location Location within the slice
+         * @param bytes Destination
+         * @param offset Offset within the destination
+         * @param length Number of bytes
+         */
+        public void get(int location, byte[] bytes, int offset, int length) {
+            final ByteBuffer view = getView(this);
+            view.position(location);
+            view.get(bytes, offset, length);
+        }
+
+        /**
+         * Copy bytes into the slice
+         *
+         * @param location Location within the slice
+         * @param bytes Source
+         * @param offset Offset within the source
+         * @param length Number of bytes
+         */
+        public void put(int location, byte[] bytes, int offset, int length) {
+            final ByteBuffer view = getView(this);
+            view.position(location);
+            view.put(bytes, offset, length);
+            markDirty(location, length);
+        }
+
+        /**
+         * Flush the contents of the slice to the file
+         */
         public void flush() {
-            if (buffer instanceof MappedByteBuffer) {
-                ((MappedByteBuffer) buffer).force(); // Flush the contents of the buffer
-                try {
-                    Method cleanerMethod = buffer.getClass().getMethod("cleaner", new Class[0]);
-                    if (cleanerMethod != null) {
-                        cleanerMethod.setAccessible(true);
-                        Object cleaner = cleanerMethod.invoke(buffer);
-                        if (cleaner != null) {
-                            Method clearMethod = cleaner.getClass().getMethod("clean", new Class[0]);
-                            if (clearMethod != null) {
-                                clearMethod.invoke(cleaner);
-                            }
-                        }
+            if (mapped) {
+                ((MappedByteBuffer) buffer).force();
+            }
+        }
+
+        /**
+         * Record the pages of the slice that have been written to
+         *
+         * @param location Location within the slice
+         * @param length Number of bytes written
+         */
+        protected void markDirty(int location, int length) {
+            if (!mapped) {
+                return;
+            }
+
+            final int lastPage = (location + Math.max(length, 1) - 1) >>> PAGE_SHIFT;
+            int marked = 0;
+            for (int page = location >>> PAGE_SHIFT; page <= lastPage; page++) {
+                final int word = page >>> 6;
+                final long bit = 1L << page;
+
+                long bits;
+                while (((bits = pages.get(word)) & bit) == 0) {
+                    if (pages.compareAndSet(word, bits, bits | bit)) {
+                        marked++;
+                        break;
                     }
-                } catch (Exception ignore) {
                 }
             }
+
+            if (marked > 0) {
+                dirtyPages.addAndGet(marked);
+                if (dirtySince.get() == 0 && dirtySince.compareAndSet(0, System.currentTimeMillis())) {
+                    dirtySlices.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Clear the pages written to.  Called before the slice is flushed so pages written while flushing are marked
+         * again.
+         *
+         * @return Number of pages that were written to
+         */
+        protected long clearDirtyPages() {
+            long cleared = 0;
+            for (int i = 0; i < pages.length(); i++) {
+                if (pages.get(i) != 0) {
+                    cleared += Long.bitCount(pages.getAndSet(i, 0));
+                }
+            }
+            dirtyPages.addAndGet(-cleared);
+            return cleared;
         }
     }
 
     /**
-     * Commit storage
+     * Flush the slices that have been written to
      */
     @Override
     public void commit() {
-        for (int i = 0; i < slices.size(); i++) {
-            if (slices.get(i).buffer instanceof MappedByteBuffer) {
-                ((MappedByteBuffer)slices.get(i).buffer).force();
+        flush(Long.MAX_VALUE);
+    }
+
+    /**
+     * Flush the slices that have been written to and force the file.  Forcing a mapped slice does not report a failure
+     * so the file channel is forced as well.
+     *
+     * @throws IOException Failed to force the file
+     */
+    @Override
+    public synchronized void sync() throws IOException {
+        flush(Long.MAX_VALUE);
+        channel.force(true);
+    }
+
+    /**
+     * Flush the slices that have been written to the longest ago.  Clean slices are not flushed.  Java 8 can only force
+     * a whole mapped slice, but only the pages written to are counted so a large slice is not counted as dirty until
+     * that much has been written to it.
+     *
+     * @param maxBytes Bytes to flush.  Rounded up to the pages written to within whole slices.
+     * @return Bytes of the pages flushed
+     */
+    @Override
+    public synchronized long flush(long maxBytes) {
+        if (dirtySlices.get() == 0 || !channel.isOpen()) {
+            return 0;
+        }
+
+        final List<FileSlice> dirty = new ArrayList<>();
+        for (FileSlice slice : slices) {
+            if (slice.dirtySince.get() != 0) {
+                dirty.add(slice);
+            }
+        }
+        dirty.sort((first, second) -> Long.compare(first.dirtySince.get(), second.dirtySince.get()));
+
+        long flushed = 0;
+        for (FileSlice slice : dirty) {
+            if (flushed >= maxBytes) {
+                break;
+            }
+
+            // Cleared before flushing so writes made while flushing mark the slice again
+            if (slice.dirtySince.getAndSet(0) != 0) {
+                dirtySlices.decrementAndGet();
+                flushed += slice.clearDirtyPages() << PAGE_SHIFT;
+                slice.flush();
+            }
+        }
+
+        bytesFlushed.add(flushed);
+        return flushed;
+    }
+
+    /**
+     * Flush the oldest slices until no more than the max dirty bytes are waiting.  Writers that went over the limit at
+     * the same time check again once they have the lock so only one of them flushes.
+     */
+    protected synchronized void flushExcess() {
+        final long excess = getDirtyBytes() - maxDirtyBytes;
+        if (excess > 0) {
+            flush(excess);
+        }
+    }
+
+    @Override
+    public long getDirtyBytes() {
+        return dirtyPages.get() << PAGE_SHIFT;
+    }
+
+    @Override
+    public long getFlushLag() {
+        long oldest = 0;
+        for (FileSlice slice : slices) {
+            final long since = slice.dirtySince.get();
+            if (since != 0 && (oldest == 0 || since < oldest)) {
+                oldest = since;
             }
         }
+        return (oldest == 0) ? 0 : Math.max(0, System.currentTimeMillis() - oldest);
     }
 }
 
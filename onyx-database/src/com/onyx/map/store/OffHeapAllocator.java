@@ -0,0 +1,92 @@
+package com.onyx.map.store;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates buffers outside of the java heap and frees them explicitly rather than waiting for them to be garbage
+ * collected.  The bytes currently allocated are tracked for reporting.
+ */
+public class OffHeapAllocator
+{
+    // Bytes currently allocated off heap
+    protected static final AtomicLong allocatedBytes = new AtomicLong(0);
+
+    // Number of buffers currently allocated off heap
+    protected static final AtomicLong allocatedBuffers = new AtomicLong(0);
+
+    /**
+     * Allocate a direct buffer
+     *
+     * @param size Size in bytes
+     * @return Direct buffer
+     */
+    public static ByteBuffer allocate(int size)
+    {
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+        allocatedBytes.addAndGet(size);
+        allocatedBuffers.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Free a buffer returned by allocate.  The buffer must not be used afterwards.
+     *
+     * @param buffer Direct buffer
+     */
+    public static void free(ByteBuffer buffer)
+    {
+        if (buffer == null || !buffer.isDirect())
+        {
+            return;
+        }
+
+        allocatedBytes.addAndGet(-buffer.capacity());
+        allocatedBuffers.decrementAndGet();
+        clean(buffer);
+    }
+
+    /**
+     * Bytes currently allocated off heap
+     *
+     * @return Allocated bytes
+     */
+    public static long getAllocatedBytes()
+    {
+        return allocatedBytes.get();
+    }
+
+    /**
+     * Number of buffers currently allocated off heap
+     *
+     * @return Allocated buffers
+     */
+    public static long getAllocatedBuffers()
+    {
+        return allocatedBuffers.get();
+    }
+
+    /* Hack to release the memory of a direct or mapped buffer.
+    * There is no public JVM API to free a buffer, so this tries to use SUN proprietary API.
+    * Any error is silently ignored (for example SUN API does not exist on Android) and the memory is released once the
+    * buffer is garbage collected.
+    */
+    public static void clean(ByteBuffer buffer)
+    {
+        try {
+            Method cleanerMethod = buffer.getClass().getMethod("cleaner", new Class[0]);
+            if (cleanerMethod != null) {
+                cleanerMethod.setAccessible(true);
+                Object cleaner = cleanerMethod.invoke(buffer);
+                if (cleaner != null) {
+                    Method clearMethod = cleaner.getClass().getMethod("clean", new Class[0]);
+                    if (clearMethod != null) {
+                        clearMethod.invoke(cleaner);
+                    }
+                }
+            }
+        } catch (Exception ignore) {
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.onyx.map.store;
+
+import com.onyx.map.MapBuilder;
+import com.onyx.map.serializer.ObjectBuffer;
+import com.onyx.persistence.context.SchemaContext;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In memory store whose slices are allocated outside of the java heap.  A large store does not add to the heap the
+ * garbage collector has to scan.  The memory is freed when the store is closed or deleted.
+ *
+ * Reads and writes hold a shared lock that closing the store waits for, so memory is not freed while it is being read
+ * or written.  Once closed, reads return null and writes are dropped.  Buffers returned by read are copies since they
+ * can be used after the store is closed.
+ */
+public class OffHeapStore extends InMemoryStore implements Store {
+
+    // Held shared by reads and writes and exclusively while the slices are freed.  Created along with the other locks
+    // since the store is read while it is constructed.
+    protected ReentrantReadWriteLock freeLock;
+
+    protected volatile boolean closed;
+
+    /**
+     * Constructor
+     *
+     * @param builder
+     */
+    public OffHeapStore(MapBuilder builder, SchemaContext context) {
+        this(builder, context, SLICE_SIZE);
+    }
+
+    /**
+     * Constructor with the size of each allocated region
+     *
+     * @param builder
+     * @param sliceSize
+     */
+    public OffHeapStore(MapBuilder builder, SchemaContext context, int sliceSize) {
+        super(builder, context, sliceSize);
+    }
+
+    @Override
+    protected void initSliceAccess() {
+        super.initSliceAccess();
+
+        if (freeLock == null) {
+            freeLock = new ReentrantReadWriteLock();
+        }
+    }
+
+    /**
+     * Allocate the memory for a slice outside of the heap
+     *
+     * @return Direct buffer of the slice size
+     */
+    @Override
+    protected ByteBuffer allocateSlice() {
+        return OffHeapAllocator.allocate(sliceSize);
+    }
+
+    /**
+     * Allocate slices up to the one requested unless the store was closed
+     *
+     * @param index Slice that must be allocated
+     * @return The slice
+     */
+    @Override
+    protected FileSlice grow(int index) {
+        synchronized (growLock) {
+            if (closed) {
+                throw new IllegalStateException("Off heap store is closed");
+            }
+            return super.grow(index);
+        }
+    }
+
+    @Override
+    protected int write(ByteBuffer byteBuffer, long position) {
+        freeLock.readLock().lock();
+        try {
+            if (closed) {
+                return 0;
+            }
+            return super.write(byteBuffer, position);
+        } finally {
+            freeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Object read(long position, int size, Class type, int serializerId) {
+        freeLock.readLock().lock();
+        try {
+            return closed ? null : super.read(position, size, type, serializerId);
+        } finally {
+            freeLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Object read(long position, int size, Class type) {
+        freeLock.readLock().lock();
+        try {
+            return closed ? null : super.read(position, size, type);
+        } finally {
+            freeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Read a copy of a buffer.  A view of the slice would still point to it once it is freed.
+     *
+     * @param position
+     * @param size
+     * @return
+     */
+    @Override
+    public ObjectBuffer read(long position, int size) {
+        freeLock.readLock().lock();
+        try {
+            if (closed || position >= fileSize.get()) {
+                return null;
+            }
+
+            final ByteBuffer buffer = ObjectBuffer.allocate(size);
+            read(buffer, position);
+            return new ObjectBuffer(buffer, serializers);
+        } finally {
+            freeLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Bytes allocated off heap by this store
+     *
+     * @return Allocated bytes
+     */
+    public long getOffHeapBytes() {
+        return slices.length * (long) sliceSize;
+    }
+
+    /**
+     * Nothing to commit.  Direct buffers can not be forced since they are not mapped to a file.
+     */
+    @Override
+    public void commit() {
+    }
+
+    /**
+     * Free the slices.  The store can not be used afterwards.
+     *
+     * @return
+     */
+    @Override
+    public synchronized boolean close() {
+        free();
+        return true;
+    }
+
+    @Override
+    public void delete() {
+        free();
+    }
+
+    /**
+     * Release the memory of every slice once the reads and writes in progress are done
+     */
+    protected void free() {
+        freeLock.writeLock().lock();
+        try {
+            synchronized (growLock) {
+                closed = true;
+
+                final FileSlice[] table = slices;
+                slices = new FileSlice[0];
+
+                for (FileSlice slice : table) {
+                    OffHeapAllocator.free(slice.buffer);
+                }
+            }
+        } finally {
+            freeLock.writeLock().unlock();
+        }
+    }
+}
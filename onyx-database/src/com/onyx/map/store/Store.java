@@ -5,6 +5,8 @@ import com.onyx.map.serializer.ObjectSerializable;
 import com.onyx.map.serializer.Serializers;
 import com.onyx.persistence.context.SchemaContext;
 
+import java.io.IOException;
+
 /**
  * Created by tosborn on 3/27/15.
  */
@@ -73,6 +75,13 @@ public interface Store {
      */
     void deallocate(long position, int size);
 
+    /**
+     * Getter for the space released within the store.  This includes metrics for reclaimed space and fragmentation.
+     *
+     * @return Free space manager
+     */
+    FreeSpaceManager getFreeSpace();
+
     /**
      * Getter for serializers
      * @return
@@ -98,6 +107,49 @@ public interface Store {
      */
     void commit();
 
+    /**
+     * Flush every write and force the file to the storage device.  Unlike commit a failure is thrown rather than ignored.
+     *
+     * @throws IOException Failed to force the file
+     */
+    void sync() throws IOException;
+
+    /**
+     * Flush the oldest writes that have not been flushed yet
+     *
+     * @param maxBytes Bytes to flush.  At least one unit of flushing is done if anything is waiting.
+     * @return Bytes flushed
+     */
+    long flush(long maxBytes);
+
+    /**
+     * Bytes written that have not been flushed yet
+     *
+     * @return
+     */
+    long getDirtyBytes();
+
+    /**
+     * Milliseconds since the oldest write that has not been flushed yet
+     *
+     * @return 0 if nothing is waiting
+     */
+    long getFlushLag();
+
+    /**
+     * Bytes flushed since the store was opened
+     *
+     * @return
+     */
+    long getBytesFlushed();
+
+    /**
+     * Set the bytes that may wait to be flushed before writers have to flush them
+     *
+     * @param maxDirtyBytes
+     */
+    void setMaxDirtyBytes(long maxDirtyBytes);
+
     /**
      * Initialize
      */
@@ -7,6 +7,7 @@ public enum StoreType
 {
     MEMORY_MAPPED_FILE,
     IN_MEMORY,
+    IN_MEMORY_OFF_HEAP,
     CHUNKED_CLUSTER,
     SINGLE_CHUNK_CLUSTER,
     FILE,
@@ -3,18 +3,21 @@ package com.onyx.persistence;
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
+import com.onyx.descriptor.AttributeDescriptor;
 import com.onyx.descriptor.EntityDescriptor;
 import com.onyx.entity.SystemAttribute;
 import com.onyx.entity.SystemEntity;
 import com.onyx.exception.EntityException;
 import com.onyx.map.serializer.ObjectBuffer;
 import com.onyx.map.serializer.ObjectSerializable;
+import com.onyx.map.serializer.ObjectType;
 import com.onyx.persistence.context.SchemaContext;
 import com.onyx.persistence.context.impl.DefaultSchemaContext;
 import com.onyx.util.AttributeField;
 import com.onyx.util.ObjectUtil;
 
 import java.io.*;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.Map;
 
@@ -42,14 +45,29 @@ public abstract class ManagedEntity implements IManagedEntity, ObjectSerializabl
                 descriptor = buffer.serializers.context.getDescriptorForEntity(this, "");
             }
 
-            descriptor.getAttributes().values().stream().forEach(attribute ->
-            {
+            // Write an offset table ahead of the attributes so a single attribute can be read without reading the others
+            final Collection<AttributeDescriptor> attributes = descriptor.getAttributes().values();
+            buffer.writeByte(ObjectType.ATTRIBUTE_TABLE.getType());
+            buffer.writeInt(attributes.size());
+
+            final int tablePosition = buffer.getSize();
+            for (int i = 0; i < attributes.size(); i++) {
+                buffer.writeInt(0);
+            }
+
+            final int attributesPosition = buffer.getSize();
+            int i = 0;
+
+            for (AttributeDescriptor attribute : attributes) {
+                buffer.writeInt(tablePosition + (i++ * Integer.BYTES), buffer.getSize() - attributesPosition);
+
+                Object obj = null;
                 try {
-                    final Object obj = DefaultSchemaContext.reflection.getAttribute(attribute.field, this);
-                    buffer.writeObject(obj);
+                    obj = DefaultSchemaContext.reflection.getAttribute(attribute.field, this);
                 } catch (Exception e) {
                 }
-            });
+                buffer.writeObject(obj);
+            }
         } catch (EntityException e) {
         }
     }
@@ -76,6 +94,8 @@ public abstract class ManagedEntity implements IManagedEntity, ObjectSerializabl
                 } catch (EntityException e) {}
             }
 
+            buffer.readAttributeTable();
+
             descriptor.getAttributes().values().stream().forEach(attribute ->
             {
                 try {
@@ -88,6 +108,7 @@ public abstract class ManagedEntity implements IManagedEntity, ObjectSerializabl
         else
         {
             SystemEntity systemEntity = buffer.serializers.context.getSystemEntityById(serializerId);
+            buffer.readAttributeTable();
 
             for (SystemAttribute attribute : systemEntity.getAttributes()) {
                 Object obj = buffer.readObject();
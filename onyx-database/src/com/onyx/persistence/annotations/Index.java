@@ -10,6 +10,9 @@ import java.lang.annotation.Target;
  *
  * Note: This must also include an com.onyx.persistence.annotations.Attribute annotation
  *
+ * By default an index is hash based and only supports exact matches.  Declare the index as IndexType.ORDERED in order
+ * to use the index for range and prefix queries.
+ *
  * @author Tim Osborn
  *
  * @since 1.0.0
@@ -19,14 +22,19 @@ import java.lang.annotation.Target;
  *      {@literal @}Index
  *      {@literal @}Attribute(nullable = false, size = 200)
  *       public long personID;
+ *
+ *      {@literal @}Index(type = IndexType.ORDERED)
+ *      {@literal @}Attribute
+ *       public Date dateCreated;
  *     </code>
  * </pre>
  *
  * @see com.onyx.persistence.annotations.Identifier
+ * @see com.onyx.persistence.annotations.IndexType
  */
 @Target(ElementType.FIELD)
 @Retention(RetentionPolicy.RUNTIME)
 public @interface Index
 {
-
+    IndexType type() default IndexType.HASH;
 }
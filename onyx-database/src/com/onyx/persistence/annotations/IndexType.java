@@ -0,0 +1,38 @@
+package com.onyx.persistence.annotations;
+
+/**
+ * This enum is used to indicate what storage structure backs an index when declared within the @Index annotation
+ *
+ * HASH - Hash based index.  Only supports exact matches such as EQUAL and IN
+ *
+ * ORDERED - Ordered index backed by a B+ tree.  In addition to exact matches it supports range and prefix criteria
+ * such as LESS_THAN, GREATER_THAN, LESS_THAN_EQUAL, GREATER_THAN_EQUAL and STARTS_WITH
+ *
+ * @author Tim Osborn
+ *
+ * @since 1.0.0
+ *
+ * <pre>
+ *     <code>
+ *          {@literal @}Index(type = IndexType.ORDERED)
+ *          {@literal @}Attribute
+ *           public Date dateCreated;
+ *     </code>
+ * </pre>
+ *
+ *
+ * @see com.onyx.persistence.annotations.Index
+ */
+public enum IndexType
+{
+    HASH,
+    ORDERED;
+
+    /**
+     * Constructor
+     */
+    IndexType()
+    {
+
+    }
+}
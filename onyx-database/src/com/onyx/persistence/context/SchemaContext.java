@@ -14,6 +14,7 @@ import com.onyx.relationship.RelationshipController;
 import com.onyx.transaction.TransactionController;
 
 import java.nio.channels.FileChannel;
+import java.util.concurrent.locks.ReadWriteLock;
 
 /**
  * The purpose of this interface is to resolve all the the metadata, storage mechanism,  and modeling regarding the structure of the database
@@ -279,6 +280,14 @@ public interface SchemaContext
      */
     MapBuilder createTemporaryMapBuilder();
 
+    /**
+     * Number of records a query keeps in memory while sorting before the rest are spilled to a temporary map builder
+     * @since 1.0.0
+     *
+     * @return Records kept in memory
+     */
+    int getQuerySpillSize();
+
     /**
      * Get System Entity By Name
      * @since 1.0.0
@@ -317,4 +326,29 @@ public interface SchemaContext
      * @return Transaction Controller implementation.
      */
     TransactionController getTransactionController();
+
+    /**
+     * Get Directory where WAL transaction files are located
+     *
+     * @return Directory where wal files are located
+     */
+    String getWALDirectory();
+
+    /**
+     * Compact every data file.  Live records are copied into a new file while the database remains online and the new
+     * file replaces the current one.  Reads and writes are only paused while the file is swapped.
+     *
+     * @param bytesPerSecond Maximum rate to copy at.  0 copies as fast as possible.
+     * @return Bytes reclaimed
+     * @throws EntityException Failed to swap a data file
+     */
+    long compact(long bytesPerSecond) throws EntityException;
+
+    /**
+     * Lock held by queries from finding records until they are read by their record ids.  Compaction moves records so
+     * it holds the write lock while a compacted file is swapped in.
+     *
+     * @return Record id lock
+     */
+    ReadWriteLock getRecordIdLock();
 }
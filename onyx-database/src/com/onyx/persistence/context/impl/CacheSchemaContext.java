@@ -42,6 +42,35 @@ public class CacheSchemaContext extends DefaultSchemaContext
         super(contextId);
     }
 
+    /**
+     * Where data is held.  Off heap storage is not scanned by the garbage collector.
+     *
+     * @since 1.0.0
+     */
+    protected StoreType storeType = StoreType.IN_MEMORY;
+
+    /**
+     * Set whether data is held outside of the java heap.  This only applies to data files opened afterwards.
+     *
+     * @since 1.0.0
+     * @param offHeap True to allocate data off heap
+     */
+    public void setOffHeap(boolean offHeap)
+    {
+        this.storeType = offHeap ? StoreType.IN_MEMORY_OFF_HEAP : StoreType.IN_MEMORY;
+    }
+
+    /**
+     * Whether data is held outside of the java heap
+     *
+     * @since 1.0.0
+     * @return True if data is allocated off heap
+     */
+    public boolean isOffHeap()
+    {
+        return storeType == StoreType.IN_MEMORY_OFF_HEAP;
+    }
+
     /**
      * Method for creating a new data storage factory
      * @since 1.0.0
@@ -50,7 +79,7 @@ public class CacheSchemaContext extends DefaultSchemaContext
         @Override
         public MapBuilder apply(String path)
         {
-            return new DefaultMapBuilder(location + "/" + path, StoreType.IN_MEMORY, context);
+            return new DefaultMapBuilder(location + "/" + path, storeType, context);
         }
     };
 
@@ -75,7 +104,7 @@ public class CacheSchemaContext extends DefaultSchemaContext
      */
     public MapBuilder createTemporaryMapBuilder()
     {
-        return new DefaultMapBuilder(null, StoreType.IN_MEMORY, this.context);
+        return new DefaultMapBuilder(null, storeType, this.context);
     }
 
 }
@@ -17,9 +17,12 @@ import com.onyx.helpers.PartitionHelper;
 
 import com.onyx.index.IndexController;
 import com.onyx.index.impl.IndexControllerImpl;
+import com.onyx.index.impl.OrderedIndexControllerImpl;
 
+import com.onyx.map.BackgroundFlusher;
 import com.onyx.map.DefaultMapBuilder;
 import com.onyx.map.MapBuilder;
+import com.onyx.map.store.MemoryMappedStore;
 import com.onyx.map.store.StoreType;
 
 import com.onyx.persistence.IManagedEntity;
@@ -58,7 +61,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -67,14 +72,19 @@ import java.util.Set;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 
 /**
@@ -124,6 +134,7 @@ public class DefaultSchemaContext implements SchemaContext
      */
     public DefaultSchemaContext(final String contextId)
     {
+        scheduler.scheduleWithFixedDelay(flusher, flusher.getInterval(), flusher.getInterval(), TimeUnit.MILLISECONDS);
         scheduler.scheduleWithFixedDelay(commitThread, 10, 10, TimeUnit.SECONDS);
         context = this;
         this.contextId = contextId;
@@ -188,11 +199,14 @@ public class DefaultSchemaContext implements SchemaContext
      */
     public void start()
     {
+        // Checked before registering the system entities since doing so is journaled
+        final boolean recoveryNeeded = isRecoveryNeeded();
+
         // The purpose of this is to iterate through the system entities and pre-cache all of the entity descriptors
         // So that we can detect schema changes earlier.  For instance an index change can start re-building the index at startup.
         try {
             final EntityDescriptor descriptor = new EntityDescriptor(SystemEntity.class, this);
-            this.systemEntityByIDMap.put(1, new SystemEntity(descriptor));
+            registerSystemEntityById(1, new SystemEntity(descriptor));
 
             systemPersistenceManager.list(SystemEntity.class).forEach(o -> {
                 SystemEntity systemEntity = (SystemEntity) o;
@@ -207,6 +221,46 @@ public class DefaultSchemaContext implements SchemaContext
         } catch (EntityException e) {
             // Ignore
         }
+
+        if (recoveryNeeded)
+        {
+            recover();
+        }
+    }
+
+    /**
+     * Whether the WAL files do not end with a checkpoint because the database was not shut down cleanly
+     *
+     * @return True if the database must be recovered
+     */
+    protected boolean isRecoveryNeeded()
+    {
+        try
+        {
+            return transactionController != null && transactionController.isRecoveryNeeded();
+        }
+        catch (TransactionException e)
+        {
+            Logger.getLogger(DefaultSchemaContext.class.getName()).log(Level.SEVERE, "Failed to read the WAL files", e);
+            return false;
+        }
+    }
+
+    /**
+     * Roll the WAL files forward from the last checkpoint.  Once recovered a checkpoint is written so it is not
+     * recovered again.
+     */
+    protected void recover()
+    {
+        try
+        {
+            transactionController.recoverFromCheckpoint(transaction -> true);
+            checkpoint();
+        }
+        catch (TransactionException e)
+        {
+            Logger.getLogger(DefaultSchemaContext.class.getName()).log(Level.SEVERE, "Failed to recover the database", e);
+        }
     }
 
     protected PersistenceManager systemPersistenceManager = null;
@@ -303,8 +357,7 @@ public class DefaultSchemaContext implements SchemaContext
                 }
 
                 // Grab the last used WAL File
-                final String[] directoryListing = new File(directory).list();
-                Arrays.sort(directoryListing);
+                final String[] directoryListing = TransactionControllerImpl.getJournalFiles(directory);
 
                 File lastWalFile = null;
 
@@ -367,12 +420,121 @@ public class DefaultSchemaContext implements SchemaContext
         return this.transactionController;
     }
 
+    /**
+     * Flush what is left of the data files and write a checkpoint to the WAL file.  Recovery does not need to apply
+     * transactions journaled before the checkpoint.  Most writes have already been flushed by the background flusher.
+     *
+     * The checkpoint is only written once every data file has been forced to the storage device.  If one could not be,
+     * the transactions since the previous checkpoint are still needed to recover so none is written.
+     *
+     * @return Whether the checkpoint was written
+     */
+    public boolean checkpoint()
+    {
+        final List<MapBuilder> files;
+        synchronized (this)
+        {
+            files = new ArrayList<>(dataFiles.values());
+        }
+
+        try
+        {
+            for (final MapBuilder file : files)
+            {
+                file.sync();
+            }
+        }
+        catch (IOException e)
+        {
+            Logger.getLogger(DefaultSchemaContext.class.getName()).log(Level.SEVERE, "Failed to flush the data files.  The checkpoint was not written.", e);
+            return false;
+        }
+
+        if (transactionController == null)
+        {
+            return true;
+        }
+
+        try
+        {
+            transactionController.writeCheckpoint().get();
+            return true;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (TransactionException | ExecutionException e)
+        {
+            Logger.getLogger(DefaultSchemaContext.class.getName()).log(Level.SEVERE, "Failed to write the checkpoint", e);
+        }
+        return false;
+    }
+
+    // Held by queries from finding records until they are read by their record ids
+    protected final ReadWriteLock recordIdLock = new ReentrantReadWriteLock();
+
+    /**
+     * Lock held by queries from finding records until they are read by their record ids.  Compaction moves records so
+     * it holds the write lock while a compacted file is swapped in.
+     *
+     * @return Record id lock
+     */
+    @Override
+    public ReadWriteLock getRecordIdLock()
+    {
+        return recordIdLock;
+    }
+
+    /**
+     * Compact every data file.  Every index is opened first so the structures that reference records by position are
+     * known before the records are moved.
+     *
+     * @param bytesPerSecond Maximum rate to copy at.  0 copies as fast as possible.
+     * @return Bytes reclaimed
+     * @throws EntityException Failed to swap a data file
+     */
+    @Override
+    public long compact(long bytesPerSecond) throws EntityException
+    {
+        final List<EntityDescriptor> entityDescriptors;
+        synchronized (this)
+        {
+            entityDescriptors = new ArrayList<>(descriptors.values());
+        }
+
+        for (final EntityDescriptor descriptor : entityDescriptors)
+        {
+            descriptor.getIndexes().values().forEach(this::getIndexController);
+        }
+
+        final List<MapBuilder> files;
+        synchronized (this)
+        {
+            files = new ArrayList<>(dataFiles.values());
+        }
+
+        long reclaimed = 0;
+        for (final MapBuilder file : files)
+        {
+            try
+            {
+                reclaimed += file.compact(bytesPerSecond);
+            }
+            catch (IOException e)
+            {
+                throw new EntityException(EntityException.UNKNOWN_EXCEPTION, e);
+            }
+        }
+        return reclaimed;
+    }
+
     /**
      * Get Directory where wal files are located.
      *
      * @return  get Directory where wal files are located.
      */
-    public String getWALDirectory()
+    @Override public String getWALDirectory()
     {
         return this.location + File.separator + "wal" + File.separator;
     }
@@ -388,6 +550,9 @@ public class DefaultSchemaContext implements SchemaContext
     {
         killSwitch = true;
 
+        // Write pending transactions and a final checkpoint once the data files are forced
+        checkpoint();
+
         // Shutdown all databases
         for (final MapBuilder db : dataFiles.values())
         {
@@ -404,6 +569,12 @@ public class DefaultSchemaContext implements SchemaContext
             ;
         }
 
+        // Close the transaction file
+        if (transactionController != null)
+        {
+            transactionController.close();
+        }
+
         // Close transaction file
         if (lastWalFileChannel != null)
         {
@@ -421,6 +592,7 @@ public class DefaultSchemaContext implements SchemaContext
 
         dataFiles.clear(); // Clear all data files
         descriptors.clear(); // Clear all descriptors
+        descriptorRegistry = Collections.emptyMap();
         recordControllers.clear(); // Clear all Record Controllers
         relationshipControllers.clear(); // Clear all relationship controllers
         indexControllers.clear(); // Clear all index controllers
@@ -436,15 +608,138 @@ public class DefaultSchemaContext implements SchemaContext
     ///////////////////////////////////////////////////////////////
     final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
+    // Flushes the data files a little at a time
+    protected final BackgroundFlusher flusher = new BackgroundFlusher(() -> {
+        synchronized (this)
+        {
+            return new ArrayList<>(this.dataFiles.values());
+        }
+    });
+
+    /**
+     * Flusher of the data files.  It reports how far behind flushing is and how much has been flushed.
+     *
+     * @return  Background flusher
+     *
+     * @since  1.0.0
+     */
+    public BackgroundFlusher getDataFileFlusher()
+    {
+        return flusher;
+    }
+
     // This is in order to cleanup memory
     final Runnable commitThread = new Runnable()
         {
             @Override public void run()
             {
-                dataFiles.forEach((s, db) -> db.commit());
+                checkpoint();
             }
         };
 
+    /**
+     * Size of each region of a data file mapped into memory.
+     *
+     * @since  1.0.0
+     */
+    protected int dataFileSliceSize = MemoryMappedStore.SLICE_SIZE;
+
+    /**
+     * Set the size of each region of a data file mapped into memory.  A large database needs far fewer mappings with a
+     * larger slice size.  This only applies to data files opened afterwards.
+     *
+     * @param  dataFileSliceSize  Slice size in bytes
+     *
+     * @since  1.0.0
+     */
+    public void setDataFileSliceSize(int dataFileSliceSize)
+    {
+        this.dataFileSliceSize = dataFileSliceSize;
+    }
+
+    /**
+     * Size of each region of a data file mapped into memory.
+     *
+     * @return  Slice size in bytes
+     *
+     * @since  1.0.0
+     */
+    public int getDataFileSliceSize()
+    {
+        return dataFileSliceSize;
+    }
+
+    /**
+     * Keys the bloom filter of each data file structure is sized for.
+     *
+     * @since  1.0.0
+     */
+    protected long bloomFilterKeys = 0;
+
+    /**
+     * Keep a bloom filter for each structure within the data files so looking up a key that does not exist does not
+     * search the structure.  This only applies to data files opened afterwards.
+     *
+     * @param  bloomFilterKeys  Keys each filter is sized for.  0 does not keep filters.
+     *
+     * @since  1.0.0
+     */
+    public void setBloomFilterKeys(long bloomFilterKeys)
+    {
+        this.bloomFilterKeys = bloomFilterKeys;
+    }
+
+    /**
+     * Keys the bloom filter of each data file structure is sized for.
+     *
+     * @return  Keys each filter is sized for.  0 if filters are not kept.
+     *
+     * @since  1.0.0
+     */
+    public long getBloomFilterKeys()
+    {
+        return bloomFilterKeys;
+    }
+
+    /**
+     * Number of records a query keeps in memory while sorting by default.
+     *
+     * @since  1.0.0
+     */
+    public static final int DEFAULT_QUERY_SPILL_SIZE = 100000;
+
+    /**
+     * Number of records a query keeps in memory while sorting.
+     *
+     * @since  1.0.0
+     */
+    protected int querySpillSize = DEFAULT_QUERY_SPILL_SIZE;
+
+    /**
+     * Set the number of records a query keeps in memory while sorting.  Larger sorts are spilled in sorted runs to a
+     * temporary file that is only created for those queries.
+     *
+     * @param  querySpillSize  Records kept in memory
+     *
+     * @since  1.0.0
+     */
+    public void setQuerySpillSize(int querySpillSize)
+    {
+        this.querySpillSize = querySpillSize;
+    }
+
+    /**
+     * Number of records a query keeps in memory while sorting.
+     *
+     * @return  Records kept in memory
+     *
+     * @since  1.0.0
+     */
+    public int getQuerySpillSize()
+    {
+        return querySpillSize;
+    }
+
     /**
      * Map of data files.
      *
@@ -459,7 +754,9 @@ public class DefaultSchemaContext implements SchemaContext
         {
             @Override public MapBuilder apply(final String path)
             {
-                return new DefaultMapBuilder(location + "/" + path, context);
+                final DefaultMapBuilder builder = new DefaultMapBuilder("", location + "/" + path, StoreType.MEMORY_MAPPED_FILE, context, dataFileSliceSize);
+                builder.setBloomFilterKeys(bloomFilterKeys);
+                return builder;
             }
         };
 
@@ -623,9 +920,16 @@ public class DefaultSchemaContext implements SchemaContext
     // Entity Descriptors
     //
     //////////////////////////////////////////////////////////////////
-    // Contains the initialized entity descriptors
+    // Contains the initialized entity descriptors.  This is only accessed while holding the context lock.
     protected Map<String, EntityDescriptor> descriptors = new THashMap();
 
+    // Immutable copy of the entity descriptors keyed by class and then partition value.  Reading it does not require
+    // the context lock.  A new copy is published once the initialization of a descriptor is complete.
+    protected volatile Map<Class, Map<String, EntityDescriptor>> descriptorRegistry = Collections.emptyMap();
+
+    // Depth of nested descriptor initialization.  Descriptors are not published until the outer most one is complete.
+    protected int descriptorInitializationDepth = 0;
+
     protected AtomicLong partitions = new AtomicLong(0);
 
     /**
@@ -642,13 +946,105 @@ public class DefaultSchemaContext implements SchemaContext
      *
      * @since   1.0.0
      */
-    public synchronized EntityDescriptor getDescriptorForEntity(final Object entity, Object partitionId) throws EntityException
+    public EntityDescriptor getDescriptorForEntity(final Object entity, final Object partitionId) throws EntityException
     {
-        if (partitionId == null)
+        final EntityDescriptor descriptor = getRegisteredDescriptor(entity.getClass(), partitionId);
+
+        if (descriptor != null)
         {
-            partitionId = "";
+            return descriptor;
+        }
+
+        return initializeDescriptor(entity, partitionId);
+    }
+
+    /**
+     * Get a descriptor that has already been initialized without acquiring the context lock.
+     *
+     * @param   entityClass  Entity Type
+     * @param   partitionId  Partition Field Value
+     *
+     * @return  Entity Descriptor or null if it has not been initialized
+     */
+    protected EntityDescriptor getRegisteredDescriptor(final Class entityClass, final Object partitionId)
+    {
+        final Map<String, EntityDescriptor> partitionDescriptors = descriptorRegistry.get(entityClass);
+
+        if (partitionDescriptors == null)
+        {
+            return null;
+        }
+
+        return partitionDescriptors.get((partitionId == null) ? "" : String.valueOf(partitionId));
+    }
+
+    /**
+     * Publish a new copy of the descriptor registry.  Must be called while holding the context lock.
+     */
+    protected void publishDescriptors()
+    {
+        final Map<Class, Map<String, EntityDescriptor>> registry = new THashMap();
+
+        for (final Map.Entry<String, EntityDescriptor> entry : descriptors.entrySet())
+        {
+            final Class entityClass = entry.getValue().getClazz();
+            Map<String, EntityDescriptor> partitionDescriptors = registry.get(entityClass);
+
+            if (partitionDescriptors == null)
+            {
+                partitionDescriptors = new THashMap();
+                registry.put(entityClass, partitionDescriptors);
+            }
+
+            // The descriptor key is the class name followed by the partition value
+            partitionDescriptors.put(entry.getKey().substring(entityClass.getCanonicalName().length()), entry.getValue());
         }
 
+        descriptorRegistry = registry;
+    }
+
+    /**
+     * Initialize an Entity Descriptor and its system entity.  This is the only place descriptors are added so it is
+     * guarded by the context lock.
+     *
+     * @param   entity       Entity Instance
+     * @param   partitionId  Partition Field Value
+     *
+     * @return  Record's entity descriptor
+     *
+     * @throws  EntityException  Generic Exception
+     */
+    protected synchronized EntityDescriptor initializeDescriptor(final Object entity, final Object partitionId) throws EntityException
+    {
+        descriptorInitializationDepth++;
+
+        try
+        {
+            return createDescriptor(entity, (partitionId == null) ? "" : partitionId);
+        }
+        finally
+        {
+            descriptorInitializationDepth--;
+
+            if (descriptorInitializationDepth == 0)
+            {
+                publishDescriptors();
+            }
+        }
+    }
+
+    /**
+     * Create the Entity Descriptor if it does not already exist.  Must be called while holding the context lock.
+     *
+     * @param   entity       Entity Instance
+     * @param   partitionId  Partition Field Value
+     *
+     * @return  Record's entity descriptor
+     *
+     * @throws  EntityException  Generic Exception
+     */
+    private EntityDescriptor createDescriptor(final Object entity, final Object partitionId) throws EntityException
+    {
         EntityDescriptor descriptor = null;
 
         final String entityKey = entity.getClass().getCanonicalName() + String.valueOf(partitionId);
@@ -762,14 +1158,14 @@ public class DefaultSchemaContext implements SchemaContext
             }
 
             systemPersistenceManager.saveEntity(systemEntity);
-            defaultSystemEntities.put(systemEntity.getName(), systemEntity);
+            registerSystemEntityByName(systemEntity);
 
             return descriptor;
         }
     }
 
-    // System Entities
-    protected Map<String, SystemEntity> defaultSystemEntities = new THashMap();
+    // System Entities by name.  This is an immutable copy that is replaced while holding the context lock.
+    protected volatile Map<String, SystemEntity> defaultSystemEntities = Collections.emptyMap();
 
     /**
      * Get System Entity By Name.
@@ -780,45 +1176,74 @@ public class DefaultSchemaContext implements SchemaContext
      *
      * @throws  EntityException  Default Exception
      */
-    public synchronized SystemEntity getSystemEntityByName(final String name) throws EntityException
+    public SystemEntity getSystemEntityByName(final String name) throws EntityException
     {
-        return defaultSystemEntities.compute(name,
-                (s, systemEntity) ->
-                {
+        final SystemEntity systemEntity = defaultSystemEntities.get(name);
 
-                    if (systemEntity != null)
-                    {
-                        return systemEntity;
-                    }
+        if (systemEntity != null)
+        {
+            return systemEntity;
+        }
 
-                    final Query query = new Query(SystemEntity.class, new QueryCriteria("name", QueryCriteriaOperator.EQUAL, s));
-                    query.setMaxResults(1);
-                    query.setQueryOrders(Arrays.asList(new QueryOrder("primaryKey", false)));
+        return loadSystemEntityByName(name);
+    }
 
-                    List<SystemEntity> results = null;
+    /**
+     * Find the latest System Entity matching the name and register it.
+     *
+     * @param   name  System Entity Name
+     *
+     * @return  Latest System Entity matching that name
+     */
+    protected synchronized SystemEntity loadSystemEntityByName(final String name)
+    {
+        final SystemEntity systemEntity = defaultSystemEntities.get(name);
 
-                    try
-                    {
-                        results = systemPersistenceManager.executeQuery(query);
-                    }
-                    catch (EntityException e)
-                    {
-                        return null;
-                    }
+        if (systemEntity != null)
+        {
+            return systemEntity;
+        }
 
-                    if (results.size() > 0)
-                    {
-                        results.get(0).getAttributes().sort((o1, o2) -> o1.getName().compareTo(o2.getName()));
+        final Query query = new Query(SystemEntity.class, new QueryCriteria("name", QueryCriteriaOperator.EQUAL, name));
+        query.setMaxResults(1);
+        query.setQueryOrders(Arrays.asList(new QueryOrder("primaryKey", false)));
 
-                        return results.get(0);
-                    }
+        List<SystemEntity> results = null;
 
-                    return null;
-                });
+        try
+        {
+            results = systemPersistenceManager.executeQuery(query);
+        }
+        catch (EntityException e)
+        {
+            return null;
+        }
+
+        if (results.size() > 0)
+        {
+            results.get(0).getAttributes().sort((o1, o2) -> o1.getName().compareTo(o2.getName()));
+            registerSystemEntityByName(results.get(0));
+
+            return results.get(0);
+        }
+
+        return null;
+    }
+
+    /**
+     * Publish a new copy of the System Entities by name including the System Entity.
+     *
+     * @param  systemEntity  Latest System Entity
+     */
+    protected synchronized void registerSystemEntityByName(final SystemEntity systemEntity)
+    {
+        final Map<String, SystemEntity> systemEntities = new THashMap(defaultSystemEntities);
+        systemEntities.put(systemEntity.getName(), systemEntity);
+        defaultSystemEntities = systemEntities;
     }
 
-    // System Entities
-    protected Map<Integer, SystemEntity> systemEntityByIDMap = new THashMap();
+    // System Entities by id.  This is an immutable copy that is replaced while holding the context lock.
+    protected volatile Map<Integer, SystemEntity> systemEntityByIDMap = Collections.emptyMap();
 
     /**
      * Get System Entity By ID.
@@ -829,33 +1254,63 @@ public class DefaultSchemaContext implements SchemaContext
      *
      * @throws  EntityException  Default Exception
      */
-    public synchronized SystemEntity getSystemEntityById(final int systemEntityId)
+    public SystemEntity getSystemEntityById(final int systemEntityId)
     {
-        return systemEntityByIDMap.compute(systemEntityId,
-                (id, systemEntity) ->
-                {
+        final SystemEntity systemEntity = systemEntityByIDMap.get(systemEntityId);
 
-                    if (systemEntity != null)
-                    {
-                        return systemEntity;
-                    }
+        if (systemEntity != null)
+        {
+            return systemEntity;
+        }
 
-                    try
-                    {
-                        final SystemEntity entity = (SystemEntity) systemPersistenceManager.findById(SystemEntity.class, id);
+        return loadSystemEntityById(systemEntityId);
+    }
 
-                        if (entity != null)
-                        {
-                            entity.getAttributes().sort((o1, o2) -> o1.getName().compareTo(o2.getName()));
-                        }
+    /**
+     * Find the System Entity version and register it.
+     *
+     * @param   systemEntityId  Unique identifier for system entity version
+     *
+     * @return  System Entity matching ID
+     */
+    protected synchronized SystemEntity loadSystemEntityById(final int systemEntityId)
+    {
+        SystemEntity systemEntity = systemEntityByIDMap.get(systemEntityId);
 
-                        return entity;
-                    }
-                    catch (EntityException e)
-                    {
-                        return null;
-                    }
-                });
+        if (systemEntity != null)
+        {
+            return systemEntity;
+        }
+
+        try
+        {
+            systemEntity = (SystemEntity) systemPersistenceManager.findById(SystemEntity.class, systemEntityId);
+        }
+        catch (EntityException e)
+        {
+            return null;
+        }
+
+        if (systemEntity != null)
+        {
+            systemEntity.getAttributes().sort((o1, o2) -> o1.getName().compareTo(o2.getName()));
+            registerSystemEntityById(systemEntityId, systemEntity);
+        }
+
+        return systemEntity;
+    }
+
+    /**
+     * Publish a new copy of the System Entities by id including the System Entity.
+     *
+     * @param  systemEntityId  Unique identifier for system entity version
+     * @param  systemEntity    System Entity
+     */
+    protected synchronized void registerSystemEntityById(final int systemEntityId, final SystemEntity systemEntity)
+    {
+        final Map<Integer, SystemEntity> systemEntities = new THashMap(systemEntityByIDMap);
+        systemEntities.put(systemEntityId, systemEntity);
+        systemEntityByIDMap = systemEntities;
     }
 
     /**
@@ -872,15 +1327,23 @@ public class DefaultSchemaContext implements SchemaContext
      *
      * @since   1.0.0
      */
-    public synchronized EntityDescriptor getDescriptorForEntity(final Class entityClass, Object partitionId) throws EntityException
+    public EntityDescriptor getDescriptorForEntity(final Class entityClass, Object partitionId) throws EntityException
     {
-        final IManagedEntity entity = EntityDescriptor.createNewEntity(entityClass);
-
         if (partitionId == null)
         {
             partitionId = "";
         }
 
+        // Avoid instantiating the entity when the descriptor is already registered
+        final EntityDescriptor descriptor = getRegisteredDescriptor(entityClass, partitionId);
+
+        if (descriptor != null)
+        {
+            return descriptor;
+        }
+
+        final IManagedEntity entity = EntityDescriptor.createNewEntity(entityClass);
+
         return getDescriptorForEntity(entity, String.valueOf(partitionId));
     }
 
@@ -898,7 +1361,7 @@ public class DefaultSchemaContext implements SchemaContext
      *
      * @since   1.0.0
      */
-    public synchronized EntityDescriptor getDescriptorForEntity(final Object entity) throws EntityException
+    public EntityDescriptor getDescriptorForEntity(final Object entity) throws EntityException
     {
         if (!(entity instanceof IManagedEntity))
         {
@@ -923,6 +1386,13 @@ public class DefaultSchemaContext implements SchemaContext
      */
     public EntityDescriptor getBaseDescriptorForEntity(final Class entityClass) throws EntityException
     {
+        final EntityDescriptor descriptor = getRegisteredDescriptor(entityClass, "");
+
+        if (descriptor != null)
+        {
+            return descriptor;
+        }
+
         final IManagedEntity entity = EntityDescriptor.createNewEntity(entityClass);
 
         return getDescriptorForEntity(entity, "");
@@ -984,6 +1454,11 @@ public class DefaultSchemaContext implements SchemaContext
             {
                 try
                 {
+                    if (descriptor.isOrdered())
+                    {
+                        return new OrderedIndexControllerImpl(descriptor.getEntityDescriptor(), descriptor, context);
+                    }
+
                     return new IndexControllerImpl(descriptor.getEntityDescriptor(), descriptor, context);
                 }
                 catch (EntityException e)
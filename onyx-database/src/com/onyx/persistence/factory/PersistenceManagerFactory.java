@@ -1,5 +1,6 @@
 package com.onyx.persistence.factory;
 
+import com.onyx.exception.EntityException;
 import com.onyx.exception.InitializationException;
 import com.onyx.exception.SingletonException;
 import com.onyx.persistence.manager.PersistenceManager;
@@ -125,4 +126,18 @@ public interface PersistenceManagerFactory
      * @see com.onyx.persistence.manager.impl.EmbeddedPersistenceManager
      */
     PersistenceManager getPersistenceManager();
+
+    /**
+     * Compact the database files.  The live records are copied into new files while the database remains online.  Reads
+     * and writes are only paused while the changes made during the copy are applied and the files are swapped.
+     *
+     * Record references obtained before a file is swapped, such as those held by a lazy query result, are no longer
+     * valid afterwards.
+     *
+     * @since 1.0.0
+     * @param bytesPerSecond Maximum rate to copy records at so compaction does not starve the database of IO.  0 copies as fast as possible.
+     * @return Bytes reclaimed
+     * @throws EntityException Failure to swap a data file
+     */
+    long compact(long bytesPerSecond) throws EntityException;
 }
@@ -1,6 +1,7 @@
 package com.onyx.persistence.factory.impl;
 
 import com.onyx.exception.InitializationException;
+import com.onyx.map.store.OffHeapAllocator;
 import com.onyx.persistence.factory.PersistenceManagerFactory;
 import com.onyx.persistence.context.impl.CacheSchemaContext;
 
@@ -56,6 +57,37 @@ public class CacheManagerFactory extends EmbeddedPersistenceManagerFactory imple
         this.setDatabaseLocation(tempDirectory.toPath().toString());
     }
 
+    /**
+     * Set whether data is held outside of the java heap.  A large cache held off heap is not scanned by the garbage
+     * collector.  This must be set before the factory is initialized.
+     *
+     * @param offHeap True to allocate data off heap
+     */
+    public void setOffHeap(boolean offHeap)
+    {
+        ((CacheSchemaContext) context).setOffHeap(offHeap);
+    }
+
+    /**
+     * Whether data is held outside of the java heap
+     *
+     * @return True if data is allocated off heap
+     */
+    public boolean isOffHeap()
+    {
+        return ((CacheSchemaContext) context).isOffHeap();
+    }
+
+    /**
+     * Bytes currently allocated outside of the java heap for in memory data
+     *
+     * @return Off heap bytes
+     */
+    public long getOffHeapBytes()
+    {
+        return OffHeapAllocator.getAllocatedBytes();
+    }
+
     /**
      * Initialize the in memory database
      *
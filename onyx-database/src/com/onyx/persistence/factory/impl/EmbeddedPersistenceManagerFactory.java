@@ -1,12 +1,17 @@
 package com.onyx.persistence.factory.impl;
 
 import com.onyx.exception.SingletonException;
+import com.onyx.map.BackgroundFlusher;
+import com.onyx.map.base.SharedCache;
+import com.onyx.map.store.MemoryMappedStore;
 import com.onyx.persistence.context.impl.DefaultSchemaContext;
 import com.onyx.persistence.manager.PersistenceManager;
 import com.onyx.persistence.factory.PersistenceManagerFactory;
 import com.onyx.persistence.context.SchemaContext;
+import com.onyx.exception.EntityException;
 import com.onyx.exception.InitializationException;
 import com.onyx.persistence.manager.impl.EmbeddedPersistenceManager;
+import com.onyx.transaction.JournalSyncPolicy;
 import com.onyx.util.EncryptionUtil;
 import java.io.*;
 import java.nio.channels.FileChannel;
@@ -72,6 +77,21 @@ public class EmbeddedPersistenceManagerFactory implements PersistenceManagerFact
     // Enable history journaling ot keep a transaction history
     protected boolean enableJournaling = false;
 
+    // When WAL files are forced to the storage device
+    protected JournalSyncPolicy journalSyncPolicy = JournalSyncPolicy.NONE;
+
+    // Milliseconds between WAL syncs when using the interval sync policy
+    protected long journalSyncInterval = 1000;
+
+    // Size of each region of a data file mapped into memory
+    protected int dataFileSliceSize = MemoryMappedStore.SLICE_SIZE;
+
+    // Keys the bloom filter of each data file structure is sized for.  0 does not keep filters.
+    protected long bloomFilterKeys = 0;
+
+    // Records a query keeps in memory while sorting
+    protected int querySpillSize = DefaultSchemaContext.DEFAULT_QUERY_SPILL_SIZE;
+
     /**
      * Overridden constructor to include SchemaContext
      *
@@ -213,6 +233,13 @@ public class EmbeddedPersistenceManagerFactory implements PersistenceManagerFact
                 context.setLocation(location);
             }
 
+            if (context instanceof DefaultSchemaContext)
+            {
+                ((DefaultSchemaContext) context).setDataFileSliceSize(dataFileSliceSize);
+                ((DefaultSchemaContext) context).setBloomFilterKeys(bloomFilterKeys);
+                ((DefaultSchemaContext) context).setQuerySpillSize(querySpillSize);
+            }
+
             // Ensure the database file exists
             final File databaseDirectory = new File(this.location);
 
@@ -237,6 +264,12 @@ public class EmbeddedPersistenceManagerFactory implements PersistenceManagerFact
             }
 
             this.getPersistenceManager();
+
+            if (context.getTransactionController() != null)
+            {
+                context.getTransactionController().setJournalSyncPolicy(journalSyncPolicy, journalSyncInterval);
+            }
+
             context.start();
         }
         catch (OverlappingFileLockException e)
@@ -314,6 +347,20 @@ public class EmbeddedPersistenceManagerFactory implements PersistenceManagerFact
         releaseLock();
     }
 
+    /**
+     * Compact the database files
+     *
+     * @since 1.0.0
+     * @param bytesPerSecond Maximum rate to copy records at.  0 copies as fast as possible.
+     * @return Bytes reclaimed
+     * @throws EntityException Failure to swap a data file
+     */
+    @Override
+    public long compact(long bytesPerSecond) throws EntityException
+    {
+        return context.compact(bytesPerSecond);
+    }
+
     /**
      * Check to see if credentials in the database match configuration
      *
@@ -445,6 +492,141 @@ public class EmbeddedPersistenceManagerFactory implements PersistenceManagerFact
         this.enableJournaling = enableJournaling;
     }
 
+    /**
+     * Getter for the journal sync policy
+     *
+     * @return When WAL files are forced to the storage device
+     */
+    public JournalSyncPolicy getJournalSyncPolicy() {
+        return journalSyncPolicy;
+    }
+
+    /**
+     * Set when WAL files are forced to the storage device.  Transactions from concurrent writers are grouped into a
+     * single write and sync.  BATCH acknowledges a save once it is durable, INTERVAL syncs at most once per sync
+     * interval and NONE leaves it to the operating system.
+     *
+     * @param journalSyncPolicy Journal sync policy
+     */
+    public void setJournalSyncPolicy(JournalSyncPolicy journalSyncPolicy) {
+        this.journalSyncPolicy = journalSyncPolicy;
+    }
+
+    /**
+     * Getter for the journal sync interval
+     *
+     * @return Milliseconds between WAL syncs when using the interval sync policy
+     */
+    public long getJournalSyncInterval() {
+        return journalSyncInterval;
+    }
+
+    /**
+     * Set the milliseconds between WAL syncs when using the interval sync policy
+     *
+     * @param journalSyncInterval Sync interval in milliseconds
+     */
+    public void setJournalSyncInterval(long journalSyncInterval) {
+        this.journalSyncInterval = journalSyncInterval;
+    }
+
+    /**
+     * Getter for the data file slice size
+     *
+     * @return Size of each region of a data file mapped into memory
+     */
+    public int getDataFileSliceSize() {
+        return dataFileSliceSize;
+    }
+
+    /**
+     * Set the size of each region of a data file mapped into memory, for example 64MB to 1GB for a large database.
+     * This must be set before the factory is initialized.
+     *
+     * @param dataFileSliceSize Slice size in bytes
+     */
+    public void setDataFileSliceSize(int dataFileSliceSize) {
+        this.dataFileSliceSize = dataFileSliceSize;
+    }
+
+    /**
+     * Getter for the keys each bloom filter is sized for
+     *
+     * @return Keys each filter is sized for.  0 if filters are not kept.
+     */
+    public long getBloomFilterKeys() {
+        return bloomFilterKeys;
+    }
+
+    /**
+     * Keep a bloom filter for each entity, index and relationship structure so looking up a key that does not exist
+     * does not have to search the structure.  Filters cost about 10 bits per key.  This must be set before the factory
+     * is initialized.
+     *
+     * @param bloomFilterKeys Keys each filter is sized for.  0 does not keep filters.
+     */
+    public void setBloomFilterKeys(long bloomFilterKeys) {
+        this.bloomFilterKeys = bloomFilterKeys;
+    }
+
+    /**
+     * Getter for the number of records a query keeps in memory while sorting
+     *
+     * @return Records kept in memory
+     */
+    public int getQuerySpillSize() {
+        return querySpillSize;
+    }
+
+    /**
+     * Set the number of records a query keeps in memory while sorting.  Larger sorts are spilled in sorted runs to a
+     * temporary file.  This must be set before the factory is initialized.
+     *
+     * @param querySpillSize Records kept in memory
+     */
+    public void setQuerySpillSize(int querySpillSize) {
+        this.querySpillSize = querySpillSize;
+    }
+
+    /**
+     * Flusher of the data files.  It reports how far behind flushing is and how many bytes have been flushed.
+     *
+     * @return Background flusher or null if the context does not flush in the background
+     */
+    public BackgroundFlusher getDataFileFlusher() {
+        return (context instanceof DefaultSchemaContext) ? ((DefaultSchemaContext) context).getDataFileFlusher() : null;
+    }
+
+    /**
+     * Cache of records shared by every database within the JVM
+     *
+     * @return Shared cache along with its hit, miss and eviction counts
+     */
+    public SharedCache getRecordCache() {
+        return SharedCache.getInstance();
+    }
+
+    /**
+     * Set the budget of the record cache.  The budget is shared by every database within the JVM and applies right
+     * away.
+     *
+     * @param recordCacheSize Budget in bytes
+     */
+    public void setRecordCacheSize(long recordCacheSize) {
+        SharedCache.getInstance().setMaximumWeight(recordCacheSize);
+    }
+
+    /**
+     * Set the weight of an entity's records within the record cache relative to their size.  Below 1 keeps more records
+     * of the entity cached, above 1 keeps fewer.
+     *
+     * @param entityType Entity class
+     * @param weight Weight factor
+     */
+    public void setEntityCacheWeight(Class entityType, double weight) {
+        SharedCache.getInstance().setWeightFactor(entityType.getCanonicalName(), weight);
+    }
+
     /**
      * Ignore for embedded factory.  This does not have relevance.
      * @param socketPort
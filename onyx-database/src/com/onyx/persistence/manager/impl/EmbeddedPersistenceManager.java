@@ -7,6 +7,7 @@ import com.onyx.descriptor.RelationshipDescriptor;
 import com.onyx.entity.SystemPartitionEntry;
 import com.onyx.exception.*;
 import com.onyx.fetch.PartitionQueryController;
+import com.onyx.fetch.QueryPlan;
 import com.onyx.helpers.*;
 import com.onyx.persistence.IManagedEntity;
 import com.onyx.persistence.manager.PersistenceManager;
@@ -25,6 +26,8 @@ import com.onyx.util.ObjectUtil;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Persistence manager supplies a public API for performing database persistence and querying operations.  This specifically is used for an embedded database.
@@ -115,6 +118,31 @@ public class EmbeddedPersistenceManager extends UnicastRemoteObject implements P
         this.journalingEnabled = journalingEnabled;
     }
 
+    /**
+     * Wait for a WAL transaction to be acknowledged by the journal writer
+     *
+     * @param acknowledgement Future returned when the transaction was written
+     * @throws TransactionException The transaction could not be written
+     */
+    protected void awaitJournal(CompletableFuture<Void> acknowledgement) throws TransactionException
+    {
+        try
+        {
+            acknowledgement.get();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_WRITE_FILE);
+        } catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof TransactionException)
+            {
+                throw (TransactionException) e.getCause();
+            }
+            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_WRITE_FILE);
+        }
+    }
+
     /**
      * Save entity.  Persists a single entity for update or insert.  This method will cascade relationships and persist indexes.
      *
@@ -148,7 +176,7 @@ public class EmbeddedPersistenceManager extends UnicastRemoteObject implements P
         // Add Write Transaction to log
         if(this.journalingEnabled)
         {
-            context.getTransactionController().writeSave(entity);
+            awaitJournal(context.getTransactionController().writeSave(entity));
         }
 
         IndexHelper.saveAllIndexesForEntity(context, descriptor, id, oldReferenceId, entity);
@@ -179,6 +207,8 @@ public class EmbeddedPersistenceManager extends UnicastRemoteObject implements P
         final RecordController recordController = context.getRecordController(descriptor);
         long oldReferenceId = 0;
 
+        final List<CompletableFuture<Void>> journaled = new ArrayList<>();
+
         Object id = null;
         for (IManagedEntity entity : entities)
         {
@@ -190,16 +220,20 @@ public class EmbeddedPersistenceManager extends UnicastRemoteObject implements P
             }
             id = recordController.save(entity);
 
-            // Add write trasaction to log
+            // Add write trasaction to log.  The batch is acknowledged once all of its transactions are written.
             if(this.journalingEnabled)
             {
-                context.getTransactionController().writeSave(entity);
+                journaled.add(context.getTransactionController().writeSave(entity));
             }
 
             IndexHelper.saveAllIndexesForEntity(context, descriptor, id, oldReferenceId, entity);
             RelationshipHelper.saveAllRelationshipsForEntity(entity, new EntityRelationshipManager(), context);
         }
 
+        for (CompletableFuture<Void> acknowledgement : journaled)
+        {
+            awaitJournal(acknowledgement);
+        }
     }
 
     /**
@@ -224,7 +258,7 @@ public class EmbeddedPersistenceManager extends UnicastRemoteObject implements P
         // Write Delete transaction to log
         if(this.journalingEnabled)
         {
-            context.getTransactionController().writeDelete(entity);
+            awaitJournal(context.getTransactionController().writeDelete(entity));
         }
 
         final long referenceId = recordController.getReferenceId(AbstractRecordController.getIndexValueFromEntity(entity, descriptor.getIdentifier()));
@@ -294,7 +328,7 @@ public class EmbeddedPersistenceManager extends UnicastRemoteObject implements P
             // Write Delete transaction to log
             if(this.journalingEnabled)
             {
-                context.getTransactionController().writeDeleteQuery(query);
+                awaitJournal(context.getTransactionController().writeDeleteQuery(query));
             }
 
             return queryController.deleteRecordsWithIndexes(results, query);
@@ -343,7 +377,7 @@ public class EmbeddedPersistenceManager extends UnicastRemoteObject implements P
             // Write Delete transaction to log
             if(this.journalingEnabled)
             {
-                context.getTransactionController().writeQueryUpdate(query);
+                awaitJournal(context.getTransactionController().writeQueryUpdate(query));
             }
 
             return queryController.updateRecordsWithValues(results, query.getUpdates(), query.getFirstRow(), query.getMaxResults());
@@ -384,29 +418,41 @@ public class EmbeddedPersistenceManager extends UnicastRemoteObject implements P
 
         try
         {
-            Map results = queryController.getIndexesForCriteria(query.getCriteria(), null, true, query);
+            // Without an order the query can stop once it has found enough results unless the total count is requested
+            final boolean limited = query.getMaxResults() > 0 && !query.isCountResults()
+                    && (query.getQueryOrders() == null || query.getQueryOrders().isEmpty())
+                    && (query.getProjections() == null || query.getProjections().isEmpty());
+
+            Map results = (limited) ? queryController.getIndexesForCriteria(query.getCriteria(), query, (int) Math.min(Integer.MAX_VALUE, (long) query.getFirstRow() + query.getMaxResults()))
+                    : queryController.getIndexesForCriteria(query.getCriteria(), null, true, query);
 
             query.setResultsCount(results.size());
 
+            // Aggregates are computed while the results are scanned and only the rows are returned
+            if (query.getProjections() != null && query.getProjections().size() > 0)
+            {
+                final List<Map<String, Object>> rows = queryController.aggregate(query.getProjections(), query.getSelections(), results,
+                        (query.getQueryOrders() != null) ? query.getQueryOrders().toArray(new QueryOrder[query.getQueryOrders().size()]) : new QueryOrder[0],
+                        query.getFirstRow(),
+                        query.getMaxResults());
+
+                query.setResultsCount(rows.size());
+                return rows;
+            }
+
             // This will go through and get a subset of fields
             if (query.getSelections() != null)
             {
                 if (query.getQueryOrders() != null || query.getFirstRow() > 0 || query.getMaxResults() != -1)
                 {
                     results = queryController.sort(
-                            (query.getQueryOrders() != null) ? query.getQueryOrders().toArray(new QueryOrder[query.getQueryOrders().size()]) : new QueryOrder[0], results);
+                            (query.getQueryOrders() != null) ? query.getQueryOrders().toArray(new QueryOrder[query.getQueryOrders().size()]) : new QueryOrder[0], results,
+                            (query.getMaxResults() > 0) ? query.getFirstRow() + query.getMaxResults() : -1);
                 }
 
                 final Map<Object, Map<String, Object>> attributeValues = queryController.hydrateQueryAttributes(query.getSelections().toArray(new String[query.getSelections().size()]), results, false, query.getFirstRow(), query.getMaxResults());
 
-                final List<Map<String, Object>> finalResults = new ArrayList<>(attributeValues.values());
-
-                if (query.getProjections() != null)
-                {
-                    // TODO: Implement Projections
-                }
-
-                return finalResults;
+                return new ArrayList<>(attributeValues.values());
 
             } else
             {
@@ -415,10 +461,6 @@ public class EmbeddedPersistenceManager extends UnicastRemoteObject implements P
                         (query.getQueryOrders() != null) ? query.getQueryOrders().toArray(new QueryOrder[query.getQueryOrders().size()]) : new QueryOrder[0],
                         query.getFirstRow(),
                         query.getMaxResults());
-                if (query.getProjections() != null)
-                {
-                    // TODO: Implement Projections
-                }
 
                 return returnValue;
             }
@@ -428,6 +470,41 @@ public class EmbeddedPersistenceManager extends UnicastRemoteObject implements P
         }
     }
 
+    /**
+     * Plan a query without executing it.  The plan lists the order the criteria are scanned in, the scanner used for
+     * each and the estimated number of records.
+     *
+     * @since 1.0.0
+     *
+     * @param query Query containing criteria
+     *
+     * @return Plan of the query
+     *
+     * @throws EntityException Error while planning query
+     */
+    public QueryPlan explain(Query query) throws EntityException
+    {
+        if (context.getKillSwitch())
+            throw new InitializationException(InitializationException.DATABASE_SHUTDOWN);
+
+        PartitionHelper.setPartitionIdForQuery(query, context);
+
+        final Class clazz = query.getEntityType();
+        final EntityDescriptor descriptor = context.getDescriptorForEntity(EntityDescriptor.createNewEntity(clazz), query.getPartition());
+
+        ValidationHelper.validateQuery(descriptor, query, context);
+
+        final PartitionQueryController queryController = new PartitionQueryController(query.getCriteria(), clazz, descriptor, query, context, this);
+
+        try
+        {
+            return queryController.explain(query.getCriteria());
+        } finally
+        {
+            queryController.cleanup();
+        }
+    }
+
     /**
      * Execute query with criteria and optional row limitations.  Specify lazy instantiation of query results.
      *
@@ -0,0 +1,101 @@
+package com.onyx.persistence.query;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.onyx.map.serializer.ObjectBuffer;
+import com.onyx.map.serializer.ObjectSerializable;
+
+import java.io.IOException;
+
+/**
+ * Attribute and result field name of a query projection
+ *
+ *
+ * @author Chris Osborn
+ * @since 1.0.0
+ *
+ * @see com.onyx.persistence.query.QueryProjection
+ */
+public abstract class AbstractQueryProjection implements QueryProjection, ObjectSerializable {
+
+    protected String fieldName;
+
+    protected String alias;
+
+    /**
+     * Default Constructor
+     */
+    public AbstractQueryProjection()
+    {
+
+    }
+
+    /**
+     * Constructor
+     *
+     * @param fieldName Attribute Name
+     * @param alias Field name of the value in the result set.  Null defaults to the function and attribute, for instance sum(salary)
+     */
+    public AbstractQueryProjection(String fieldName, String alias)
+    {
+        this.fieldName = fieldName;
+        this.alias = alias;
+    }
+
+    /**
+     * @return Attribute Name
+     */
+    @Override
+    public String getFieldName() {
+        return fieldName;
+    }
+
+    public void setFieldName(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    /**
+     * @return Field name of the value in the result set
+     */
+    @Override
+    public String getAlias() {
+        if (alias == null)
+        {
+            return getType().name().toLowerCase() + "(" + ((fieldName == null) ? "*" : fieldName) + ")";
+        }
+        return alias;
+    }
+
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    @JsonIgnore
+    @Override
+    public abstract QueryProjectionType getType();
+
+    @Override
+    public void writeObject(ObjectBuffer buffer) throws IOException
+    {
+        buffer.writeObject(fieldName);
+        buffer.writeObject(alias);
+    }
+
+    @Override
+    public void readObject(ObjectBuffer buffer) throws IOException
+    {
+        fieldName = (String)buffer.readObject();
+        alias = (String)buffer.readObject();
+    }
+
+    @Override
+    public void readObject(ObjectBuffer buffer, long position) throws IOException
+    {
+        readObject(buffer);
+    }
+
+    @Override
+    public void readObject(ObjectBuffer buffer, long position, int serializerId) throws IOException
+    {
+        readObject(buffer);
+    }
+}
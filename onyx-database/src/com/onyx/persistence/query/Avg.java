@@ -0,0 +1,44 @@
+package com.onyx.persistence.query;
+
+/**
+ * Query average projection.  Get the average of attribute values that match query criteria as a Double.  Null values
+ * are skipped.
+ *
+ *
+ * @author Chris Osborn
+ * @since 1.0.0
+ */
+public class Avg extends AbstractQueryProjection {
+
+    /**
+     * Default Constructor
+     */
+    public Avg()
+    {
+
+    }
+
+    /**
+     * Constructor
+     * @param fieldName Attribute Name
+     */
+    public Avg(String fieldName)
+    {
+        super(fieldName, null);
+    }
+
+    /**
+     * Constructor
+     * @param fieldName Attribute Name
+     * @param alias Field name of the average in the result set
+     */
+    public Avg(String fieldName, String alias)
+    {
+        super(fieldName, alias);
+    }
+
+    @Override
+    public QueryProjectionType getType() {
+        return QueryProjectionType.AVG;
+    }
+}
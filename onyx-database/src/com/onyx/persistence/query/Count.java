@@ -0,0 +1,44 @@
+package com.onyx.persistence.query;
+
+/**
+ * Query count projection.  Get the number of records that match query criteria, or the number of non null values of
+ * an attribute when one is given.
+ *
+ *
+ * @author Chris Osborn
+ * @since 1.0.0
+ */
+public class Count extends AbstractQueryProjection {
+
+    /**
+     * Default Constructor counts every record
+     */
+    public Count()
+    {
+
+    }
+
+    /**
+     * Constructor
+     * @param fieldName Attribute Name
+     */
+    public Count(String fieldName)
+    {
+        super(fieldName, null);
+    }
+
+    /**
+     * Constructor
+     * @param fieldName Attribute Name
+     * @param alias Field name of the count in the result set
+     */
+    public Count(String fieldName, String alias)
+    {
+        super(fieldName, alias);
+    }
+
+    @Override
+    public QueryProjectionType getType() {
+        return QueryProjectionType.COUNT;
+    }
+}
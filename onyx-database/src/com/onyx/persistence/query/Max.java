@@ -0,0 +1,43 @@
+package com.onyx.persistence.query;
+
+/**
+ * Query maximum projection.  Get the highest attribute value that matches query criteria.  Null values are skipped.
+ *
+ *
+ * @author Chris Osborn
+ * @since 1.0.0
+ */
+public class Max extends AbstractQueryProjection {
+
+    /**
+     * Default Constructor
+     */
+    public Max()
+    {
+
+    }
+
+    /**
+     * Constructor
+     * @param fieldName Attribute Name
+     */
+    public Max(String fieldName)
+    {
+        super(fieldName, null);
+    }
+
+    /**
+     * Constructor
+     * @param fieldName Attribute Name
+     * @param alias Field name of the maximum in the result set
+     */
+    public Max(String fieldName, String alias)
+    {
+        super(fieldName, alias);
+    }
+
+    @Override
+    public QueryProjectionType getType() {
+        return QueryProjectionType.MAX;
+    }
+}
@@ -0,0 +1,43 @@
+package com.onyx.persistence.query;
+
+/**
+ * Query minimum projection.  Get the lowest attribute value that matches query criteria.  Null values are skipped.
+ *
+ *
+ * @author Chris Osborn
+ * @since 1.0.0
+ */
+public class Min extends AbstractQueryProjection {
+
+    /**
+     * Default Constructor
+     */
+    public Min()
+    {
+
+    }
+
+    /**
+     * Constructor
+     * @param fieldName Attribute Name
+     */
+    public Min(String fieldName)
+    {
+        super(fieldName, null);
+    }
+
+    /**
+     * Constructor
+     * @param fieldName Attribute Name
+     * @param alias Field name of the minimum in the result set
+     */
+    public Min(String fieldName, String alias)
+    {
+        super(fieldName, alias);
+    }
+
+    @Override
+    public QueryProjectionType getType() {
+        return QueryProjectionType.MIN;
+    }
+}
@@ -61,6 +61,7 @@ public class Query implements ObjectSerializable, Serializable
     protected int firstRow = 0;
     protected int maxResults = -1;
     protected int resultsCount;
+    protected boolean countResults = false;
 
     /**
      * Stop query before it finishes
@@ -333,11 +334,10 @@ public class Query implements ObjectSerializable, Serializable
     }
 
     /**
-     * Gets the projection objects that are used to populate named non-database contrived fields
-     * @see com.onyx.persistence.query.Sum
+     * Gets the aggregates computed over the records matching the criteria
+     * @see com.onyx.persistence.query.QueryProjection
      * @since 1.0.0
      * @return List of Query Projections
-     * @deprecated
      */
     public List<QueryProjection> getProjections()
     {
@@ -345,11 +345,14 @@ public class Query implements ObjectSerializable, Serializable
     }
 
     /**
-     * Sets the projection objects that are used to populate named non-database contrived fields
+     * Sets the aggregates computed over the records matching the criteria.  The query returns a map for each group of
+     * records with equal selections containing the selections and the value of each projection.  Without selections
+     * a single row is returned.  Query orders and row limits apply to the rows and the results count is the number of
+     * rows.
+     *
      * @param projections List of Query Projections
      * @since 1.0.0
-     * @see com.onyx.persistence.query.Sum
-     * @deprecated
+     * @see com.onyx.persistence.query.QueryProjection
      */
     public void setProjections(List<QueryProjection> projections)
     {
@@ -397,7 +400,11 @@ public class Query implements ObjectSerializable, Serializable
     }
 
     /**
-     * Returns the result count of an executed query
+     * Returns the result count of an executed query.
+     *
+     * A query with max results and no query orders stops looking for results once it has enough.  Unless the count was
+     * requested with {@link #setCountResults(boolean)}, the results count of such a query is the number of results
+     * found before it stopped, at most first row plus max results.
      *
      * @since 1.0.0
      * @return Results count of executed query
@@ -418,6 +425,29 @@ public class Query implements ObjectSerializable, Serializable
         this.resultsCount = resultsCount;
     }
 
+    /**
+     * Whether every result is counted even if the query could stop once it has found max results
+     *
+     * @since 1.0.0
+     * @return True if the total results count is requested
+     */
+    public boolean isCountResults()
+    {
+        return countResults;
+    }
+
+    /**
+     * Request the total results count.  A query with max results and no query orders then finds every result rather
+     * than stopping once it has enough.
+     *
+     * @since 1.0.0
+     * @param countResults True to count every result
+     */
+    public void setCountResults(boolean countResults)
+    {
+        this.countResults = countResults;
+    }
+
     /**
      * Terminate the query that is currently running
      * @since 1.0.0
@@ -479,6 +509,7 @@ public class Query implements ObjectSerializable, Serializable
         buffer.writeInt(firstRow);
         buffer.writeInt(maxResults);
         buffer.writeInt(resultsCount);
+        buffer.writeBoolean(countResults);
     }
 
     /**
@@ -507,6 +538,7 @@ public class Query implements ObjectSerializable, Serializable
         firstRow = buffer.readInt();
         maxResults = buffer.readInt();
         resultsCount = buffer.readInt();
+        countResults = buffer.readBoolean();
     }
 
     /**
@@ -1,27 +1,49 @@
 package com.onyx.persistence.query;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
 import java.io.Serializable;
 
 /**
- * Query projections.  This is a placeholder that has not been implemented yet
+ * Query projections.  A projection aggregates an attribute of the records matching the query criteria.  The records
+ * are grouped by the query selections and a row is returned for each group.
  *
  *
  * @author Chris Osborn
  * @since 1.0.0
  *
- * @deprecated
+ * <pre>
+ * <code>
+ *
+ *   Query query = new Query(Employee.class, new QueryCriteria("active", QueryCriteriaOperator.EQUAL, true));
+ *   query.setSelections(Arrays.asList("department"));
+ *   query.setProjections(Arrays.asList(new Count(), new Avg("salary"), new Max("salary", "topSalary")));
+ *
+ *   List&lt;Map&gt; rows = manager.executeQuery(query); // department, count(*), avg(salary) and topSalary of each department
+ *
+ * </code>
+ * </pre>
+ *
+ * @see com.onyx.persistence.query.Query#setProjections(java.util.List)
  */
-public interface QueryProjection<T> extends Serializable {
+@JsonTypeInfo(use = JsonTypeInfo.Id.CLASS, include = JsonTypeInfo.As.PROPERTY, property = "@class")
+public interface QueryProjection extends Serializable {
 
     /**
-     * @return the value of the mapped field
+     * @return attribute that is aggregated.  Null if rows are counted.
      */
-    T getValue();
+    String getFieldName();
 
     /**
      * @return field name that the value will be mapped to in the result set
      */
-    String getFieldName();
+    String getAlias();
 
+    /**
+     * @return aggregate function
+     */
+    @JsonIgnore
+    QueryProjectionType getType();
 
 }
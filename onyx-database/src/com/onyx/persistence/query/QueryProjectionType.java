@@ -0,0 +1,20 @@
+package com.onyx.persistence.query;
+
+/**
+ * Aggregate function a query projection computes
+ *
+ *
+ * @author Tim Osborn
+ * @since 1.0.0
+ *
+ * @see com.onyx.persistence.query.QueryProjection
+ *
+ */
+public enum QueryProjectionType
+{
+    COUNT,
+    SUM,
+    AVG,
+    MIN,
+    MAX
+}
@@ -1,79 +1,44 @@
 package com.onyx.persistence.query;
 
-import com.onyx.map.serializer.ObjectBuffer;
-import com.onyx.map.serializer.ObjectSerializable;
-
-import java.io.IOException;
-import java.util.List;
-
-
 /**
- * Query sum projection.  Get sum of attribute values that match query criteria
+ * Query sum projection.  Get sum of attribute values that match query criteria.  Whole numbers are summed as a Long
+ * and others as a Double.  Null values are skipped.
  *
  *
  * @author Chris Osborn
  * @since 1.0.0
- *
- * @deprecated
  */
-public class Sum implements QueryProjection<String>, ObjectSerializable {
-
-    protected String value;
-
-    protected String fieldName;
+public class Sum extends AbstractQueryProjection {
 
     /**
-     * Constructor sets the value to the sum of all of the parameters
-     * @param fieldName Attribute Name
-     * @param numbers Attribute values
+     * Default Constructor
      */
-    public Sum(String fieldName, int...numbers) {
-        this.fieldName = fieldName;
-        int numValue = 0;
-        for(int i = 0 ; i<numbers.length;i++){
-            numValue += numbers[i];
-        }
-        value = Integer.toString(numValue);
-    }
+    public Sum()
+    {
 
-    /**
-     * @return Sum value
-     */
-    @Override
-    public String getValue() {
-        return null;
     }
 
     /**
-     * @return Attribute Name
+     * Constructor
+     * @param fieldName Attribute Name
      */
-    @Override
-    public String getFieldName() {
-        return null;
-    }
-
-    @Override
-    public void writeObject(ObjectBuffer buffer) throws IOException
+    public Sum(String fieldName)
     {
-        buffer.writeObject(fieldName);
-        buffer.writeObject(value);
+        super(fieldName, null);
     }
 
-    @Override
-    public void readObject(ObjectBuffer buffer) throws IOException
-    {
-        fieldName = (String)buffer.readObject();
-        value = (String)buffer.readObject();
-    }
-
-    @Override
-    public void readObject(ObjectBuffer buffer, long position) throws IOException
+    /**
+     * Constructor
+     * @param fieldName Attribute Name
+     * @param alias Field name of the sum in the result set
+     */
+    public Sum(String fieldName, String alias)
     {
-        readObject(buffer);
+        super(fieldName, alias);
     }
 
     @Override
-    public void readObject(ObjectBuffer buffer, long position, int serializerId) throws IOException {
-
+    public QueryProjectionType getType() {
+        return QueryProjectionType.SUM;
     }
 }
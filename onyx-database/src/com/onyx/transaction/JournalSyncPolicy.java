@@ -0,0 +1,22 @@
+package com.onyx.transaction;
+
+/**
+ * Determines when WAL transaction files are forced to the storage device
+ */
+public enum JournalSyncPolicy
+{
+    /**
+     * Force the WAL file after each batch of transactions is written.  Transactions are acknowledged once they are durable.
+     */
+    BATCH,
+
+    /**
+     * Force the WAL file at most once per sync interval.  Transactions are acknowledged once the interval sync completes.
+     */
+    INTERVAL,
+
+    /**
+     * Never force the WAL file.  Transactions are acknowledged once they are handed to the file system.
+     */
+    NONE
+}
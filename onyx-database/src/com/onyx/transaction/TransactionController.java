@@ -6,6 +6,7 @@ import com.onyx.persistence.query.Query;
 
 import java.io.File;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 /**
@@ -20,28 +21,32 @@ public interface TransactionController
      * Write a save transaction to a WAL file
      *
      * @param entity Entity to save
+     * @return Future completed once the transaction is acknowledged by the journal sync policy
      */
-    void writeSave(IManagedEntity entity) throws TransactionException;
+    CompletableFuture<Void> writeSave(IManagedEntity entity) throws TransactionException;
 
     /**
      * Write a query update to the WAL transaction
      *
      * @param query Query to update
+     * @return Future completed once the transaction is acknowledged by the journal sync policy
      */
-    void writeQueryUpdate(Query query) throws TransactionException;
+    CompletableFuture<Void> writeQueryUpdate(Query query) throws TransactionException;
 
     /**
      * Write a Delete transaction to a WAL File
      *
      * @param entity Deleted entity
+     * @return Future completed once the transaction is acknowledged by the journal sync policy
      */
-    void writeDelete(IManagedEntity entity) throws TransactionException;
+    CompletableFuture<Void> writeDelete(IManagedEntity entity) throws TransactionException;
 
     /**
      * Write a delete query to a WAL file
      * @param query
+     * @return Future completed once the transaction is acknowledged by the journal sync policy
      */
-    void writeDeleteQuery(Query query) throws TransactionException;
+    CompletableFuture<Void> writeDeleteQuery(Query query) throws TransactionException;
 
     /**
      * Rebuild Database From a directory of WAL transaction files to a new database location.
@@ -72,4 +77,43 @@ public interface TransactionController
      */
     boolean applyTransactionLog(String walTransactionFile, Function<Transaction, Boolean> executeTransaction) throws TransactionException;
 
+    /**
+     * Recover this database after a crash by rolling forward its own WAL files starting at the last checkpoint.
+     * Checkpoints are written to the WAL after the data files are committed so earlier transactions do not need to be applied.
+     *
+     * @param executeTransaction Function that determines whether or not you should execute the transaction
+     * @throws TransactionException Failed to read the WAL files
+     */
+    void recoverFromCheckpoint(Function<Transaction, Boolean> executeTransaction) throws TransactionException;
+
+    /**
+     * Whether this database was not shut down cleanly and must be recovered.  A clean shutdown ends the WAL with a
+     * checkpoint.
+     *
+     * @return True if the WAL has transactions after its last checkpoint
+     * @throws TransactionException Failed to read the WAL files
+     */
+    boolean isRecoveryNeeded() throws TransactionException;
+
+    /**
+     * Write a checkpoint to the WAL file.  This indicates all preceding transactions are persisted within the data files.
+     *
+     * @return Future completed once the checkpoint is acknowledged by the journal sync policy
+     */
+    CompletableFuture<Void> writeCheckpoint() throws TransactionException;
+
+    /**
+     * Set when WAL files are forced to the storage device.  Transactions are written by a single journal writer that
+     * groups concurrent transactions into a single write and sync.
+     *
+     * @param syncPolicy Sync policy
+     * @param syncInterval Milliseconds between syncs when using the interval policy
+     */
+    void setJournalSyncPolicy(JournalSyncPolicy syncPolicy, long syncInterval);
+
+    /**
+     * Write all pending transactions and stop the journal writer
+     */
+    void close();
+
 }
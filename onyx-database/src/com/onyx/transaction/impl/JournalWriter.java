@@ -0,0 +1,341 @@
+package com.onyx.transaction.impl;
+
+import com.onyx.exception.TransactionException;
+import com.onyx.persistence.context.SchemaContext;
+import com.onyx.transaction.JournalSyncPolicy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Group commit writer for WAL transaction files.  Encoded transactions are queued by any number of threads and a single
+ * writer thread coalesces them into large writes.  The file is then forced according to the sync policy and each
+ * transaction is acknowledged through its future.
+ */
+public class JournalWriter implements Runnable
+{
+    // Size of the buffer transactions are coalesced into
+    protected static final int BATCH_SIZE = 1024 * 1024;
+
+    // Maximum time the writer waits for new transactions before checking for shutdown
+    protected static final long IDLE_WAIT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    protected final SchemaContext context;
+
+    // Transactions waiting to be written
+    protected final ConcurrentLinkedQueue<JournalEntry> queue = new ConcurrentLinkedQueue<>();
+
+    // Transactions written but not yet forced
+    protected final List<JournalEntry> unsynced = new ArrayList<>();
+
+    protected final ByteBuffer batchBuffer = ByteBuffer.allocateDirect(BATCH_SIZE);
+
+    protected final Thread writerThread;
+
+    protected volatile boolean running = true;
+
+    // Failure that stopped the writer thread.  Transactions can no longer be written once set.
+    protected volatile Throwable failure = null;
+
+    protected volatile JournalSyncPolicy syncPolicy = JournalSyncPolicy.NONE;
+
+    protected volatile long syncInterval = TimeUnit.SECONDS.toNanos(1);
+
+    protected long lastSync = System.nanoTime();
+
+    /**
+     * Constructor with schema context.  Starts the writer thread.
+     *
+     * @param context Schema context used to get the current WAL file
+     */
+    public JournalWriter(SchemaContext context)
+    {
+        this.context = context;
+        this.writerThread = new Thread(this, "Onyx Journal Writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Set the policy used to force the WAL file
+     *
+     * @param syncPolicy Sync policy
+     * @param syncInterval Milliseconds between syncs when using the interval policy
+     */
+    public void setSyncPolicy(JournalSyncPolicy syncPolicy, long syncInterval)
+    {
+        this.syncPolicy = syncPolicy;
+        this.syncInterval = TimeUnit.MILLISECONDS.toNanos(syncInterval);
+        LockSupport.unpark(writerThread);
+    }
+
+    /**
+     * Queue a transaction to be written
+     *
+     * @param transactionType Type of transaction
+     * @param data Serialized transaction
+     * @return Future completed once the transaction is acknowledged by the sync policy
+     * @throws TransactionException The writer has been shut down or stopped after a failure
+     */
+    public CompletableFuture<Void> write(byte transactionType, ByteBuffer data) throws TransactionException
+    {
+        if (!running || failure != null)
+        {
+            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_WRITE_FILE, null, failure);
+        }
+
+        final JournalEntry entry = new JournalEntry(transactionType, data);
+        queue.offer(entry);
+        LockSupport.unpark(writerThread);
+
+        // The writer may have stopped after it last drained the queue
+        if (failure != null)
+        {
+            failQueued(failure);
+        }
+
+        return entry.future;
+    }
+
+    /**
+     * Write the remaining transactions, force the file and stop the writer thread
+     */
+    public void close()
+    {
+        running = false;
+        LockSupport.unpark(writerThread);
+
+        try
+        {
+            writerThread.join();
+        } catch (InterruptedException ignore)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        // Anything queued after the writer stopped can no longer be written
+        failQueued(failure);
+    }
+
+    /**
+     * Writer thread.  Drains the queue in batches until shut down.  An unexpected failure fails every transaction
+     * written but not yet acknowledged along with every one still queued, since the writer is no longer there to
+     * acknowledge them.
+     */
+    @Override
+    public void run()
+    {
+        try
+        {
+            drain();
+        } catch (Throwable cause)
+        {
+            failure = cause;
+            fail(unsynced, cause);
+            unsynced.clear();
+            failQueued(cause);
+        }
+    }
+
+    /**
+     * Write queued transactions in batches until shut down
+     */
+    protected void drain()
+    {
+        while (running || !queue.isEmpty())
+        {
+            if (queue.isEmpty())
+            {
+                if (unsynced.isEmpty())
+                {
+                    LockSupport.parkNanos(this, IDLE_WAIT);
+                }
+                else
+                {
+                    final long remaining = syncInterval - (System.nanoTime() - lastSync);
+                    if (remaining <= 0 || syncPolicy != JournalSyncPolicy.INTERVAL)
+                    {
+                        sync();
+                    }
+                    else
+                    {
+                        LockSupport.parkNanos(this, Math.min(remaining, IDLE_WAIT));
+                    }
+                }
+                continue;
+            }
+
+            writeBatch();
+        }
+
+        sync();
+    }
+
+    /**
+     * Write a batch of queued transactions.  If anything other than writing the file fails, the transactions taken
+     * from the queue are failed before the failure stops the writer.
+     */
+    protected void writeBatch()
+    {
+        final List<JournalEntry> batch = new ArrayList<>();
+        try
+        {
+            writeBatch(batch);
+        } catch (Throwable cause)
+        {
+            // The transactions taken from the queue are not written
+            fail(batch, cause);
+            throw cause;
+        }
+    }
+
+    /**
+     * Coalesce as many queued transactions as will fit into the batch buffer and write them
+     *
+     * @param batch Transactions taken from the queue
+     */
+    protected void writeBatch(List<JournalEntry> batch)
+    {
+        ByteBuffer buffer = batchBuffer;
+        buffer.clear();
+
+        JournalEntry entry;
+        while ((entry = queue.peek()) != null)
+        {
+            final int size = entry.data.limit() + 5;
+            if (size > buffer.remaining())
+            {
+                if (!batch.isEmpty())
+                {
+                    break;
+                }
+
+                // A single transaction larger than the batch buffer gets a buffer of its own
+                buffer = ByteBuffer.allocateDirect(size);
+            }
+
+            queue.poll();
+            buffer.put(entry.transactionType);
+            buffer.putInt(entry.data.limit());
+            buffer.put(entry.data);
+            batch.add(entry);
+        }
+
+        try
+        {
+            final FileChannel file = context.getTransactionFile();
+
+            buffer.flip();
+            while (buffer.hasRemaining())
+            {
+                file.write(buffer);
+            }
+        } catch (IOException e)
+        {
+            fail(batch, e);
+            return;
+        }
+
+        unsynced.addAll(batch);
+
+        if (syncPolicy == JournalSyncPolicy.NONE)
+        {
+            acknowledge();
+        }
+        else if (syncPolicy == JournalSyncPolicy.BATCH || System.nanoTime() - lastSync >= syncInterval)
+        {
+            sync();
+        }
+    }
+
+    /**
+     * Force the WAL file and acknowledge the transactions written since the last sync
+     */
+    protected void sync()
+    {
+        if (unsynced.isEmpty())
+        {
+            return;
+        }
+
+        if (syncPolicy != JournalSyncPolicy.NONE)
+        {
+            try
+            {
+                // If the WAL file was rolled over, the previous file was forced before it was closed
+                context.getTransactionFile().force(false);
+            } catch (IOException e)
+            {
+                fail(unsynced, e);
+                unsynced.clear();
+                return;
+            }
+        }
+
+        lastSync = System.nanoTime();
+        acknowledge();
+    }
+
+    /**
+     * Complete the futures of all written transactions
+     */
+    protected void acknowledge()
+    {
+        for (JournalEntry entry : unsynced)
+        {
+            entry.future.complete(null);
+        }
+        unsynced.clear();
+    }
+
+    /**
+     * Fail transactions that could not be written
+     *
+     * @param entries Transactions that failed
+     * @param cause Underlying exception
+     */
+    protected static void fail(List<JournalEntry> entries, Throwable cause)
+    {
+        for (JournalEntry entry : entries)
+        {
+            entry.future.completeExceptionally(new TransactionException(TransactionException.TRANSACTION_FAILED_TO_WRITE_FILE, null, cause));
+        }
+    }
+
+    /**
+     * Fail every transaction still queued
+     *
+     * @param cause Underlying failure or null if the writer was shut down
+     */
+    protected void failQueued(Throwable cause)
+    {
+        JournalEntry entry;
+        while ((entry = queue.poll()) != null)
+        {
+            entry.future.completeExceptionally(new TransactionException(TransactionException.TRANSACTION_FAILED_TO_WRITE_FILE, null, cause));
+        }
+    }
+
+    /**
+     * Encoded transaction waiting to be written
+     */
+    protected static class JournalEntry
+    {
+        protected final byte transactionType;
+        protected final ByteBuffer data;
+        protected final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        protected JournalEntry(byte transactionType, ByteBuffer data)
+        {
+            this.transactionType = transactionType;
+            this.data = data;
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.onyx.transaction.impl;
 
+import com.onyx.descriptor.EntityDescriptor;
 import com.onyx.exception.TransactionException;
 import com.onyx.map.serializer.ObjectBuffer;
 import com.onyx.map.serializer.SocketBuffer;
@@ -8,6 +9,7 @@ import com.onyx.persistence.ManagedEntity;
 import com.onyx.persistence.context.SchemaContext;
 import com.onyx.persistence.manager.PersistenceManager;
 import com.onyx.persistence.query.Query;
+import com.onyx.record.AbstractRecordController;
 import com.onyx.transaction.*;
 import com.onyx.util.FileUtil;
 
@@ -15,8 +17,11 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 
 /**
@@ -29,11 +34,22 @@ public class TransactionControllerImpl implements TransactionController
     protected static final byte DELETE = 2;
     protected static final byte DELETE_QUERY = 3;
     protected static final byte UPDATE_QUERY = 4;
+    protected static final byte CHECKPOINT = 5;
 
     private final SchemaContext context;
     private final PersistenceManager persistenceManager;
 
-    protected ReentrantLock transactionLock = new ReentrantLock(true);
+    // Group commit writer, started with the first journaled transaction
+    protected volatile JournalWriter journalWriter = null;
+
+    protected JournalSyncPolicy syncPolicy = JournalSyncPolicy.NONE;
+    protected long syncInterval = 1000;
+
+    // Set while applying transactions recovered from this database's own WAL files so they are not journaled twice
+    protected final ThreadLocal<Boolean> replaying = new ThreadLocal<>();
+
+    // Set once a transaction has been journaled or recovered since the last checkpoint
+    protected final AtomicBoolean uncheckpointed = new AtomicBoolean(false);
 
     /**
      * Constructor with schema Context
@@ -48,109 +64,140 @@ public class TransactionControllerImpl implements TransactionController
      * Write a save transaction to a WAL file
      *
      * @param entity Entity to save
+     * @return Future completed once the transaction is acknowledged
      */
-    public void writeSave(IManagedEntity entity) throws TransactionException
+    public CompletableFuture<Void> writeSave(IManagedEntity entity) throws TransactionException
     {
-        final FileChannel file = context.getTransactionFile();
-
-        transactionLock.lock();
-        try {
-            final ByteBuffer buffer = SocketBuffer.serialize(entity);
-            final ByteBuffer totalBuffer = ObjectBuffer.allocate(buffer.limit() + 5);
-            totalBuffer.put(SAVE);
-            totalBuffer.putInt(buffer.limit());
-            totalBuffer.put(buffer);
-            totalBuffer.rewind();
-
-            file.write(totalBuffer);
-        } catch (IOException e) {
-            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_WRITE_FILE);
-        }
-        finally {
-            transactionLock.unlock();
-        }
+        return write(SAVE, entity);
     }
 
     /**
      * Write a query update to the WAL transaction
      *
      * @param query Query to update
+     * @return Future completed once the transaction is acknowledged
      */
-    public void writeQueryUpdate(Query query) throws TransactionException
+    public CompletableFuture<Void> writeQueryUpdate(Query query) throws TransactionException
     {
-
-        final FileChannel file = context.getTransactionFile();
-
-        transactionLock.lock();
-        try {
-            final ByteBuffer buffer = SocketBuffer.serialize(query);
-            final ByteBuffer totalBuffer = ObjectBuffer.allocate(buffer.limit() + 5);
-            totalBuffer.put(UPDATE_QUERY);
-            totalBuffer.putInt(buffer.limit());
-            totalBuffer.put(buffer);
-            totalBuffer.rewind();
-
-            file.write(totalBuffer);
-        } catch (IOException e) {
-            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_WRITE_FILE);
-        }
-        finally {
-            transactionLock.unlock();
-        }
+        return write(UPDATE_QUERY, query);
     }
 
     /**
      * Write a Delete transaction to a WAL File
      *
      * @param entity Deleted entity
+     * @return Future completed once the transaction is acknowledged
      */
-    public void writeDelete(IManagedEntity entity) throws TransactionException
+    public CompletableFuture<Void> writeDelete(IManagedEntity entity) throws TransactionException
     {
+        return write(DELETE, entity);
+    }
 
-        final FileChannel file = context.getTransactionFile();
+    /**
+     * Write a delete query to a WAL file
+     * @param query
+     * @return Future completed once the transaction is acknowledged
+     */
+    public CompletableFuture<Void> writeDeleteQuery(Query query) throws TransactionException
+    {
+        return write(DELETE_QUERY, query);
+    }
 
-        transactionLock.lock();
+    /**
+     * Serialize a transaction and queue it with the journal writer
+     *
+     * @param transactionType Type of transaction
+     * @param value Entity or query to write
+     * @return Future completed once the transaction is acknowledged
+     * @throws TransactionException Failed to serialize the transaction
+     */
+    protected CompletableFuture<Void> write(byte transactionType, Object value) throws TransactionException
+    {
+        if (replaying.get() != null)
+        {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final ByteBuffer buffer;
         try {
-            final ByteBuffer buffer = SocketBuffer.serialize(entity);
-            final ByteBuffer totalBuffer = ObjectBuffer.allocate(buffer.limit() + 5);
-            totalBuffer.put(DELETE);
-            totalBuffer.putInt(buffer.limit());
-            totalBuffer.put(buffer);
-            totalBuffer.rewind();
-
-            file.write(totalBuffer);
+            buffer = SocketBuffer.serialize(value);
         } catch (IOException e) {
             throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_WRITE_FILE);
         }
-        finally {
-            transactionLock.unlock();
+
+        final CompletableFuture<Void> future = getJournalWriter().write(transactionType, buffer);
+
+        // Set after queueing so a checkpoint that misses this transaction leaves it set for the next one
+        uncheckpointed.set(true);
+        return future;
+    }
+
+    /**
+     * Write a checkpoint to the WAL file.  Called once the data files have been committed.
+     *
+     * @return Future completed once the checkpoint is acknowledged
+     */
+    public CompletableFuture<Void> writeCheckpoint() throws TransactionException
+    {
+        // Nothing has been journaled or recovered since the last checkpoint
+        if (!uncheckpointed.getAndSet(false))
+        {
+            return CompletableFuture.completedFuture(null);
         }
+
+        return getJournalWriter().write(CHECKPOINT, ByteBuffer.allocate(0));
     }
 
     /**
-     * Write a delete query to a WAL file
-     * @param query
+     * Get the journal writer, starting it if this is the first transaction
+     *
+     * @return Journal writer
      */
-    public void writeDeleteQuery(Query query) throws TransactionException
+    protected JournalWriter getJournalWriter()
     {
-        final FileChannel file = context.getTransactionFile();
+        JournalWriter writer = journalWriter;
+        if (writer == null)
+        {
+            synchronized (this)
+            {
+                writer = journalWriter;
+                if (writer == null)
+                {
+                    writer = new JournalWriter(context);
+                    writer.setSyncPolicy(syncPolicy, syncInterval);
+                    journalWriter = writer;
+                }
+            }
+        }
+        return writer;
+    }
 
-        transactionLock.lock();
+    /**
+     * Set when WAL files are forced to the storage device
+     *
+     * @param syncPolicy Sync policy
+     * @param syncInterval Milliseconds between syncs when using the interval policy
+     */
+    public synchronized void setJournalSyncPolicy(JournalSyncPolicy syncPolicy, long syncInterval)
+    {
+        this.syncPolicy = syncPolicy;
+        this.syncInterval = syncInterval;
 
-        try {
-            final ByteBuffer buffer = SocketBuffer.serialize(query);
-            final ByteBuffer totalBuffer = ObjectBuffer.allocate(buffer.limit() + 5);
-            totalBuffer.put(DELETE_QUERY);
-            totalBuffer.putInt(buffer.limit());
-            totalBuffer.put(buffer);
-            totalBuffer.rewind();
-
-            file.write(totalBuffer);
-        } catch (IOException e) {
-            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_WRITE_FILE);
+        if (journalWriter != null)
+        {
+            journalWriter.setSyncPolicy(syncPolicy, syncInterval);
         }
-        finally {
-            transactionLock.unlock();
+    }
+
+    /**
+     * Write all pending transactions and stop the journal writer
+     */
+    public synchronized void close()
+    {
+        if (journalWriter != null)
+        {
+            journalWriter.close();
+            journalWriter = null;
         }
     }
 
@@ -169,27 +216,110 @@ public class TransactionControllerImpl implements TransactionController
      */
     public void recoverDatabase(String fromDirectoryPath, Function<Transaction, Boolean> executeTransaction) throws TransactionException
     {
-        File walDirectory = new File(fromDirectoryPath);
-        if(!walDirectory.exists() || !walDirectory.isDirectory())
+        final String[] filePaths = getJournalFiles(fromDirectoryPath);
+
+        final TransactionReplay replay = new TransactionReplay();
+        try
         {
-            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_RECOVER_FROM_DIRECTORY);
+            for (String transactionFilePath : filePaths)
+            {
+                try {
+                    applyTransactionLog(fromDirectoryPath + File.separator + transactionFilePath, 0, executeTransaction, replay);
+                }
+                catch (TransactionException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        } finally
+        {
+            replay.close();
         }
+    }
 
-        String[] filePaths = walDirectory.list();
-        Arrays.sort(filePaths);
+    /**
+     * Recover this database after a crash by rolling forward its own WAL files.
+     *
+     * Replay starts at the checkpoint before the last one rather than the last one.  Transactions are journaled before their
+     * index and relationship updates are made, so the records written just before the last checkpoint may not have been fully
+     * committed.  Starting one commit interval earlier covers them.
+     *
+     * @param executeTransaction Function that determines whether or not you should execute the transaction
+     * @throws TransactionException Failed to read the WAL files
+     */
+    public void recoverFromCheckpoint(Function<Transaction, Boolean> executeTransaction) throws TransactionException
+    {
+        final String walDirectory = context.getWALDirectory();
+        final String[] filePaths = getJournalFiles(walDirectory);
 
-        String transactionFilePath = null;
-        for(int i = 0; i < filePaths.length; i++)
+        // Find the checkpoint to start from
+        int startFile = 0;
+        long startPosition = 0;
+
+        int previousFile = -1;
+        long previousPosition = 0;
+
+        for (int i = 0; i < filePaths.length; i++)
         {
-            transactionFilePath = filePaths[i];
-            try {
-                applyTransactionLog(fromDirectoryPath + File.separator + transactionFilePath, executeTransaction);
+            for (long checkpoint : findCheckpoints(walDirectory + filePaths[i]))
+            {
+                if (previousFile > -1)
+                {
+                    startFile = previousFile;
+                    startPosition = previousPosition;
+                }
+                previousFile = i;
+                previousPosition = checkpoint;
             }
-            catch (TransactionException e)
+        }
+
+        final TransactionReplay replay = new TransactionReplay();
+        try
+        {
+            for (int i = startFile; i < filePaths.length; i++)
             {
-                e.printStackTrace();
+                try {
+                    applyTransactionLog(walDirectory + filePaths[i], (i == startFile) ? startPosition : 0, executeTransaction, replay, true);
+                }
+                catch (TransactionException e)
+                {
+                    e.printStackTrace();
+                }
+            }
+        } finally
+        {
+            replay.close();
+        }
+
+        // The recovered transactions are not journaled again so the next checkpoint must be written to cover them
+        uncheckpointed.set(true);
+    }
+
+    /**
+     * Whether this database was not shut down cleanly and must be recovered.  A clean shutdown ends the WAL with a
+     * checkpoint.
+     *
+     * @return True if the WAL has transactions after its last checkpoint
+     * @throws TransactionException Failed to read the WAL files
+     */
+    public boolean isRecoveryNeeded() throws TransactionException
+    {
+        final String walDirectory = context.getWALDirectory();
+        if (!new File(walDirectory).isDirectory())
+        {
+            return false;
+        }
+
+        final String[] filePaths = getJournalFiles(walDirectory);
+        for (int i = filePaths.length - 1; i >= 0; i--)
+        {
+            final byte transactionType = findLastTransactionType(walDirectory + filePaths[i]);
+            if (transactionType != 0)
+            {
+                return transactionType != CHECKPOINT;
             }
         }
+        return false;
     }
 
     /**
@@ -204,6 +334,45 @@ public class TransactionControllerImpl implements TransactionController
      * @throws TransactionException If a transaction failed to execute, this will be thrown
      */
     public boolean applyTransactionLog(String walTransactionFilePath, Function<Transaction, Boolean> executeTransaction) throws TransactionException
+    {
+        final TransactionReplay replay = new TransactionReplay();
+        try
+        {
+            applyTransactionLog(walTransactionFilePath, 0, executeTransaction, replay);
+        } finally
+        {
+            replay.close();
+        }
+
+        return true;
+    }
+
+    /**
+     * Roll a transaction log forward starting at a position within the file
+     *
+     * @param walTransactionFilePath File that contains transaction log.
+     * @param position Position within the file to start at
+     * @param executeTransaction Function that determines whether or not you should execute the transaction
+     * @param replay Lanes transactions are applied on
+     * @throws TransactionException If a transaction failed to execute, this will be thrown
+     */
+    protected void applyTransactionLog(String walTransactionFilePath, long position, Function<Transaction, Boolean> executeTransaction, TransactionReplay replay) throws TransactionException
+    {
+        applyTransactionLog(walTransactionFilePath, position, executeTransaction, replay, false);
+    }
+
+    /**
+     * Roll a transaction log forward starting at a position within the file.  Saves and deletes are applied in parallel,
+     * partitioned by record so each record sees its transactions in order.  Queries wait for all preceding transactions.
+     *
+     * @param walTransactionFilePath File that contains transaction log.
+     * @param position Position within the file to start at
+     * @param executeTransaction Function that determines whether or not you should execute the transaction
+     * @param replay Lanes transactions are applied on
+     * @param suppressJournal Do not journal the applied transactions again
+     * @throws TransactionException If a transaction failed to execute, this will be thrown
+     */
+    protected void applyTransactionLog(String walTransactionFilePath, long position, Function<Transaction, Boolean> executeTransaction, TransactionReplay replay, boolean suppressJournal) throws TransactionException
     {
         final FileChannel channel = FileUtil.openFileChannel(walTransactionFilePath);
 
@@ -216,7 +385,7 @@ public class TransactionControllerImpl implements TransactionController
         Transaction transaction = null;
 
         try {
-            channel.position(0);
+            channel.position(position);
             while(channel.position() < channel.size()) {
 
                 try {
@@ -225,58 +394,273 @@ public class TransactionControllerImpl implements TransactionController
 
                     byte transactionType = metadataBuffer.get();
                     int transactionDataLength = metadataBuffer.getInt();
+                    metadataBuffer.rewind();
+
+                    if (transactionType == CHECKPOINT) {
+                        channel.position(channel.position() + transactionDataLength);
+                        continue;
+                    }
 
                     final ByteBuffer transactionBuffer = ObjectBuffer.allocate(transactionDataLength);
                     channel.read(transactionBuffer);
                     transactionBuffer.rewind();
 
                     if (transactionType == SAVE) {
-                        IManagedEntity entity = (IManagedEntity)SocketBuffer.deserialize(transactionBuffer);
+                        final IManagedEntity entity = (IManagedEntity)SocketBuffer.deserialize(transactionBuffer);
                         transaction = new SaveTransaction(entity);
                         if(executeTransaction.apply(transaction) == true)
                         {
-                            ((ManagedEntity)entity).ignoreListeners = true;
-                            this.persistenceManager.saveEntity(entity);
-                            ((ManagedEntity)entity).ignoreListeners = false;
+                            submit(replay, entity, transaction, () -> {
+                                ((ManagedEntity)entity).ignoreListeners = true;
+                                replay(suppressJournal, () -> this.persistenceManager.saveEntity(entity));
+                                ((ManagedEntity)entity).ignoreListeners = false;
+                            });
                         }
                     } else if (transactionType == DELETE) {
-                        IManagedEntity entity = (IManagedEntity)SocketBuffer.deserialize(transactionBuffer);
+                        final IManagedEntity entity = (IManagedEntity)SocketBuffer.deserialize(transactionBuffer);
                         transaction = new DeleteTransaction(entity);
                         if(executeTransaction.apply(transaction) == true)
                         {
-                            ((ManagedEntity)entity).ignoreListeners = true;
-                            this.persistenceManager.deleteEntity(entity);
-                            ((ManagedEntity)entity).ignoreListeners = false;
+                            submit(replay, entity, transaction, () -> {
+                                ((ManagedEntity)entity).ignoreListeners = true;
+                                replay(suppressJournal, () -> this.persistenceManager.deleteEntity(entity));
+                                ((ManagedEntity)entity).ignoreListeners = false;
+                            });
                         }
                     } else if (transactionType == UPDATE_QUERY) {
-                        Query query = (Query)SocketBuffer.deserialize(transactionBuffer);
+                        final Query query = (Query)SocketBuffer.deserialize(transactionBuffer);
                         transaction = new UpdateQueryTransaction(query);
                         if(executeTransaction.apply(transaction) == true)
                         {
-                            this.persistenceManager.executeUpdate(query);
+                            replay.await();
+                            replay(suppressJournal, () -> this.persistenceManager.executeUpdate(query));
                         }
                     } else if (transactionType == DELETE_QUERY) {
-                        Query query = (Query)SocketBuffer.deserialize(transactionBuffer);
+                        final Query query = (Query)SocketBuffer.deserialize(transactionBuffer);
                         transaction = new DeleteQueryTransaction(query);
                         if(executeTransaction.apply(transaction) == true)
                         {
-                            this.persistenceManager.executeDelete(query);
+                            replay.await();
+                            replay(suppressJournal, () -> this.persistenceManager.executeDelete(query));
                         }
                     }
 
-                    metadataBuffer.rewind();
                     transactionBuffer.clear();
                 }
+                catch (TransactionException cause)
+                {
+                    throw cause;
+                }
                 catch (Exception cause)
                 {
                     throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_EXECUTE, transaction, cause);
                 }
             }
+
+            replay.await();
+        } catch (TransactionException e) {
+            awaitQuietly(replay);
+            throw e;
         } catch (IOException e) {
+            awaitQuietly(replay);
             throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_READ_FILE);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignore) {}
         }
+    }
 
-        return true;
+    /**
+     * Apply a save or delete on the lane of its record.  Saving or deleting an entity with relationships writes the
+     * records of related entities that belong to other lanes, so it is applied once every lane has caught up and
+     * before any later transaction.
+     *
+     * @param replay Lanes transactions are applied on
+     * @param entity Entity within the transaction
+     * @param transaction Transaction being applied
+     * @param apply Applies the transaction
+     * @throws Exception Failed to apply the transaction
+     */
+    protected void submit(TransactionReplay replay, IManagedEntity entity, Transaction transaction, TransactionReplay.ReplayAction apply) throws Exception
+    {
+        final EntityDescriptor descriptor = context.getBaseDescriptorForEntity(entity.getClass());
+
+        if (descriptor.getRelationships().isEmpty())
+        {
+            replay.submit(entity.getClass(), AbstractRecordController.getIndexValueFromEntity(entity, descriptor.getIdentifier()), transaction, apply);
+        }
+        else
+        {
+            replay.await();
+            apply.apply();
+        }
+    }
+
+    /**
+     * Apply a transaction, optionally without journaling it again
+     *
+     * @param suppressJournal Do not journal the transaction
+     * @param apply Applies the transaction
+     * @throws Exception Failed to apply the transaction
+     */
+    protected void replay(boolean suppressJournal, TransactionReplay.ReplayAction apply) throws Exception
+    {
+        if (!suppressJournal)
+        {
+            apply.apply();
+            return;
+        }
+
+        replaying.set(Boolean.TRUE);
+        try
+        {
+            apply.apply();
+        } finally
+        {
+            replaying.remove();
+        }
+    }
+
+    /**
+     * Wait for the transactions already submitted after a failure
+     *
+     * @param replay Lanes transactions are applied on
+     */
+    protected static void awaitQuietly(TransactionReplay replay)
+    {
+        try
+        {
+            replay.await();
+        } catch (TransactionException ignore)
+        {
+        }
+    }
+
+    /**
+     * Find the position after each checkpoint within a WAL file
+     *
+     * @param walTransactionFilePath File that contains transaction log.
+     * @return Positions following each checkpoint
+     * @throws TransactionException Failed to read the file
+     */
+    protected static List<Long> findCheckpoints(String walTransactionFilePath) throws TransactionException
+    {
+        final FileChannel channel = FileUtil.openFileChannel(walTransactionFilePath);
+
+        if(channel == null || !channel.isOpen())
+        {
+            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_READ_FILE);
+        }
+
+        final List<Long> checkpoints = new ArrayList<>();
+        final ByteBuffer metadataBuffer = ObjectBuffer.allocate(5);
+
+        try {
+            long position = 0;
+            final long size = channel.size();
+
+            while (position + 5 <= size)
+            {
+                metadataBuffer.clear();
+                channel.read(metadataBuffer, position);
+                metadataBuffer.rewind();
+
+                final byte transactionType = metadataBuffer.get();
+                position += 5 + metadataBuffer.getInt();
+
+                if (transactionType == CHECKPOINT)
+                {
+                    checkpoints.add(position);
+                }
+            }
+        } catch (IOException e) {
+            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_READ_FILE);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignore) {}
+        }
+
+        return checkpoints;
+    }
+
+    /**
+     * Find the type of the last transaction within a WAL file
+     *
+     * @param walTransactionFilePath File that contains transaction log.
+     * @return Type of the last transaction or 0 if the file is empty
+     * @throws TransactionException Failed to read the file
+     */
+    protected static byte findLastTransactionType(String walTransactionFilePath) throws TransactionException
+    {
+        final FileChannel channel = FileUtil.openFileChannel(walTransactionFilePath);
+
+        if(channel == null || !channel.isOpen())
+        {
+            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_READ_FILE);
+        }
+
+        final ByteBuffer metadataBuffer = ObjectBuffer.allocate(5);
+        byte transactionType = 0;
+
+        try {
+            long position = 0;
+            final long size = channel.size();
+
+            while (position + 5 <= size)
+            {
+                metadataBuffer.clear();
+                channel.read(metadataBuffer, position);
+                metadataBuffer.rewind();
+
+                transactionType = metadataBuffer.get();
+                position += 5 + metadataBuffer.getInt();
+            }
+        } catch (IOException e) {
+            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_READ_FILE);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignore) {}
+        }
+
+        return transactionType;
+    }
+
+    /**
+     * List the WAL files within a directory in the order they were written.  WAL files are named by their index so they are
+     * sorted numerically rather than by name.
+     *
+     * @param directoryPath Directory containing WAL transaction files.
+     * @return WAL file names in order
+     * @throws TransactionException The directory does not exist
+     */
+    public static String[] getJournalFiles(String directoryPath) throws TransactionException
+    {
+        final File walDirectory = new File(directoryPath);
+        if(!walDirectory.exists() || !walDirectory.isDirectory())
+        {
+            throw new TransactionException(TransactionException.TRANSACTION_FAILED_TO_RECOVER_FROM_DIRECTORY);
+        }
+
+        final String[] filePaths = walDirectory.list();
+        Arrays.sort(filePaths, TransactionControllerImpl::compareJournalFiles);
+        return filePaths;
+    }
+
+    /**
+     * Compare WAL file names by their index
+     */
+    protected static int compareJournalFiles(String file1, String file2)
+    {
+        try
+        {
+            return Long.compare(Long.parseLong(file1.replace(".wal", "")), Long.parseLong(file2.replace(".wal", "")));
+        } catch (NumberFormatException e)
+        {
+            return file1.compareTo(file2);
+        }
     }
 
 }
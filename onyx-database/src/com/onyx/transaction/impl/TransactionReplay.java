@@ -0,0 +1,140 @@
+package com.onyx.transaction.impl;
+
+import com.onyx.exception.TransactionException;
+import com.onyx.transaction.Transaction;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Applies WAL transactions in parallel.  Transactions are partitioned into lanes by entity type and identifier so that
+ * all transactions for the same record are applied in the order they were written.  Queries and entities with
+ * relationships can touch any record so they are applied once every lane has caught up.
+ */
+public class TransactionReplay
+{
+    // Maximum number of transactions read ahead of the lanes applying them
+    protected static final int MAX_PENDING = 10000;
+
+    protected final ExecutorService[] lanes;
+    protected final Future[] lastSubmitted;
+    protected final Semaphore pending = new Semaphore(MAX_PENDING);
+    protected final AtomicReference<TransactionException> failure = new AtomicReference<>();
+
+    /**
+     * Constructor with a lane per available processor
+     */
+    public TransactionReplay()
+    {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param laneCount Number of transactions applied at the same time
+     */
+    public TransactionReplay(int laneCount)
+    {
+        this.lanes = new ExecutorService[laneCount];
+        this.lastSubmitted = new Future[laneCount];
+
+        for (int i = 0; i < laneCount; i++)
+        {
+            lanes[i] = Executors.newSingleThreadExecutor();
+        }
+    }
+
+    /**
+     * Apply a transaction on the lane for its record
+     *
+     * @param entityType Entity type of the record
+     * @param identifier Record identifier
+     * @param transaction Transaction being applied
+     * @param apply Applies the transaction
+     * @throws TransactionException A previously submitted transaction failed
+     */
+    public void submit(Class entityType, Object identifier, Transaction transaction, ReplayAction apply) throws TransactionException
+    {
+        checkFailure();
+
+        final int lane = Math.floorMod(31 * entityType.getName().hashCode() + ((identifier == null) ? 0 : identifier.hashCode()), lanes.length);
+
+        pending.acquireUninterruptibly();
+        lastSubmitted[lane] = lanes[lane].submit(() -> {
+            try
+            {
+                apply.apply();
+            } catch (Exception cause)
+            {
+                failure.compareAndSet(null, new TransactionException(TransactionException.TRANSACTION_FAILED_TO_EXECUTE, transaction, cause));
+            } finally
+            {
+                pending.release();
+            }
+        });
+    }
+
+    /**
+     * Wait for every lane to apply the transactions submitted to it
+     *
+     * @throws TransactionException A submitted transaction failed
+     */
+    public void await() throws TransactionException
+    {
+        for (int i = 0; i < lanes.length; i++)
+        {
+            if (lastSubmitted[i] != null)
+            {
+                try
+                {
+                    lastSubmitted[i].get();
+                } catch (InterruptedException | ExecutionException e)
+                {
+                    failure.compareAndSet(null, new TransactionException(TransactionException.TRANSACTION_FAILED_TO_EXECUTE, null, e));
+                }
+                lastSubmitted[i] = null;
+            }
+        }
+
+        checkFailure();
+    }
+
+    /**
+     * Stop the lanes
+     */
+    public void close()
+    {
+        for (ExecutorService lane : lanes)
+        {
+            lane.shutdown();
+        }
+    }
+
+    /**
+     * Throw the first failure and reset it so the next file can be applied
+     *
+     * @throws TransactionException Transaction failure
+     */
+    protected void checkFailure() throws TransactionException
+    {
+        final TransactionException cause = failure.getAndSet(null);
+        if (cause != null)
+        {
+            throw cause;
+        }
+    }
+
+    /**
+     * Applies a single transaction
+     */
+    @FunctionalInterface
+    public interface ReplayAction
+    {
+        void apply() throws Exception;
+    }
+}
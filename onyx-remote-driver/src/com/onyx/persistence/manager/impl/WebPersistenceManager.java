@@ -189,7 +189,9 @@ public class WebPersistenceManager extends AbstractWebPersistenceManager impleme
         final EntityQueryBody body = new EntityQueryBody();
         body.setQuery(query);
 
-        if(query.getSelections() != null && query.getSelections().size() > 0)
+        // Selections and projections return rows of attribute values rather than entities
+        if((query.getSelections() != null && query.getSelections().size() > 0)
+                || (query.getProjections() != null && query.getProjections().size() > 0))
         {
             QueryResultResponseBody response = (QueryResultResponseBody)this.performCall(getURL() + EXECUTE_QUERY, HashMap.class, QueryResultResponseBody.class, body);
             query.setResultsCount(response.getMaxResults());